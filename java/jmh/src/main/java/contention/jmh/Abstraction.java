@@ -0,0 +1,158 @@
+package contention.jmh;
+
+import java.lang.reflect.Constructor;
+import java.util.Random;
+
+import contention.abstractions.CompositionalIntSet;
+import contention.abstractions.CompositionalMap;
+import contention.abstractions.CompositionalSortedSet;
+import contention.abstractions.MaintenanceAlg;
+
+/**
+ * Uniform view over the three kinds of abstractions the synchrobench
+ * harness knows how to drive (integer sets, maps and sorted sets), so that
+ * the JMH benchmarks do not need one method per abstraction type.
+ */
+public abstract class Abstraction {
+
+	/** The underlying data structure, used for maintenance shutdown */
+	protected final Object bench;
+
+	protected Abstraction(Object bench) {
+		this.bench = bench;
+	}
+
+	public abstract boolean insert(int key);
+
+	public abstract boolean delete(int key);
+
+	public abstract boolean contains(int key);
+
+	public abstract int size();
+
+	/**
+	 * Instantiates the benchmark class reflectively, picking the abstraction
+	 * the same way contention.benchmark.Test#instanciateAbstraction does: an
+	 * integer set first, then a map, then a sorted set.
+	 *
+	 * @param benchName the fully qualified class name of the data structure
+	 * @return the adapter around a fresh instance of the data structure
+	 */
+	@SuppressWarnings("unchecked")
+	public static Abstraction instanciate(String benchName) {
+		Object instance;
+		try {
+			Class<?> benchClass = Class.forName(benchName);
+			Constructor<?> c = benchClass.getConstructor();
+			instance = c.newInstance();
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Cannot find benchmark class: "
+					+ benchName, e);
+		}
+
+		if (instance instanceof CompositionalIntSet) {
+			return new IntSet((CompositionalIntSet) instance);
+		} else if (instance instanceof CompositionalMap) {
+			return new Map((CompositionalMap<Integer, Integer>) instance);
+		} else if (instance instanceof CompositionalSortedSet) {
+			return new SortedSet((CompositionalSortedSet<Integer>) instance);
+		}
+		throw new IllegalArgumentException("Not a compositional abstraction: "
+				+ benchName);
+	}
+
+	/**
+	 * Fills the abstraction with size distinct keys drawn in [0, range), using
+	 * the same seed as contention.benchmark.Test#fill.
+	 */
+	public void fill(int range, long size) {
+		Random rand = new Random(239);
+		for (long i = size; i > 0;) {
+			if (insert(rand.nextInt(range)))
+				i--;
+		}
+	}
+
+	/**
+	 * Stops the background maintenance of the structure, if any.
+	 */
+	public void stopMaintenance() {
+		if (bench instanceof MaintenanceAlg)
+			((MaintenanceAlg) bench).stopMaintenance();
+	}
+
+	static final class IntSet extends Abstraction {
+		private final CompositionalIntSet set;
+
+		IntSet(CompositionalIntSet set) {
+			super(set);
+			this.set = set;
+		}
+
+		public boolean insert(int key) {
+			return set.addInt(key);
+		}
+
+		public boolean delete(int key) {
+			return set.removeInt(key);
+		}
+
+		public boolean contains(int key) {
+			return set.containsInt(key);
+		}
+
+		public int size() {
+			return set.size();
+		}
+	}
+
+	static final class Map extends Abstraction {
+		private final CompositionalMap<Integer, Integer> map;
+
+		Map(CompositionalMap<Integer, Integer> map) {
+			super(map);
+			this.map = map;
+		}
+
+		public boolean insert(int key) {
+			return map.putIfAbsent(key, key) == null;
+		}
+
+		public boolean delete(int key) {
+			return map.remove(key) != null;
+		}
+
+		public boolean contains(int key) {
+			return map.get(key) != null;
+		}
+
+		public int size() {
+			return map.size();
+		}
+	}
+
+	static final class SortedSet extends Abstraction {
+		private final CompositionalSortedSet<Integer> set;
+
+		SortedSet(CompositionalSortedSet<Integer> set) {
+			super(set);
+			this.set = set;
+		}
+
+		public boolean insert(int key) {
+			return set.add(key);
+		}
+
+		public boolean delete(int key) {
+			return set.remove(key);
+		}
+
+		public boolean contains(int key) {
+			return set.contains(key);
+		}
+
+		public int size() {
+			return set.size();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package contention.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * JMH counterpart of contention.benchmark.Test.
+ *
+ * The parameters mirror contention.benchmark.Parameters and can be overridden
+ * from the JMH command line, e.g.:
+ *
+ * java -jar target/benchmarks.jar CompositionalBenchmark.mix -f 5 -t 8
+ *      -p benchmark=trees.lockbased.LogicalOrderingAVL -p size=65536
+ *      -p range=131072 -p updates=20
+ *
+ * The mix benchmark reproduces the operation distribution of
+ * contention.benchmark.ThreadLoop#run and is scaled with -t, while the
+ * getPutRemove group runs get, putIfAbsent and remove on dedicated threads
+ * whose respective counts are set with -tg (e.g. -tg 6,1,1).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(3)
+public class CompositionalBenchmark {
+
+	/** The class name of the data structure, as given to Test with -b */
+	@Param("skiplists.lockfree.NonBlockingFriendlySkipListMap")
+	public String benchmark;
+	/** The initial size, as given to Test with -i */
+	@Param("1024")
+	public int size;
+	/** The key range, as given to Test with -r */
+	@Param("2048")
+	public int range;
+	/** The update ratio in percent, as given to Test with -u */
+	@Param("40")
+	public int updates;
+	/** The size() ratio in percent, as given to Test with -s */
+	@Param("0")
+	public int snapshots;
+
+	Abstraction bench;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		if (range < size)
+			throw new IllegalArgumentException("The range (" + range
+					+ ") must not be smaller than the size (" + size + ")");
+		if (updates + snapshots > 100)
+			throw new IllegalArgumentException(
+					"The update and snapshot ratios exceed 100%");
+		bench = Abstraction.instanciate(benchmark);
+		bench.fill(range, size);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		bench.stopMaintenance();
+	}
+
+	/**
+	 * The thread-private PRNG and operation boundaries, seeded with the thread
+	 * index as in ThreadLoop.
+	 */
+	@State(Scope.Thread)
+	public static class ThreadState {
+		Random rand;
+		/**
+		 * 0%        cdf[0]        cdf[1]       100%
+		 * |--writeSome--|--readAll--|--readSome--|
+		 */
+		int[] cdf = new int[2];
+
+		@Setup(Level.Trial)
+		public void setUp(ThreadParams params, CompositionalBenchmark b) {
+			rand = new Random(params.getThreadIndex());
+			cdf[0] = 10 * b.updates;
+			cdf[1] = cdf[0] + 10 * b.snapshots;
+		}
+	}
+
+	@Benchmark
+	public Object mix(ThreadState t) {
+		int key = t.rand.nextInt(range);
+		int coin = t.rand.nextInt(1000);
+		if (coin < t.cdf[0]) {
+			if (2 * coin < t.cdf[0])
+				return bench.insert(key);
+			return bench.delete(key);
+		} else if (coin < t.cdf[1]) {
+			return bench.size();
+		}
+		return bench.contains(key);
+	}
+
+	@Benchmark
+	@Group("getPutRemove")
+	@GroupThreads(1)
+	public boolean get(ThreadState t) {
+		return bench.contains(t.rand.nextInt(range));
+	}
+
+	@Benchmark
+	@Group("getPutRemove")
+	@GroupThreads(1)
+	public boolean putIfAbsent(ThreadState t) {
+		return bench.insert(t.rand.nextInt(range));
+	}
+
+	@Benchmark
+	@Group("getPutRemove")
+	@GroupThreads(1)
+	public boolean remove(ThreadState t) {
+		return bench.delete(t.rand.nextInt(range));
+	}
+}
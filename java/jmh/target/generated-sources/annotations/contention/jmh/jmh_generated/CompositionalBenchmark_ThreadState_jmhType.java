@@ -0,0 +1,4 @@
+package contention.jmh.jmh_generated;
+public class CompositionalBenchmark_ThreadState_jmhType extends CompositionalBenchmark_ThreadState_jmhType_B3 {
+}
+
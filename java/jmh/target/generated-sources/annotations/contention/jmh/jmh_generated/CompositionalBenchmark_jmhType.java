@@ -0,0 +1,4 @@
+package contention.jmh.jmh_generated;
+public class CompositionalBenchmark_jmhType extends CompositionalBenchmark_jmhType_B3 {
+}
+
@@ -70,6 +70,11 @@ public abstract class AbstractCompositionalIntSet implements CompositionalIntSet
         // TODO Auto-generated method stub
     }
 
+    @Override
+    public int rangeScan(Integer fromKey, Integer toKey) {
+        return rangeScanInt(fromKey, toKey);
+    }
+
     @Override
     public Integer putIfAbsent(Integer k, Integer v) {
         if (addInt(k)) {
@@ -94,14 +99,24 @@ public abstract class AbstractCompositionalIntSet implements CompositionalIntSet
 
     @Override
     public boolean addAll(Collection<Integer> c) {
-        throw new RuntimeException("unimplemented method");
-        // TODO Auto-generated method stub
+        boolean modified = false;
+        for (Integer x : c) {
+            if (addInt(x)) {
+                modified = true;
+            }
+        }
+        return modified;
     }
 
     @Override
     public boolean removeAll(Collection<Integer> c) {
-        throw new RuntimeException("unimplemented method");
-        // TODO Auto-generated method stub
+        boolean modified = false;
+        for (Integer x : c) {
+            if (removeInt(x)) {
+                modified = true;
+            }
+        }
+        return modified;
     }
 
     @Override
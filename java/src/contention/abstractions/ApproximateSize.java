@@ -0,0 +1,15 @@
+package contention.abstractions;
+
+/**
+ * A structure counting its elements in a SizeCounter, a cheap alternative to
+ * its size(), which traverses the structure.
+ */
+public interface ApproximateSize {
+
+	/**
+	 * @return the number of elements counted by the insertions and removals
+	 *         that completed, in time independent of the size of the
+	 *         structure; exact while no update runs
+	 */
+	public int approximateSize();
+}
@@ -0,0 +1,22 @@
+package contention.abstractions;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * Interface of the maps whose operations can be handed off to a combiner
+ * instead of blocking the calling thread
+ */
+public interface AsyncMap<K, V> {
+
+	/**
+	 * The operations are published to the combiner and return at once. The
+	 * operations of a thread take effect in the order it issued them, and
+	 * each of them is atomic, the future completing with what the
+	 * synchronous operation would have returned.
+	 */
+	public CompletableFuture<V> getAsync(K key);
+
+	public CompletableFuture<V> putIfAbsentAsync(K key, V value);
+
+	public CompletableFuture<V> removeAsync(K key);
+}
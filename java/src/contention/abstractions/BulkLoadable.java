@@ -0,0 +1,14 @@
+package contention.abstractions;
+
+/*
+ * Interface of the structures that can be filled in bulk
+ */
+public interface BulkLoadable {
+
+	/**
+	 * Insert the given keys, each mapped to itself, into the empty structure.
+	 * 
+	 * @param sortedKeys the keys, in ascending order and without duplicates
+	 */
+	public void bulkLoad(int[] sortedKeys);
+}
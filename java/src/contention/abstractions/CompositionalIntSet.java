@@ -28,5 +28,45 @@ public interface CompositionalIntSet {
 	
 	public Object putIfAbsent(int x, int y);
 	
-	
+	/**
+	 * Range scan hook: visits in ascending order the elements of the set
+	 * lying in [from, to) and returns how many were visited. This default
+	 * probes every value of the interval.
+	 */
+	public default int rangeScanInt(int from, int to) {
+		int count = 0;
+		for (int x = from; x < to; x++)
+			if (containsInt(x))
+				count++;
+		return count;
+	}
+
+	/**
+	 * Batch hooks: apply an operation to each element of a batch sorted in
+	 * ascending order, and return on how many elements it succeeded. These
+	 * defaults apply the batch element by element.
+	 */
+	public default int addBatchInt(int[] xs) {
+		int count = 0;
+		for (int i = 0; i < xs.length; i++)
+			if (addInt(xs[i]))
+				count++;
+		return count;
+	}
+
+	public default int removeBatchInt(int[] xs) {
+		int count = 0;
+		for (int i = 0; i < xs.length; i++)
+			if (removeInt(xs[i]))
+				count++;
+		return count;
+	}
+
+	public default int containsBatchInt(int[] xs) {
+		int count = 0;
+		for (int i = 0; i < xs.length; i++)
+			if (containsInt(xs[i]))
+				count++;
+		return count;
+	}
 }
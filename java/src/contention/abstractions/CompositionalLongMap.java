@@ -0,0 +1,48 @@
+package contention.abstractions;
+
+import java.util.function.LongBinaryOperator;
+
+/*
+ * Compositional map interface with primitive long keys and values, for
+ * structures storing keys in primitive fields rather than boxing them
+ */
+public interface CompositionalLongMap {
+
+	/**
+	 * The value standing for an absent key, which cannot be stored
+	 */
+	public static final long NO_VALUE = Long.MIN_VALUE;
+
+	/**
+	 * @return the value of key, or NO_VALUE if key is absent
+	 */
+	public long get(long key);
+
+	public default boolean containsKey(long key) {
+		return get(key) != NO_VALUE;
+	}
+
+	/**
+	 * @return the value of key, or NO_VALUE if key was absent and value
+	 *         inserted
+	 */
+	public long putIfAbsent(long key, long value);
+
+	/**
+	 * @return the removed value of key, or NO_VALUE if key was absent
+	 */
+	public long remove(long key);
+
+	/**
+	 * Atomically replace the value of key by remapping(key, value), value
+	 * being NO_VALUE if key is absent, and remove key if the new value is
+	 * NO_VALUE
+	 *
+	 * @return the new value of key
+	 */
+	public long compute(long key, LongBinaryOperator remapping);
+
+	public void clear();
+
+	public int size();
+}
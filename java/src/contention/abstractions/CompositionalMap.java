@@ -10,6 +10,10 @@ import java.util.Map;
  */
 public interface CompositionalMap<K, V> extends Map<K, V> {
 	
+    /*
+     * Compile-time traversal and modification counts, superseded by the
+     * ContentionCounters of the structures implementing ContentionProfiled
+     */
     public static final boolean TRAVERSAL_COUNT = false;
     public static final boolean STRUCT_MODS = false;
     
@@ -32,5 +36,70 @@ public interface CompositionalMap<K, V> extends Map<K, V> {
 	public void clear();
 	
 	public int size();
+
+	/**
+	 * Range scan hook: visits the keys of the map lying in [fromKey, toKey)
+	 * and returns how many were visited. Ordered maps override it with a walk
+	 * of their ordering layout; this default probes every integer key of the
+	 * interval, and traverses the whole key set for other key types.
+	 */
+	@SuppressWarnings("unchecked")
+	public default int rangeScan(K fromKey, K toKey) {
+		int count = 0;
+		if (fromKey instanceof Integer) {
+			for (int x = (Integer) fromKey; x < (Integer) toKey; x++)
+				if (get(x) != null)
+					count++;
+			return count;
+		}
+		Comparable<? super K> from = (Comparable<? super K>) fromKey;
+		Comparable<? super K> to = (Comparable<? super K>) toKey;
+		for (K key : keySet())
+			if (from.compareTo(key) <= 0 && to.compareTo(key) > 0)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Batch hooks: apply an operation to each key of a batch sorted in
+	 * ascending order, so that ordered maps can resume the traversal of a key
+	 * where the traversal of the previous one stopped, or apply the whole
+	 * batch in one pass. A batch is not atomic unless the map says so, and
+	 * these defaults apply it key by key.
+	 *
+	 * @return the number of keys of the batch that were absent and inserted
+	 *         with their value
+	 */
+	public default int putIfAbsentBatch(K[] keys, V[] values) {
+		int count = 0;
+		for (int i = 0; i < keys.length; i++)
+			if (putIfAbsent(keys[i], values[i]) == null)
+				count++;
+		return count;
+	}
+
+	/**
+	 * @return the number of keys of the batch that were present and removed
+	 */
+	public default int removeBatch(K[] keys) {
+		int count = 0;
+		for (int i = 0; i < keys.length; i++)
+			if (remove(keys[i]) != null)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Reads the value of each key of the batch into values, null if absent
+	 *
+	 * @return the number of keys of the batch that were present
+	 */
+	public default int getBatch(K[] keys, V[] values) {
+		int count = 0;
+		for (int i = 0; i < keys.length; i++)
+			if ((values[i] = get(keys[i])) != null)
+				count++;
+		return count;
+	}
 }
 
@@ -0,0 +1,45 @@
+package contention.abstractions;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/*
+ * Interface of the ordered structures offering point-in-time snapshots
+ */
+public interface CompositionalSnapshot<K, V> {
+
+	/**
+	 * Take a read-only snapshot of the structure, in constant time and
+	 * without blocking the concurrent updates. The snapshot is linearizable:
+	 * it holds exactly the entries present when it was taken, however long
+	 * after it is read, and it must be closed once read so that the
+	 * structure can discard the versions kept for it.
+	 */
+	public View<K, V> snapshot();
+
+	/**
+	 * A snapshot, iterated in ascending key order
+	 */
+	public interface View<K, V> extends Iterable<Map.Entry<K, V>>,
+			AutoCloseable {
+
+		/**
+		 * @return the entries whose key lies in [fromKey, toKey), in
+		 *         ascending order, a null bound leaving the interval open
+		 */
+		public Iterator<Map.Entry<K, V>> iterator(K fromKey, K toKey);
+
+		/**
+		 * @return the number of keys lying in [fromKey, toKey)
+		 */
+		public int rangeScan(K fromKey, K toKey);
+
+		public int size();
+
+		/**
+		 * Release the snapshot, which cannot be read anymore
+		 */
+		@Override
+		public void close();
+	}
+}
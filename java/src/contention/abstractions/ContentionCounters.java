@@ -0,0 +1,70 @@
+package contention.abstractions;
+
+/**
+ * The counters of the contention met by the threads accessing a structure,
+ * enabled at runtime for the structures implementing ContentionProfiled.
+ *
+ * Each thread increments the counters of its own slot, found from its id,
+ * without synchronization nor ThreadLocal lookup; slots are two cache lines
+ * apart so that the threads do not share lines. Threads whose ids are equal
+ * modulo SLOTS share a slot and may lose increments, which cannot happen to
+ * up to SLOTS threads created one after the other, as benchmark threads are.
+ * The counters are summed once the threads are over.
+ */
+public class ContentionCounters {
+
+	/** The failed compare-and-swaps */
+	public static final int CAS_FAILURES = 0;
+	/** The attempts of a step of an operation repeated in place */
+	public static final int RETRIES = 1;
+	/** The lock acquisitions that had to wait */
+	public static final int LOCK_WAITS = 2;
+	/** The operations restarted from the entry point of the structure */
+	public static final int RESTARTS = 3;
+	/** The steps completing the operation of another thread */
+	public static final int HELPS = 4;
+	/** The nodes visited by traversals */
+	public static final int NODES_TRAVERSED = 5;
+
+	public static final String[] NAMES = { "casFailures", "retries",
+			"lockWaits", "restarts", "helps", "nodesTraversed" };
+
+	/** The number of slots, a power of two */
+	public static final int SLOTS = 256;
+	/** The longs between consecutive slots */
+	private static final int STRIDE = 16;
+
+	/** The slots, the first stride padding them from the array header */
+	private final long[] counts = new long[(SLOTS + 1) * STRIDE];
+
+	private static int slot() {
+		return (((int) Thread.currentThread().getId() & (SLOTS - 1)) + 1)
+				* STRIDE;
+	}
+
+	/**
+	 * Increment a counter of the current thread
+	 *
+	 * @param counter the counter, e.g. CAS_FAILURES
+	 */
+	public void add(int counter) {
+		counts[slot() + counter]++;
+	}
+
+	/**
+	 * Add to a counter of the current thread
+	 */
+	public void add(int counter, long amount) {
+		counts[slot() + counter] += amount;
+	}
+
+	/**
+	 * @return the sum of a counter over the threads, once they are over
+	 */
+	public long get(int counter) {
+		long sum = 0;
+		for (int slot = STRIDE; slot < counts.length; slot += STRIDE)
+			sum += counts[slot + counter];
+		return sum;
+	}
+}
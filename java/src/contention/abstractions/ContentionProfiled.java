@@ -0,0 +1,15 @@
+package contention.abstractions;
+
+/**
+ * A structure counting the contention it meets in ContentionCounters.
+ */
+public interface ContentionProfiled {
+
+	/**
+	 * Start counting the contention, or stop with null, while no thread
+	 * accesses the structure
+	 *
+	 * @param counters the counters, or null
+	 */
+	public void setContentionCounters(ContentionCounters counters);
+}
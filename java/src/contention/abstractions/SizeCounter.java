@@ -0,0 +1,77 @@
+package contention.abstractions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A striped counter of the elements of a structure, updated by its
+ * successful insertions and removals, so that its size is read without
+ * traversing it.
+ *
+ * Each thread adds to the stripe of its id, stripes being two cache lines
+ * apart so that the updates of different threads do not share lines, and
+ * the size sums the stripes, as the StripedSizedEpoch of SnapTree and the
+ * ConcurrentAutoTable of Cliff Click do. The sum is exact while no update
+ * runs and approximate otherwise: it may count an update whose insertion
+ * or removal is not visible yet, or miss one that is.
+ */
+public class SizeCounter {
+
+	/** The number of stripes, a power of two */
+	public static final int STRIPES = nextPowerOfTwo(Integer.getInteger(
+			"size.stripes", 64));
+	/** The longs between consecutive stripes */
+	private static final int STRIDE = 16;
+
+	/** The stripes, the first stride padding them from the array header */
+	private final AtomicLongArray counts = new AtomicLongArray((STRIPES + 1)
+			* STRIDE);
+
+	private static int nextPowerOfTwo(int n) {
+		return 1 << (32 - Integer.numberOfLeadingZeros(n - 1));
+	}
+
+	private static int stripe() {
+		return (((int) Thread.currentThread().getId() & (STRIPES - 1)) + 1)
+				* STRIDE;
+	}
+
+	public void increment() {
+		counts.getAndIncrement(stripe());
+	}
+
+	public void decrement() {
+		counts.getAndDecrement(stripe());
+	}
+
+	public void add(long delta) {
+		counts.getAndAdd(stripe(), delta);
+	}
+
+	/**
+	 * @return the sum of the stripes
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int stripe = STRIDE; stripe < counts.length(); stripe += STRIDE)
+			sum += counts.get(stripe);
+		return sum;
+	}
+
+	/**
+	 * @return the sum of the stripes as a size, which a removal counted
+	 *         before the insertion it follows cannot make negative
+	 */
+	public int size() {
+		long sum = sum();
+		return sum < 0 ? 0 : sum > Integer.MAX_VALUE ? Integer.MAX_VALUE
+				: (int) sum;
+	}
+
+	/**
+	 * Reset the stripes, while no update runs
+	 */
+	public void clear() {
+		for (int stripe = STRIDE; stripe < counts.length(); stripe += STRIDE)
+			counts.set(stripe, 0);
+	}
+}
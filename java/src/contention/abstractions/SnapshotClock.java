@@ -0,0 +1,258 @@
+package contention.abstractions;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The clock of the snapshots of a structure implementing
+ * CompositionalSnapshot.
+ *
+ * Taking a snapshot reads the time of the clock and advances it. An update
+ * creates a version of what it modifies, pending until it is labeled with the
+ * time of the clock once the update is visible, by the update itself or by
+ * the first operation observing it, so that a snapshot holds the versions
+ * labeled no later than its time: those of the updates observed before it
+ * was taken, and only those, the pending ones being labeled after its time.
+ * A snapshot labels the pending versions it reads before comparing their
+ * time with its own, so that it reads the same versions however many times it
+ * is iterated, unless their update must label them itself, in which case it
+ * waits for it.
+ * The structures keep the older versions of what their updates modify in
+ * place, and trim the ones that no open snapshot can read anymore.
+ */
+public class SnapshotClock {
+
+	/** The time of a pending version */
+	public static final long PENDING = Long.MAX_VALUE;
+
+	private final AtomicLong clock = new AtomicLong();
+
+	/** The number of open snapshots of each time */
+	private final ConcurrentSkipListMap<Long, Integer> open = new ConcurrentSkipListMap<Long, Integer>();
+
+	public long time() {
+		return clock.get();
+	}
+
+	/**
+	 * Open a snapshot: register its time then advance the clock past it, so
+	 * that the versions read by the snapshot are not trimmed
+	 *
+	 * @return the time of the snapshot
+	 */
+	public long open() {
+		while (true) {
+			long time = clock.get();
+			open.merge(time, 1, Integer::sum);
+			if (clock.get() == time) {
+				clock.compareAndSet(time, time + 1);
+				return time;
+			}
+			// another snapshot advanced the clock meanwhile
+			close(time);
+		}
+	}
+
+	public void close(long time) {
+		open.computeIfPresent(time, (t, count) -> count == 1 ? null : count - 1);
+	}
+
+	/**
+	 * @return a time no later than the time of any open snapshot, or of any
+	 *         snapshot opened from now on
+	 */
+	public long oldest() {
+		long time = clock.get();
+		Map.Entry<Long, Integer> first = open.firstEntry();
+		return first == null ? time : Math.min(time, first.getKey());
+	}
+
+	/**
+	 * Trim the versions older than the given one that no open snapshot can
+	 * read, keeping the last one labeled no later than the oldest snapshot.
+	 * The versions older than the given one must be labeled.
+	 */
+	public <T> void trim(Version<T> version) {
+		Version<T> v = version.older;
+		if (v == null || v.older == null)
+			return;
+		long oldest = oldest();
+		while (v != null && v.time() > oldest)
+			v = v.older;
+		if (v != null)
+			v.older = null;
+	}
+
+	/**
+	 * A version of a value, or of a link between the nodes of a structure.
+	 * The version of a link can be stamped by the version of a node, sharing
+	 * its label, so that a snapshot sees a node and the links leading to it
+	 * at the same time.
+	 */
+	public static class Version<T> {
+		public final T value;
+		private final Version<?> stamp;
+		private volatile long time;
+		/** Whether only the operations of the structure may label it */
+		private final boolean deferred;
+		volatile Version<T> older;
+
+		@SuppressWarnings("unchecked")
+		private static final AtomicLongFieldUpdater<Version<?>> timeUpdater = (AtomicLongFieldUpdater<Version<?>>) (AtomicLongFieldUpdater<?>) AtomicLongFieldUpdater
+				.newUpdater(Version.class, "time");
+
+		/**
+		 * Create a pending version
+		 */
+		public Version(T value, Version<T> older) {
+			this(value, older, null, PENDING, false);
+		}
+
+		/**
+		 * Create a pending version that the snapshots do not label, for an
+		 * update that is not visible at once, the snapshots reading it waiting
+		 * for the structure to label it instead
+		 */
+		public Version(T value, Version<T> older, boolean deferred) {
+			this(value, older, null, PENDING, deferred);
+		}
+
+		/**
+		 * Create a version stamped by another
+		 */
+		public Version(T value, Version<T> older, Version<?> stamp) {
+			this(value, older, stamp, PENDING, false);
+		}
+
+		/**
+		 * Create a version labeled with the given time, such as 0 for the
+		 * initial version of the sentinels
+		 */
+		public Version(T value, long time) {
+			this(value, null, null, time, false);
+		}
+
+		private Version(T value, Version<T> older, Version<?> stamp, long time,
+				boolean deferred) {
+			this.value = value;
+			this.older = older;
+			this.stamp = stamp;
+			this.time = time;
+			this.deferred = deferred;
+		}
+
+		/**
+		 * @return the label of the version, or PENDING
+		 */
+		public long time() {
+			return stamp != null ? stamp.time() : time;
+		}
+
+		/**
+		 * Label the version if it is pending
+		 */
+		public void label(SnapshotClock clock) {
+			if (stamp != null)
+				stamp.label(clock);
+			else if (time == PENDING)
+				timeUpdater.compareAndSet(this, PENDING, clock.time());
+		}
+
+		/**
+		 * @return the current version, labeled as observed
+		 */
+		public Version<T> read(SnapshotClock clock) {
+			label(clock);
+			return this;
+		}
+
+		public Version<T> older() {
+			return older;
+		}
+
+		/**
+		 * Label the version if it is pending, or wait for the structure to
+		 * label it if it is deferred
+		 *
+		 * @return the label of the version
+		 */
+		public long labeled(SnapshotClock clock) {
+			if (stamp != null)
+				return stamp.labeled(clock);
+			if (!deferred)
+				label(clock);
+			while (time == PENDING)
+				Thread.yield();
+			return time;
+		}
+
+		/**
+		 * @return the version read by the snapshot of the given time, or null
+		 *         if there was none yet, labeling the versions it goes through
+		 */
+		public Version<T> at(SnapshotClock clock, long snapshot) {
+			Version<T> v = this;
+			while (v != null && v.labeled(clock) > snapshot)
+				v = v.older;
+			return v;
+		}
+	}
+
+	/**
+	 * The common part of the snapshots, which iterate from the given bounds
+	 */
+	public static abstract class View<K, V> implements
+			CompositionalSnapshot.View<K, V> {
+
+		private final SnapshotClock clock;
+		private final AtomicBoolean closed = new AtomicBoolean();
+		/** The time of the snapshot */
+		protected final long time;
+
+		protected View(SnapshotClock clock) {
+			this.clock = clock;
+			this.time = clock.open();
+		}
+
+		/**
+		 * @return the entries of [fromKey, toKey) at the time of the snapshot
+		 */
+		protected abstract Iterator<Map.Entry<K, V>> entries(K fromKey, K toKey);
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator(K fromKey, K toKey) {
+			if (closed.get())
+				throw new IllegalStateException("The snapshot is closed");
+			return entries(fromKey, toKey);
+		}
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return iterator(null, null);
+		}
+
+		@Override
+		public int rangeScan(K fromKey, K toKey) {
+			int count = 0;
+			for (Iterator<Map.Entry<K, V>> it = iterator(fromKey, toKey); it
+					.hasNext(); it.next())
+				count++;
+			return count;
+		}
+
+		@Override
+		public int size() {
+			return rangeScan(null, null);
+		}
+
+		@Override
+		public void close() {
+			if (closed.compareAndSet(false, true))
+				clock.close(time);
+		}
+	}
+}
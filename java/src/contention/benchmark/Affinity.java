@@ -0,0 +1,281 @@
+package contention.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The binding of the benchmark threads to CPUs, set with the --bind option.
+ *
+ * A binding is either a list of CPUs, e.g. 0-3,8,10, or a fill policy
+ * applied to the topology of the online CPUs read from /sys:
+ *
+ * compact      -- fill a socket before the next one, the hardware threads
+ *                 of a core being adjacent
+ * scatter      -- alternate the sockets, each socket being filled as with
+ *                 compact
+ *
+ * Benchmark thread t is bound to the CPU t modulo the number of CPUs of the
+ * binding. As Java cannot set the affinity of a thread, each thread binds
+ * itself when it starts, before running its loop, by running taskset on its
+ * Linux thread id, read from /proc/thread-self. The bound threads then wait
+ * for all of them to be bound before running their loop, so that the process
+ * launches stay out of the timed run.
+ */
+public class Affinity {
+
+	public static final String COMPACT = "compact";
+	public static final String SCATTER = "scatter";
+
+	private static final String CPUS = "/sys/devices/system/cpu/";
+
+	/** The CPUs of the binding, in the order they are given to threads */
+	private final int[] cpus;
+	/** The sockets of these CPUs, -1 if unknown */
+	private final int[] sockets;
+	/** The number of threads that failed to bind themselves */
+	private final AtomicInteger unbound = new AtomicInteger();
+	/** A permit per thread done binding itself */
+	private final Semaphore bound = new Semaphore(0);
+	/** Opened once all the threads are bound */
+	private final CountDownLatch start = new CountDownLatch(1);
+	/** The number of binding tasks created */
+	private int tasks = 0;
+
+	/**
+	 * @param binding a fill policy or a list of CPUs
+	 * @throws IllegalArgumentException if the binding is invalid
+	 */
+	public Affinity(String binding) {
+		List<int[]> topology = topology();
+		if (COMPACT.equals(binding) || SCATTER.equals(binding)) {
+			Collections.sort(topology, new Comparator<int[]>() {
+				public int compare(int[] a, int[] b) {
+					for (int i : new int[] { 1, 2, 0 })
+						if (a[i] != b[i])
+							return Integer.compare(a[i], b[i]);
+					return 0;
+				}
+			});
+			if (SCATTER.equals(binding))
+				topology = scatter(topology);
+		} else {
+			List<int[]> listed = new ArrayList<int[]>();
+			for (int cpu : parseList(binding))
+				listed.add(find(topology, cpu));
+			topology = listed;
+		}
+		if (topology.isEmpty())
+			throw new IllegalArgumentException("No CPU to bind to: " + binding);
+		cpus = new int[topology.size()];
+		sockets = new int[topology.size()];
+		for (int i = 0; i < cpus.length; i++) {
+			cpus[i] = topology.get(i)[0];
+			sockets[i] = topology.get(i)[1];
+		}
+	}
+
+	/**
+	 * @return the online CPUs as {cpu, socket, core} triples, the socket
+	 *         and core being -1 when /sys does not tell them
+	 */
+	private static List<int[]> topology() {
+		List<int[]> topology = new ArrayList<int[]>();
+		int[] online;
+		try {
+			online = parseList(read(CPUS + "online"));
+		} catch (IOException e) {
+			online = new int[Runtime.getRuntime().availableProcessors()];
+			for (int cpu = 0; cpu < online.length; cpu++)
+				online[cpu] = cpu;
+		}
+		for (int cpu : online) {
+			int socket = -1, core = -1;
+			try {
+				socket = Integer.parseInt(read(CPUS + "cpu" + cpu
+						+ "/topology/physical_package_id"));
+				core = Integer.parseInt(read(CPUS + "cpu" + cpu
+						+ "/topology/core_id"));
+			} catch (IOException | NumberFormatException e) {
+				// unknown topology
+			}
+			topology.add(new int[] { cpu, socket, core });
+		}
+		return topology;
+	}
+
+	private static int[] find(List<int[]> topology, int cpu) {
+		for (int[] known : topology)
+			if (known[0] == cpu)
+				return known;
+		throw new IllegalArgumentException("CPU " + cpu + " is not online");
+	}
+
+	/**
+	 * @return the CPUs sorted by socket, the sockets taking turns
+	 */
+	private static List<int[]> scatter(List<int[]> compact) {
+		List<List<int[]>> perSocket = new ArrayList<List<int[]>>();
+		int socket = Integer.MIN_VALUE;
+		for (int[] cpu : compact) {
+			if (cpu[1] != socket || perSocket.isEmpty()) {
+				perSocket.add(new ArrayList<int[]>());
+				socket = cpu[1];
+			}
+			perSocket.get(perSocket.size() - 1).add(cpu);
+		}
+		List<int[]> scattered = new ArrayList<int[]>();
+		for (int i = 0; scattered.size() < compact.size(); i++)
+			for (List<int[]> cpus : perSocket)
+				if (i < cpus.size())
+					scattered.add(cpus.get(i));
+		return scattered;
+	}
+
+	/**
+	 * Parse a list of CPUs in the Linux format, e.g. 0-3,8,10
+	 *
+	 * @throws IllegalArgumentException if the list is invalid
+	 */
+	static int[] parseList(String list) {
+		List<Integer> cpus = new ArrayList<Integer>();
+		try {
+			for (String range : list.trim().split(",")) {
+				int dash = range.indexOf('-');
+				int first = Integer.parseInt(range.substring(0,
+						dash < 0 ? range.length() : dash).trim());
+				int last = dash < 0 ? first : Integer.parseInt(range
+						.substring(dash + 1).trim());
+				for (int cpu = first; cpu <= last; cpu++)
+					cpus.add(cpu);
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid CPU list: " + list);
+		}
+		int[] array = new int[cpus.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = cpus.get(i);
+		return array;
+	}
+
+	private static String read(String file) throws IOException {
+		return new String(Files.readAllBytes(Paths.get(file)),
+				StandardCharsets.US_ASCII).trim();
+	}
+
+	/**
+	 * @return the CPU of a benchmark thread
+	 */
+	public int cpu(int threadNum) {
+		return cpus[threadNum % cpus.length];
+	}
+
+	/**
+	 * @return a task binding the thread running it to the CPU of a
+	 *         benchmark thread, then running the benchmark task once
+	 *         released
+	 */
+	public Runnable bind(final int threadNum, final Runnable task) {
+		tasks++;
+		return new Runnable() {
+			public void run() {
+				if (!bindCurrentThread(cpu(threadNum))
+						&& unbound.getAndIncrement() == 0)
+					System.err.println("Cannot bind the benchmark threads, "
+							+ "taskset and /proc/thread-self are required");
+				bound.release();
+				boolean interrupted = false;
+				while (true) {
+					try {
+						start.await();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if (interrupted)
+					Thread.currentThread().interrupt();
+				task.run();
+			}
+		};
+	}
+
+	/**
+	 * Wait until the threads running the tasks of bind are bound
+	 */
+	public void awaitBound() throws InterruptedException {
+		bound.acquire(tasks);
+	}
+
+	/**
+	 * Let the bound threads run their benchmark task
+	 */
+	public void release() {
+		start.countDown();
+	}
+
+	/**
+	 * Bind the current thread to a CPU
+	 *
+	 * @return true if the thread was bound
+	 */
+	static boolean bindCurrentThread(int cpu) {
+		try {
+			Path self = Files.readSymbolicLink(Paths.get("/proc/thread-self"));
+			String tid = self.getFileName().toString();
+			Process taskset = new ProcessBuilder("taskset", "-p", "-c",
+					Integer.toString(cpu), tid).redirectErrorStream(true)
+					.redirectOutput(ProcessBuilder.Redirect.PIPE).start();
+			while (taskset.getInputStream().read() >= 0)
+				;
+			return taskset.waitFor() == 0;
+		} catch (IOException | UnsupportedOperationException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * @return the number of threads that failed to bind themselves
+	 */
+	public int getUnbound() {
+		return unbound.get();
+	}
+
+	/**
+	 * @return the CPUs of the first numThreads benchmark threads, e.g. 0,2,4
+	 */
+	public String describe(int numThreads) {
+		StringBuilder description = new StringBuilder();
+		for (int threadNum = 0; threadNum < numThreads; threadNum++)
+			description.append(threadNum > 0 ? "," : "").append(cpu(threadNum));
+		return description.toString();
+	}
+
+	/**
+	 * @return the number of sockets used by the first numThreads benchmark
+	 *         threads, 0 if unknown
+	 */
+	public int numSockets(int numThreads) {
+		List<Integer> used = new ArrayList<Integer>();
+		for (int threadNum = 0; threadNum < numThreads; threadNum++) {
+			int socket = sockets[threadNum % sockets.length];
+			if (socket < 0)
+				return 0;
+			if (!used.contains(socket))
+				used.add(socket);
+		}
+		return used.size();
+	}
+}
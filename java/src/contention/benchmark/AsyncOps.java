@@ -0,0 +1,108 @@
+package contention.benchmark;
+
+import java.util.concurrent.CompletableFuture;
+
+import contention.abstractions.AsyncMap;
+
+/**
+ * The outstanding operations of a thread of the --async option.
+ *
+ * With a number of outstanding operations set, the insertions, removals and
+ * lookups of each thread are handed off to the asynchronous operations of
+ * the benchmarked map, and the thread keeps issuing new ones while the
+ * oldest are pending, only waiting for the oldest once that many are. An
+ * operation is counted, and its latency from issue to completion recorded,
+ * when the thread collects its result.
+ */
+public class AsyncOps {
+
+	private final AsyncMap<Integer, Integer> map;
+	private final ThreadLoop loop;
+
+	/** The outstanding operations, in a ring in the order they were issued */
+	private final CompletableFuture<Integer>[] futures;
+	private final int[] operations;
+	private final long[] starts;
+	private final LatencyRecorder[] recorders;
+	private int next = 0;
+	private int outstanding = 0;
+
+	public AsyncOps(int size, AsyncMap<Integer, Integer> map, ThreadLoop loop) {
+		this.map = map;
+		this.loop = loop;
+		@SuppressWarnings("unchecked")
+		CompletableFuture<Integer>[] futures = (CompletableFuture<Integer>[]) new CompletableFuture<?>[size];
+		this.futures = futures;
+		this.operations = new int[size];
+		this.starts = new long[size];
+		this.recorders = new LatencyRecorder[size];
+	}
+
+	/**
+	 * @return the number of operations issued but not counted yet
+	 */
+	public int outstanding() {
+		return outstanding;
+	}
+
+	public void putIfAbsent(Integer key, Integer value, long start,
+			LatencyRecorder recorder) {
+		issue(map.putIfAbsentAsync(key, value), LatencyRecorder.ADD, start,
+				recorder);
+	}
+
+	public void remove(Integer key, long start, LatencyRecorder recorder) {
+		issue(map.removeAsync(key), LatencyRecorder.REMOVE, start, recorder);
+	}
+
+	public void get(Integer key, long start, LatencyRecorder recorder) {
+		issue(map.getAsync(key), LatencyRecorder.CONTAINS, start, recorder);
+	}
+
+	/**
+	 * Wait for the oldest operation if all the slots are taken, then take
+	 * its slot
+	 */
+	private void issue(CompletableFuture<Integer> future, int operation,
+			long start, LatencyRecorder recorder) {
+		if (futures[next] != null)
+			collect(next);
+		futures[next] = future;
+		operations[next] = operation;
+		starts[next] = start;
+		recorders[next] = recorder;
+		outstanding++;
+		next = (next + 1) % futures.length;
+	}
+
+	private void collect(int slot) {
+		Integer result = futures[slot].join();
+		boolean success = operations[slot] == LatencyRecorder.ADD ? result == null
+				: result != null;
+		if (!success)
+			loop.failures++;
+		else if (operations[slot] == LatencyRecorder.ADD)
+			loop.numAdd++;
+		else if (operations[slot] == LatencyRecorder.REMOVE)
+			loop.numRemove++;
+		else
+			loop.numContains++;
+		if (recorders[slot] != null)
+			recorders[slot].record(operations[slot], System.nanoTime()
+					- starts[slot]);
+		futures[slot] = null;
+		recorders[slot] = null;
+		outstanding--;
+	}
+
+	/**
+	 * Wait for all the outstanding operations, oldest first
+	 */
+	public void drain() {
+		for (int i = 0; i < futures.length; i++) {
+			int slot = (next + i) % futures.length;
+			if (futures[slot] != null)
+				collect(slot);
+		}
+	}
+}
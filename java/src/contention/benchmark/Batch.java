@@ -0,0 +1,77 @@
+package contention.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import contention.abstractions.CompositionalIntSet;
+import contention.abstractions.CompositionalMap;
+
+/**
+ * The batches of keys of the --batch option.
+ *
+ * With a batch size set, each writeAll operation inserts or removes a batch
+ * of keys drawn from the key distribution, sorted in ascending order as
+ * requests issued in bulk would be, through the batch operations of the
+ * benchmarked int set or map. Ordered structures implementing them natively
+ * resume the traversal of each key from the previous one, or apply the whole
+ * batch in one pass, and the others apply the batch key by key, so that
+ * comparing the two gives the gain of batching.
+ */
+public class Batch {
+
+	/** The keys of the current batch, in ascending order */
+	private final int[] keys;
+	/** The keys boxed for the maps */
+	private final Integer[] boxedKeys;
+
+	public Batch(int size) {
+		this.keys = new int[size];
+		this.boxedKeys = new Integer[size];
+	}
+
+	/**
+	 * Draw the keys of the next batch
+	 */
+	public void next(KeyDistribution distribution, Random rand) {
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = distribution.next(rand);
+		Arrays.sort(keys);
+	}
+
+	private Integer[] boxedKeys() {
+		for (int i = 0; i < keys.length; i++)
+			boxedKeys[i] = keys[i];
+		return boxedKeys;
+	}
+
+	/**
+	 * @return the number of keys of the batch inserted
+	 */
+	public int add(CompositionalIntSet set) {
+		return set.addBatchInt(keys);
+	}
+
+	/**
+	 * @return the number of keys of the batch removed
+	 */
+	public int remove(CompositionalIntSet set) {
+		return set.removeBatchInt(keys);
+	}
+
+	/**
+	 * Insert each key of the batch with itself as value
+	 *
+	 * @return the number of keys of the batch inserted
+	 */
+	public int add(CompositionalMap<Integer, Integer> map) {
+		Integer[] boxed = boxedKeys();
+		return map.putIfAbsentBatch(boxed, boxed);
+	}
+
+	/**
+	 * @return the number of keys of the batch removed
+	 */
+	public int remove(CompositionalMap<Integer, Integer> map) {
+		return map.removeBatch(boxedKeys());
+	}
+}
@@ -0,0 +1,336 @@
+package contention.benchmark;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.deuce.Atomic;
+
+import contention.abstractions.CompositionalIntSet;
+import contention.abstractions.CompositionalMap;
+import contention.abstractions.MaintenanceAlg;
+
+/**
+ * The composition of operations across several instances of the benchmarked
+ * structure, set with the --compose option.
+ *
+ * The initial keys of the benchmark instance are spread over the instances,
+ * key k starting in instance k mod n. Besides the usual single-key
+ * operations on a random instance, the threads then run composite
+ * operations on a key across instances: move(k, i, j) moves k, with its
+ * value, from instance i to instance j if it is in i but not in j, swap(k,
+ * i, j) exchanges the entries of k in i and j, and multiGet(k) reads k in
+ * every instance. All the operations run through one of these strategies:
+ *
+ * none         -- no synchronization, i.e. composition without atomicity
+ * lock         -- a global read-write lock
+ * striped      -- a read-write lock per stripe of keys
+ * optimistic   -- a stamped lock per stripe of keys, readers running
+ *                 optimistically and validating their snapshot
+ * stm          -- a Deuce transaction, the operations of transactional
+ *                 structures nesting in it (requires the Deuce agent)
+ *
+ * Each operation touching a single key, the striped strategies take a single
+ * lock and cannot deadlock.
+ */
+public class Composition {
+
+	public static final String NONE = "none";
+	public static final String LOCK = "lock";
+	public static final String STRIPED = "striped";
+	public static final String OPTIMISTIC = "optimistic";
+	public static final String STM = "stm";
+
+	/** The number of stripes of the striped strategies */
+	public static final int STRIPES = 64;
+
+	private static final int ADD = 0, REMOVE = 1, CONTAINS = 2, MOVE = 3,
+			SWAP = 4, MULTI_GET = 5;
+
+	public static boolean isValidStrategy(String strategy) {
+		return NONE.equals(strategy) || LOCK.equals(strategy)
+				|| STRIPED.equals(strategy) || OPTIMISTIC.equals(strategy)
+				|| STM.equals(strategy);
+	}
+
+	/**
+	 * An instance of the structure, seen as a map from int keys to values
+	 */
+	abstract static class Instance {
+		abstract Integer get(int key);
+
+		/** Insert a key absent from the instance */
+		abstract boolean put(int key, Integer value);
+
+		abstract Integer remove(int key);
+
+		abstract int size();
+	}
+
+	static class SetInstance extends Instance {
+		private final CompositionalIntSet set;
+
+		SetInstance(CompositionalIntSet set) {
+			this.set = set;
+		}
+
+		Integer get(int key) {
+			return set.containsInt(key) ? key : null;
+		}
+
+		boolean put(int key, Integer value) {
+			return set.addInt(key);
+		}
+
+		Integer remove(int key) {
+			return set.removeInt(key) ? key : null;
+		}
+
+		int size() {
+			return set.size();
+		}
+	}
+
+	static class MapInstance extends Instance {
+		private final CompositionalMap<Integer, Integer> map;
+
+		MapInstance(CompositionalMap<Integer, Integer> map) {
+			this.map = map;
+		}
+
+		Integer get(int key) {
+			return map.get(key);
+		}
+
+		boolean put(int key, Integer value) {
+			return map.putIfAbsent(key, value) == null;
+		}
+
+		Integer remove(int key) {
+			return map.remove(key);
+		}
+
+		int size() {
+			return map.size();
+		}
+	}
+
+	private final Object[] structures;
+	private final Instance[] instances;
+	private final String strategy;
+	private final ReentrantReadWriteLock[] locks;
+	private final StampedLock[] stamps;
+
+	/**
+	 * @param bench the benchmark instance, an int set or a map
+	 * @param numInstances the number of instances, including bench
+	 * @param strategy the synchronization of the operations, e.g. LOCK
+	 * @throws ReflectiveOperationException if the structure cannot be
+	 *             instantiated
+	 */
+	@SuppressWarnings("unchecked")
+	public Composition(Object bench, int numInstances, String strategy)
+			throws ReflectiveOperationException {
+		this.strategy = strategy;
+		structures = new Object[numInstances];
+		instances = new Instance[numInstances];
+		for (int i = 0; i < numInstances; i++) {
+			structures[i] = i == 0 ? bench : bench.getClass().getConstructor()
+					.newInstance();
+			instances[i] = structures[i] instanceof CompositionalIntSet ? new SetInstance(
+					(CompositionalIntSet) structures[i]) : new MapInstance(
+					(CompositionalMap<Integer, Integer>) structures[i]);
+		}
+		locks = new ReentrantReadWriteLock[LOCK.equals(strategy) ? 1
+				: STRIPED.equals(strategy) ? STRIPES : 0];
+		for (int i = 0; i < locks.length; i++)
+			locks[i] = new ReentrantReadWriteLock();
+		stamps = new StampedLock[OPTIMISTIC.equals(strategy) ? STRIPES : 0];
+		for (int i = 0; i < stamps.length; i++)
+			stamps[i] = new StampedLock();
+	}
+
+	/**
+	 * Spread the keys of the benchmark instance over the instances, before
+	 * the run
+	 *
+	 * @param range the key range
+	 */
+	public void distribute(int range) {
+		for (int key = 0; key < range; key++) {
+			int instance = key % instances.length;
+			if (instance == 0)
+				continue;
+			Integer value = instances[0].remove(key);
+			if (value != null)
+				instances[instance].put(key, value);
+		}
+	}
+
+	/**
+	 * Stop the maintenance threads of the instances created for the
+	 * composition, the benchmark instance being stopped by the benchmark
+	 */
+	public void stopMaintenance() {
+		for (int i = 1; i < structures.length; i++)
+			if (structures[i] instanceof MaintenanceAlg)
+				((MaintenanceAlg) structures[i]).stopMaintenance();
+	}
+
+	public int numInstances() {
+		return instances.length;
+	}
+
+	/**
+	 * @return the number of elements of all instances
+	 */
+	public int size() {
+		int size = 0;
+		for (Instance instance : instances)
+			size += instance.size();
+		return size;
+	}
+
+	public boolean add(int key, int instance) {
+		return write(ADD, key, instance, instance);
+	}
+
+	public boolean remove(int key, int instance) {
+		return write(REMOVE, key, instance, instance);
+	}
+
+	public boolean contains(int key, int instance) {
+		return read(CONTAINS, key, instance);
+	}
+
+	/**
+	 * Move a key from one instance to another
+	 *
+	 * @return true if the key was in from but not in to
+	 */
+	public boolean move(int key, int from, int to) {
+		return write(MOVE, key, from, to);
+	}
+
+	/**
+	 * Exchange the entries of a key in two instances
+	 *
+	 * @return true if the entries differed
+	 */
+	public boolean swap(int key, int first, int second) {
+		return write(SWAP, key, first, second);
+	}
+
+	/**
+	 * Read a key in every instance
+	 *
+	 * @return true if an instance contains the key
+	 */
+	public boolean multiGet(int key) {
+		return read(MULTI_GET, key, 0);
+	}
+
+	private boolean write(int operation, int key, int first, int second) {
+		if (locks.length > 0) {
+			ReentrantReadWriteLock.WriteLock lock = locks[stripe(key,
+					locks.length)].writeLock();
+			lock.lock();
+			try {
+				return apply(operation, key, first, second);
+			} finally {
+				lock.unlock();
+			}
+		} else if (stamps.length > 0) {
+			StampedLock lock = stamps[stripe(key, STRIPES)];
+			long stamp = lock.writeLock();
+			try {
+				return apply(operation, key, first, second);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		} else if (STM.equals(strategy)) {
+			return applyAtomic(operation, key, first, second);
+		}
+		return apply(operation, key, first, second);
+	}
+
+	private boolean read(int operation, int key, int instance) {
+		if (locks.length > 0) {
+			ReentrantReadWriteLock.ReadLock lock = locks[stripe(key,
+					locks.length)].readLock();
+			lock.lock();
+			try {
+				return apply(operation, key, instance, instance);
+			} finally {
+				lock.unlock();
+			}
+		} else if (stamps.length > 0) {
+			StampedLock lock = stamps[stripe(key, STRIPES)];
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0) {
+				boolean result = apply(operation, key, instance, instance);
+				if (lock.validate(stamp))
+					return result;
+			}
+			stamp = lock.readLock();
+			try {
+				return apply(operation, key, instance, instance);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		} else if (STM.equals(strategy)) {
+			return applyAtomic(operation, key, instance, instance);
+		}
+		return apply(operation, key, instance, instance);
+	}
+
+	private static int stripe(int key, int stripes) {
+		return (key & Integer.MAX_VALUE) % stripes;
+	}
+
+	@Atomic
+	private boolean applyAtomic(int operation, int key, int first, int second) {
+		return apply(operation, key, first, second);
+	}
+
+	private boolean apply(int operation, int key, int first, int second) {
+		switch (operation) {
+		case ADD:
+			return instances[first].put(key, key);
+		case REMOVE:
+			return instances[first].remove(key) != null;
+		case CONTAINS:
+			return instances[first].get(key) != null;
+		case MOVE: {
+			if (instances[second].get(key) != null)
+				return false;
+			Integer value = instances[first].remove(key);
+			if (value == null)
+				return false;
+			instances[second].put(key, value);
+			return true;
+		}
+		case SWAP: {
+			Integer firstValue = instances[first].get(key);
+			Integer secondValue = instances[second].get(key);
+			if (firstValue == null ? secondValue == null : firstValue
+					.equals(secondValue))
+				return false;
+			if (firstValue != null)
+				instances[first].remove(key);
+			if (secondValue != null)
+				instances[second].remove(key);
+			if (firstValue != null)
+				instances[second].put(key, firstValue);
+			if (secondValue != null)
+				instances[first].put(key, secondValue);
+			return true;
+		}
+		default: {
+			boolean found = false;
+			for (Instance instance : instances)
+				found |= instance.get(key) != null;
+			return found;
+		}
+		}
+	}
+}
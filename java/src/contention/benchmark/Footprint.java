@@ -0,0 +1,103 @@
+package contention.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * The memory footprint of a data structure during a run.
+ *
+ * The retained heap is measured as the used heap after full collections,
+ * once with the empty structure, once after it has been filled and once at
+ * the end of the run, the difference being attributed to the structure. The
+ * allocations of the benchmark threads during the timed run are read by
+ * each thread from the HotSpot-specific ThreadMXBean, when available.
+ */
+public class Footprint {
+
+	private static final MemoryMXBean memory = ManagementFactory
+			.getMemoryMXBean();
+
+	/** The heap used by the empty, filled and final structure */
+	public long emptyHeap, filledHeap, finalHeap;
+	/** The number of elements after the fill and at the end of the run */
+	public long filledSize, finalSize;
+	/** The number of nodes at the end, including deleted ones, or -1 */
+	public long finalNodes = -1;
+	/** The bytes allocated by the benchmark threads during the run, or -1 */
+	public long allocatedBytes = -1;
+
+	/**
+	 * Collect the garbage until the used heap stops decreasing
+	 *
+	 * @return the heap used after the collections, in bytes
+	 */
+	public static long retainedHeap() {
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			long now = memory.getHeapMemoryUsage().getUsed();
+			if (now >= used)
+				break;
+			used = now;
+		}
+		return used;
+	}
+
+	/**
+	 * @return the bytes allocated so far by the current thread, or -1 if the
+	 *         JVM does not account for them
+	 */
+	public static long currentThreadAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) bean;
+		if (!hotspotBean.isThreadAllocatedMemorySupported()
+				|| !hotspotBean.isThreadAllocatedMemoryEnabled())
+			return -1;
+		return hotspotBean.getThreadAllocatedBytes(Thread.currentThread()
+				.getId());
+	}
+
+	public double bytesPerElement() {
+		return (double) (filledHeap - emptyHeap) / filledSize;
+	}
+
+	public double finalBytesPerElement() {
+		return (double) (finalHeap - emptyHeap) / finalSize;
+	}
+
+	/**
+	 * Print the footprint of the structure
+	 *
+	 * @param elapsedTime the duration of the timed run, in seconds
+	 * @param operations the number of operations of the timed run
+	 */
+	public void print(PrintStream out, double elapsedTime, long operations) {
+		out.println("  Retained heap after fill:\t" + (filledHeap - emptyHeap)
+				+ " bytes\t( " + filledSize + " elts)");
+		out.println("    bytes per element:     \t"
+				+ String.format(Locale.US, "%.2f", bytesPerElement()));
+		out.println("  Retained heap at end:    \t" + (finalHeap - emptyHeap)
+				+ " bytes\t( " + finalSize + " elts)");
+		out.println("    bytes per element:     \t"
+				+ String.format(Locale.US, "%.2f", finalBytesPerElement()));
+		if (finalNodes >= 0)
+			out.println("    deleted nodes:         \t"
+					+ (finalNodes - finalSize) + "\t( " + finalNodes
+					+ " nodes inc. deleted)");
+		if (allocatedBytes >= 0) {
+			out.println("  Allocation rate (MB/s):  \t"
+					+ String.format(Locale.US, "%.2f", allocatedBytes / elapsedTime
+							/ (1024 * 1024)));
+			out.println("    bytes per operation:   \t"
+					+ String.format(Locale.US, "%.2f", (double) allocatedBytes
+							/ operations));
+		} else {
+			out.println("  Allocation rate:         \tunavailable on this JVM");
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package contention.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * The garbage collections of the timed run.
+ *
+ * Structures allocating a descriptor per update may look fast while the
+ * JVM spends much of the run collecting their garbage. The monitor reads
+ * the counts and accumulated times of the GarbageCollectorMXBeans before
+ * and after the run, which every JVM provides. As a collector may run
+ * concurrently with the benchmark threads, its time is an upper bound on
+ * the time they were stopped. When requested, a JFR recording of the
+ * jdk.GarbageCollection, jdk.SafepointBegin and
+ * jdk.SafepointStateSynchronization events adds the actual pauses of the
+ * collections and the safepoints of the run, with the time the threads
+ * took to reach them.
+ */
+public class GcMonitor {
+
+	private final List<GarbageCollectorMXBean> collectors = ManagementFactory
+			.getGarbageCollectorMXBeans();
+
+	/** The collections and collection time of the run, per collector */
+	private final Map<String, long[]> perCollector = new LinkedHashMap<String, long[]>();
+	/** The number of collections of the run */
+	public long collections = 0;
+	/** The time spent collecting during the run, in milliseconds */
+	public long collectionMillis = 0;
+	/** The bytes allocated by the benchmark threads during the run, or -1 */
+	public long allocatedBytes = -1;
+
+	private Events events = null;
+
+	/**
+	 * Start monitoring, right before the benchmark threads start
+	 *
+	 * @param recordEvents whether to record the JFR events as well
+	 */
+	public void start(boolean recordEvents) {
+		if (recordEvents) {
+			try {
+				events = new Events();
+			} catch (LinkageError e) {
+				System.err.println("JFR is not available on this JVM");
+			} catch (IllegalStateException e) {
+				System.err.println(e.getMessage());
+			}
+		}
+		for (GarbageCollectorMXBean collector : collectors)
+			perCollector.put(collector.getName(), new long[] {
+					-collector.getCollectionCount(),
+					-collector.getCollectionTime() });
+	}
+
+	/**
+	 * Stop monitoring, once the benchmark threads are over
+	 */
+	public void stop() {
+		for (GarbageCollectorMXBean collector : collectors) {
+			long[] delta = perCollector.get(collector.getName());
+			delta[0] += collector.getCollectionCount();
+			delta[1] += collector.getCollectionTime();
+			collections += delta[0];
+			collectionMillis += delta[1];
+		}
+		if (events != null)
+			events.stop();
+	}
+
+	/**
+	 * @return the fraction of the elapsed time spent collecting
+	 */
+	public double collectionFraction(double elapsedTime) {
+		return collectionMillis / (elapsedTime * 1000);
+	}
+
+	/**
+	 * @return the events of the run, or null if they were not recorded
+	 */
+	public Events getEvents() {
+		return events;
+	}
+
+	/**
+	 * Print the collections of the run
+	 *
+	 * @param elapsedTime the duration of the timed run, in seconds
+	 */
+	public void print(PrintStream out, double elapsedTime) {
+		out.println("  Collections:              \t" + collections);
+		out.println("  Collection time (ms):     \t" + collectionMillis
+				+ "\t( " + formatPercent(collectionFraction(elapsedTime)) + ")");
+		for (Map.Entry<String, long[]> collector : perCollector.entrySet())
+			out.println("    " + collector.getKey() + ":\t"
+					+ collector.getValue()[0] + "\t( "
+					+ collector.getValue()[1] + " ms)");
+		if (events != null)
+			events.print(out, elapsedTime);
+	}
+
+	static String formatPercent(double fraction) {
+		return String.format(Locale.US, "%.2f %%", fraction * 100);
+	}
+
+	/**
+	 * The JFR events of the collections and safepoints of the run
+	 */
+	public static class Events {
+
+		private static final String GC = "jdk.GarbageCollection";
+		private static final String SAFEPOINT = "jdk.SafepointBegin";
+		private static final String SYNCHRONIZATION = "jdk.SafepointStateSynchronization";
+
+		private final Recording recording;
+
+		/** The number of collections and their total and longest pauses */
+		public long pauses = 0, pauseNanos = 0, longestPauseNanos = 0;
+		/** The number of safepoints, their duration and time to safepoint */
+		public long safepoints = 0, safepointNanos = 0, syncNanos = 0;
+
+		Events() {
+			if (!FlightRecorder.isAvailable())
+				throw new IllegalStateException(
+						"JFR is not available on this JVM");
+			recording = new Recording();
+			recording.enable(GC).withThreshold(Duration.ZERO);
+			recording.enable(SAFEPOINT).withThreshold(Duration.ZERO);
+			recording.enable(SYNCHRONIZATION).withThreshold(Duration.ZERO);
+			recording.start();
+		}
+
+		void stop() {
+			recording.stop();
+			File file = null;
+			try {
+				file = File.createTempFile("synchrobench", ".jfr");
+				recording.dump(file.toPath());
+				for (RecordedEvent event : RecordingFile.readAllEvents(file
+						.toPath())) {
+					String type = event.getEventType().getName();
+					if (GC.equals(type)) {
+						long pause = event.getDuration("sumOfPauses").toNanos();
+						pauses++;
+						pauseNanos += pause;
+						longestPauseNanos = Math.max(longestPauseNanos, event
+								.getDuration("longestPause").toNanos());
+					} else if (SAFEPOINT.equals(type)) {
+						safepoints++;
+						safepointNanos += event.getDuration().toNanos();
+					} else if (SYNCHRONIZATION.equals(type)) {
+						syncNanos += event.getDuration().toNanos();
+					}
+				}
+			} catch (IOException e) {
+				System.err.println("Cannot read the GC events: "
+						+ e.getMessage());
+			} finally {
+				recording.close();
+				if (file != null)
+					file.delete();
+			}
+		}
+
+		void print(PrintStream out, double elapsedTime) {
+			out.println("  GC pauses (ms):           \t" + pauseNanos / 1e6
+					+ "\t( " + formatPercent(pauseNanos / (elapsedTime * 1e9))
+					+ ", " + pauses + " collections)");
+			out.println("    longest pause (ms):    \t" + longestPauseNanos
+					/ 1e6);
+			out.println("  Safepoints (ms):         \t" + safepointNanos / 1e6
+					+ "\t( " + formatPercent(safepointNanos
+							/ (elapsedTime * 1e9)) + ", " + safepoints
+					+ " safepoints)");
+			out.println("    time to safepoint (ms):\t" + syncNanos / 1e6);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+package contention.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The distribution from which the benchmark threads draw the keys of their
+ * operations, selected with the --distribution option:
+ * 
+ * uniform              -- keys uniformly at random in [0, range) (default)
+ * zipf:theta           -- Zipfian keys, key k being drawn with probability
+ *                         proportional to 1/(k+1)^theta, 0 < theta < 1
+ * scrambled-zipf:theta -- Zipfian popularity whose ranks are hashed over the
+ *                         range, so that hot keys are not adjacent
+ * hotspot:keys:ops     -- ops% of the operations go to the keys% first keys
+ *                         of the range, the rest to the other keys
+ * latest:window        -- Zipfian over the window most recent keys of a
+ *                         window sliding by one key per operation
+ * sequential           -- each thread walks the range key after key, from an
+ *                         offset depending on its thread number
+ * 
+ * All tables and constants (e.g. the Zipf alias table) are computed when the
+ * distribution is created so that next() neither allocates nor iterates.
+ * A distribution instance is confined to the thread that draws from it.
+ */
+public abstract class KeyDistribution {
+
+	protected final int range;
+
+	protected KeyDistribution(int range) {
+		this.range = range;
+	}
+
+	/**
+	 * Draw the next key
+	 * 
+	 * @param rand the thread-private PRNG
+	 * @return a key in [0, range)
+	 */
+	public abstract int next(Random rand);
+
+	/**
+	 * Create the distribution of a benchmark thread
+	 * 
+	 * @param spec the distribution, as given on the command line
+	 * @param range the key range
+	 * @param threadNum the number of the thread drawing the keys
+	 * @throws IllegalArgumentException if the specification is invalid
+	 */
+	public static KeyDistribution create(String spec, int range,
+			short threadNum) {
+		String[] tokens = spec.split(":");
+		String name = tokens[0];
+		try {
+			if (name.equals("uniform") && tokens.length == 1)
+				return new Uniform(range);
+			if (name.equals("zipf") && tokens.length == 2)
+				return new Zipf(range, Double.parseDouble(tokens[1]), false);
+			if (name.equals("scrambled-zipf") && tokens.length == 2)
+				return new Zipf(range, Double.parseDouble(tokens[1]), true);
+			if (name.equals("hotspot") && tokens.length == 3)
+				return new Hotspot(range, Double.parseDouble(tokens[1]),
+						Double.parseDouble(tokens[2]));
+			if (name.equals("latest") && tokens.length == 2)
+				return new Latest(range, Integer.parseInt(tokens[1]),
+						threadNum);
+			if (name.equals("sequential") && tokens.length == 1)
+				return new Sequential(range, threadNum);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number in key distribution: " + spec);
+		}
+		throw new IllegalArgumentException("Unknown key distribution: "
+				+ spec);
+	}
+
+	/**
+	 * Keys uniformly at random over the range
+	 */
+	static final class Uniform extends KeyDistribution {
+		Uniform(int range) {
+			super(range);
+		}
+
+		public int next(Random rand) {
+			return rand.nextInt(range);
+		}
+	}
+
+	/**
+	 * Zipfian ranks in [0, n), rank r having a probability proportional to
+	 * 1/(r+1)^theta.
+	 * 
+	 * Up to ALIAS_LIMIT ranks, the ranks are drawn in constant time from an
+	 * alias table (Vose, "A linear algorithm for generating random numbers
+	 * with a given distribution", 1991) built once and shared by all threads.
+	 * Larger domains use the algorithm of Gray et al., "Quickly generating
+	 * billion-record synthetic databases", SIGMOD 1994, which only needs the
+	 * zeta normalization constant but calls Math.pow for each rank.
+	 */
+	static final class ZipfRanks {
+		static final int ALIAS_LIMIT = 1 << 22;
+
+		/** The ranks already computed, per domain and parameter */
+		private static final Map<String, ZipfRanks> cache = new HashMap<String, ZipfRanks>();
+
+		final int n;
+		/** The alias table, null for large domains */
+		private final float[] probabilities;
+		private final int[] aliases;
+		/** The constants of Gray et al. */
+		private final double alpha;
+		private final double zetan;
+		private final double eta;
+		private final double halfPowTheta;
+
+		private ZipfRanks(int n, double theta) {
+			this.n = n;
+			double zetan = 0;
+			for (int i = 1; i <= n; i++)
+				zetan += 1 / Math.pow(i, theta);
+			this.zetan = zetan;
+			this.alpha = 1.0 / (1.0 - theta);
+			double zeta2 = 1 + 1 / Math.pow(2, theta);
+			this.eta = (1 - Math.pow(2.0 / n, 1 - theta))
+					/ (1 - zeta2 / zetan);
+			this.halfPowTheta = 1 + Math.pow(0.5, theta);
+
+			if (n > ALIAS_LIMIT) {
+				probabilities = null;
+				aliases = null;
+				return;
+			}
+			probabilities = new float[n];
+			aliases = new int[n];
+			double[] scaled = new double[n];
+			int[] small = new int[n];
+			int[] large = new int[n];
+			int numSmall = 0, numLarge = 0;
+			for (int i = 0; i < n; i++) {
+				scaled[i] = n / Math.pow(i + 1, theta) / zetan;
+				if (scaled[i] < 1)
+					small[numSmall++] = i;
+				else
+					large[numLarge++] = i;
+			}
+			while (numSmall > 0 && numLarge > 0) {
+				int l = small[--numSmall];
+				int g = large[--numLarge];
+				probabilities[l] = (float) scaled[l];
+				aliases[l] = g;
+				scaled[g] = (scaled[g] + scaled[l]) - 1;
+				if (scaled[g] < 1)
+					small[numSmall++] = g;
+				else
+					large[numLarge++] = g;
+			}
+			while (numLarge > 0) {
+				int g = large[--numLarge];
+				probabilities[g] = 1;
+				aliases[g] = g;
+			}
+			while (numSmall > 0) {
+				int l = small[--numSmall];
+				probabilities[l] = 1;
+				aliases[l] = l;
+			}
+		}
+
+		/**
+		 * @return the ranks of the given domain and parameter, computed on
+		 *         first use
+		 */
+		static ZipfRanks get(int n, double theta) {
+			if (theta <= 0 || theta >= 1)
+				throw new IllegalArgumentException(
+						"The Zipf parameter must be in (0, 1): " + theta);
+			if (n < 1)
+				throw new IllegalArgumentException(
+						"The Zipf domain must not be empty");
+			String key = n + ":" + theta;
+			synchronized (cache) {
+				ZipfRanks ranks = cache.get(key);
+				if (ranks == null) {
+					ranks = new ZipfRanks(n, theta);
+					cache.put(key, ranks);
+				}
+				return ranks;
+			}
+		}
+
+		int next(Random rand) {
+			if (probabilities != null) {
+				int rank = rand.nextInt(n);
+				return rand.nextFloat() < probabilities[rank] ? rank
+						: aliases[rank];
+			}
+			double u = rand.nextDouble();
+			double uz = u * zetan;
+			if (uz < 1)
+				return 0;
+			if (uz < halfPowTheta)
+				return 1;
+			int rank = (int) (n * Math.pow(eta * u - eta + 1, alpha));
+			return rank < n ? rank : n - 1;
+		}
+	}
+
+	/**
+	 * Zipfian keys, key 0 being the most popular one unless the ranks are
+	 * scrambled over the range with a FNV-1a hash
+	 */
+	static final class Zipf extends KeyDistribution {
+		private final ZipfRanks ranks;
+		private final boolean scrambled;
+
+		Zipf(int range, double theta, boolean scrambled) {
+			super(range);
+			this.ranks = ZipfRanks.get(range, theta);
+			this.scrambled = scrambled;
+		}
+
+		public int next(Random rand) {
+			int rank = ranks.next(rand);
+			if (!scrambled)
+				return rank;
+			return (int) ((fnv(rank) & Long.MAX_VALUE) % range);
+		}
+
+		private static long fnv(int value) {
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < 4; i++) {
+				hash ^= (value >>> (8 * i)) & 0xff;
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		}
+	}
+
+	/**
+	 * A fraction of the operations on a fraction of the keys, both being
+	 * uniform within the hot and the cold sets
+	 */
+	static final class Hotspot extends KeyDistribution {
+		private final int hotKeys;
+		private final int hotOps;
+
+		Hotspot(int range, double hotKeyPercent, double hotOpPercent) {
+			super(range);
+			if (hotKeyPercent <= 0 || hotKeyPercent >= 100 || hotOpPercent < 0
+					|| hotOpPercent > 100)
+				throw new IllegalArgumentException(
+						"The hotspot key percentage must be in (0, 100) and its operation percentage in [0, 100]");
+			this.hotKeys = Math.max(1, (int) (range * hotKeyPercent / 100));
+			this.hotOps = (int) (hotOpPercent * 10);
+		}
+
+		public int next(Random rand) {
+			if (rand.nextInt(1000) < hotOps || hotKeys == range)
+				return rand.nextInt(hotKeys);
+			return hotKeys + rand.nextInt(range - hotKeys);
+		}
+	}
+
+	/**
+	 * The most recent keys of a window that slides by one key per operation,
+	 * the threads being interleaved so that they approximately share the same
+	 * window without sharing a counter
+	 */
+	static final class Latest extends KeyDistribution {
+		private final ZipfRanks ranks;
+		private final int step;
+		private long head;
+
+		Latest(int range, int window, short threadNum) {
+			super(range);
+			if (window < 1 || window > range)
+				throw new IllegalArgumentException(
+						"The latest window must be in [1, range]: " + window);
+			this.ranks = ZipfRanks.get(window, 0.99);
+			this.step = Math.max(1, Parameters.numThreads);
+			this.head = threadNum;
+		}
+
+		public int next(Random rand) {
+			head += step;
+			long key = (head - ranks.next(rand)) % range;
+			return (int) (key < 0 ? key + range : key);
+		}
+	}
+
+	/**
+	 * Consecutive keys, each thread starting at its share of the range
+	 */
+	static final class Sequential extends KeyDistribution {
+		private int next;
+
+		Sequential(int range, short threadNum) {
+			super(range);
+			this.next = (int) ((long) range * threadNum / Math
+					.max(1, Parameters.numThreads));
+		}
+
+		public int next(Random rand) {
+			int key = next;
+			next = (next + 1 == range) ? 0 : next + 1;
+			return key;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package contention.benchmark;
+
+import java.util.Random;
+
+/**
+ * A pre-generated stream of operations of a benchmark thread.
+ *
+ * The keys and the coins deciding the operation types are drawn before the
+ * run starts, the thread then cycles through them, so that the loop neither
+ * draws random numbers nor allocates (keys are also kept boxed for the maps
+ * and sorted sets that take Integer arguments). The stream length is set by
+ * Parameters.keyStream and should remain large compared to the range, as a
+ * short stream only ever touches the keys it contains.
+ */
+public class KeyStream {
+
+	/** The keys of the operations */
+	public final int[] keys;
+	/** The same keys, boxed once and for all */
+	public final Integer[] boxedKeys;
+	/** The halves of the keys, boxed, which the writeAll operations remove */
+	public final Integer[] writeAllKeys;
+	/** The coins in [0, 1000) deciding the operation types */
+	public final short[] coins;
+
+	private int position = -1;
+
+	/**
+	 * Draw a stream of operations
+	 *
+	 * @param distribution the key distribution of the thread
+	 * @param rand the random generator of the thread
+	 * @param length the number of operations before the stream wraps around
+	 */
+	public KeyStream(KeyDistribution distribution, Random rand, int length) {
+		keys = new int[length];
+		boxedKeys = new Integer[length];
+		writeAllKeys = new Integer[length];
+		coins = new short[length];
+		for (int i = 0; i < length; i++) {
+			keys[i] = distribution.next(rand);
+			boxedKeys[i] = keys[i];
+			writeAllKeys[i] = keys[i] / 2;
+			coins[i] = (short) rand.nextInt(1000);
+		}
+	}
+
+	/**
+	 * Move to the next operation of the stream
+	 *
+	 * @return the index of the operation in keys, boxedKeys and coins
+	 */
+	public int next() {
+		if (++position == keys.length)
+			position = 0;
+		return position;
+	}
+}
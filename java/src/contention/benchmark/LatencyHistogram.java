@@ -0,0 +1,120 @@
+package contention.benchmark;
+
+/**
+ * A log-bucketed histogram of latencies in the spirit of HdrHistogram.
+ * 
+ * Values are stored in buckets whose width doubles at every power of two,
+ * each power of two being split into 2^SUB_BUCKET_BITS linear sub-buckets,
+ * which bounds the relative error of a recorded value by 1/2^SUB_BUCKET_BITS
+ * (about 3%). The counts array is allocated once so that recording does not
+ * allocate and can be done from the benchmark hot loop.
+ * 
+ * A histogram is not thread-safe: each thread records in its own instance and
+ * the instances are merged once the threads are done.
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BUCKET_BITS = 5;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final long[] counts = new long[BUCKET_COUNT];
+	private long totalCount = 0;
+	private long sum = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	/**
+	 * Record a single value
+	 * 
+	 * @param value the value, typically a duration in nanoseconds
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts[indexOf(value)]++;
+		totalCount++;
+		sum += value;
+		if (value < min)
+			min = value;
+		if (value > max)
+			max = value;
+	}
+
+	/**
+	 * Add the content of another histogram to this one
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			counts[i] += other.counts[i];
+		totalCount += other.totalCount;
+		sum += other.sum;
+		if (other.min < min)
+			min = other.min;
+		if (other.max > max)
+			max = other.max;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			counts[i] = 0;
+		totalCount = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public long getMin() {
+		return totalCount == 0 ? 0 : min;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return totalCount == 0 ? 0 : (double) sum / totalCount;
+	}
+
+	/**
+	 * The value below which the given percentage of the recorded values fall,
+	 * reported as the highest value equivalent to the matching bucket.
+	 * 
+	 * @param percentile the percentile in [0, 100]
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0)
+			return 0;
+		long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+		if (rank < 1)
+			rank = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(highestEquivalentValue(i), max);
+		}
+		return max;
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKET_COUNT
+				+ (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+	}
+
+	static long highestEquivalentValue(int index) {
+		if (index < SUB_BUCKET_COUNT)
+			return index;
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1));
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,109 @@
+package contention.benchmark;
+
+import java.io.PrintStream;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * The per-operation-type latency histograms of a benchmark thread.
+ * 
+ * Each thread loop owns a recorder when latency recording is enabled
+ * (Parameters.latency), the recorders of all threads being merged by Test
+ * at the end of the run.
+ */
+public class LatencyRecorder {
+
+	/** The operation types, used to index the histograms */
+	public static final int ADD = 0;
+	public static final int REMOVE = 1;
+	public static final int CONTAINS = 2;
+	public static final int SIZE = 3;
+	public static final int WRITE_ALL = 4;
+	public static final int SCAN = 5;
+
+	public static final String[] OPERATIONS = { "add", "remove", "contains",
+			"size", "writeAll", "scan" };
+
+	/** The percentiles printed in the latency table */
+	static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+	private final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+
+	public LatencyRecorder() {
+		for (int i = 0; i < histograms.length; i++)
+			histograms[i] = new LatencyHistogram();
+	}
+
+	/**
+	 * Record the latency of an operation
+	 * 
+	 * @param operation the operation type, e.g. ADD
+	 * @param latency the latency in nanoseconds
+	 */
+	public void record(int operation, long latency) {
+		histograms[operation].record(latency);
+	}
+
+	public LatencyHistogram getHistogram(int operation) {
+		return histograms[operation];
+	}
+
+	/**
+	 * @return the latencies of all operation types together
+	 */
+	public LatencyHistogram getOverall() {
+		LatencyHistogram overall = new LatencyHistogram();
+		for (LatencyHistogram histogram : histograms)
+			overall.add(histogram);
+		return overall;
+	}
+
+	public void add(LatencyRecorder other) {
+		for (int i = 0; i < histograms.length; i++)
+			histograms[i].add(other.histograms[i]);
+	}
+
+	public void reset() {
+		for (LatencyHistogram histogram : histograms)
+			histogram.reset();
+	}
+
+	/**
+	 * Print one line of percentiles, in microseconds, per operation type that
+	 * has been executed, then one for all operations
+	 */
+	public void print(PrintStream out) {
+		StringBuilder header = new StringBuilder("  Operation   \tcount");
+		header.append("\tmean");
+		for (double p : PERCENTILES)
+			header.append("\tp").append(formatPercentile(p));
+		header.append("\tmax\t(us)");
+		out.println(header);
+		for (int i = 0; i <= histograms.length; i++) {
+			boolean overall = i == histograms.length;
+			LatencyHistogram h = overall ? getOverall() : histograms[i];
+			if (h.getTotalCount() == 0)
+				continue;
+			StringBuilder line = new StringBuilder("  ");
+			line.append(String.format(Locale.US, "%-12s", overall ? "all"
+					: OPERATIONS[i]));
+			line.append("\t").append(h.getTotalCount());
+			line.append("\t").append(formatMicros(h.getMean()));
+			for (double p : PERCENTILES)
+				line.append("\t").append(
+						formatMicros(h.getValueAtPercentile(p)));
+			line.append("\t").append(formatMicros(h.getMax()));
+			out.println(line);
+		}
+	}
+
+	static String formatPercentile(double p) {
+		return p == Math.floor(p) ? Long.toString((long) p) : Double
+				.toString(p);
+	}
+
+	private static String formatMicros(double nanos) {
+		Formatter formatter = new Formatter(Locale.US);
+		return formatter.format("%.2f", nanos / 1000.0).out().toString();
+	}
+}
@@ -0,0 +1,59 @@
+package contention.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The arrival schedule of a benchmark thread in open-loop mode.
+ *
+ * Operations are scheduled at exponentially distributed intervals (Poisson
+ * arrivals) whose mean gives the thread its share of Parameters.targetRate,
+ * independently of when the previous operations completed. A thread that
+ * falls behind its schedule issues the late operations back to back, and
+ * their latency is measured from their intended start time, so that the
+ * queueing delay of an overloaded structure is accounted for instead of
+ * being omitted.
+ */
+public class Pacer {
+
+	/** Waits shorter than this are spun rather than parked, in nanoseconds */
+	private static final long SPIN_THRESHOLD = 50000;
+
+	private final double meanIntervalNanos;
+	private final Random rand;
+	private long next = 0;
+	private volatile boolean stop = false;
+
+	/**
+	 * @param rate the number of operations per second of the thread
+	 * @param seed the seed of the inter-arrival times
+	 */
+	public Pacer(double rate, long seed) {
+		this.meanIntervalNanos = 1e9 / rate;
+		this.rand = new Random(seed);
+	}
+
+	/**
+	 * Wait for the intended start time of the next operation
+	 *
+	 * @return the intended start time, in System.nanoTime() units
+	 */
+	public long awaitNext() {
+		if (next == 0)
+			next = System.nanoTime();
+		next += (long) (-Math.log(1 - rand.nextDouble()) * meanIntervalNanos);
+		long now;
+		while (!stop && (now = System.nanoTime()) < next) {
+			if (next - now > SPIN_THRESHOLD)
+				LockSupport.parkNanos(next - now - SPIN_THRESHOLD);
+		}
+		return next;
+	}
+
+	/**
+	 * Stop waiting, so that the thread notices it should stop even at low rates
+	 */
+	public void stop() {
+		stop = true;
+	}
+}
@@ -13,13 +13,43 @@ public class Parameters {
     	numWrites = 40,
     	numWriteAlls = 0,
     	numSnapshots = 0,
+    	numScans = 0,
+    	scanLength = 100,
     	range = 2048,
 	size = 1024,
 	warmUp = 5,
-    	iterations = 1;
+    	warmUpTolerance = 0,
+    	iterations = 1,
+    	keyStream = 0,
+    	sampleInterval = 0,
+    	fillThreads = 1,
+    	carriers = 0,
+    	composeInstances = 0,
+    	batchSize = 0,
+    	asyncOps = 0,
+    	targetRate = 0;
 	public static int skewed = 0;
     
     public static boolean detailedStats = true;
+    public static boolean latency = false;
+    public static boolean footprint = false;
+    public static boolean virtualThreads = false;
+    public static boolean gcEvents = false;
+    public static boolean contention = false;
+    public static boolean snapshotScans = false;
+    public static boolean approximateSize = false;
+
+    public static String distribution = "uniform";
+    public static String fillOrder = "random";
+    public static String phases = null;
+    public static String composeStrategy = Composition.LOCK;
+    public static String bind = null;
+
+    public static String replayFile = null;
+    public static String recordFile = null;
+
+    public static String outputFile = null;
+    public static String outputFormat = null;
 
     public static String benchClassName = new String("skiplists.lockfree.NonBlockingFriendlySkipListMap");
 }
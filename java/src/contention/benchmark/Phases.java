@@ -0,0 +1,256 @@
+package contention.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The schedule of the workload phases of a run, set with the --phases
+ * option.
+ *
+ * A schedule is a list of phases separated by semicolons or newlines (when
+ * it is read from a file, in which lines starting with # are ignored), each
+ * phase being written start:setting,setting,... where start is the time in
+ * milliseconds since the start of the run at which the phase begins and
+ * each setting is one of
+ *
+ * u=updates            -- the percentage of updates
+ * a=writeAll           -- the percentage of composite updates
+ * s=snapshot           -- the percentage of composite read-only operations
+ * q=scans              -- the percentage of range scans
+ * r=range              -- the key range
+ * K=distribution       -- the key distribution, as with --distribution
+ *
+ * The settings that a phase omits keep their value of the previous phase,
+ * the first phase inheriting the command-line parameters, and a phase made
+ * of these parameters is added if the first phase does not start at 0. The
+ * main thread moves the benchmark threads from one phase to the next, each
+ * thread checking the current phase before each operation.
+ */
+public class Phases {
+
+	/** The relative deviation from the steady state ending a recovery */
+	public static final double RECOVERY_TOLERANCE = 0.1;
+
+	/**
+	 * A phase of the workload
+	 */
+	public static class Phase {
+		public final long start;
+		public final int numWrites, numWriteAlls, numSnapshots, numScans,
+				range;
+		public final String distribution;
+		/** The distribution of methods of the phase, as in the loops */
+		final int[] cdf = new int[4];
+
+		Phase(long start, int numWrites, int numWriteAlls, int numSnapshots,
+				int numScans, int range, String distribution) {
+			this.start = start;
+			this.numWrites = numWrites;
+			this.numWriteAlls = numWriteAlls;
+			this.numSnapshots = numSnapshots;
+			this.numScans = numScans;
+			this.range = range;
+			this.distribution = distribution;
+			cdf[0] = 10 * numWriteAlls;
+			cdf[1] = 10 * numWrites;
+			cdf[2] = cdf[1] + 10 * numSnapshots;
+			cdf[3] = cdf[2] + 10 * numScans;
+		}
+
+		public String toString() {
+			return "u=" + numWrites + ",a=" + numWriteAlls + ",s="
+					+ numSnapshots + ",q=" + numScans + ",r=" + range + ",K="
+					+ distribution;
+		}
+	}
+
+	private final Phase[] phases;
+	/** The phase the benchmark threads are in */
+	private volatile int current = 0;
+
+	private Phases(List<Phase> phases) {
+		this.phases = phases.toArray(new Phase[phases.size()]);
+	}
+
+	/**
+	 * Parse a schedule, starting from the command-line parameters
+	 *
+	 * @param spec the schedule, or the name of the file containing it
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if the schedule is invalid
+	 */
+	public static Phases parse(String spec) throws IOException {
+		if (new File(spec).isFile()) {
+			StringBuilder content = new StringBuilder();
+			BufferedReader in = new BufferedReader(new FileReader(spec));
+			try {
+				String line;
+				while ((line = in.readLine()) != null)
+					if (!line.trim().startsWith("#"))
+						content.append(line).append(';');
+			} finally {
+				in.close();
+			}
+			spec = content.toString();
+		}
+		List<Phase> phases = new ArrayList<Phase>();
+		Phase previous = new Phase(0, Parameters.numWrites,
+				Parameters.numWriteAlls, Parameters.numSnapshots,
+				Parameters.numScans, Parameters.range, Parameters.distribution);
+		for (String phaseSpec : spec.split("[;\n]")) {
+			phaseSpec = phaseSpec.trim();
+			if (phaseSpec.isEmpty())
+				continue;
+			Phase phase = parsePhase(phaseSpec, previous);
+			if (phases.isEmpty() && phase.start > 0)
+				phases.add(previous);
+			if (!phases.isEmpty()
+					&& phase.start <= phases.get(phases.size() - 1).start)
+				throw new IllegalArgumentException(
+						"Phases must start in increasing order: " + phaseSpec);
+			phases.add(phase);
+			previous = phase;
+		}
+		if (phases.isEmpty())
+			throw new IllegalArgumentException("Empty phase schedule");
+		return new Phases(phases);
+	}
+
+	private static Phase parsePhase(String spec, Phase previous) {
+		int colon = spec.indexOf(':');
+		if (colon < 0)
+			throw new IllegalArgumentException("Missing phase start: " + spec);
+		int numWrites = previous.numWrites;
+		int numWriteAlls = previous.numWriteAlls;
+		int numSnapshots = previous.numSnapshots;
+		int numScans = previous.numScans;
+		int range = previous.range;
+		String distribution = previous.distribution;
+		long start;
+		try {
+			start = Long.parseLong(spec.substring(0, colon).trim());
+			for (String setting : spec.substring(colon + 1).split(",")) {
+				setting = setting.trim();
+				if (setting.isEmpty())
+					continue;
+				int equals = setting.indexOf('=');
+				if (equals < 0)
+					throw new IllegalArgumentException("Invalid phase setting: "
+							+ setting);
+				String name = setting.substring(0, equals).trim();
+				String value = setting.substring(equals + 1).trim();
+				if (name.equals("u"))
+					numWrites = Integer.parseInt(value);
+				else if (name.equals("a"))
+					numWriteAlls = Integer.parseInt(value);
+				else if (name.equals("s"))
+					numSnapshots = Integer.parseInt(value);
+				else if (name.equals("q"))
+					numScans = Integer.parseInt(value);
+				else if (name.equals("r"))
+					range = Integer.parseInt(value);
+				else if (name.equals("K"))
+					distribution = value;
+				else
+					throw new IllegalArgumentException("Unknown phase setting: "
+							+ setting);
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number in phase: "
+					+ spec);
+		}
+		if (numWriteAlls > numWrites
+				|| numWrites + numSnapshots + numScans > 100)
+			throw new IllegalArgumentException("Invalid operation ratios in phase: "
+					+ spec);
+		// fails on an invalid distribution
+		KeyDistribution.create(distribution, range, (short) 0);
+		return new Phase(start, numWrites, numWriteAlls, numSnapshots,
+				numScans, range, distribution);
+	}
+
+	public int size() {
+		return phases.length;
+	}
+
+	public Phase get(int phase) {
+		return phases[phase];
+	}
+
+	/**
+	 * @return the phase the benchmark threads should be in
+	 */
+	public int current() {
+		return current;
+	}
+
+	/**
+	 * Move the benchmark threads to a phase
+	 */
+	public void enter(int phase) {
+		current = phase;
+	}
+
+	/**
+	 * @return the key distributions of a benchmark thread, one per phase
+	 */
+	public KeyDistribution[] distributions(short threadNum) {
+		KeyDistribution[] distributions = new KeyDistribution[phases.length];
+		for (int phase = 0; phase < phases.length; phase++)
+			distributions[phase] = KeyDistribution.create(
+					phases[phase].distribution, phases[phase].range, threadNum);
+		return distributions;
+	}
+
+	/**
+	 * Compute the time the throughput takes to settle after a transition,
+	 * i.e. the time from the start of the phase to the end of the last
+	 * sampling interval of the first half of the phase whose throughput
+	 * deviates by more than RECOVERY_TOLERANCE from the steady state, the
+	 * median throughput of the second half of the phase
+	 *
+	 * @param ends the end times of the sampling intervals
+	 * @param throughputs the throughput of each sampling interval
+	 * @param start the start time of the phase
+	 * @param end the end time of the phase
+	 * @return the recovery time, in the unit of the times, or -1 if the phase
+	 *         is too short to tell
+	 */
+	public static long recoveryTime(long[] ends, double[] throughputs,
+			long start, long end) {
+		List<Integer> intervals = new ArrayList<Integer>();
+		for (int i = 0; i < ends.length; i++)
+			if (ends[i] > start && ends[i] <= end)
+				intervals.add(i);
+		if (intervals.size() < 4)
+			return -1;
+		int half = intervals.size() / 2;
+		double[] steady = new double[intervals.size() - half];
+		for (int i = half; i < intervals.size(); i++)
+			steady[i - half] = throughputs[intervals.get(i)];
+		Arrays.sort(steady);
+		double median = steady[steady.length / 2];
+		long recovery = 0;
+		for (int i = 0; i < half; i++) {
+			int interval = intervals.get(i);
+			if (Math.abs(throughputs[interval] - median) > RECOVERY_TOLERANCE
+					* median)
+				recovery = ends[interval] - start;
+		}
+		return recovery;
+	}
+
+	public String toString() {
+		StringBuilder schedule = new StringBuilder();
+		for (Phase phase : phases)
+			schedule.append(String.format(Locale.US, "%s%d:%s",
+					schedule.length() > 0 ? ";" : "", phase.start, phase));
+		return schedule.toString();
+	}
+}
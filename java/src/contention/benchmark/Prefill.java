@@ -0,0 +1,184 @@
+package contention.benchmark;
+
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import contention.abstractions.BulkLoadable;
+
+/**
+ * The deterministic, possibly multi-threaded, initial fill of a benchmark.
+ *
+ * The random order draws keys until the expected number of them has been
+ * inserted, each fill thread drawing its keys from its own residue class
+ * modulo the number of fill threads with its own seed, so that the resulting
+ * set does not depend on the interleaving. The other orders first select
+ * exactly size keys of the range, then either hand them to the bulk load of
+ * the structure, when it has one, or insert them in parallel, in a shuffled
+ * order or in a balanced order (the median first, then the medians of each
+ * half, etc.) that builds balanced shapes even for unbalanced trees.
+ */
+public class Prefill {
+
+	/** The seed of the fill, thread t using SEED + t */
+	public static final int SEED = 239;
+
+	public static final String RANDOM = "random";
+	public static final String SHUFFLE = "shuffle";
+	public static final String BALANCED = "balanced";
+
+	public static boolean isValidOrder(String order) {
+		return RANDOM.equals(order) || SHUFFLE.equals(order)
+				|| BALANCED.equals(order);
+	}
+
+	/**
+	 * Fill the benchmark
+	 *
+	 * @param insert the insertion of a key, returning false if it was present
+	 * @param bulk the bulk load of the benchmark, or null if it has none
+	 * @param range the key range
+	 * @param size the number of keys to insert
+	 * @param numThreads the number of fill threads
+	 * @param order the insertion order, e.g. SHUFFLE
+	 */
+	public static void fill(final IntPredicate insert, BulkLoadable bulk,
+			final int range, final int size, int numThreads, String order)
+			throws InterruptedException {
+		numThreads = Math.max(1, Math.min(numThreads, range));
+		if (RANDOM.equals(order)) {
+			final int step = numThreads;
+			runThreads(numThreads, new ThreadBody() {
+				public void run(int threadNum) {
+					Random rand = new Random(SEED + threadNum);
+					int classSize = (range - threadNum + step - 1) / step;
+					for (int i = size / step + (threadNum < size % step ? 1 : 0); i > 0;)
+						if (insert.test(rand.nextInt(classSize) * step
+								+ threadNum))
+							i--;
+				}
+			});
+			return;
+		}
+		int[] keys = selectKeys(range, size, new Random(SEED));
+		if (bulk != null) {
+			bulk.bulkLoad(keys);
+			return;
+		}
+		if (SHUFFLE.equals(order)) {
+			shuffle(keys, new Random(SEED));
+			insertAll(insert, keys, 0, keys.length, numThreads);
+		} else {
+			int[] levels = balancedOrder(keys);
+			for (int level = 0; level + 1 < levels.length; level++)
+				insertAll(insert, keys, levels[level], levels[level + 1],
+						numThreads);
+		}
+	}
+
+	/**
+	 * Select uniformly at random size distinct keys of the range (Knuth's
+	 * selection sampling)
+	 *
+	 * @return the selected keys, in ascending order
+	 */
+	static int[] selectKeys(int range, int size, Random rand) {
+		int[] keys = new int[size];
+		int selected = 0;
+		for (int key = 0; selected < size; key++)
+			if (rand.nextInt(range - key) < size - selected)
+				keys[selected++] = key;
+		return keys;
+	}
+
+	static void shuffle(int[] keys, Random rand) {
+		for (int i = keys.length - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			int key = keys[i];
+			keys[i] = keys[j];
+			keys[j] = key;
+		}
+	}
+
+	/**
+	 * Reorder sorted keys level by level of the balanced binary search tree
+	 * they form
+	 *
+	 * @param keys the sorted keys, reordered in place
+	 * @return the indices at which each level starts, followed by the length
+	 */
+	static int[] balancedOrder(int[] keys) {
+		int n = keys.length;
+		int[] sorted = keys.clone();
+		// the intervals of the current level, as pairs of inclusive bounds
+		int[] intervals = new int[] { 0, n - 1 };
+		int numIntervals = n > 0 ? 1 : 0;
+		int[] levels = new int[34];
+		int numLevels = 0, position = 0;
+		while (numIntervals > 0) {
+			levels[numLevels++] = position;
+			int[] next = new int[4 * numIntervals];
+			int numNext = 0;
+			for (int i = 0; i < numIntervals; i++) {
+				int lo = intervals[2 * i], hi = intervals[2 * i + 1];
+				int mid = (lo + hi) >>> 1;
+				keys[position++] = sorted[mid];
+				if (lo < mid) {
+					next[2 * numNext] = lo;
+					next[2 * numNext++ + 1] = mid - 1;
+				}
+				if (mid < hi) {
+					next[2 * numNext] = mid + 1;
+					next[2 * numNext++ + 1] = hi;
+				}
+			}
+			intervals = next;
+			numIntervals = numNext;
+		}
+		levels[numLevels++] = position;
+		int[] result = new int[numLevels];
+		System.arraycopy(levels, 0, result, 0, numLevels);
+		return result;
+	}
+
+	/**
+	 * Insert keys[from, to), each thread inserting a contiguous slice
+	 */
+	private static void insertAll(final IntPredicate insert, final int[] keys,
+			final int from, final int to, final int numThreads)
+			throws InterruptedException {
+		final int parts = Math.max(1, Math.min(numThreads, to - from));
+		runThreads(parts, new ThreadBody() {
+			public void run(int threadNum) {
+				long length = to - from;
+				int begin = from + (int) (length * threadNum / parts);
+				int end = from + (int) (length * (threadNum + 1) / parts);
+				for (int i = begin; i < end; i++)
+					insert.test(keys[i]);
+			}
+		});
+	}
+
+	private interface ThreadBody {
+		void run(int threadNum);
+	}
+
+	private static void runThreads(int numThreads, final ThreadBody body)
+			throws InterruptedException {
+		if (numThreads == 1) {
+			body.run(0);
+			return;
+		}
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			final int threadNum = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					body.run(threadNum);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+	}
+}
@@ -0,0 +1,36 @@
+package contention.benchmark;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The operation counters of the benchmark threads, as read by the throughput
+ * sampler and the adaptive warmup while the threads run.
+ *
+ * The counters of the thread loops are plain fields, which another thread
+ * may not see updated, or see torn on a 32-bit JVM. Each thread thus also
+ * publishes its counter after each operation with an ordered store, cheaper
+ * than a volatile one, in a slot of its own two cache lines away from the
+ * others.
+ */
+public class Progress {
+
+	/** The distance between two slots, in longs */
+	private static final int STRIDE = 16;
+
+	private final AtomicLongArray counts;
+
+	public Progress(int numThreads) {
+		this.counts = new AtomicLongArray((numThreads + 1) * STRIDE);
+	}
+
+	public void publish(int threadNum, long total) {
+		counts.lazySet((threadNum + 1) * STRIDE, total);
+	}
+
+	/**
+	 * @return the last counter published by the thread
+	 */
+	public long get(int threadNum) {
+		return counts.get((threadNum + 1) * STRIDE);
+	}
+}
@@ -0,0 +1,165 @@
+package contention.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Appends benchmark results to a file as machine-readable records, one
+ * record per benchmark iteration, either as JSON lines (one JSON object per
+ * line) or as CSV rows.
+ * 
+ * The file is opened in append mode for each record so that records of long
+ * parameter sweeps are on disk as soon as they are produced and so that
+ * several runs can accumulate their results in the same file. The CSV header
+ * is written only when the file is created.
+ */
+public class ResultWriter {
+
+	public enum Format {
+		JSON, CSV
+	}
+
+	private final File file;
+	private final Format format;
+
+	public ResultWriter(String fileName, Format format) {
+		this.file = new File(fileName);
+		this.format = format;
+	}
+
+	/**
+	 * Parse a format name, falling back to the extension of the file name
+	 * (".csv" for CSV, JSON otherwise) when no format is given
+	 */
+	public static Format formatOf(String formatName, String fileName) {
+		if (formatName != null)
+			return Format.valueOf(formatName.toUpperCase());
+		return fileName.toLowerCase().endsWith(".csv") ? Format.CSV
+				: Format.JSON;
+	}
+
+	/**
+	 * Append one record to the file
+	 * 
+	 * @param record the ordered fields of the record
+	 */
+	public synchronized void write(Map<String, ?> record) throws IOException {
+		boolean fresh = !file.exists() || file.length() == 0;
+		if (format == Format.CSV && !fresh)
+			checkHeader(record);
+		Writer out = new FileWriter(file, true);
+		try {
+			if (format == Format.JSON) {
+				out.write(toJson(record));
+			} else {
+				if (fresh)
+					out.write(csvHeader(record));
+				out.write(csvRow(record));
+			}
+			out.write('\n');
+		} finally {
+			out.close();
+		}
+	}
+
+	private void checkHeader(Map<String, ?> record) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String header = in.readLine();
+			if (header != null && !(header + "\n").equals(csvHeader(record)))
+				System.err.println("The columns of " + file
+						+ " differ from the ones of the current results.");
+		} finally {
+			in.close();
+		}
+	}
+
+	static String toJson(Map<String, ?> record) {
+		StringBuilder sb = new StringBuilder("{");
+		Iterator<? extends Map.Entry<String, ?>> it = record.entrySet()
+				.iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, ?> entry = it.next();
+			sb.append(jsonString(entry.getKey())).append(':');
+			Object value = entry.getValue();
+			if (value == null)
+				sb.append("null");
+			else if (value instanceof Double
+					&& (((Double) value).isNaN() || ((Double) value)
+							.isInfinite()))
+				sb.append("null");
+			else if (value instanceof Number || value instanceof Boolean)
+				sb.append(value);
+			else
+				sb.append(jsonString(value.toString()));
+			if (it.hasNext())
+				sb.append(',');
+		}
+		return sb.append('}').toString();
+	}
+
+	static String csvHeader(Map<String, ?> record) {
+		StringBuilder sb = new StringBuilder();
+		for (String key : record.keySet()) {
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(csvField(key));
+		}
+		return sb.append('\n').toString();
+	}
+
+	static String csvRow(Map<String, ?> record) {
+		StringBuilder sb = new StringBuilder();
+		boolean first = true;
+		for (Object value : record.values()) {
+			if (!first)
+				sb.append(',');
+			first = false;
+			if (value != null)
+				sb.append(csvField(value.toString()));
+		}
+		return sb.toString();
+	}
+
+	private static String jsonString(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20)
+					sb.append(String.format("\\u%04x", (int) c));
+				else
+					sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	private static String csvField(String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+			return s;
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -0,0 +1,214 @@
+package contention.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parameter sweep of the benchmark within the same JVM.
+ * 
+ * The thread numbers (-t), the initial sizes (-i), the update ratios (-u), the
+ * open-loop rates (-R) and the benchmarks (-b) accept comma-separated lists
+ * of values, in which case
+ * every combination is run one after the other, reusing the JVM of each
+ * benchmark instead of starting a JVM per combination as scripts/run.sh does.
+ * With --fork, each benchmark runs its combinations in a child JVM of its own
+ * so that the JIT profile of one data structure does not leak into the
+ * measurements of the next one. The results of each combination are printed
+ * and appended to the output file (-o) as soon as they are available. When
+ * the rate is swept, the throughput and the latency percentiles reached at
+ * each offered rate are summarized as a curve once the rates of a
+ * combination have all been run.
+ */
+public class Sweep {
+
+	/** The values of the swept parameters, null if not swept */
+	static int[] threadNums = null;
+	static int[] sizes = null;
+	static int[] writes = null;
+	static int[] rates = null;
+	static String[] benchmarks = null;
+	/** Whether each benchmark runs in a child JVM */
+	static boolean fork = false;
+	/** Whether the range was set explicitly, otherwise it follows the size */
+	static boolean fixedRange = false;
+
+	/**
+	 * @return true if more than one combination of parameters is requested or
+	 *         if the benchmarks should run in child JVMs
+	 */
+	public static boolean isEnabled() {
+		return fork || isList(threadNums) || isList(sizes) || isList(writes)
+				|| isList(rates) || (benchmarks != null && benchmarks.length > 1);
+	}
+
+	private static boolean isList(int[] values) {
+		return values != null && values.length > 1;
+	}
+
+	/**
+	 * @return true if some run of the sweep is in open loop
+	 */
+	static boolean isOpenLoop() {
+		if (rates == null)
+			return Parameters.targetRate > 0;
+		for (int rate : rates)
+			if (rate > 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Parse a comma-separated list of integers
+	 * 
+	 * @throws NumberFormatException if one of the values is not an integer
+	 */
+	static int[] parseInts(String value) {
+		String[] tokens = value.split(",");
+		int[] values = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++)
+			values[i] = Integer.parseInt(tokens[i].trim());
+		return values;
+	}
+
+	static String[] parseStrings(String value) {
+		String[] values = value.split(",");
+		for (int i = 0; i < values.length; i++)
+			values[i] = values[i].trim();
+		return values;
+	}
+
+	/**
+	 * Run every combination of the swept parameters
+	 * 
+	 * @param args the command-line arguments, forwarded to the child JVMs
+	 */
+	public static void run(String[] args) throws InterruptedException {
+		String[] benchs = benchmarks != null ? benchmarks
+				: new String[] { Parameters.benchClassName };
+		for (String bench : benchs) {
+			if (fork)
+				runChild(args, bench);
+			else
+				runInProcess(bench);
+		}
+	}
+
+	/**
+	 * Run all the combinations of a benchmark in the current JVM
+	 */
+	private static void runInProcess(String bench)
+			throws InterruptedException {
+		int[] ts = threadNums != null ? threadNums
+				: new int[] { Parameters.numThreads };
+		int[] is = sizes != null ? sizes : new int[] { Parameters.size };
+		int[] us = writes != null ? writes
+				: new int[] { Parameters.numWrites };
+		Parameters.benchClassName = bench;
+		for (int size : is) {
+			Parameters.size = size;
+			if (!fixedRange && isList(sizes))
+				Parameters.range = 2 * size;
+			for (int write : us) {
+				Parameters.numWrites = write;
+				for (int t : ts) {
+					Parameters.numThreads = t;
+					int[] rs = rates != null ? rates
+							: new int[] { Parameters.targetRate };
+					double[][] curve = new double[rs.length][];
+					for (int r = 0; r < rs.length; r++) {
+						Parameters.targetRate = rs[r];
+						System.out.println("Sweep point: -b " + bench + " -i "
+								+ size + " -r " + Parameters.range + " -u "
+								+ write + " -t " + t
+								+ (rs[r] > 0 ? " -R " + rs[r] : ""));
+						Test test = new Test();
+						test.printParams();
+						test.run();
+						curve[r] = curvePoint(rs[r], test);
+						test = null;
+						System.gc();
+					}
+					if (isList(rates))
+						printCurve(curve);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the offered rate, the throughput and the overall latency
+	 *         percentiles of the last iteration of test
+	 */
+	private static double[] curvePoint(int rate, Test test) {
+		LatencyHistogram latency = test.getLatencies().getOverall();
+		double[] point = new double[3 + LatencyRecorder.PERCENTILES.length];
+		point[0] = rate;
+		point[1] = test.getThroughput();
+		for (int i = 0; i < LatencyRecorder.PERCENTILES.length; i++)
+			point[2 + i] = latency.getValueAtPercentile(LatencyRecorder.PERCENTILES[i]) / 1000.0;
+		point[point.length - 1] = latency.getMax() / 1000.0;
+		return point;
+	}
+
+	/**
+	 * Print the throughput and latencies reached at each offered rate
+	 */
+	private static void printCurve(double[][] curve) {
+		StringBuilder header = new StringBuilder("  Offered\tThroughput");
+		for (double p : LatencyRecorder.PERCENTILES)
+			header.append("\tp").append(LatencyRecorder.formatPercentile(p));
+		header.append("\tmax\t(ops/s, us)");
+		System.out.println("Throughput vs latency");
+		System.out.println(header);
+		for (double[] point : curve) {
+			StringBuilder line = new StringBuilder("  ");
+			line.append((long) point[0]).append('\t').append((long) point[1]);
+			for (int i = 2; i < point.length; i++)
+				line.append('\t').append(String.format(Locale.US, "%.2f", point[i]));
+			System.out.println(line);
+		}
+	}
+
+	/**
+	 * Run all the combinations of a benchmark in a child JVM, with the same
+	 * JVM options and class path, whose output is forwarded as it comes
+	 */
+	private static void runChild(String[] args, String bench)
+			throws InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean()
+				.getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Test.class.getName());
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--fork"))
+				continue;
+			if (args[i].equals("-b") || args[i].equals("--benchmark")) {
+				i++;
+				continue;
+			}
+			command.add(args[i]);
+		}
+		command.add("-b");
+		command.add(bench);
+
+		System.out.println("Forking a JVM for " + bench);
+		try {
+			Process child = new ProcessBuilder(command).inheritIO().start();
+			int status = child.waitFor();
+			if (status != 0)
+				System.err.println("The JVM running " + bench
+						+ " exited with status " + status);
+		} catch (IOException e) {
+			System.err.println("Cannot fork a JVM for " + bench + ": "
+					+ e.getMessage());
+		}
+	}
+}
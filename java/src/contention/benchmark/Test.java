@@ -1,16 +1,30 @@
 package contention.benchmark;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.util.Formatter;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
 
+import contention.abstractions.ApproximateSize;
+import contention.abstractions.AsyncMap;
+import contention.abstractions.BulkLoadable;
 import contention.abstractions.CompositionalIntSet;
+import contention.abstractions.CompositionalLongMap;
 import contention.abstractions.CompositionalMap;
+import contention.abstractions.CompositionalSnapshot;
 import contention.abstractions.CompositionalSortedSet;
+import contention.abstractions.ContentionCounters;
+import contention.abstractions.ContentionProfiled;
 import contention.abstractions.MaintenanceAlg;
 
 /**
@@ -24,7 +38,7 @@ public class Test {
     public static final String VERSION = "11-17-2014";
 
     public enum Type {
-        INTSET, MAP, SORTEDSET
+        INTSET, MAP, SORTEDSET, LONGMAP
     }
 
     /**
@@ -59,6 +73,22 @@ public class Test {
     private long numRemoveAll = 0;
     private long numSize = 0;
     private long numContains = 0;
+    private long numScans = 0;
+    /**
+     * The total number of keys visited by range scans
+     */
+    private long numScanned = 0;
+    /**
+     * The total number of successful composite operations
+     */
+    private long numMoves = 0;
+    private long numSwaps = 0;
+    private long numMultiGets = 0;
+    /**
+     * The total number of keys inserted and removed by batches
+     */
+    private long numBatchAdded = 0;
+    private long numBatchRemoved = 0;
     /**
      * The total number of failed operations for all threads
      */
@@ -74,6 +104,7 @@ public class Test {
     private CompositionalIntSet setBench = null;
     private CompositionalSortedSet<Integer> sortedBench = null;
     private CompositionalMap<Integer, Integer> mapBench = null;
+    private CompositionalLongMap longMapBench = null;
     ConcurrentHashMap<Integer, Integer> map = null;
     /** The instance of the benchmark */
     /**
@@ -85,6 +116,73 @@ public class Test {
     public long structMods;
     private long getCount;
 
+    /**
+     * The per-operation latencies of all threads, merged after each run
+     */
+    private final LatencyRecorder latencies = new LatencyRecorder();
+
+    /**
+     * The throughput sampler of the last run, null unless
+     * Parameters.sampleInterval is set
+     */
+    private ThroughputSampler sampler = null;
+
+    /**
+     * The memory footprint of the last run, null unless Parameters.footprint
+     * is set
+     */
+    private Footprint footprint = null;
+
+    /**
+     * The pinning events of the last run, null unless
+     * Parameters.virtualThreads is set
+     */
+    private VirtualThreads pinning = null;
+
+    /**
+     * The garbage collections and allocations of the last run
+     */
+    private GcMonitor gc = null;
+
+    /**
+     * The instances composed by the last run, null unless
+     * Parameters.composeInstances is set
+     */
+    private Composition composition = null;
+
+    /**
+     * The binding of the benchmark threads to CPUs, null unless
+     * Parameters.bind is set
+     */
+    private Affinity affinity = null;
+
+    /**
+     * The operation counters the threads publish, read while they run
+     */
+    private Progress progress = null;
+
+    /**
+     * The contention counters of the last run, null unless
+     * Parameters.contention is set and the benchmark counts its contention
+     */
+    private ContentionCounters contention = null;
+
+    /**
+     * The adaptive warmup, null unless Parameters.warmUpTolerance is set
+     */
+    private WarmUp warmUp = null;
+
+    /**
+     * The workload phases of the last run, null unless Parameters.phases is
+     * set, with the start time (in System.nanoTime() units) and the number
+     * of operations completed at the start of each phase reached, followed by
+     * the end of the run
+     */
+    private Phases phases = null;
+    private long[] phaseStarts;
+    private long[] phaseOps;
+    private int phasesReached;
+
     /**
      * The thread-private PRNG
      */
@@ -95,7 +193,12 @@ public class Test {
         }
     };
 
-    public void fill(final int range, final long size) {
+    public void fill(final int range, final long size) throws InterruptedException {
+        if (Parameters.fillThreads > 1
+                || !Prefill.RANDOM.equals(Parameters.fillOrder)) {
+            parallelFill(range, (int) size);
+            return;
+        }
         for (long i = size; i > 0; ) {
             Integer v = s_random.get().nextInt(range);
             switch (benchType) {
@@ -114,6 +217,11 @@ public class Test {
                         i--;
                     }
                     break;
+                case LONGMAP:
+                    if (longMapBench.putIfAbsent(v, v) == CompositionalLongMap.NO_VALUE) {
+                        i--;
+                    }
+                    break;
                 default:
                     System.err.println("Wrong benchmark type");
                     System.exit(0);
@@ -122,6 +230,36 @@ public class Test {
     }
 
 
+    /**
+     * Fill the benchmark with Parameters.fillThreads threads in the order
+     * given by Parameters.fillOrder, or through its bulk load if it has one
+     * and the order is not random
+     */
+    private void parallelFill(int range, int size) throws InterruptedException {
+        IntPredicate insert;
+        Object bench;
+        switch (benchType) {
+            case INTSET:
+                insert = setBench::addInt;
+                bench = setBench;
+                break;
+            case MAP:
+                insert = v -> mapBench.putIfAbsent(v, v) == null;
+                bench = mapBench;
+                break;
+            case LONGMAP:
+                insert = v -> longMapBench.putIfAbsent(v, v) == CompositionalLongMap.NO_VALUE;
+                bench = longMapBench;
+                break;
+            default:
+                insert = sortedBench::add;
+                bench = sortedBench;
+                break;
+        }
+        Prefill.fill(insert, bench instanceof BulkLoadable ? (BulkLoadable) bench
+                : null, range, size, Parameters.fillThreads, Parameters.fillOrder);
+    }
+
     /**
      * Initialize the benchmark
      *
@@ -147,12 +285,46 @@ public class Test {
             } else if (CompositionalSortedSet.class.isAssignableFrom((Class<?>) benchClass)) {
                 sortedBench = (CompositionalSortedSet<Integer>) c.newInstance();
                 benchType = Type.SORTEDSET;
+            } else if (CompositionalLongMap.class.isAssignableFrom((Class<?>) benchClass)) {
+                longMapBench = (CompositionalLongMap) c.newInstance();
+                benchType = Type.LONGMAP;
             }
 
         } catch (Exception e) {
             System.err.println("Cannot find benchmark class: " + benchName);
             System.exit(-1);
         }
+        if (benchType == Type.LONGMAP && (Parameters.numWriteAlls > 0
+                || Parameters.numScans > 0 || Parameters.skewed > 0)) {
+            System.err.println("Long maps cannot run writeAll operations, "
+                    + "range scans or skewed workloads");
+            System.exit(-1);
+        }
+        if (Parameters.batchSize > 0 && benchType != Type.INTSET
+                && benchType != Type.MAP) {
+            System.err.println("Batches require an int set or a map");
+            System.exit(-1);
+        }
+        if (Parameters.snapshotScans && (benchType != Type.INTSET
+                && benchType != Type.MAP
+                || !(bench() instanceof CompositionalSnapshot))) {
+            System.err.println("Snapshot scans require an int set or a map "
+                    + "implementing CompositionalSnapshot");
+            System.exit(-1);
+        }
+        if (Parameters.approximateSize && (benchType != Type.INTSET
+                && benchType != Type.MAP
+                || !(bench() instanceof ApproximateSize))) {
+            System.err.println("Approximate sizes require an int set or a map "
+                    + "implementing ApproximateSize");
+            System.exit(-1);
+        }
+        if (Parameters.asyncOps > 0 && (benchType != Type.MAP
+                || !(bench() instanceof AsyncMap))) {
+            System.err.println("Asynchronous operations require a map "
+                    + "implementing AsyncMap");
+            System.exit(-1);
+        }
     }
 
 
@@ -162,13 +334,17 @@ public class Test {
      * @throws InterruptedException if unable to launch them
      */
     private void initThreads() throws InterruptedException {
+        if (Parameters.bind != null)
+            affinity = new Affinity(Parameters.bind);
+        progress = new Progress(Parameters.numThreads);
         switch (benchType) {
             case INTSET:
                 threadLoopsSet = new ThreadSetLoop[Parameters.numThreads];
                 threads = new Thread[Parameters.numThreads];
                 for (short threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
                     threadLoopsSet[threadNum] = new ThreadSetLoop(threadNum, setBench, methods);
-                    threads[threadNum] = new Thread(threadLoopsSet[threadNum]);
+                    threadLoopsSet[threadNum].progress = progress;
+                    threads[threadNum] = newThread(threadNum, threadLoopsSet[threadNum]);
                 }
                 break;
             case MAP:
@@ -177,7 +353,17 @@ public class Test {
                 for (short threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
                     threadLoops[threadNum] = Parameters.skewed > 0 ? new ThreadSkewedLoop(threadNum, mapBench, methods) :
                             new ThreadLoop(threadNum, mapBench, methods);
-                    threads[threadNum] = new Thread(threadLoops[threadNum]);
+                    threadLoops[threadNum].progress = progress;
+                    threads[threadNum] = newThread(threadNum, threadLoops[threadNum]);
+                }
+                break;
+            case LONGMAP:
+                threadLoops = new ThreadLoop[Parameters.numThreads];
+                threads = new Thread[Parameters.numThreads];
+                for (short threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
+                    threadLoops[threadNum] = new ThreadLongMapLoop(threadNum, longMapBench, methods);
+                    threadLoops[threadNum].progress = progress;
+                    threads[threadNum] = newThread(threadNum, threadLoops[threadNum]);
                 }
                 break;
             case SORTEDSET:
@@ -185,12 +371,160 @@ public class Test {
                 threads = new Thread[Parameters.numThreads];
                 for (short threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
                     threadLoopsSSet[threadNum] = new ThreadSortedSetLoop(threadNum, sortedBench, methods);
-                    threads[threadNum] = new Thread(threadLoopsSSet[threadNum]);
+                    threadLoopsSSet[threadNum].progress = progress;
+                    threads[threadNum] = newThread(threadNum, threadLoopsSSet[threadNum]);
                 }
                 break;
         }
     }
 
+    /**
+     * Spread the filled benchmark over new instances of the structure and
+     * make the benchmark threads compose operations across them
+     */
+    private void attachComposition() {
+        if (benchType == Type.SORTEDSET || benchType == Type.LONGMAP) {
+            System.err.println("Composition requires an int set or a map");
+            System.exit(-1);
+        }
+        try {
+            composition = new Composition(benchType == Type.INTSET ? setBench
+                    : mapBench, Parameters.composeInstances,
+                    Parameters.composeStrategy);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Cannot instantiate the composed structures: "
+                    + e);
+            System.exit(-1);
+        }
+        composition.distribute(Parameters.range);
+        for (int threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
+            if (benchType == Type.INTSET)
+                threadLoopsSet[threadNum].composition = composition;
+            else
+                threadLoops[threadNum].composition = composition;
+        }
+    }
+
+    /**
+     * @return the benchmark instance
+     */
+    private Object bench() {
+        return benchType == Type.INTSET ? setBench
+                : benchType == Type.MAP ? mapBench
+                : benchType == Type.LONGMAP ? longMapBench : sortedBench;
+    }
+
+    /**
+     * Make the benchmark count its contention during the run, if it can
+     */
+    private void profile(ContentionCounters counters) {
+        if (!(bench() instanceof ContentionProfiled)) {
+            System.err.println(Parameters.benchClassName
+                    + " does not count its contention");
+            return;
+        }
+        contention = counters;
+        ((ContentionProfiled) bench()).setContentionCounters(counters);
+    }
+
+    /**
+     * Make the benchmark threads follow the workload phases
+     */
+    private void attachPhases() {
+        for (int threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
+            switch (benchType) {
+                case INTSET:
+                    threadLoopsSet[threadNum].setPhases(phases);
+                    break;
+                case MAP:
+                case LONGMAP:
+                    threadLoops[threadNum].setPhases(phases);
+                    break;
+                case SORTEDSET:
+                    threadLoopsSSet[threadNum].setPhases(phases);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Move the benchmark threads from one phase to the next at the scheduled
+     * times, until the end of the run
+     *
+     * @param milliseconds the length of the run
+     */
+    private void runPhases(int milliseconds) throws InterruptedException {
+        long start = System.nanoTime();
+        phaseStarts = new long[phases.size() + 1];
+        phaseOps = new long[phases.size() + 1];
+        phaseStarts[0] = start;
+        phasesReached = 1;
+        while (phasesReached < phases.size()
+                && phases.get(phasesReached).start < milliseconds) {
+            sleepUntil(start + phases.get(phasesReached).start * 1000000L);
+            phaseOps[phasesReached] = sum(threadTotals());
+            phaseStarts[phasesReached] = System.nanoTime();
+            phases.enter(phasesReached++);
+        }
+        sleepUntil(start + milliseconds * 1000000L);
+        phaseStarts[phasesReached] = System.nanoTime();
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long now;
+        while ((now = System.nanoTime()) < deadline)
+            Thread.sleep((deadline - now + 999999) / 1000000);
+    }
+
+    private static long sum(long[] counts) {
+        long sum = 0;
+        for (long count : counts)
+            sum += count;
+        return sum;
+    }
+
+    /**
+     * Give each benchmark thread its slice of the replayed and of the
+     * recorded traces
+     *
+     * @param replay the replayed trace, or null
+     * @param recorder the recorder of the run, or null
+     */
+    private void attachTraces(Trace replay, TraceRecorder recorder) {
+        for (int threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
+            Trace.Slice replayed = replay != null ? replay.slice(threadNum)
+                    : null;
+            TraceRecorder.Slice recorded = recorder != null ? recorder
+                    .slice(threadNum) : null;
+            switch (benchType) {
+                case INTSET:
+                    threadLoopsSet[threadNum].replay = replayed;
+                    threadLoopsSet[threadNum].record = recorded;
+                    break;
+                case MAP:
+                case LONGMAP:
+                    threadLoops[threadNum].replay = replayed;
+                    threadLoops[threadNum].record = recorded;
+                    break;
+                case SORTEDSET:
+                    threadLoopsSSet[threadNum].replay = replayed;
+                    threadLoopsSSet[threadNum].record = recorded;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return a new benchmark thread, virtual if Parameters.virtualThreads is
+     *         set, binding itself to its CPU if Parameters.bind is set
+     */
+    private Thread newThread(int threadNum, Runnable threadLoop) {
+        if (affinity != null)
+            threadLoop = affinity.bind(threadNum, threadLoop);
+        return Parameters.virtualThreads ? VirtualThreads.newThread(threadLoop)
+                : new Thread(threadLoop);
+    }
+
     /**
      * Constructor sets up the benchmark by reading parameters and creating
      * threads
@@ -205,6 +539,15 @@ public class Test {
             System.err.println("Cannot parse parameters.");
             e.printStackTrace();
         }
+        if (!Sweep.isEnabled())
+            instanciateAbstraction(Parameters.benchClassName);
+    }
+
+    /**
+     * Constructor sets up the benchmark from the current parameters, as done
+     * for each combination of parameters of a sweep
+     */
+    Test() {
         instanciateAbstraction(Parameters.benchClassName);
     }
 
@@ -216,21 +559,89 @@ public class Test {
     private void execute(int milliseconds, boolean maint)
             throws InterruptedException {
         long startTime;
+        boolean measure = Parameters.footprint && !maint;
+        if (measure) {
+            footprint = new Footprint();
+            footprint.emptyHeap = Footprint.retainedHeap();
+        }
         fill(Parameters.range, Parameters.size);
+        if (Parameters.composeInstances > 1)
+            attachComposition();
         System.err.println("end filling");
+        if (Parameters.contention && !maint)
+            profile(new ContentionCounters());
+        if (measure) {
+            footprint.filledHeap = Footprint.retainedHeap();
+            footprint.filledSize = benchSize();
+        }
         Thread.sleep(5000);
-        startTime = System.currentTimeMillis();
-        for (Thread thread : threads)
-            thread.start();
+        Thread samplerThread = null;
+        if (Parameters.sampleInterval > 0 && !maint) {
+            sampler = new ThroughputSampler(Parameters.numThreads,
+                    this::threadTotal, Parameters.sampleInterval);
+            samplerThread = new Thread(sampler);
+            samplerThread.start();
+        }
+        TraceRecorder recorder = null;
+        try {
+            if (Parameters.recordFile != null && !maint)
+                recorder = new TraceRecorder(Parameters.recordFile,
+                        Parameters.numThreads);
+            attachTraces(Parameters.replayFile != null ? new Trace(
+                    Parameters.replayFile) : null, recorder);
+        } catch (IOException e) {
+            System.err.println("Cannot open the trace: " + e.getMessage());
+            System.exit(-1);
+        }
+        if (Parameters.phases != null && !maint) {
+            try {
+                phases = Phases.parse(Parameters.phases);
+            } catch (IOException e) {
+                System.err.println("Cannot read the phases: " + e.getMessage());
+                System.exit(-1);
+            }
+            attachPhases();
+        }
+        if (Parameters.virtualThreads && !maint) {
+            pinning = new VirtualThreads();
+            pinning.startRecording();
+        }
+        if (!maint) {
+            gc = new GcMonitor();
+            gc.start(Parameters.gcEvents);
+        }
+        if (affinity != null) {
+            // the threads bind themselves, then wait for the timed run to start
+            for (Thread thread : threads)
+                thread.start();
+            affinity.awaitBound();
+            startTime = System.currentTimeMillis();
+            affinity.release();
+        } else {
+            startTime = System.currentTimeMillis();
+            for (Thread thread : threads)
+                thread.start();
+        }
         try {
-            Thread.sleep(milliseconds);
+            if (phases != null) {
+                runPhases(milliseconds);
+            } else if (maint && Parameters.warmUpTolerance > 0) {
+                warmUp = new WarmUp(Parameters.numThreads, this::threadTotal,
+                        Parameters.warmUpTolerance);
+                warmUp.run(milliseconds);
+            } else {
+                Thread.sleep(milliseconds);
+            }
         } finally {
+            if (sampler != null)
+                sampler.stopSampler();
             switch (benchType) {
                 case INTSET:
                     for (ThreadSetLoop threadLoop : threadLoopsSet)
                         threadLoop.stopThread();
                     break;
                 case MAP:
+                case LONGMAP:
                     for (ThreadLoop threadLoop : threadLoops)
                         threadLoop.stopThread();
                     break;
@@ -242,9 +653,128 @@ public class Test {
         }
         for (Thread thread : threads)
             thread.join();
+        if (composition != null)
+            composition.stopMaintenance();
+        if (contention != null)
+            ((ContentionProfiled) bench()).setContentionCounters(null);
+        if (samplerThread != null)
+            samplerThread.join();
+        if (phases != null)
+            phaseOps[phasesReached] = sum(threadTotals());
 
         long endTime = System.currentTimeMillis();
         elapsedTime = ((double) (endTime - startTime)) / 1000.0;
+        if (pinning != null)
+            pinning.stopRecording();
+        if (gc != null) {
+            gc.stop();
+            gc.allocatedBytes = threadAllocatedBytes();
+        }
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                System.err.println("Cannot write the trace: " + e.getMessage());
+            }
+        }
+        if (measure) {
+            footprint.allocatedBytes = gc.allocatedBytes;
+            footprint.finalHeap = Footprint.retainedHeap();
+            footprint.finalSize = benchSize();
+            if (bench() instanceof MaintenanceAlg)
+                footprint.finalNodes = ((MaintenanceAlg) bench()).numNodes();
+        }
+        if (Parameters.latency)
+            mergeLatencies();
+    }
+
+    /**
+     * @return the bytes allocated by all threads during the run, or -1 if
+     *         the JVM does not account for them
+     */
+    private long threadAllocatedBytes() {
+        long allocated = 0;
+        for (short threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
+            long bytes;
+            switch (benchType) {
+                case INTSET:
+                    bytes = threadLoopsSet[threadNum].allocatedBytes;
+                    break;
+                case MAP:
+                case LONGMAP:
+                    bytes = threadLoops[threadNum].allocatedBytes;
+                    break;
+                default:
+                    bytes = threadLoopsSSet[threadNum].allocatedBytes;
+                    break;
+            }
+            if (bytes < 0)
+                return -1;
+            allocated += bytes;
+        }
+        return allocated;
+    }
+
+    double getThroughput() {
+        return throughput;
+    }
+
+    LatencyRecorder getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return the number of elements of the benchmark
+     */
+    private int benchSize() {
+        switch (benchType) {
+            case INTSET:
+                return setBench.size();
+            case MAP:
+                return mapBench.size();
+            case LONGMAP:
+                return longMapBench.size();
+            default:
+                return sortedBench.size();
+        }
+    }
+
+    /**
+     * @param threadNum the number of a benchmark thread
+     * @return the number of operations the thread executed so far
+     */
+    private long threadTotal(int threadNum) {
+        return progress.get(threadNum);
+    }
+
+    /**
+     * @return the number of operations each thread executed during the run
+     */
+    private long[] threadTotals() {
+        long[] totals = new long[Parameters.numThreads];
+        for (int threadNum = 0; threadNum < totals.length; threadNum++)
+            totals[threadNum] = threadTotal(threadNum);
+        return totals;
+    }
+
+    /**
+     * Merge the latency histograms of all threads into the global ones
+     */
+    private void mergeLatencies() {
+        for (short threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
+            switch (benchType) {
+                case INTSET:
+                    latencies.add(threadLoopsSet[threadNum].latencies);
+                    break;
+                case MAP:
+                case LONGMAP:
+                    latencies.add(threadLoops[threadNum].latencies);
+                    break;
+                case SORTEDSET:
+                    latencies.add(threadLoopsSSet[threadNum].latencies);
+                    break;
+            }
+        }
     }
 
     public void clear() {
@@ -255,6 +785,9 @@ public class Test {
             case MAP:
                 mapBench.clear();
                 break;
+            case LONGMAP:
+                longMapBench.clear();
+                break;
             case SORTEDSET:
                 sortedBench.clear();
                 break;
@@ -262,25 +795,40 @@ public class Test {
     }
 
     public static void main(String[] args) throws InterruptedException {
-        boolean firstIteration = true;
         Test test = new Test(args);
+        if (Sweep.isEnabled()) {
+            Sweep.run(args);
+            return;
+        }
         test.printParams();
+        test.run();
+    }
+
+    /**
+     * Warm up the JVM, then run the iterations of the benchmark and report
+     * their statistics
+     *
+     * @throws InterruptedException
+     */
+    void run() throws InterruptedException {
+        boolean firstIteration = true;
 
         // warming up the JVM
         if (Parameters.warmUp != 0) {
             try {
-                test.initThreads();
+                initThreads();
             } catch (Exception e) {
                 System.err.println("Cannot launch operations.");
                 e.printStackTrace();
             }
-            test.execute(Parameters.warmUp * 1000, true);
-            // give time to the JIT
-            Thread.sleep(1000);
+            execute(Parameters.warmUp * 1000, true);
+            // give time to the JIT, unless the warmup waited for it
+            if (warmUp == null)
+                Thread.sleep(1000);
             if (Parameters.detailedStats)
-                test.recordPreliminaryStats();
-            test.clear();
-            test.resetStats();
+                recordPreliminaryStats();
+            clear();
+            resetStats();
         }
 
         // running the bench
@@ -288,37 +836,56 @@ public class Test {
             if (!firstIteration) {
                 // give time to the JIT
                 Thread.sleep(1000);
-                test.resetStats();
-                test.clear();
+                resetStats();
+                clear();
                 org.deuce.transaction.estmstats.Context.threadIdCounter.set(0);
             }
             try {
-                test.initThreads();
+                initThreads();
             } catch (Exception e) {
                 System.err.println("Cannot launch operations.");
                 e.printStackTrace();
             }
-            test.execute(Parameters.numMilliseconds, false);
+            execute(Parameters.numMilliseconds, false);
 
-            if (test.setBench instanceof MaintenanceAlg) {
-                ((MaintenanceAlg) test.setBench).stopMaintenance();
-                test.structMods += ((MaintenanceAlg) test.setBench)
-                        .getStructMods();
+            if (setBench instanceof MaintenanceAlg) {
+                ((MaintenanceAlg) setBench).stopMaintenance();
+                structMods += ((MaintenanceAlg) setBench).getStructMods();
+            }
+            if (mapBench instanceof MaintenanceAlg) {
+                ((MaintenanceAlg) mapBench).stopMaintenance();
+                structMods += ((MaintenanceAlg) mapBench).getStructMods();
             }
-            if (test.mapBench instanceof MaintenanceAlg) {
-                ((MaintenanceAlg) test.mapBench).stopMaintenance();
-                test.structMods += ((MaintenanceAlg) test.mapBench)
-                        .getStructMods();
+            if (sortedBench instanceof MaintenanceAlg) {
+                ((MaintenanceAlg) sortedBench).stopMaintenance();
+                structMods += ((MaintenanceAlg) sortedBench).getStructMods();
             }
-            if (test.sortedBench instanceof MaintenanceAlg) {
-                ((MaintenanceAlg) test.sortedBench).stopMaintenance();
-                test.structMods += ((MaintenanceAlg) test.sortedBench)
-                        .getStructMods();
+            if (longMapBench instanceof MaintenanceAlg) {
+                ((MaintenanceAlg) longMapBench).stopMaintenance();
+                structMods += ((MaintenanceAlg) longMapBench).getStructMods();
             }
 
-            test.printBasicStats();
+            printBasicStats();
+            if (warmUp != null)
+                printWarmUp();
+            if (sampler != null)
+                printTimeline();
+            if (gc != null)
+                printGc();
+            if (contention != null)
+                printContention();
+            if (footprint != null)
+                printFootprint();
+            if (pinning != null)
+                printPinning();
+            if (phases != null)
+                printPhases();
+            if (Parameters.latency)
+                printLatencyStats();
             if (Parameters.detailedStats)
-                test.printDetailedStats();
+                printDetailedStats();
+            if (Parameters.outputFile != null)
+                writeResults(i);
             firstIteration = false;
         }
     }
@@ -341,42 +908,137 @@ public class Test {
                 } else if (currentArg.equals("--verbose")
                         || currentArg.equals("-v")) {
                     Parameters.detailedStats = true;
+                } else if (currentArg.equals("--latency")
+                        || currentArg.equals("-L")) {
+                    Parameters.latency = true;
+                } else if (currentArg.equals("--virtual")
+                        || currentArg.equals("-V")) {
+                    Parameters.virtualThreads = true;
+                } else if (currentArg.equals("--gc-events")
+                        || currentArg.equals("-G")) {
+                    Parameters.gcEvents = true;
+                } else if (currentArg.equals("--contention")
+                        || currentArg.equals("-I")) {
+                    Parameters.contention = true;
+                } else if (currentArg.equals("--footprint")
+                        || currentArg.equals("-M")) {
+                    Parameters.footprint = true;
+                } else if (currentArg.equals("--snapshot-scans")
+                        || currentArg.equals("-X")) {
+                    Parameters.snapshotScans = true;
+                } else if (currentArg.equals("--approximate-size")
+                        || currentArg.equals("-z")) {
+                    Parameters.approximateSize = true;
+                } else if (currentArg.equals("--fork")) {
+                    Sweep.fork = true;
                 } else {
                     String optionValue = args[argNumber++];
                     if (currentArg.equals("--skewed")
                             || currentArg.equals("-S")) {
                         Parameters.skewed = Integer.parseInt(optionValue);
                     } else if (currentArg.equals("--thread-nums")
-                            || currentArg.equals("-t"))
-                        Parameters.numThreads = Integer.parseInt(optionValue);
+                            || currentArg.equals("-t")) {
+                        Sweep.threadNums = Sweep.parseInts(optionValue);
+                        Parameters.numThreads = Sweep.threadNums[0];
+                    }
                     else if (currentArg.equals("--duration")
                             || currentArg.equals("-d"))
                         Parameters.numMilliseconds = Integer
                                 .parseInt(optionValue);
                     else if (currentArg.equals("--updates")
-                            || currentArg.equals("-u"))
-                        Parameters.numWrites = Integer.parseInt(optionValue);
+                            || currentArg.equals("-u")) {
+                        Sweep.writes = Sweep.parseInts(optionValue);
+                        Parameters.numWrites = Sweep.writes[0];
+                    }
                     else if (currentArg.equals("--writeAll")
                             || currentArg.equals("-a"))
                         Parameters.numWriteAlls = Integer.parseInt(optionValue);
                     else if (currentArg.equals("--snapshots")
                             || currentArg.equals("-s"))
                         Parameters.numSnapshots = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--scans")
+                            || currentArg.equals("-q"))
+                        Parameters.numScans = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--scan-length")
+                            || currentArg.equals("-l"))
+                        Parameters.scanLength = Integer.parseInt(optionValue);
                     else if (currentArg.equals("--size")
-                            || currentArg.equals("-i"))
-                        Parameters.size = Integer.parseInt(optionValue);
+                            || currentArg.equals("-i")) {
+                        Sweep.sizes = Sweep.parseInts(optionValue);
+                        Parameters.size = Sweep.sizes[0];
+                    }
                     else if (currentArg.equals("--range")
-                            || currentArg.equals("-r"))
+                            || currentArg.equals("-r")) {
                         Parameters.range = Integer.parseInt(optionValue);
+                        Sweep.fixedRange = true;
+                    }
                     else if (currentArg.equals("--Warmup")
                             || currentArg.equals("-W"))
                         Parameters.warmUp = Integer.parseInt(optionValue);
                     else if (currentArg.equals("--benchmark")
-                            || currentArg.equals("-b"))
-                        Parameters.benchClassName = optionValue;
+                            || currentArg.equals("-b")) {
+                        Sweep.benchmarks = Sweep.parseStrings(optionValue);
+                        Parameters.benchClassName = Sweep.benchmarks[0];
+                    }
                     else if (currentArg.equals("--iterations")
                             || currentArg.equals("-n"))
                         Parameters.iterations = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--distribution")
+                            || currentArg.equals("-K"))
+                        Parameters.distribution = optionValue;
+                    else if (currentArg.equals("--key-stream")
+                            || currentArg.equals("-k"))
+                        Parameters.keyStream = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--rate")
+                            || currentArg.equals("-R")) {
+                        Sweep.rates = Sweep.parseInts(optionValue);
+                        Parameters.targetRate = Sweep.rates[0];
+                    }
+                    else if (currentArg.equals("--fill-threads")
+                            || currentArg.equals("-f"))
+                        Parameters.fillThreads = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--fill-order")
+                            || currentArg.equals("-O"))
+                        Parameters.fillOrder = optionValue;
+                    else if (currentArg.equals("--carriers")
+                            || currentArg.equals("-C"))
+                        Parameters.carriers = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--warmup-tolerance")
+                            || currentArg.equals("-A"))
+                        Parameters.warmUpTolerance = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--compose")
+                            || currentArg.equals("-c"))
+                        Parameters.composeInstances = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--compose-strategy")
+                            || currentArg.equals("-g"))
+                        Parameters.composeStrategy = optionValue;
+                    else if (currentArg.equals("--batch")
+                            || currentArg.equals("-x"))
+                        Parameters.batchSize = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--async")
+                            || currentArg.equals("-e"))
+                        Parameters.asyncOps = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--bind")
+                            || currentArg.equals("-B"))
+                        Parameters.bind = optionValue;
+                    else if (currentArg.equals("--phases")
+                            || currentArg.equals("-P"))
+                        Parameters.phases = optionValue;
+                    else if (currentArg.equals("--sample-interval")
+                            || currentArg.equals("-T"))
+                        Parameters.sampleInterval = Integer.parseInt(optionValue);
+                    else if (currentArg.equals("--replay")
+                            || currentArg.equals("-p"))
+                        Parameters.replayFile = optionValue;
+                    else if (currentArg.equals("--record")
+                            || currentArg.equals("-j"))
+                        Parameters.recordFile = optionValue;
+                    else if (currentArg.equals("--output")
+                            || currentArg.equals("-o"))
+                        Parameters.outputFile = optionValue;
+                    else if (currentArg.equals("--output-format")
+                            || currentArg.equals("-F"))
+                        Parameters.outputFormat = optionValue;
                 }
             } catch (IndexOutOfBoundsException e) {
                 System.err.println("Missing value after option: " + currentArg
@@ -386,8 +1048,111 @@ public class Test {
                         + currentArg + ". Ignoring...");
             }
         }
+        try {
+            KeyDistribution.create(Parameters.distribution, Parameters.range,
+                    (short) 0);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(-1);
+        }
+        if (Sweep.isOpenLoop())
+            // open-loop runs are measured by their latencies, and a curve
+            // compares them with the closed-loop ones
+            Parameters.latency = true;
+        if (Parameters.virtualThreads) {
+            if (!VirtualThreads.isSupported()) {
+                System.err.println("Virtual threads require Java 21 or later");
+                System.exit(-1);
+            }
+            // the scheduler reads its parallelism once, when it is created
+            VirtualThreads.setCarriers(Parameters.carriers);
+        }
+        if (Parameters.phases != null) {
+            if (Parameters.keyStream > 0 || Parameters.replayFile != null
+                    || Parameters.skewed > 0) {
+                System.err.println("Phases cannot be combined with key streams, "
+                        + "trace replay or skewed workloads");
+                System.exit(-1);
+            }
+            try {
+                Phases.parse(Parameters.phases);
+            } catch (IOException e) {
+                System.err.println("Cannot read the phases: " + e.getMessage());
+                System.exit(-1);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(-1);
+            }
+            // the recovery times are measured on the throughput timeline
+            if (Parameters.sampleInterval == 0)
+                Parameters.sampleInterval = 100;
+        }
+        if (Parameters.bind != null) {
+            if (Parameters.virtualThreads) {
+                System.err.println("Virtual threads cannot be bound to CPUs, "
+                        + "bind their carriers with taskset instead");
+                System.exit(-1);
+            }
+            try {
+                new Affinity(Parameters.bind);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(-1);
+            }
+        }
+        if (Parameters.composeInstances > 0) {
+            if (Parameters.composeInstances < 2) {
+                System.err.println("Composition requires at least 2 instances");
+                System.exit(-1);
+            }
+            if (!Composition.isValidStrategy(Parameters.composeStrategy)) {
+                System.err.println("Unknown composition strategy: "
+                        + Parameters.composeStrategy);
+                System.exit(-1);
+            }
+            if (Parameters.numScans > 0 || Parameters.phases != null
+                    || Parameters.skewed > 0) {
+                System.err.println("Composition cannot be combined with range "
+                        + "scans, phases or skewed workloads");
+                System.exit(-1);
+            }
+        }
+        if (Parameters.batchSize < 0) {
+            System.err.println("The batch size cannot be negative");
+            System.exit(-1);
+        }
+        if (Parameters.asyncOps < 0) {
+            System.err.println("The number of outstanding operations cannot be negative");
+            System.exit(-1);
+        }
+        if (Parameters.asyncOps > 0 && (Parameters.composeInstances > 0
+                || Parameters.skewed > 0)) {
+            System.err.println("Asynchronous operations cannot be combined "
+                    + "with composition or skewed workloads");
+            System.exit(-1);
+        }
+        if (Parameters.snapshotScans && Parameters.numScans == 0) {
+            System.err.println("Snapshot scans require a scan ratio");
+            System.exit(-1);
+        }
+        if (Parameters.approximateSize && (Parameters.numSnapshots == 0
+                || Parameters.composeInstances > 0)) {
+            System.err.println("Approximate sizes run as the snapshot "
+                    + "operations, which require a snapshot ratio and no composition");
+            System.exit(-1);
+        }
+        if (Parameters.batchSize > 0 && (Parameters.numWriteAlls == 0
+                || Parameters.composeInstances > 0)) {
+            System.err.println("Batches run as the writeAll operations, "
+                    + "which require a writeAll ratio and no composition");
+            System.exit(-1);
+        }
+        if (!Prefill.isValidOrder(Parameters.fillOrder)) {
+            System.err.println("Unknown fill order: " + Parameters.fillOrder);
+            System.exit(-1);
+        }
         assert (Parameters.range >= Parameters.size);
-        if (Parameters.range != 2 * Parameters.size)
+        if (Parameters.range != 2 * Parameters.size && !Sweep.isEnabled())
             System.err
                     .println("Note that the value range is not twice "
                             + "the initial size, thus the size expectation varies at runtime.");
@@ -423,13 +1188,39 @@ public class Test {
     private void printUsage() {
         String syntax = "Usage:\n"
                 + "java synchrobench.benchmark.Test [options] [-- stm-specific options]\n\n"
+                + "Options -t, -u, -i, -R and -b accept comma-separated lists of values\n"
+                + "whose combinations are run one after the other in the same JVM.\n\n"
                 + "Options:\n"
                 + "\t-v            -- print detailed statistics (default: "
                 + Parameters.detailedStats
                 + ")\n"
+                + "\t-L            -- record per-operation latency histograms (default: "
+                + Parameters.latency
+                + ")\n"
+                + "\t-M            -- measure the memory footprint of the structure (default: "
+                + Parameters.footprint
+                + ")\n"
+                + "\t-I            -- count the CAS failures, retries, lock waits, restarts,\n"
+                + "\t                 helping steps and nodes traversed of the structure (default: "
+                + Parameters.contention
+                + ")\n"
+                + "\t-G            -- record the GC pauses and safepoints with JFR (default: "
+                + Parameters.gcEvents
+                + ")\n"
                 + "\t-t thread-num -- set the number of threads (default: "
                 + Parameters.numThreads
                 + ")\n"
+                + "\t-B binding    -- bind the threads to a list of CPUs, e.g. 0-3,8, or fill\n"
+                + "\t                 the CPUs compact or scatter across sockets (default: "
+                + Parameters.bind
+                + ")\n"
+                + "\t-V            -- run the threads as virtual threads, Java 21+ (default: "
+                + Parameters.virtualThreads
+                + ")\n"
+                + "\t-C carriers   -- set the number of carriers of the virtual threads, 0 for\n"
+                + "\t                 the JVM default (default: "
+                + Parameters.carriers
+                + ")\n"
                 + "\t-d duration   -- set the length of the benchmark, in milliseconds (default: "
                 + Parameters.numMilliseconds
                 + ")\n"
@@ -442,31 +1233,146 @@ public class Test {
                 + "\t-s snapshot   -- set the percentage of composite read-only operations (default: "
                 + Parameters.numSnapshots
                 + ")\n"
+                + "\t-z            -- read the approximate size counted by the structure in the\n"
+                + "\t                 snapshot operations instead of its exact size (default: "
+                + Parameters.approximateSize
+                + ")\n"
+                + "\t-q scans      -- set the percentage of range scans (default: "
+                + Parameters.numScans
+                + ")\n"
+                + "\t-l length     -- set the key interval covered by a range scan (default: "
+                + Parameters.scanLength
+                + ")\n"
+                + "\t-X            -- run the range scans on a snapshot of the structure (default: "
+                + Parameters.snapshotScans
+                + ")\n"
                 + "\t-r range      -- set the element range (default: "
                 + Parameters.range
                 + ")\n"
                 + "\t-b benchmark  -- set the benchmark (default: "
                 + Parameters.benchClassName
                 + ")\n"
+                + "\t-K distrib.   -- set the key distribution: uniform, zipf:theta,\n"
+                + "\t                 scrambled-zipf:theta, hotspot:keys%:ops%, latest:window\n"
+                + "\t                 or sequential (default: "
+                + Parameters.distribution
+                + ")\n"
+                + "\t-k length     -- pre-generate this many operations per thread and cycle\n"
+                + "\t                 through them, 0 drawing them on the fly (default: "
+                + Parameters.keyStream
+                + ")\n"
                 + "\t-i size       -- set the datastructure initial size (default: "
                 + Parameters.size
                 + ")\n"
+                + "\t-f threads    -- set the number of threads filling the datastructure (default: "
+                + Parameters.fillThreads
+                + ")\n"
+                + "\t-O order      -- set the fill order: random, shuffle or balanced (default: "
+                + Parameters.fillOrder
+                + ")\n"
                 + "\t-n iterations -- set the bench iterations in the same JVM (default: "
                 + Parameters.iterations
                 + ")\n"
                 + "\t-W warmup     -- set the JVM warmup length, in seconds (default: "
-                + Parameters.warmUp + ").";
+                + Parameters.warmUp
+                + ")\n"
+                + "\t-A tolerance  -- warm up until the throughput of the last windows varies by\n"
+                + "\t                 at most tolerance % and the JIT is quiet, W bounding the\n"
+                + "\t                 warmup, 0 for a fixed warmup (default: "
+                + Parameters.warmUpTolerance
+                + ")\n"
+                + "\t--fork        -- run each benchmark of a sweep in a child JVM (default: "
+                + Sweep.fork
+                + ")\n"
+                + "\t-R rate       -- issue operations at this aggregate rate in ops/s with Poisson\n"
+                + "\t                 arrivals (open loop), 0 for a closed loop (default: "
+                + Parameters.targetRate
+                + ")\n"
+                + "\t-p trace      -- replay the operations of a trace file instead of drawing\n"
+                + "\t                 them (default: "
+                + Parameters.replayFile
+                + ")\n"
+                + "\t-j trace      -- record the operations of the run to a trace file (default: "
+                + Parameters.recordFile
+                + ")\n"
+                + "\t-c instances  -- compose operations across that many instances, the\n"
+                + "\t                 writeAll ratio moving or swapping keys between instances\n"
+                + "\t                 and the snapshot ratio reading keys in all of them, 0 to\n"
+                + "\t                 disable (default: "
+                + Parameters.composeInstances
+                + ")\n"
+                + "\t-g strategy   -- synchronize the composed operations with none, lock,\n"
+                + "\t                 striped, optimistic or stm (default: "
+                + Parameters.composeStrategy
+                + ")\n"
+                + "\t-x size       -- run the writeAll ratio as inserts and removals of sorted\n"
+                + "\t                 batches of that many keys, 0 to disable (default: "
+                + Parameters.batchSize
+                + ")\n"
+                + "\t-e number     -- hand the updates and lookups off to the asynchronous operations\n"
+                + "\t                 of the map, keeping that many outstanding per thread, 0 to\n"
+                + "\t                 run them synchronously (default: "
+                + Parameters.asyncOps
+                + ")\n"
+                + "\t-P phases     -- switch the update ratio, range and key distribution\n"
+                + "\t                 at given times, e.g. 0:u=10;2000:u=80,r=4096,K=zipf:0.9,\n"
+                + "\t                 or read the phases from a file (default: "
+                + Parameters.phases
+                + ")\n"
+                + "\t-T interval   -- sample the throughput every interval ms, 0 to disable (default: "
+                + Parameters.sampleInterval
+                + ")\n"
+                + "\t-o file       -- append one result record per iteration to file (default: "
+                + Parameters.outputFile
+                + ")\n"
+                + "\t-F format     -- set the result record format, json or csv (default: "
+                + "from the file extension).";
         System.err.println(syntax);
     }
 
     /**
      * Print the parameters that have been given as an input to the benchmark
      */
-    private void printParams() {
+    void printParams() {
         String params = "Benchmark parameters" + "\n" + "--------------------"
                 + "\n" + "  Detailed stats:          \t"
                 + (Parameters.detailedStats ? "enabled" : "disabled")
                 + "\n"
+                + "  Latency histograms:      \t"
+                + (Parameters.latency ? "enabled" : "disabled")
+                + "\n"
+                + "  Memory footprint:        \t"
+                + (Parameters.footprint ? "enabled" : "disabled")
+                + "\n"
+                + "  Contention counters:     \t"
+                + (Parameters.contention ? "enabled" : "disabled")
+                + "\n"
+                + "  GC events (JFR):         \t"
+                + (Parameters.gcEvents ? "enabled" : "disabled")
+                + "\n"
+                + "  Binding:                 \t"
+                + (Parameters.bind != null ? Parameters.bind : "none")
+                + "\n"
+                + "  Workload:                \t"
+                + (Parameters.replayFile != null ? "replay of "
+                        + Parameters.replayFile : "synthetic")
+                + (Parameters.recordFile != null ? ", recorded to "
+                        + Parameters.recordFile : "")
+                + "\n"
+                + (Parameters.composeInstances > 0 ? "  Composition:             \t"
+                        + Parameters.composeInstances + " instances, "
+                        + Parameters.composeStrategy + "\n" : "")
+                + (Parameters.phases != null ? "  Phases:                  \t"
+                        + Parameters.phases + "\n" : "")
+                + "  Threads:                 \t"
+                + (Parameters.virtualThreads ? "virtual, "
+                        + (Parameters.carriers > 0 ? Parameters.carriers
+                                : "default") + " carriers" : "platform")
+                + "\n"
+                + "  Load:                    \t"
+                + (Parameters.targetRate > 0 ? "open loop, "
+                        + Parameters.targetRate + " ops/s" : "closed loop")
+                + "\n"
                 + "  Number of threads:       \t"
                 + Parameters.numThreads
                 + "\n"
@@ -479,21 +1385,59 @@ public class Test {
                 + "  WriteAll ratio:          \t"
                 + Parameters.numWriteAlls
                 + " %\n"
+                + "  Batch size:              \t"
+                + (Parameters.batchSize > 0 ? Parameters.batchSize + " keys"
+                        : "disabled")
+                + "\n"
+                + "  Async operations:        \t"
+                + (Parameters.asyncOps > 0 ? Parameters.asyncOps + " outstanding"
+                        : "disabled")
+                + "\n"
                 + "  Snapshot ratio:          \t"
                 + Parameters.numSnapshots
                 + " %\n"
+                + "  Approximate size:        \t"
+                + (Parameters.approximateSize ? "enabled" : "disabled")
+                + "\n"
+                + "  Scan ratio:              \t"
+                + Parameters.numScans
+                + " %\n"
+                + "  Scan length:             \t"
+                + Parameters.scanLength
+                + " keys\n"
+                + "  Snapshot scans:          \t"
+                + (Parameters.snapshotScans ? "enabled" : "disabled")
+                + "\n"
                 + "  Size:                    \t"
                 + Parameters.size
                 + " elts\n"
+                + "  Fill:                    \t"
+                + Parameters.fillOrder
+                + " order, "
+                + Parameters.fillThreads
+                + " thread(s)\n"
                 + "  Range:                   \t"
                 + Parameters.range
                 + " elts\n"
                 + "  WarmUp:                  \t"
+                + (Parameters.warmUpTolerance > 0 ? "until "
+                        + Parameters.warmUpTolerance + " % CV, at most " : "")
                 + Parameters.warmUp
                 + " s\n"
                 + "  Iterations:              \t"
                 + Parameters.iterations
                 + "\n"
+                + "  Key distribution:        \t"
+                + Parameters.distribution
+                + "\n"
+                + "  Key stream:              \t"
+                + (Parameters.keyStream > 0 ? Parameters.keyStream + " ops"
+                        : "disabled")
+                + "\n"
+                + "  Sampling interval:       \t"
+                + (Parameters.sampleInterval > 0 ? Parameters.sampleInterval
+                        + " ms" : "disabled")
+                + "\n"
                 + "  Benchmark:               \t"
                 + Parameters.benchClassName
                 + "\n"
@@ -515,6 +1459,13 @@ public class Test {
                     numRemoveAll += threadLoopsSet[threadNum].numRemoveAll;
                     numSize += threadLoopsSet[threadNum].numSize;
                     numContains += threadLoopsSet[threadNum].numContains;
+                    numScans += threadLoopsSet[threadNum].numScans;
+                    numScanned += threadLoopsSet[threadNum].numScanned;
+                    numMoves += threadLoopsSet[threadNum].numMoves;
+                    numSwaps += threadLoopsSet[threadNum].numSwaps;
+                    numMultiGets += threadLoopsSet[threadNum].numMultiGets;
+                    numBatchAdded += threadLoopsSet[threadNum].numBatchAdded;
+                    numBatchRemoved += threadLoopsSet[threadNum].numBatchRemoved;
                     failures += threadLoopsSet[threadNum].failures;
                     total += threadLoopsSet[threadNum].total;
                     aborts += threadLoopsSet[threadNum].aborts;
@@ -523,12 +1474,20 @@ public class Test {
                     structMods += threadLoopsSet[threadNum].structMods;
                     break;
                 case MAP:
+                case LONGMAP:
                     numAdd += threadLoops[threadNum].numAdd;
                     numRemove += threadLoops[threadNum].numRemove;
                     numAddAll += threadLoops[threadNum].numAddAll;
                     numRemoveAll += threadLoops[threadNum].numRemoveAll;
                     numSize += threadLoops[threadNum].numSize;
                     numContains += threadLoops[threadNum].numContains;
+                    numScans += threadLoops[threadNum].numScans;
+                    numScanned += threadLoops[threadNum].numScanned;
+                    numMoves += threadLoops[threadNum].numMoves;
+                    numSwaps += threadLoops[threadNum].numSwaps;
+                    numMultiGets += threadLoops[threadNum].numMultiGets;
+                    numBatchAdded += threadLoops[threadNum].numBatchAdded;
+                    numBatchRemoved += threadLoops[threadNum].numBatchRemoved;
                     failures += threadLoops[threadNum].failures;
                     total += threadLoops[threadNum].total;
                     aborts += threadLoops[threadNum].aborts;
@@ -543,6 +1502,8 @@ public class Test {
                     numRemoveAll += threadLoopsSSet[threadNum].numRemoveAll;
                     numSize += threadLoopsSSet[threadNum].numSize;
                     numContains += threadLoopsSSet[threadNum].numContains;
+                    numScans += threadLoopsSSet[threadNum].numScans;
+                    numScanned += threadLoopsSSet[threadNum].numScanned;
                     failures += threadLoopsSSet[threadNum].failures;
                     total += threadLoopsSSet[threadNum].total;
                     aborts += threadLoopsSSet[threadNum].aborts;
@@ -559,16 +1520,40 @@ public class Test {
         System.out.println("  Average traversal length: \t"
                 + (double) nodesTraversed / (double) getCount);
         System.out.println("  Struct Modifications:     \t" + structMods);
+        if (Parameters.targetRate > 0)
+            System.out.println("  Offered rate (ops/s):     \t"
+                    + Parameters.targetRate);
         System.out.println("  Throughput (ops/s):       \t" + throughput);
+        if (gc != null) {
+            System.out.println("    GC time:               \t"
+                    + GcMonitor.formatPercent(gc.collectionFraction(elapsedTime))
+                    + " of elapsed time");
+            System.out.println("    allocated bytes per op:\t"
+                    + (gc.allocatedBytes >= 0 ? formatDouble(
+                            (double) gc.allocatedBytes / total) : "unavailable"));
+        }
+        if (numScans > 0) {
+            System.out.println("  Scan throughput (scans/s):\t"
+                    + (double) numScans / elapsedTime);
+            System.out.println("  Avg keys per scan:        \t"
+                    + (double) numScanned / (double) numScans);
+        }
         System.out.println("  Elapsed time (s):         \t" + elapsedTime);
+        if (affinity != null)
+            System.out.println("  Bound CPUs:               \t"
+                    + affinity.describe(Parameters.numThreads) + "\t( "
+                    + affinity.numSockets(Parameters.numThreads) + " sockets"
+                    + (affinity.getUnbound() > 0 ? ", " + affinity.getUnbound()
+                            + " threads unbound" : "") + ")");
         System.out.println("  Operations:               \t" + total
                 + "\t( 100 %)");
         System.out
                 .println("    effective updates:     \t"
-                        + (numAdd + numRemove + numAddAll + numRemoveAll)
+                        + (numAdd + numRemove + numAddAll + numRemoveAll
+                        + numMoves + numSwaps)
                         + "\t( "
                         + formatDouble(((double) (numAdd + numRemove
-                        + numAddAll + numRemoveAll) * 100)
+                        + numAddAll + numRemoveAll + numMoves + numSwaps) * 100)
                         / (double) total) + " %)");
         System.out.println("    |--add successful:     \t" + numAdd + "\t( "
                 + formatDouble(((double) numAdd / (double) total) * 100)
@@ -583,6 +1568,10 @@ public class Test {
                 + "\t( "
                 + formatDouble(((double) numRemoveAll / (double) total) * 100)
                 + " %)");
+        if (Parameters.batchSize > 0) {
+            System.out.println("    |--batched keys added: \t" + numBatchAdded);
+            System.out.println("    |--batched keys rmvd.: \t" + numBatchRemoved);
+        }
         System.out.println("    size successful:       \t" + numSize + "\t( "
                 + formatDouble(((double) numSize / (double) total) * 100)
                 + " %)");
@@ -590,26 +1579,57 @@ public class Test {
                 + "\t( "
                 + formatDouble(((double) numContains / (double) total) * 100)
                 + " %)");
+        System.out.println("    range scans:           \t" + numScans
+                + "\t( "
+                + formatDouble(((double) numScans / (double) total) * 100)
+                + " %)");
+        if (composition != null) {
+            System.out.println("    moves succ.:           \t" + numMoves
+                    + "\t( "
+                    + formatDouble(((double) numMoves / (double) total) * 100)
+                    + " %)");
+            System.out.println("    swaps succ.:           \t" + numSwaps
+                    + "\t( "
+                    + formatDouble(((double) numSwaps / (double) total) * 100)
+                    + " %)");
+            System.out.println("    multiGets succ.:       \t" + numMultiGets
+                    + "\t( "
+                    + formatDouble(((double) numMultiGets / (double) total) * 100)
+                    + " %)");
+        }
         System.out.println("    unsuccessful ops:      \t" + failures + "\t( "
                 + formatDouble(((double) failures / (double) total) * 100)
                 + " %)");
         switch (benchType) {
             case INTSET:
-                System.out.println("  Final size:              \t" + setBench.size());
-                if (Parameters.numWriteAlls == 0)
-                    System.out.println("  Expected size:           \t" + (Parameters.size + numAdd - numRemove));
+                System.out.println("  Final size:              \t" + (composition != null
+                        ? composition.size() : setBench.size()));
+                if (Parameters.numWriteAlls == 0 || composition != null
+                        || Parameters.batchSize > 0)
+                    System.out.println("  Expected size:           \t" + (Parameters.size + numAdd - numRemove
+                            + numBatchAdded - numBatchRemoved));
                 break;
             case MAP:
-                System.out.println("  Final size:              \t" + mapBench.size());
-                if (Parameters.numWriteAlls == 0)
-                    System.out.println("  Expected size:           \t" + (Parameters.size + numAdd - numRemove));
+                System.out.println("  Final size:              \t" + (composition != null
+                        ? composition.size() : mapBench.size()));
+                if (Parameters.numWriteAlls == 0 || composition != null
+                        || Parameters.batchSize > 0)
+                    System.out.println("  Expected size:           \t" + (Parameters.size + numAdd - numRemove
+                            + numBatchAdded - numBatchRemoved));
                 break;
             case SORTEDSET:
                 System.out.println("  Final size:              \t" + sortedBench.size());
                 if (Parameters.numWriteAlls == 0)
                     System.out.println("  Expected size:           \t" + (Parameters.size + numAdd - numRemove));
                 break;
+            case LONGMAP:
+                System.out.println("  Final size:              \t" + longMapBench.size());
+                System.out.println("  Expected size:           \t" + (Parameters.size + numAdd - numRemove));
+                break;
         }
+        if (composition == null && bench() instanceof ApproximateSize)
+            System.out.println("  Counted size:            \t"
+                    + ((ApproximateSize) bench()).approximateSize());
         //System.out.println("  Other size:              \t" + map.size());
 
         // TODO what should print special for maint data structures
@@ -650,10 +1670,369 @@ public class Test {
                             + ((MaintenanceAlg) sortedBench).numNodes());
                 }
                 break;
+            case LONGMAP:
+                if (longMapBench instanceof MaintenanceAlg) {
+                    System.out.println("  #nodes (inc. deleted): \t"
+                            + ((MaintenanceAlg) longMapBench).numNodes());
+                }
+                break;
         }
 
     }
 
+    /**
+     * Append the results of the last iteration to the output file
+     *
+     * @param iteration the index of the iteration
+     */
+    private void writeResults(int iteration) {
+        try {
+            ResultWriter writer = new ResultWriter(Parameters.outputFile,
+                    ResultWriter.formatOf(Parameters.outputFormat,
+                            Parameters.outputFile));
+            writer.write(resultRecord(iteration));
+        } catch (IOException e) {
+            System.err.println("Cannot write the results to "
+                    + Parameters.outputFile + ": " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown output format: "
+                    + Parameters.outputFormat);
+        }
+    }
+
+    /**
+     * Collect the parameters and results of the last iteration, once the
+     * statistics have been printed, as an ordered record
+     *
+     * @param iteration the index of the iteration
+     */
+    private Map<String, Object> resultRecord(int iteration) {
+        Map<String, Object> record = new LinkedHashMap<String, Object>();
+        record.put("timestamp", System.currentTimeMillis());
+        record.put("iteration", iteration);
+        record.put("type", benchType.toString());
+        for (Field field : Parameters.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())
+                    || !Modifier.isPublic(field.getModifiers()))
+                continue;
+            try {
+                record.put(field.getName(), field.get(null));
+            } catch (IllegalAccessException e) {
+                // public fields are accessible
+            }
+        }
+        record.put("elapsedTime", elapsedTime);
+        record.put("throughput", throughput);
+        record.put("operations", total);
+        record.put("numAdd", numAdd);
+        record.put("numRemove", numRemove);
+        record.put("numAddAll", numAddAll);
+        record.put("numRemoveAll", numRemoveAll);
+        record.put("numSize", numSize);
+        record.put("numContains", numContains);
+        record.put("numScans", numScans);
+        record.put("numScanned", numScanned);
+        if (Parameters.batchSize > 0) {
+            record.put("numBatchAdded", numBatchAdded);
+            record.put("numBatchRemoved", numBatchRemoved);
+        }
+        if (composition != null) {
+            record.put("numMoves", numMoves);
+            record.put("numSwaps", numSwaps);
+            record.put("numMultiGets", numMultiGets);
+        }
+        record.put("scanThroughput", (double) numScans / elapsedTime);
+        record.put("failures", failures);
+        record.put("aborts", aborts);
+        record.put("structMods", structMods);
+        record.put("avgTraversalLength", (double) nodesTraversed
+                / (double) getCount);
+        if (footprint != null) {
+            record.put("retainedHeapAfterFill", footprint.filledHeap
+                    - footprint.emptyHeap);
+            record.put("bytesPerElement", footprint.bytesPerElement());
+            record.put("retainedHeapAtEnd", footprint.finalHeap
+                    - footprint.emptyHeap);
+            record.put("finalBytesPerElement",
+                    footprint.finalBytesPerElement());
+            record.put("deletedNodes", footprint.finalNodes >= 0 ? footprint.finalNodes
+                    - footprint.finalSize : null);
+        }
+        if (gc != null) {
+            record.put("gcCount", gc.collections);
+            record.put("gcTimeMs", gc.collectionMillis);
+            record.put("gcTimeFraction", gc.collectionFraction(elapsedTime));
+            record.put("allocatedBytes", gc.allocatedBytes >= 0
+                    ? gc.allocatedBytes : null);
+            record.put("allocatedBytesPerOp", gc.allocatedBytes >= 0
+                    ? (double) gc.allocatedBytes / total : null);
+            GcMonitor.Events events = gc.getEvents();
+            if (events != null) {
+                record.put("gcPauses", events.pauses);
+                record.put("gcPauseMs", events.pauseNanos / 1e6);
+                record.put("gcLongestPauseMs", events.longestPauseNanos / 1e6);
+                record.put("safepoints", events.safepoints);
+                record.put("safepointMs", events.safepointNanos / 1e6);
+                record.put("timeToSafepointMs", events.syncNanos / 1e6);
+            }
+        }
+        if (warmUp != null) {
+            record.put("warmUpMillis", warmUp.elapsed);
+            record.put("warmUpConverged", warmUp.converged);
+            record.put("warmUpCv", warmUp.cv);
+            record.put("warmUpCompileMillis", warmUp.compileMillis >= 0
+                    ? warmUp.compileMillis : null);
+        }
+        if (pinning != null) {
+            record.put("pinnedEvents", pinning.getNumPinned());
+            record.put("pinnedTimeMs", pinning.getPinnedNanos() / 1e6);
+        }
+        if (phases != null) {
+            for (int phase = 0; phase < phasesReached; phase++) {
+                String prefix = "phase." + phase + ".";
+                record.put(prefix + "start", phases.get(phase).start);
+                record.put(prefix + "settings", phases.get(phase).toString());
+                record.put(prefix + "throughput", phaseThroughput(phase));
+                long recovery = phaseRecovery(phase);
+                record.put(prefix + "recoveryMs", recovery >= 0 ? recovery / 1e6
+                        : null);
+                if (Parameters.latency) {
+                    LatencyHistogram h = phaseLatencies(phase).getOverall();
+                    record.put(prefix + "p50Us",
+                            h.getValueAtPercentile(50) / 1000.0);
+                    record.put(prefix + "p99Us",
+                            h.getValueAtPercentile(99) / 1000.0);
+                }
+            }
+        }
+        if (sampler != null) {
+            double[] fairness = ThroughputSampler.fairness(threadTotals());
+            record.put("threadOpsMin", (long) fairness[0]);
+            record.put("threadOpsMax", (long) fairness[1]);
+            record.put("threadOpsStddev", fairness[3]);
+            StringBuilder timeline = new StringBuilder();
+            for (double opsPerSecond : sampler.getTimeline())
+                timeline.append(timeline.length() > 0 ? " " : "").append(
+                        (long) opsPerSecond);
+            record.put("timeline", timeline.toString());
+        }
+        if (Parameters.latency) {
+            for (int op = 0; op <= LatencyRecorder.OPERATIONS.length; op++) {
+                boolean overall = op == LatencyRecorder.OPERATIONS.length;
+                LatencyHistogram h = overall ? latencies.getOverall()
+                        : latencies.getHistogram(op);
+                String prefix = "latency."
+                        + (overall ? "all" : LatencyRecorder.OPERATIONS[op])
+                        + ".";
+                record.put(prefix + "count", h.getTotalCount());
+                record.put(prefix + "meanUs", h.getMean() / 1000.0);
+                for (double p : LatencyRecorder.PERCENTILES)
+                    record.put(prefix + "p"
+                            + LatencyRecorder.formatPercentile(p) + "Us",
+                            h.getValueAtPercentile(p) / 1000.0);
+                record.put(prefix + "maxUs", h.getMax() / 1000.0);
+            }
+        }
+        if (Parameters.detailedStats) {
+            record.put("tm.starts", numStarts);
+            record.put("tm.commits", numCommits);
+            record.put("tm.commitsReadOnly", numCommitsReadOnly);
+            record.put("tm.commitsElastic", numCommitsElastic);
+            record.put("tm.commitsUpdate", numCommitsUpdate);
+            record.put("tm.aborts", numAborts);
+            record.put("tm.abortsBetweenSuccessiveReads",
+                    numAbortsBetweenSuccessiveReads);
+            record.put("tm.abortsBetweenReadAndWrite",
+                    numAbortsBetweenReadAndWrite);
+            record.put("tm.abortsExtendOnRead", numAbortsExtendOnRead);
+            record.put("tm.abortsWriteAfterRead", numAbortsWriteAfterRead);
+            record.put("tm.abortsLockedOnWrite", numAbortsLockedOnWrite);
+            record.put("tm.abortsLockedBeforeRead", numAbortsLockedBeforeRead);
+            record.put("tm.abortsLockedBeforeElasticRead",
+                    numAbortsLockedBeforeElasticRead);
+            record.put("tm.abortsLockedOnRead", numAbortsLockedOnRead);
+            record.put("tm.abortsInvalidCommit", numAbortsInvalidCommit);
+            record.put("tm.abortsInvalidSnapshot", numAbortsInvalidSnapshot);
+        }
+        if (contention != null)
+            for (int counter = 0; counter < ContentionCounters.NAMES.length; counter++)
+                record.put("contention." + ContentionCounters.NAMES[counter],
+                        contention.get(counter));
+        if (affinity != null) {
+            record.put("boundCpus", affinity.describe(Parameters.numThreads));
+            record.put("boundSockets", affinity.numSockets(Parameters.numThreads));
+            record.put("unboundThreads", affinity.getUnbound());
+        }
+        record.put("javaVersion", System.getProperty("java.version"));
+        record.put("jvm", System.getProperty("java.vm.name"));
+        StringBuilder flags = new StringBuilder();
+        for (String flag : ManagementFactory.getRuntimeMXBean()
+                .getInputArguments()) {
+            if (flags.length() > 0)
+                flags.append(' ');
+            flags.append(flag);
+        }
+        record.put("jvmFlags", flags.toString());
+        return record;
+    }
+
+    /**
+     * Print the heap retained by the structure and the allocations of the run
+     */
+    private void printFootprint() {
+        printLine('-');
+        System.out.println("Memory footprint");
+        printLine('-');
+        footprint.print(System.out, elapsedTime, total);
+    }
+
+    /**
+     * Print the contention counted by the benchmark
+     */
+    private void printContention() {
+        printLine('-');
+        System.out.println("Contention counters");
+        printLine('-');
+        for (int counter = 0; counter < ContentionCounters.NAMES.length; counter++) {
+            long count = contention.get(counter);
+            System.out.println(String.format("  %-25s\t",
+                    ContentionCounters.NAMES[counter] + ":") + count + "\t( "
+                    + formatDouble((double) count / total) + " per op)");
+        }
+    }
+
+    /**
+     * Print the garbage collections of the run
+     */
+    private void printGc() {
+        printLine('-');
+        System.out.println("Garbage collection");
+        printLine('-');
+        gc.print(System.out, elapsedTime);
+    }
+
+    /**
+     * Print the length of the adaptive warmup
+     */
+    private void printWarmUp() {
+        printLine('-');
+        System.out.println("Warmup");
+        printLine('-');
+        warmUp.print(System.out);
+    }
+
+    /**
+     * Print the carrier pinning events of the virtual threads
+     */
+    private void printPinning() {
+        printLine('-');
+        System.out.println("Virtual threads");
+        printLine('-');
+        System.out.println("  Carriers:                 \t"
+                + System.getProperty("jdk.virtualThreadScheduler.parallelism",
+                        Runtime.getRuntime().availableProcessors() + ""));
+        pinning.print(System.out);
+    }
+
+    /**
+     * @return the throughput of a phase, in ops/s
+     */
+    private double phaseThroughput(int phase) {
+        return (phaseOps[phase + 1] - phaseOps[phase]) * 1e9
+                / (phaseStarts[phase + 1] - phaseStarts[phase]);
+    }
+
+    /**
+     * @return the time the throughput took to settle after the transition to
+     *         a phase, in nanoseconds, or -1 for the first phase and the
+     *         phases too short to tell
+     */
+    private long phaseRecovery(int phase) {
+        if (phase == 0)
+            return -1;
+        return Phases.recoveryTime(sampler.getIntervalEnds(),
+                sampler.getTimeline(), phaseStarts[phase],
+                phaseStarts[phase + 1]);
+    }
+
+    /**
+     * @return the latencies of all threads during a phase
+     */
+    private LatencyRecorder phaseLatencies(int phase) {
+        LatencyRecorder merged = new LatencyRecorder();
+        for (int threadNum = 0; threadNum < Parameters.numThreads; threadNum++) {
+            switch (benchType) {
+                case INTSET:
+                    merged.add(threadLoopsSet[threadNum].phaseLatencies[phase]);
+                    break;
+                case MAP:
+                case LONGMAP:
+                    merged.add(threadLoops[threadNum].phaseLatencies[phase]);
+                    break;
+                case SORTEDSET:
+                    merged.add(threadLoopsSSet[threadNum].phaseLatencies[phase]);
+                    break;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Print the throughput, latency and recovery time of each phase
+     */
+    private void printPhases() {
+        printLine('-');
+        System.out.println("Workload phases");
+        printLine('-');
+        System.out.println("  Phase\tStart (ms)\tops/s\t\trecovery (ms)"
+                + (Parameters.latency ? "\tp50 (us)\tp99 (us)" : "")
+                + "\tsettings");
+        for (int phase = 0; phase < phasesReached; phase++) {
+            long recovery = phaseRecovery(phase);
+            StringBuilder line = new StringBuilder(String.format(Locale.US,
+                    "  %-5d\t%-10d\t%-12.0f\t%-12s", phase,
+                    phases.get(phase).start, phaseThroughput(phase),
+                    recovery >= 0 ? formatDouble(recovery / 1e6) : "-"));
+            if (Parameters.latency) {
+                LatencyHistogram h = phaseLatencies(phase).getOverall();
+                line.append(String.format(Locale.US, "\t%-8.2f\t%-8.2f",
+                        h.getValueAtPercentile(50) / 1000.0,
+                        h.getValueAtPercentile(99) / 1000.0));
+            }
+            line.append('\t').append(phases.get(phase));
+            System.out.println(line);
+        }
+        if (phasesReached < phases.size())
+            System.out.println("  " + (phases.size() - phasesReached)
+                    + " phase(s) starting after the end of the run");
+    }
+
+    /**
+     * Print the throughput of each sampling interval and the spread of the
+     * operations among threads
+     */
+    private void printTimeline() {
+        printLine('-');
+        System.out.println("Throughput timeline");
+        printLine('-');
+        sampler.print(System.out);
+        double[] fairness = ThroughputSampler.fairness(threadTotals());
+        System.out.println("  Ops per thread:           \tmin " + (long) fairness[0]
+                + "\tmax " + (long) fairness[1] + "\tstddev "
+                + formatDouble(fairness[3]) + "\t( "
+                + formatDouble(fairness[3] * 100 / fairness[2]) + " % of mean)");
+    }
+
+    /**
+     * Print the latency percentiles of each operation type
+     */
+    private void printLatencyStats() {
+        printLine('-');
+        System.out.println("Latency statistics");
+        printLine('-');
+        latencies.print(System.out);
+    }
+
     /**
      * Detailed Warmup TM Statistics
      */
@@ -699,6 +2078,13 @@ public class Test {
                     threadLoopsSet[threadNum].numRemoveAll = 0;
                     threadLoopsSet[threadNum].numSize = 0;
                     threadLoopsSet[threadNum].numContains = 0;
+                    threadLoopsSet[threadNum].numScans = 0;
+                    threadLoopsSet[threadNum].numScanned = 0;
+                    threadLoopsSet[threadNum].numMoves = 0;
+                    threadLoopsSet[threadNum].numSwaps = 0;
+                    threadLoopsSet[threadNum].numMultiGets = 0;
+                    threadLoopsSet[threadNum].numBatchAdded = 0;
+                    threadLoopsSet[threadNum].numBatchRemoved = 0;
                     threadLoopsSet[threadNum].failures = 0;
                     threadLoopsSet[threadNum].total = 0;
                     threadLoopsSet[threadNum].aborts = 0;
@@ -707,12 +2093,20 @@ public class Test {
                     threadLoopsSet[threadNum].structMods = 0;
                     break;
                 case MAP:
+                case LONGMAP:
                     threadLoops[threadNum].numAdd = 0;
                     threadLoops[threadNum].numRemove = 0;
                     threadLoops[threadNum].numAddAll = 0;
                     threadLoops[threadNum].numRemoveAll = 0;
                     threadLoops[threadNum].numSize = 0;
                     threadLoops[threadNum].numContains = 0;
+                    threadLoops[threadNum].numScans = 0;
+                    threadLoops[threadNum].numScanned = 0;
+                    threadLoops[threadNum].numMoves = 0;
+                    threadLoops[threadNum].numSwaps = 0;
+                    threadLoops[threadNum].numMultiGets = 0;
+                    threadLoops[threadNum].numBatchAdded = 0;
+                    threadLoops[threadNum].numBatchRemoved = 0;
                     threadLoops[threadNum].failures = 0;
                     threadLoops[threadNum].total = 0;
                     threadLoops[threadNum].aborts = 0;
@@ -727,6 +2121,8 @@ public class Test {
                     threadLoopsSSet[threadNum].numRemoveAll = 0;
                     threadLoopsSSet[threadNum].numSize = 0;
                     threadLoopsSSet[threadNum].numContains = 0;
+                    threadLoopsSSet[threadNum].numScans = 0;
+                    threadLoopsSSet[threadNum].numScanned = 0;
                     threadLoopsSSet[threadNum].failures = 0;
                     threadLoopsSSet[threadNum].total = 0;
                     threadLoopsSSet[threadNum].aborts = 0;
@@ -743,12 +2139,20 @@ public class Test {
         numRemoveAll = 0;
         numSize = 0;
         numContains = 0;
+        numScans = 0;
+        numScanned = 0;
+        numMoves = 0;
+        numSwaps = 0;
+        numMultiGets = 0;
+        numBatchAdded = 0;
+        numBatchRemoved = 0;
         failures = 0;
         total = 0;
         aborts = 0;
         nodesTraversed = 0;
         getCount = 0;
         structMods = 0;
+        latencies.reset();
 
         numCommits = 0;
         numStarts = 0;
@@ -0,0 +1,115 @@
+package contention.benchmark;
+
+import java.lang.reflect.Method;
+
+import contention.abstractions.CompositionalLongMap;
+
+/**
+ * The loop executed by each thread of the long map benchmark.
+ *
+ * The keys and values stay primitive from the key distribution down to the
+ * nodes of the structure, so that no operation boxes them. The long maps
+ * running neither writeAll operations nor range scans, the operations are
+ * put-if-absent, remove, size and get, the writeAll and scan operations of
+ * phases and replayed traces running as put-if-absent and get.
+ */
+public class ThreadLongMapLoop extends ThreadLoop {
+
+	/** The instance of the running benchmark */
+	public CompositionalLongMap longBench;
+
+	public ThreadLongMapLoop(short myThreadNum, CompositionalLongMap bench,
+			Method[] methods) {
+		super(myThreadNum, null, methods);
+		this.longBench = bench;
+	}
+
+	public void printDataStructure() {
+		System.out.println(longBench.toString());
+	}
+
+	public void run() {
+
+		long allocated = Footprint.currentThreadAllocatedBytes();
+		if (replay != null)
+			cdf = Trace.CDF;
+		LatencyRecorder recorder = phaseLatencies != null ? phaseLatencies[0]
+				: latencies;
+		while (!stop) {
+			if (phases != null && phases.current() != phase) {
+				phase = phases.current();
+				cdf = phases.get(phase).cdf;
+				keys = phaseKeys[phase];
+				if (phaseLatencies != null)
+					recorder = phaseLatencies[phase];
+			}
+			int newInt, coin;
+			long value;
+			if (replay != null) {
+				replay.next();
+				newInt = replay.key;
+				value = replay.value;
+				coin = Trace.coin(replay.operation);
+			} else if (stream != null) {
+				int next = stream.next();
+				newInt = stream.keys[next];
+				value = newInt;
+				coin = stream.coins[next];
+			} else {
+				newInt = keys.next(rand);
+				value = newInt;
+				coin = rand.nextInt(1000);
+			}
+			int operation;
+			long start = pacer != null ? pacer.awaitNext()
+					: recorder != null ? System.nanoTime() : 0L;
+			if (coin < cdf[1]) { // 1. should we run a writeSome operation?
+
+				if (2 * (coin - cdf[0]) < cdf[1] - cdf[0]) { // add
+					operation = LatencyRecorder.ADD;
+					if (longBench.putIfAbsent(newInt, value) == CompositionalLongMap.NO_VALUE)
+						numAdd++;
+					else
+						failures++;
+				} else { // remove
+					operation = LatencyRecorder.REMOVE;
+					if (longBench.remove(newInt) != CompositionalLongMap.NO_VALUE)
+						numRemove++;
+					else
+						failures++;
+				}
+
+			} else if (coin < cdf[2]) { // 2. should we run a readAll operation?
+				operation = LatencyRecorder.SIZE;
+
+				longBench.size();
+				numSize++;
+
+			} else { // 3. then we should run a readSome operation
+				operation = LatencyRecorder.CONTAINS;
+
+				if (longBench.get(newInt) != CompositionalLongMap.NO_VALUE)
+					numContains++;
+				else
+					failures++;
+			}
+			if (record != null)
+				record.record(operation, newInt, (int) value);
+			if (recorder != null)
+				recorder.record(operation, System.nanoTime() - start);
+			total++;
+			if (progress != null)
+				progress.publish(myThreadNum, total);
+
+			assert total == failures + numContains + numSize + numRemove
+					+ numAdd;
+		}
+		if (phaseLatencies != null)
+			for (LatencyRecorder phaseLatency : phaseLatencies)
+				latencies.add(phaseLatency);
+		if (allocated >= 0)
+			this.allocatedBytes = Footprint.currentThreadAllocatedBytes()
+					- allocated;
+		System.out.println("Thread #" + myThreadNum + " finished.");
+	}
+}
@@ -6,8 +6,12 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
 
+import contention.abstractions.ApproximateSize;
+import contention.abstractions.AsyncMap;
 import contention.abstractions.CompositionalMap;
+import contention.abstractions.CompositionalSnapshot;
 
 /**
  * The loop executed by each thread of the map 
@@ -34,6 +38,16 @@ public class ThreadLoop implements Runnable {
 	public long numRemoveAll = 0;
 	public long numSize = 0;
 	public long numContains = 0;
+	public long numScans = 0;
+	/** The counter of the keys visited by range scans */
+	public long numScanned = 0;
+	/** The counters of the successful composite operations */
+	public long numMoves = 0;
+	public long numSwaps = 0;
+	public long numMultiGets = 0;
+	/** The counters of the keys inserted and removed by batches */
+	public long numBatchAdded = 0;
+	public long numBatchRemoved = 0;
 	/** The counter of the false-returning operations */
 	public long failures = 0;
 	/** The counter of the thread operations */
@@ -42,19 +56,55 @@ public class ThreadLoop implements Runnable {
 	public long aborts = 0;
 	/** The random number */
 	Random rand;
+	/** The distribution of the keys */
+	protected KeyDistribution keys;
+	/** The pre-generated operations, null unless Parameters.keyStream is set */
+	protected final KeyStream stream;
+	/** The arrival schedule, null unless Parameters.targetRate is set */
+	protected final Pacer pacer;
+	/** The replayed operations, null unless Parameters.replayFile is set */
+	public Trace.Slice replay = null;
+	/** The recorded operations, null unless Parameters.recordFile is set */
+	public TraceRecorder.Slice record = null;
+	/** The published operation counters, null unless set by the benchmark */
+	public Progress progress = null;
+	/** The workload phases, null unless Parameters.phases is set */
+	protected Phases phases = null;
+	/** The key distribution of each phase */
+	protected KeyDistribution[] phaseKeys;
+	/** The latencies of each phase, null unless phases and latencies are set */
+	public LatencyRecorder[] phaseLatencies = null;
+	/** The phase the thread is in */
+	protected int phase = 0;
+	/** The instances composed, null unless Parameters.composeInstances is set */
+	public Composition composition = null;
+	/** The collection reused by the writeAll operations */
+	protected final Vector<Integer> writeAllKeys = new Vector<Integer>(1);
+	/** The batch of the writeAll operations, null unless Parameters.batchSize is set */
+	protected final Batch batch = Parameters.batchSize > 0 ? new Batch(
+			Parameters.batchSize) : null;
+	/** The outstanding asynchronous operations, null unless Parameters.asyncOps is set */
+	protected final AsyncOps async;
 
 	public long getCount;
 	public long nodesTraversed;
 	public long structMods;
 
+	/** The bytes allocated by the thread during the run, -1 if not measured */
+	public long allocatedBytes = -1;
+
+	/** The per-operation latencies, null unless Parameters.latency is set */
+	public final LatencyRecorder latencies = Parameters.latency
+			? new LatencyRecorder() : null;
+
 	/**
 	 * The distribution of methods as an array of percentiles
 	 * 
-	 * 0%        cdf[0]        cdf[2]                     100%
-	 * |--writeAll--|--writeSome--|--readAll--|--readSome--|
-	 * |-----------write----------|--readAll--|--readSome--| cdf[1]
+	 * 0%        cdf[0]        cdf[2]          cdf[3]              100%
+	 * |--writeAll--|--writeSome--|--readAll--|--scan--|--readSome--|
+	 * |-----------write----------|--readAll--|--scan--|--readSome--| cdf[1]
 	 */
-	int[] cdf = new int[3];
+	int[] cdf = new int[4];
 
 	public ThreadLoop(short myThreadNum,
 			CompositionalMap<Integer, Integer> bench, Method[] methods) {
@@ -62,15 +112,46 @@ public class ThreadLoop implements Runnable {
 		this.myThreadNum = myThreadNum;
 		this.bench = bench;
 		this.methods = methods;
+		@SuppressWarnings("unchecked")
+		AsyncMap<Integer, Integer> asyncMap = bench instanceof AsyncMap ? (AsyncMap<Integer, Integer>) bench
+				: null;
+		this.async = Parameters.asyncOps > 0 && asyncMap != null ? new AsyncOps(
+				Parameters.asyncOps, asyncMap, this) : null;
+		this.keys = KeyDistribution.create(Parameters.distribution,
+				Parameters.range, myThreadNum);
+		this.stream = Parameters.keyStream > 0 ? new KeyStream(keys, rand,
+				Parameters.keyStream) : null;
+		this.pacer = Parameters.targetRate > 0 ? new Pacer(
+				(double) Parameters.targetRate / Parameters.numThreads,
+				Parameters.numThreads + myThreadNum) : null;
 		/* initialize the method boundaries */
 		assert (Parameters.numWrites >= Parameters.numWriteAlls);
 		cdf[0] = 10 * Parameters.numWriteAlls;
 		cdf[1] = 10 * Parameters.numWrites;
 		cdf[2] = cdf[1] + 10 * Parameters.numSnapshots;
+		cdf[3] = cdf[2] + 10 * Parameters.numScans;
+	}
+
+	/**
+	 * Follow a schedule of workload phases, from its first phase
+	 */
+	public void setPhases(Phases phases) {
+		this.phases = phases;
+		this.phaseKeys = phases.distributions(myThreadNum);
+		if (latencies != null) {
+			phaseLatencies = new LatencyRecorder[phases.size()];
+			for (int i = 0; i < phaseLatencies.length; i++)
+				phaseLatencies[i] = new LatencyRecorder();
+		}
+		phase = 0;
+		cdf = phases.get(phase).cdf;
+		keys = phaseKeys[phase];
 	}
 
 	public void stopThread() {
 		stop = true;
+		if (pacer != null)
+			pacer.stop();
 	}
 
 	public void printDataStructure() {
@@ -79,18 +160,93 @@ public class ThreadLoop implements Runnable {
 
 	public void run() {
 
+		long allocated = Footprint.currentThreadAllocatedBytes();
+		if (replay != null)
+			cdf = Trace.CDF;
+		LatencyRecorder recorder = phaseLatencies != null ? phaseLatencies[0]
+				: latencies;
 		while (!stop) {
-			Integer newInt = rand.nextInt(Parameters.range);
-			Integer a, b;
-			int coin = rand.nextInt(1000);
-			if (coin < cdf[0]) { // 1. should we run a writeAll operation?
+			if (phases != null && phases.current() != phase) {
+				phase = phases.current();
+				cdf = phases.get(phase).cdf;
+				keys = phaseKeys[phase];
+				if (phaseLatencies != null)
+					recorder = phaseLatencies[phase];
+			}
+			int newInt, coin;
+			Integer key, value, a, b, writeAllKey = null;
+			if (replay != null) {
+				replay.next();
+				newInt = replay.key;
+				key = newInt;
+				value = replay.value == newInt ? key : Integer.valueOf(replay.value);
+				coin = Trace.coin(replay.operation);
+			} else if (stream != null) {
+				int next = stream.next();
+				newInt = stream.keys[next];
+				key = stream.boxedKeys[next];
+				writeAllKey = stream.writeAllKeys[next];
+				value = key;
+				coin = stream.coins[next];
+			} else {
+				newInt = keys.next(rand);
+				key = newInt;
+				value = key;
+				coin = rand.nextInt(1000);
+			}
+			int operation;
+			boolean issued = false; // handed off to the asynchronous operations
+			int instance = composition != null ? rand.nextInt(composition
+					.numInstances()) : 0;
+			long start = pacer != null ? pacer.awaitNext()
+					: recorder != null ? System.nanoTime() : 0L;
+			if (composition != null && coin < cdf[0]) { // 1'. move or swap?
+				operation = LatencyRecorder.WRITE_ALL;
+
+				int other = (instance + 1 + rand.nextInt(composition
+						.numInstances() - 1)) % composition.numInstances();
+				if ((coin & 1) == 0) {
+					if (composition.move(newInt, instance, other))
+						numMoves++;
+					else
+						failures++;
+				} else {
+					if (composition.swap(newInt, instance, other))
+						numSwaps++;
+					else
+						failures++;
+				}
 
-				// init a collection
-				Map<Integer, Integer> hm = new HashMap<Integer, Integer>(newInt, newInt);
-				hm.put(newInt / 2, newInt / 2); // accepts duplicate
+			} else if (batch != null && coin < cdf[0]) { // 1''. batch insert or removal?
+				operation = LatencyRecorder.WRITE_ALL;
+
+				batch.next(keys, rand);
+				if ((coin & 1) == 0) {
+					int added = batch.add(bench);
+					numBatchAdded += added;
+					if (added > 0)
+						numAddAll++;
+					else
+						failures++;
+				} else {
+					int removed = batch.remove(bench);
+					numBatchRemoved += removed;
+					if (removed > 0)
+						numRemoveAll++;
+					else
+						failures++;
+				}
+
+			} else if (coin < cdf[0]) { // 1. should we run a writeAll operation?
+				operation = LatencyRecorder.WRITE_ALL;
+
+				// reuse the collection
+				writeAllKeys.clear();
+				writeAllKeys.add(writeAllKey != null ? writeAllKey : Integer
+						.valueOf(newInt / 2));
 
 				try {
-					if (bench.keySet().removeAll(hm.keySet()))
+					if (bench.keySet().removeAll(writeAllKeys))
 						numRemoveAll++; 
 					else failures++; 
 				} catch (Exception e) {
@@ -102,36 +258,99 @@ public class ThreadLoop implements Runnable {
 										// operation?
 
 				if (2 * (coin - cdf[0]) < cdf[1] - cdf[0]) { // add
-					if ((a = bench.putIfAbsent((int) newInt, (int) newInt)) == null) {
+					operation = LatencyRecorder.ADD;
+					if (async != null) {
+						async.putIfAbsent(key, value, start, recorder);
+						issued = true;
+					} else if (composition != null ? composition.add(newInt, instance)
+							: (a = bench.putIfAbsent(key, value)) == null) {
 						numAdd++;
 					} else {
 						failures++;
 					}
 				} else { // remove
-					if ((a = bench.remove((int) newInt)) != null) {
+					operation = LatencyRecorder.REMOVE;
+					if (async != null) {
+						async.remove(key, start, recorder);
+						issued = true;
+					} else if (composition != null ? composition.remove(newInt, instance)
+							: (a = bench.remove(key)) != null) {
 						numRemove++;
 					} else
 						failures++;
 				}
 
 			} else if (coin < cdf[2]) { // 3. should we run a readAll operation?
+				operation = LatencyRecorder.SIZE;
 
-				bench.size();
-				numSize++;
+				if (composition == null) {
+					if (Parameters.approximateSize)
+						((ApproximateSize) bench).approximateSize();
+					else
+						bench.size();
+					numSize++;
+				} else if (composition.multiGet(newInt)) { // read all instances
+					numMultiGets++;
+				} else {
+					failures++;
+				}
+
+			} else if (coin < cdf[3]) { // 4. should we run a range scan?
+				operation = LatencyRecorder.SCAN;
+
+				int from = newInt;
+				int to = from + Parameters.scanLength;
+				int scanned;
+				if (Parameters.snapshotScans) {
+					try (@SuppressWarnings("unchecked")
+							CompositionalSnapshot.View<Integer, Integer> view = ((CompositionalSnapshot<Integer, Integer>) bench)
+							.snapshot()) {
+						scanned = view.rangeScan(from, to);
+					}
+				} else {
+					Map<Integer, Integer> sub = null;
+					if (bench instanceof ConcurrentNavigableMap)
+						sub = ((ConcurrentNavigableMap<Integer, Integer>) bench)
+								.subMap(from, to);
+					// some maps only stub out subMap
+					scanned = sub != null ? sub.size() : bench.rangeScan(from, to);
+				}
+				numScanned += scanned;
+				numScans++;
 
-			} else { // 4. then we should run a readSome operation
+			} else { // 5. then we should run a readSome operation
+				operation = LatencyRecorder.CONTAINS;
 
-				if (bench.get((int) newInt) != null)
+				if (async != null) {
+					async.get(key, start, recorder);
+					issued = true;
+				} else if (composition != null ? composition.contains(newInt, instance)
+						: bench.get(key) != null)
 					numContains++;
 				else
 					failures++;
 			}
+			if (record != null)
+				record.record(operation, newInt, value);
+			if (recorder != null && !issued)
+				recorder.record(operation, System.nanoTime() - start);
 			total++;
+			if (progress != null)
+				progress.publish(myThreadNum, total);
 
-			assert total == failures + numContains + numSize + numRemove
-					+ numAdd + numRemoveAll + numAddAll;
+			assert total == failures + numContains + numSize + numScans + numRemove
+					+ numAdd + numRemoveAll + numAddAll + numMoves + numSwaps
+					+ numMultiGets + (async != null ? async.outstanding() : 0);
 		}
+		if (async != null)
+			async.drain();
 		// System.out.println(numAdd + " " + numRemove + " " + failures);
+		if (phaseLatencies != null)
+			for (LatencyRecorder phaseLatency : phaseLatencies)
+				latencies.add(phaseLatency);
+		if (allocated >= 0)
+			this.allocatedBytes = Footprint.currentThreadAllocatedBytes()
+					- allocated;
 		this.getCount = CompositionalMap.counts.get().getCount;
 		this.nodesTraversed = CompositionalMap.counts.get().nodesTraversed;
 		this.structMods = CompositionalMap.counts.get().structMods;
@@ -6,8 +6,10 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Vector;
 
+import contention.abstractions.ApproximateSize;
 import contention.abstractions.CompositionalIntSet;
 import contention.abstractions.CompositionalMap;
+import contention.abstractions.CompositionalSnapshot;
 
 /**
  * The loop executed by each thread of the integer set 
@@ -34,6 +36,16 @@ public class ThreadSetLoop implements Runnable {
 	public long numRemoveAll = 0;
 	public long numSize = 0;
 	public long numContains = 0;
+	public long numScans = 0;
+	/** The counter of the keys visited by range scans */
+	public long numScanned = 0;
+	/** The counters of the successful composite operations */
+	public long numMoves = 0;
+	public long numSwaps = 0;
+	public long numMultiGets = 0;
+	/** The counters of the keys inserted and removed by batches */
+	public long numBatchAdded = 0;
+	public long numBatchRemoved = 0;
 	/** The counter of the false-returning operations */
 	public long failures = 0;
 	/** The counter of the thread operations */
@@ -42,34 +54,94 @@ public class ThreadSetLoop implements Runnable {
 	public long aborts = 0;
 	/** The random number */
 	Random rand;
+	/** The distribution of the keys */
+	protected KeyDistribution keys;
+	/** The pre-generated operations, null unless Parameters.keyStream is set */
+	protected final KeyStream stream;
+	/** The arrival schedule, null unless Parameters.targetRate is set */
+	protected final Pacer pacer;
+	/** The replayed operations, null unless Parameters.replayFile is set */
+	public Trace.Slice replay = null;
+	/** The recorded operations, null unless Parameters.recordFile is set */
+	public TraceRecorder.Slice record = null;
+	/** The published operation counters, null unless set by the benchmark */
+	public Progress progress = null;
+	/** The workload phases, null unless Parameters.phases is set */
+	protected Phases phases = null;
+	/** The key distribution of each phase */
+	protected KeyDistribution[] phaseKeys;
+	/** The latencies of each phase, null unless phases and latencies are set */
+	public LatencyRecorder[] phaseLatencies = null;
+	/** The phase the thread is in */
+	protected int phase = 0;
+	/** The instances composed, null unless Parameters.composeInstances is set */
+	public Composition composition = null;
+	/** The collection reused by the writeAll operations */
+	protected final Vector<Integer> writeAllKeys = new Vector<Integer>(1);
+	/** The batch of the writeAll operations, null unless Parameters.batchSize is set */
+	protected final Batch batch = Parameters.batchSize > 0 ? new Batch(
+			Parameters.batchSize) : null;
 
 	public long getCount;
 	public long nodesTraversed;
 	public long structMods;
 
+	/** The bytes allocated by the thread during the run, -1 if not measured */
+	public long allocatedBytes = -1;
+
+	/** The per-operation latencies, null unless Parameters.latency is set */
+	public final LatencyRecorder latencies = Parameters.latency
+			? new LatencyRecorder() : null;
+
 	/**
 	 * The distribution of methods as an array of percentiles
 	 * 
-	 * 0%        cdf[0]        cdf[2]                     100%
-	 * |--writeAll--|--writeSome--|--readAll--|--readSome--|
-	 * |-----------write----------|--readAll--|--readSome--| cdf[1]
+	 * 0%        cdf[0]        cdf[2]          cdf[3]              100%
+	 * |--writeAll--|--writeSome--|--readAll--|--scan--|--readSome--|
+	 * |-----------write----------|--readAll--|--scan--|--readSome--| cdf[1]
 	 */
-	int[] cdf = new int[3];
+	int[] cdf = new int[4];
 
 	public ThreadSetLoop(short myThreadNum, CompositionalIntSet bench, Method[] methods) {
 	        rand = new Random(myThreadNum);
 		this.myThreadNum = myThreadNum;
 		this.bench = bench;
 		this.methods = methods;
+		this.keys = KeyDistribution.create(Parameters.distribution,
+				Parameters.range, myThreadNum);
+		this.stream = Parameters.keyStream > 0 ? new KeyStream(keys, rand,
+				Parameters.keyStream) : null;
+		this.pacer = Parameters.targetRate > 0 ? new Pacer(
+				(double) Parameters.targetRate / Parameters.numThreads,
+				Parameters.numThreads + myThreadNum) : null;
 		/* initialize the method boundaries */
 		assert (Parameters.numWrites >= Parameters.numWriteAlls);
 		cdf[0] = 10 * Parameters.numWriteAlls;
 		cdf[1] = 10 * Parameters.numWrites;
 		cdf[2] = cdf[1] + 10 * Parameters.numSnapshots;
+		cdf[3] = cdf[2] + 10 * Parameters.numScans;
+	}
+
+	/**
+	 * Follow a schedule of workload phases, from its first phase
+	 */
+	public void setPhases(Phases phases) {
+		this.phases = phases;
+		this.phaseKeys = phases.distributions(myThreadNum);
+		if (latencies != null) {
+			phaseLatencies = new LatencyRecorder[phases.size()];
+			for (int i = 0; i < phaseLatencies.length; i++)
+				phaseLatencies[i] = new LatencyRecorder();
+		}
+		phase = 0;
+		cdf = phases.get(phase).cdf;
+		keys = phaseKeys[phase];
 	}
 
 	public void stopThread() {
 		stop = true;
+		if (pacer != null)
+			pacer.stop();
 	}
 
 	public void printDataStructure() {
@@ -78,17 +150,86 @@ public class ThreadSetLoop implements Runnable {
 
 	public void run() {
 
+		long allocated = Footprint.currentThreadAllocatedBytes();
+		if (replay != null)
+			cdf = Trace.CDF;
+		LatencyRecorder recorder = phaseLatencies != null ? phaseLatencies[0]
+				: latencies;
 		while (!stop) {
-			Integer newInt = rand.nextInt(Parameters.range);
-			int coin = rand.nextInt(1000);
-			if (coin < cdf[0]) { // 1. should we run a writeAll operation?
+			if (phases != null && phases.current() != phase) {
+				phase = phases.current();
+				cdf = phases.get(phase).cdf;
+				keys = phaseKeys[phase];
+				if (phaseLatencies != null)
+					recorder = phaseLatencies[phase];
+			}
+			int newInt, coin;
+			Integer writeAllKey = null;
+			if (replay != null) {
+				replay.next();
+				newInt = replay.key;
+				coin = Trace.coin(replay.operation);
+			} else if (stream != null) {
+				int next = stream.next();
+				newInt = stream.keys[next];
+				writeAllKey = stream.writeAllKeys[next];
+				coin = stream.coins[next];
+			} else {
+				newInt = keys.next(rand);
+				coin = rand.nextInt(1000);
+			}
+			int operation;
+			int instance = composition != null ? rand.nextInt(composition
+					.numInstances()) : 0;
+			long start = pacer != null ? pacer.awaitNext()
+					: recorder != null ? System.nanoTime() : 0L;
+			if (composition != null && coin < cdf[0]) { // 1'. move or swap?
+				operation = LatencyRecorder.WRITE_ALL;
+
+				int other = (instance + 1 + rand.nextInt(composition
+						.numInstances() - 1)) % composition.numInstances();
+				if ((coin & 1) == 0) {
+					if (composition.move(newInt, instance, other))
+						numMoves++;
+					else
+						failures++;
+				} else {
+					if (composition.swap(newInt, instance, other))
+						numSwaps++;
+					else
+						failures++;
+				}
 
-				// init a collection
-				Vector<Integer> vec = new Vector<Integer>(newInt);
-				vec.add(newInt / 2); // accepts duplicate
+			} else if (batch != null && coin < cdf[0]) { // 1''. batch insert or removal?
+				operation = LatencyRecorder.WRITE_ALL;
+
+				batch.next(keys, rand);
+				if ((coin & 1) == 0) {
+					int added = batch.add(bench);
+					numBatchAdded += added;
+					if (added > 0)
+						numAddAll++;
+					else
+						failures++;
+				} else {
+					int removed = batch.remove(bench);
+					numBatchRemoved += removed;
+					if (removed > 0)
+						numRemoveAll++;
+					else
+						failures++;
+				}
+
+			} else if (coin < cdf[0]) { // 1. should we run a writeAll operation?
+				operation = LatencyRecorder.WRITE_ALL;
+
+				// reuse the collection
+				writeAllKeys.clear();
+				writeAllKeys.add(writeAllKey != null ? writeAllKey : Integer
+						.valueOf(newInt / 2));
 
 				try {
-				  if (bench.removeAll(vec))
+				  if (bench.removeAll(writeAllKeys))
 					  numRemoveAll++; 
 				  else failures++; 
 				} catch (Exception e) {
@@ -99,35 +240,81 @@ public class ThreadSetLoop implements Runnable {
 										// operation?
 
 				if (2 * (coin - cdf[0]) < cdf[1] - cdf[0]) { // add
-					if (bench.addInt((int) newInt)) {
+					operation = LatencyRecorder.ADD;
+					if (composition != null ? composition.add(newInt, instance)
+							: bench.addInt(newInt)) {
 						numAdd++;
 					} else {
 						failures++;
 					}
 				} else { // remove
-					if (bench.removeInt((int) newInt)) {
+					operation = LatencyRecorder.REMOVE;
+					if (composition != null ? composition.remove(newInt, instance)
+							: bench.removeInt(newInt)) {
 						numRemove++;
 					} else
 						failures++;
 				}
 
 			} else if (coin < cdf[2]) { // 3. should we run a readAll operation?
+				operation = LatencyRecorder.SIZE;
 
-				bench.size();
-				numSize++;
+				if (composition == null) {
+					if (Parameters.approximateSize)
+						((ApproximateSize) bench).approximateSize();
+					else
+						bench.size();
+					numSize++;
+				} else if (composition.multiGet(newInt)) { // read all instances
+					numMultiGets++;
+				} else {
+					failures++;
+				}
+
+			} else if (coin < cdf[3]) { // 4. should we run a range scan?
+				operation = LatencyRecorder.SCAN;
+
+				int from = newInt;
+				int scanned;
+				if (Parameters.snapshotScans) {
+					try (@SuppressWarnings("unchecked")
+							CompositionalSnapshot.View<Integer, Integer> view = ((CompositionalSnapshot<Integer, Integer>) bench)
+							.snapshot()) {
+						scanned = view.rangeScan(from, from + Parameters.scanLength);
+					}
+				} else {
+					scanned = bench.rangeScanInt(from, from + Parameters.scanLength);
+				}
+				numScanned += scanned;
+				numScans++;
 
-			} else { // 4. then we should run a readSome operation
+			} else { // 5. then we should run a readSome operation
+				operation = LatencyRecorder.CONTAINS;
 
-				if (bench.containsInt((int) newInt))
+				if (composition != null ? composition.contains(newInt, instance)
+						: bench.containsInt(newInt))
 					numContains++;
 				else
 					failures++;
 			}
+			if (record != null)
+				record.record(operation, newInt);
+			if (recorder != null)
+				recorder.record(operation, System.nanoTime() - start);
 			total++;
+			if (progress != null)
+				progress.publish(myThreadNum, total);
 
-			assert total == failures + numContains + numSize + numRemove
-					+ numAdd + numRemoveAll + numAddAll;
+			assert total == failures + numContains + numSize + numScans + numRemove
+					+ numAdd + numRemoveAll + numAddAll + numMoves + numSwaps
+					+ numMultiGets;
 		}
+		if (phaseLatencies != null)
+			for (LatencyRecorder phaseLatency : phaseLatencies)
+				latencies.add(phaseLatency);
+		if (allocated >= 0)
+			this.allocatedBytes = Footprint.currentThreadAllocatedBytes()
+					- allocated;
 		this.getCount = CompositionalMap.counts.get().getCount;
 		this.nodesTraversed = CompositionalMap.counts.get().nodesTraversed;
 		this.structMods = CompositionalMap.counts.get().structMods;
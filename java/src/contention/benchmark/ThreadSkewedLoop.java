@@ -16,8 +16,8 @@ import java.util.Random;
  * 
  */
 public class ThreadSkewedLoop extends ThreadLoop implements Runnable {
-	/** The integers to operate with **/
-	protected int[] operated;
+	/** The integers to operate with, boxed beforehand **/
+	protected Integer[] operated;
 
 	/**
 	 * The distribution of methods as an array of percentiles
@@ -31,26 +31,39 @@ public class ThreadSkewedLoop extends ThreadLoop implements Runnable {
 							CompositionalMap<Integer, Integer> bench, Method[] methods) {
 		super(myThreadNum, bench, methods);
 
-		operated = new int[Parameters.skewed * Parameters.numThreads];
+		operated = new Integer[Parameters.skewed * Parameters.numThreads];
 		for (int i = 0; i < operated.length; i++) {
 			operated[i] = -i * Parameters.numThreads - myThreadNum - 1;
 		}
 	}
 
 	public void run() {
+		if (replay != null) {
+			// the trace gives the keys
+			super.run();
+			return;
+		}
 		int id = 0;
+		long allocated = Footprint.currentThreadAllocatedBytes();
 		while (!stop) {
-			Integer a, b;
+			Integer key, a, b;
 			int coin = rand.nextInt(1000);
+			int operation;
+			long start = pacer != null ? pacer.awaitNext()
+					: latencies != null ? System.nanoTime() : 0L;
 			if (coin < cdf[1]) {
 				if (id < operated.length) {
-					if (bench.putIfAbsent(operated[id], operated[id]) == null) {
+					operation = LatencyRecorder.ADD;
+					key = operated[id];
+					if (bench.putIfAbsent(key, key) == null) {
                         numAdd++;
                     } else {
                         failures++;
                     }
 				} else {
-					if (bench.remove(operated[id - operated.length]) != null) {
+					operation = LatencyRecorder.REMOVE;
+					key = operated[id - operated.length];
+					if (bench.remove(key) != null) {
                         numRemove++;
                     } else {
                         failures++;
@@ -59,18 +72,29 @@ public class ThreadSkewedLoop extends ThreadLoop implements Runnable {
 
 				id = (id + 1) % (2 * operated.length);
 			} else {
+				operation = LatencyRecorder.CONTAINS;
 
-				if (bench.get(operated[rand.nextInt(operated.length)]) != null)
+				key = operated[rand.nextInt(operated.length)];
+				if (bench.get(key) != null)
 					numContains++;
 				else
 					failures++;
 			}
+			if (record != null)
+				record.record(operation, key);
+			if (latencies != null)
+				latencies.record(operation, System.nanoTime() - start);
 			total++;
+			if (progress != null)
+				progress.publish(myThreadNum, total);
 
 			assert total == failures + numContains + numSize + numRemove
 					+ numAdd + numRemoveAll + numAddAll;
 		}
 		// System.out.println(numAdd + " " + numRemove + " " + failures);
+		if (allocated >= 0)
+			this.allocatedBytes = Footprint.currentThreadAllocatedBytes()
+					- allocated;
 		this.getCount = CompositionalMap.counts.get().getCount;
 		this.nodesTraversed = CompositionalMap.counts.get().nodesTraversed;
 		this.structMods = CompositionalMap.counts.get().structMods;
@@ -2,6 +2,7 @@ package contention.benchmark;
 
 import java.lang.reflect.Method;
 import java.util.Random;
+import java.util.SortedSet;
 import java.util.Vector;
 
 import contention.abstractions.CompositionalMap;
@@ -32,6 +33,9 @@ public class ThreadSortedSetLoop implements Runnable {
 	public long numRemoveAll = 0;
 	public long numSize = 0;
 	public long numContains = 0;
+	public long numScans = 0;
+	/** The counter of the keys visited by range scans */
+	public long numScanned = 0;
 	/** The counter of the false-returning operations */
 	public long failures = 0;
 	/** The counter of the thread operations */
@@ -40,34 +44,89 @@ public class ThreadSortedSetLoop implements Runnable {
 	public long aborts = 0;
 	/** The random number */
 	Random rand = new Random();
+	/** The distribution of the keys */
+	protected KeyDistribution keys;
+	/** The pre-generated operations, null unless Parameters.keyStream is set */
+	protected final KeyStream stream;
+	/** The arrival schedule, null unless Parameters.targetRate is set */
+	protected final Pacer pacer;
+	/** The replayed operations, null unless Parameters.replayFile is set */
+	public Trace.Slice replay = null;
+	/** The recorded operations, null unless Parameters.recordFile is set */
+	public TraceRecorder.Slice record = null;
+	/** The published operation counters, null unless set by the benchmark */
+	public Progress progress = null;
+	/** The workload phases, null unless Parameters.phases is set */
+	protected Phases phases = null;
+	/** The key distribution of each phase */
+	protected KeyDistribution[] phaseKeys;
+	/** The latencies of each phase, null unless phases and latencies are set */
+	public LatencyRecorder[] phaseLatencies = null;
+	/** The phase the thread is in */
+	protected int phase = 0;
+	/** The collection reused by the writeAll operations */
+	protected final Vector<Integer> writeAllKeys = new Vector<Integer>(1);
 
 	public long getCount;
 	public long nodesTraversed;
 	public long structMods;
 
+	/** The bytes allocated by the thread during the run, -1 if not measured */
+	public long allocatedBytes = -1;
+
+	/** The per-operation latencies, null unless Parameters.latency is set */
+	public final LatencyRecorder latencies = Parameters.latency
+			? new LatencyRecorder() : null;
+
 	/**
 	 * The distribution of methods as an array of percentiles
 	 * 
-	 * 0%        cdf[0]        cdf[2]                     100%
-	 * |--writeAll--|--writeSome--|--readAll--|--readSome--|
-	 * |-----------write----------|--readAll--|--readSome--| cdf[1]
+	 * 0%        cdf[0]        cdf[2]          cdf[3]              100%
+	 * |--writeAll--|--writeSome--|--readAll--|--scan--|--readSome--|
+	 * |-----------write----------|--readAll--|--scan--|--readSome--| cdf[1]
 	 */
-	int[] cdf = new int[3];
+	int[] cdf = new int[4];
 
 	public ThreadSortedSetLoop(short myThreadNum, CompositionalSortedSet<Integer> bench, Method[] methods) {
 	        rand = new Random(myThreadNum);
 		this.myThreadNum = myThreadNum;
 		this.bench = bench;
 		this.methods = methods;
+		this.keys = KeyDistribution.create(Parameters.distribution,
+				Parameters.range, myThreadNum);
+		this.stream = Parameters.keyStream > 0 ? new KeyStream(keys, rand,
+				Parameters.keyStream) : null;
+		this.pacer = Parameters.targetRate > 0 ? new Pacer(
+				(double) Parameters.targetRate / Parameters.numThreads,
+				Parameters.numThreads + myThreadNum) : null;
 		/* initialize the method boundaries */
 		assert (Parameters.numWrites >= Parameters.numWriteAlls);
 		cdf[0] = 10 * Parameters.numWriteAlls;
 		cdf[1] = 10 * Parameters.numWrites;
 		cdf[2] = cdf[1] + 10 * Parameters.numSnapshots;
+		cdf[3] = cdf[2] + 10 * Parameters.numScans;
+	}
+
+	/**
+	 * Follow a schedule of workload phases, from its first phase
+	 */
+	public void setPhases(Phases phases) {
+		this.phases = phases;
+		this.phaseKeys = phases.distributions(myThreadNum);
+		if (latencies != null) {
+			phaseLatencies = new LatencyRecorder[phases.size()];
+			for (int i = 0; i < phaseLatencies.length; i++)
+				phaseLatencies[i] = new LatencyRecorder();
+		}
+		phase = 0;
+		cdf = phases.get(phase).cdf;
+		keys = phaseKeys[phase];
 	}
 
 	public void stopThread() {
 		stop = true;
+		if (pacer != null)
+			pacer.stop();
 	}
 
 	public void printDataStructure() {
@@ -76,17 +135,50 @@ public class ThreadSortedSetLoop implements Runnable {
 
 	public void run() {
 
+		long allocated = Footprint.currentThreadAllocatedBytes();
+		if (replay != null)
+			cdf = Trace.CDF;
+		LatencyRecorder recorder = phaseLatencies != null ? phaseLatencies[0]
+				: latencies;
 		while (!stop) {
-			Integer newInt = rand.nextInt(Parameters.range);
-			int coin = rand.nextInt(1000);
+			if (phases != null && phases.current() != phase) {
+				phase = phases.current();
+				cdf = phases.get(phase).cdf;
+				keys = phaseKeys[phase];
+				if (phaseLatencies != null)
+					recorder = phaseLatencies[phase];
+			}
+			int newInt, coin;
+			Integer key, writeAllKey = null;
+			if (replay != null) {
+				replay.next();
+				newInt = replay.key;
+				key = newInt;
+				coin = Trace.coin(replay.operation);
+			} else if (stream != null) {
+				int next = stream.next();
+				newInt = stream.keys[next];
+				key = stream.boxedKeys[next];
+				writeAllKey = stream.writeAllKeys[next];
+				coin = stream.coins[next];
+			} else {
+				newInt = keys.next(rand);
+				key = newInt;
+				coin = rand.nextInt(1000);
+			}
+			int operation;
+			long start = pacer != null ? pacer.awaitNext()
+					: recorder != null ? System.nanoTime() : 0L;
 			if (coin < cdf[0]) { // 1. should we run a writeAll operation?
+				operation = LatencyRecorder.WRITE_ALL;
 
-				// init a collection
-				Vector<Integer> vec = new Vector<Integer>(newInt);
-				vec.add(newInt / 2); // accepts duplicate
+				// reuse the collection
+				writeAllKeys.clear();
+				writeAllKeys.add(writeAllKey != null ? writeAllKey : Integer
+						.valueOf(newInt / 2));
 
 				try {
-					if (bench.removeAll(vec))
+					if (bench.removeAll(writeAllKeys))
 						numRemoveAll++; 
 					else failures++; 
 				} catch (Exception e) {
@@ -97,35 +189,70 @@ public class ThreadSortedSetLoop implements Runnable {
 										// operation?
 
 				if (2 * (coin - cdf[0]) < cdf[1] - cdf[0]) { // add
-					if (bench.add(newInt)) {
+					operation = LatencyRecorder.ADD;
+					if (bench.add(key)) {
 						numAdd++;
 					} else {
 						failures++;
 					}
 				} else { // remove
-					if (bench.remove(newInt)) {
+					operation = LatencyRecorder.REMOVE;
+					if (bench.remove(key)) {
 						numRemove++;
 					} else
 						failures++;
 				}
 
 			} else if (coin < cdf[2]) { // 3. should we run a readAll operation?
+				operation = LatencyRecorder.SIZE;
 
 				bench.size();
 				numSize++;
 
-			} else { // 4. then we should run a readSome operation
+			} else if (coin < cdf[3]) { // 4. should we run a range scan?
+				operation = LatencyRecorder.SCAN;
+
+				int from = newInt;
+				int to = from + Parameters.scanLength;
+				int scanned = 0;
+				SortedSet<Integer> sub = bench.subSet(from, to);
+				if (sub != null) {
+					for (Integer x : sub)
+						scanned++;
+				} else {
+					// some sorted sets only stub out subSet
+					for (int k = from; k < to; k++)
+						if (bench.contains(k))
+							scanned++;
+				}
+				numScanned += scanned;
+				numScans++;
+
+			} else { // 5. then we should run a readSome operation
+				operation = LatencyRecorder.CONTAINS;
 
-				if (bench.contains(newInt))
+				if (bench.contains(key))
 					numContains++;
 				else
 					failures++;
 			}
+			if (record != null)
+				record.record(operation, newInt);
+			if (recorder != null)
+				recorder.record(operation, System.nanoTime() - start);
 			total++;
+			if (progress != null)
+				progress.publish(myThreadNum, total);
 
-			assert total == failures + numContains + numSize + numRemove
+			assert total == failures + numContains + numSize + numScans + numRemove
 					+ numAdd + numRemoveAll + numAddAll;
 		}
+		if (phaseLatencies != null)
+			for (LatencyRecorder phaseLatency : phaseLatencies)
+				latencies.add(phaseLatency);
+		if (allocated >= 0)
+			this.allocatedBytes = Footprint.currentThreadAllocatedBytes()
+					- allocated;
 		this.getCount = CompositionalMap.counts.get().getCount;
 		this.nodesTraversed = CompositionalMap.counts.get().nodesTraversed;
 		this.structMods = CompositionalMap.counts.get().structMods;
@@ -0,0 +1,143 @@
+package contention.benchmark;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntToLongFunction;
+
+/**
+ * The sampler thread recording a throughput timeline during a run.
+ *
+ * Every interval, it snapshots the operation counters the benchmark threads
+ * publish in a Progress. A sample may miss the operation a thread is
+ * running, which is accounted for by the next sample. The deadlines are absolute, hence a late wake-up
+ * (e.g. during a GC pause) shows as a longer interval rather than a drift.
+ */
+public class ThroughputSampler implements Runnable {
+
+	/** The counter of operations of each thread */
+	private final IntToLongFunction totals;
+	private final int numThreads;
+	private final long intervalNanos;
+
+	/** The sampling times, in nanoseconds since the start */
+	private final List<Long> times = new ArrayList<Long>();
+	/** The counters of all threads at each sampling time */
+	private final List<long[]> samples = new ArrayList<long[]>();
+
+	private volatile boolean stop = false;
+	/** The start time of the sampler, in System.nanoTime() units */
+	private long start;
+
+	/**
+	 * @param numThreads the number of benchmark threads
+	 * @param totals the operation counter of a thread given its number
+	 * @param intervalMillis the sampling interval, in milliseconds
+	 */
+	public ThroughputSampler(int numThreads, IntToLongFunction totals,
+			int intervalMillis) {
+		this.numThreads = numThreads;
+		this.totals = totals;
+		this.intervalNanos = intervalMillis * 1000000L;
+	}
+
+	public void stopSampler() {
+		stop = true;
+	}
+
+	public void run() {
+		start = System.nanoTime();
+		sample(start, start);
+		long deadline = start;
+		while (!stop) {
+			deadline += intervalNanos;
+			long now;
+			while (!stop && (now = System.nanoTime()) < deadline)
+				LockSupport.parkNanos(deadline - now);
+			if (!stop)
+				sample(start, System.nanoTime());
+		}
+	}
+
+	private void sample(long start, long now) {
+		long[] counts = new long[numThreads];
+		for (int threadNum = 0; threadNum < numThreads; threadNum++)
+			counts[threadNum] = totals.applyAsLong(threadNum);
+		times.add(now - start);
+		samples.add(counts);
+	}
+
+	/**
+	 * @return the total throughput, in ops/s, of each interval
+	 */
+	public double[] getTimeline() {
+		double[] timeline = new double[samples.size() - 1];
+		for (int i = 0; i < timeline.length; i++)
+			timeline[i] = sum(delta(i)) * 1e9
+					/ (times.get(i + 1) - times.get(i));
+		return timeline;
+	}
+
+	/**
+	 * @return the end time of each interval, in System.nanoTime() units
+	 */
+	public long[] getIntervalEnds() {
+		long[] ends = new long[samples.size() - 1];
+		for (int i = 0; i < ends.length; i++)
+			ends[i] = start + times.get(i + 1);
+		return ends;
+	}
+
+	/**
+	 * @param counts the operations of each thread
+	 * @return the minimum, maximum, mean and standard deviation of counts
+	 */
+	public static double[] fairness(long[] counts) {
+		long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+		for (long count : counts) {
+			min = Math.min(min, count);
+			max = Math.max(max, count);
+		}
+		double mean = (double) sum(counts) / counts.length;
+		double variance = 0;
+		for (long count : counts)
+			variance += (count - mean) * (count - mean);
+		variance /= counts.length;
+		return new double[] { min, max, mean, Math.sqrt(variance) };
+	}
+
+	/**
+	 * Print the throughput of each interval, with the spread of the
+	 * per-thread throughputs
+	 */
+	public void print(PrintStream out) {
+		out.println("  Time (ms)\tops/s\t\tthread min\tthread max\tthread stddev");
+		for (int i = 0; i + 1 < samples.size(); i++) {
+			double seconds = (times.get(i + 1) - times.get(i)) / 1e9;
+			double[] spread = fairness(delta(i));
+			out.println(String.format(Locale.US,
+					"  %-9d\t%-12.0f\t%-12.0f\t%-12.0f\t%.0f",
+					times.get(i + 1) / 1000000, sum(delta(i)) / seconds,
+					spread[0] / seconds, spread[1] / seconds, spread[3]
+							/ seconds));
+		}
+	}
+
+	private long[] delta(int interval) {
+		long[] before = samples.get(interval), after = samples
+				.get(interval + 1);
+		long[] delta = new long[numThreads];
+		for (int threadNum = 0; threadNum < numThreads; threadNum++)
+			delta[threadNum] = after[threadNum] - before[threadNum];
+		return delta;
+	}
+
+	private static long sum(long[] counts) {
+		long sum = 0;
+		for (long count : counts)
+			sum += count;
+		return sum;
+	}
+}
@@ -0,0 +1,138 @@
+package contention.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A workload trace, replayed by the benchmark threads.
+ *
+ * A trace file is made of slices, each slice being the sequence of
+ * operations of one thread. It starts with a header: the magic number
+ * MAGIC, the format VERSION and the number of slices, followed by the
+ * offset and the length in bytes of each slice. Each operation is then
+ * encoded as one byte holding its type (one of the operation types of
+ * LatencyRecorder), whose VALUE bit tells whether a value follows, and the
+ * key, plus the value if any, as 4-byte integers. All numbers are
+ * big-endian. Without value, a put uses the key as its value, as the
+ * benchmark does.
+ *
+ * Each slice is memory-mapped and decoded in place, thread t replaying
+ * slice t modulo the number of slices and starting over once it reaches
+ * the end of its slice. The operation types are turned into coins that the
+ * usual benchmark loops interpret with the fixed distribution CDF.
+ */
+public class Trace {
+
+	public static final int MAGIC = 0x53425452; // "SBTR"
+	public static final int VERSION = 1;
+	/** The bit of the operation type telling that a value follows the key */
+	public static final int VALUE = 0x80;
+
+	/** The size of the header, given the number of slices */
+	static long headerSize(int numSlices) {
+		return 12 + 16L * numSlices;
+	}
+
+	/**
+	 * The distribution of methods used while replaying a trace, in which
+	 * every operation type has a non-empty interval
+	 */
+	static final int[] CDF = { 100, 300, 400, 500 };
+
+	/**
+	 * @return a coin standing for the operation type given CDF
+	 */
+	static int coin(int operation) {
+		switch (operation) {
+		case LatencyRecorder.WRITE_ALL:
+			return 0;
+		case LatencyRecorder.ADD:
+			return CDF[0];
+		case LatencyRecorder.REMOVE:
+			return CDF[1] - 1;
+		case LatencyRecorder.SIZE:
+			return CDF[1];
+		case LatencyRecorder.SCAN:
+			return CDF[2];
+		default:
+			return CDF[3];
+		}
+	}
+
+	private final MappedByteBuffer[] slices;
+
+	/**
+	 * Map the slices of a trace file
+	 *
+	 * @throws IOException if the file cannot be read or is not a trace
+	 */
+	public Trace(String fileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(new File(fileName), "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (file.readInt() != MAGIC)
+				throw new IOException(fileName + " is not a trace");
+			int version = file.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported trace version " + version);
+			int numSlices = file.readInt();
+			if (numSlices <= 0)
+				throw new IOException(fileName + " has no slice");
+			slices = new MappedByteBuffer[numSlices];
+			for (int i = 0; i < numSlices; i++) {
+				long offset = file.readLong(), length = file.readLong();
+				if (length <= 0)
+					throw new IOException("Slice " + i + " of " + fileName
+							+ " is empty");
+				slices[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						offset, length);
+			}
+		} finally {
+			// the mappings remain valid once the file is closed
+			file.close();
+		}
+	}
+
+	public int numSlices() {
+		return slices.length;
+	}
+
+	/**
+	 * @return the slice replayed by a thread
+	 */
+	public Slice slice(int threadNum) {
+		return new Slice(slices[threadNum % slices.length]);
+	}
+
+	/**
+	 * The cursor of a thread over its slice of the trace
+	 */
+	public static class Slice {
+
+		private final ByteBuffer buffer;
+
+		/** The operation type, key and value of the current operation */
+		public int operation, key, value;
+
+		Slice(MappedByteBuffer buffer) {
+			// each thread has its own position
+			this.buffer = buffer.duplicate();
+		}
+
+		/**
+		 * Move to the next operation, starting over at the end of the slice
+		 */
+		public void next() {
+			if (!buffer.hasRemaining())
+				buffer.rewind();
+			int type = buffer.get() & 0xff;
+			operation = type & ~VALUE;
+			key = buffer.getInt();
+			value = (type & VALUE) != 0 ? buffer.getInt() : key;
+		}
+	}
+}
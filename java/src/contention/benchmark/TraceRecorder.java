@@ -0,0 +1,134 @@
+package contention.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The recorder of the operations of a run, in the format of Trace.
+ *
+ * Each benchmark thread appends its operations to its own buffered
+ * temporary file, so that recording neither synchronizes the threads nor
+ * allocates. Once the run is over, the temporary files are concatenated
+ * behind the header of the trace, one slice per thread, so that replaying
+ * the trace with as many threads reproduces the operations of each thread.
+ */
+public class TraceRecorder {
+
+	private final String fileName;
+	private final Slice[] slices;
+
+	/**
+	 * @param fileName the trace file
+	 * @param numThreads the number of recorded threads
+	 * @throws IOException if the temporary files cannot be created
+	 */
+	public TraceRecorder(String fileName, int numThreads) throws IOException {
+		this.fileName = fileName;
+		this.slices = new Slice[numThreads];
+		for (int i = 0; i < numThreads; i++)
+			slices[i] = new Slice();
+	}
+
+	/**
+	 * @return the slice recording the operations of a thread
+	 */
+	public Slice slice(int threadNum) {
+		return slices[threadNum];
+	}
+
+	/**
+	 * Write the trace file, once the recorded threads are over
+	 *
+	 * @throws IOException if the trace cannot be written
+	 */
+	public void close() throws IOException {
+		for (Slice slice : slices)
+			slice.out.close();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fileName)));
+		try {
+			out.writeInt(Trace.MAGIC);
+			out.writeInt(Trace.VERSION);
+			out.writeInt(slices.length);
+			long offset = Trace.headerSize(slices.length);
+			for (Slice slice : slices) {
+				out.writeLong(offset);
+				out.writeLong(slice.file.length());
+				offset += slice.file.length();
+			}
+			byte[] buffer = new byte[1 << 16];
+			for (Slice slice : slices) {
+				InputStream in = new FileInputStream(slice.file);
+				try {
+					int read;
+					while ((read = in.read(buffer)) > 0)
+						out.write(buffer, 0, read);
+				} finally {
+					in.close();
+				}
+			}
+		} finally {
+			out.close();
+			for (Slice slice : slices)
+				slice.file.delete();
+		}
+		for (Slice slice : slices)
+			if (slice.error != null)
+				throw slice.error;
+	}
+
+	/**
+	 * The operations recorded by a thread
+	 */
+	public static class Slice {
+
+		private final File file;
+		private final DataOutputStream out;
+		/** The first error of the thread, reported when closing */
+		private IOException error = null;
+
+		Slice() throws IOException {
+			file = File.createTempFile("synchrobench", ".trace");
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file), 1 << 16));
+		}
+
+		/**
+		 * Record an operation whose value, if any, is its key
+		 */
+		public void record(int operation, int key) {
+			if (error != null)
+				return;
+			try {
+				out.writeByte(operation);
+				out.writeInt(key);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+
+		/**
+		 * Record an operation with its value
+		 */
+		public void record(int operation, int key, int value) {
+			if (value == key) {
+				record(operation, key);
+				return;
+			}
+			if (error != null)
+				return;
+			try {
+				out.writeByte(operation | Trace.VALUE);
+				out.writeInt(key);
+				out.writeInt(value);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+	}
+}
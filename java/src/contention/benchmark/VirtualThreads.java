@@ -0,0 +1,178 @@
+package contention.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * The virtual-thread driver of the benchmark.
+ *
+ * The benchmark is compiled for Java 8, so virtual threads (Java 21) are
+ * created by reflection and this mode fails with a message on older JVMs.
+ * The number of carrier threads is set through the
+ * jdk.virtualThreadScheduler.parallelism property, before the first virtual
+ * thread is created. While the benchmark runs, a JFR recording collects the
+ * jdk.VirtualThreadPinned events, i.e. the parkings of a virtual thread that
+ * could not release its carrier, typically inside a synchronized block. They
+ * are attributed to the first frame outside of the JDK, which points to the
+ * data structure responsible for the pinning.
+ */
+public class VirtualThreads {
+
+	private static final String PINNED = "jdk.VirtualThreadPinned";
+
+	private static Method ofVirtual, unstarted;
+
+	/**
+	 * @return true if the running JVM has virtual threads
+	 */
+	public static boolean isSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Set the number of carrier threads, to be called before the first
+	 * virtual thread is created
+	 *
+	 * @param carriers the number of carriers, 0 keeping the JVM default (the
+	 *            number of cores)
+	 */
+	public static void setCarriers(int carriers) {
+		if (carriers > 0)
+			System.setProperty("jdk.virtualThreadScheduler.parallelism",
+					Integer.toString(carriers));
+	}
+
+	/**
+	 * @return a new, unstarted, virtual thread running task
+	 */
+	public static Thread newThread(Runnable task) {
+		try {
+			if (ofVirtual == null) {
+				ofVirtual = Thread.class.getMethod("ofVirtual");
+				unstarted = Class.forName("java.lang.Thread$Builder")
+						.getMethod("unstarted", Runnable.class);
+			}
+			return (Thread) unstarted.invoke(ofVirtual.invoke(null), task);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException(
+					"Virtual threads require Java 21 or later", e);
+		}
+	}
+
+	/* ---------------- Pinning events -------------- */
+
+	private Recording recording;
+
+	/** The number and total duration of the pinning events, per frame */
+	private final Map<String, long[]> pinnings = new HashMap<String, long[]>();
+	private long numPinned = 0;
+	private long pinnedNanos = 0;
+
+	/**
+	 * Start recording the pinning events
+	 */
+	public void startRecording() {
+		recording = new Recording();
+		recording.enable(PINNED).withThreshold(Duration.ZERO)
+				.withStackTrace();
+		recording.start();
+	}
+
+	/**
+	 * Stop recording and collect the pinning events
+	 */
+	public void stopRecording() {
+		recording.stop();
+		File file = null;
+		try {
+			file = File.createTempFile("synchrobench", ".jfr");
+			recording.dump(file.toPath());
+			for (RecordedEvent event : RecordingFile.readAllEvents(file
+					.toPath())) {
+				if (!PINNED.equals(event.getEventType().getName()))
+					continue;
+				long nanos = event.getDuration().toNanos();
+				numPinned++;
+				pinnedNanos += nanos;
+				String frame = culprit(event);
+				long[] pinning = pinnings.get(frame);
+				if (pinning == null)
+					pinnings.put(frame, pinning = new long[2]);
+				pinning[0]++;
+				pinning[1] += nanos;
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot read the pinning events: "
+					+ e.getMessage());
+		} finally {
+			recording.close();
+			if (file != null)
+				file.delete();
+		}
+	}
+
+	/**
+	 * @return the first frame of the event outside of the JDK
+	 */
+	private static String culprit(RecordedEvent event) {
+		if (event.getStackTrace() == null)
+			return "unknown";
+		for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+			if (!frame.isJavaFrame())
+				continue;
+			String type = frame.getMethod().getType().getName();
+			if (type.startsWith("java.") || type.startsWith("jdk.")
+					|| type.startsWith("sun."))
+				continue;
+			return type + "." + frame.getMethod().getName() + ":"
+					+ frame.getLineNumber();
+		}
+		return "unknown";
+	}
+
+	public long getNumPinned() {
+		return numPinned;
+	}
+
+	public long getPinnedNanos() {
+		return pinnedNanos;
+	}
+
+	/**
+	 * Print the pinning events, the most frequent frames first
+	 */
+	public void print(PrintStream out) {
+		out.println("  Pinned events:            \t" + numPinned);
+		out.println("  Pinned time (ms):         \t" + pinnedNanos / 1e6);
+		List<Map.Entry<String, long[]>> frames = new ArrayList<Map.Entry<String, long[]>>(
+				pinnings.entrySet());
+		Collections.sort(frames, new Comparator<Map.Entry<String, long[]>>() {
+			public int compare(Map.Entry<String, long[]> a,
+					Map.Entry<String, long[]> b) {
+				return Long.compare(b.getValue()[0], a.getValue()[0]);
+			}
+		});
+		for (int i = 0; i < Math.min(10, frames.size()); i++)
+			out.println("    " + frames.get(i).getValue()[0] + "\tat "
+					+ frames.get(i).getKey());
+	}
+}
@@ -0,0 +1,132 @@
+package contention.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.function.IntToLongFunction;
+
+/**
+ * The adaptive warmup of a benchmark.
+ *
+ * Instead of warming up for a fixed time, the main thread measures the
+ * throughput of the benchmark threads over short windows and ends the
+ * warmup once the last WINDOWS windows have a coefficient of variation
+ * within the tolerance and, when the JVM monitors it, the JIT compilers
+ * spent less than COMPILE_FRACTION of the last window compiling. The
+ * warmup gives up after a maximal time.
+ */
+public class WarmUp {
+
+	/** The length of a measurement window, in milliseconds */
+	public static final int WINDOW_MILLIS = 250;
+	/** The number of consecutive windows whose throughput must be stable */
+	public static final int WINDOWS = 5;
+	/** The fraction of the last window the JIT may spend compiling */
+	public static final double COMPILE_FRACTION = 0.05;
+
+	private final IntToLongFunction totals;
+	private final int numThreads;
+	private final double tolerance;
+	private final CompilationMXBean compiler = ManagementFactory
+			.getCompilationMXBean();
+
+	/** The length of the warmup, in milliseconds */
+	public long elapsed;
+	/** The number of windows measured */
+	public int windows;
+	/** Whether the throughput converged before the maximal time */
+	public boolean converged;
+	/** The coefficient of variation of the last windows */
+	public double cv = Double.NaN;
+	/** The time spent compiling during the warmup, -1 if not monitored */
+	public long compileMillis = -1;
+
+	/**
+	 * @param numThreads the number of benchmark threads
+	 * @param totals the operation counter of a thread given its number
+	 * @param tolerance the coefficient of variation ending the warmup, in %
+	 */
+	public WarmUp(int numThreads, IntToLongFunction totals, double tolerance) {
+		this.numThreads = numThreads;
+		this.totals = totals;
+		this.tolerance = tolerance / 100;
+	}
+
+	private boolean monitorsCompilation() {
+		return compiler != null
+				&& compiler.isCompilationTimeMonitoringSupported();
+	}
+
+	private long total() {
+		long total = 0;
+		for (int threadNum = 0; threadNum < numThreads; threadNum++)
+			total += totals.applyAsLong(threadNum);
+		return total;
+	}
+
+	/**
+	 * Measure windows until the throughput converges, while the benchmark
+	 * threads run
+	 *
+	 * @param maxMillis the maximal length of the warmup
+	 */
+	public void run(long maxMillis) throws InterruptedException {
+		double[] throughputs = new double[WINDOWS];
+		long start = System.nanoTime();
+		long compileStart = monitorsCompilation() ? compiler
+				.getTotalCompilationTime() : 0;
+		long lastTime = start, lastTotal = total(), lastCompile = compileStart;
+		while (true) {
+			long deadline = lastTime + WINDOW_MILLIS * 1000000L;
+			long now;
+			while ((now = System.nanoTime()) < deadline)
+				Thread.sleep((deadline - now + 999999) / 1000000);
+			long total = total();
+			throughputs[windows++ % WINDOWS] = (total - lastTotal) * 1e9
+					/ (now - lastTime);
+			boolean compiling = false;
+			if (monitorsCompilation()) {
+				long compile = compiler.getTotalCompilationTime();
+				compiling = compile - lastCompile > COMPILE_FRACTION
+						* (now - lastTime) / 1e6;
+				compileMillis = compile - compileStart;
+				lastCompile = compile;
+			}
+			lastTime = now;
+			lastTotal = total;
+			elapsed = (now - start) / 1000000;
+			if (windows >= WINDOWS) {
+				cv = coefficientOfVariation(throughputs);
+				if (cv <= tolerance && !compiling) {
+					converged = true;
+					return;
+				}
+			}
+			if (elapsed >= maxMillis)
+				return;
+		}
+	}
+
+	static double coefficientOfVariation(double[] values) {
+		double mean = 0;
+		for (double value : values)
+			mean += value;
+		mean /= values.length;
+		double variance = 0;
+		for (double value : values)
+			variance += (value - mean) * (value - mean);
+		variance /= values.length;
+		return mean > 0 ? Math.sqrt(variance) / mean : Double.NaN;
+	}
+
+	public void print(PrintStream out) {
+		out.println("  Warmup (ms):              \t" + elapsed + "\t( "
+				+ windows + " windows, "
+				+ (converged ? "converged" : "did not converge") + ")");
+		out.println("    throughput CV:         \t"
+				+ String.format(Locale.US, "%.2f %%", cv * 100));
+		if (compileMillis >= 0)
+			out.println("    JIT compilation (ms):  \t" + compileMillis);
+	}
+}
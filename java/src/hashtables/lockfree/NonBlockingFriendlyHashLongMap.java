@@ -0,0 +1,362 @@
+package hashtables.lockfree;
+
+import java.util.function.LongBinaryOperator;
+
+import sun.misc.Unsafe;
+import contention.abstractions.CompositionalLongMap;
+import contention.abstractions.MaintenanceAlg;
+import hashtables.lockfree.cliffutils.UtilUnsafe;
+
+/**
+ * The contention-friendly hash map of NonBlockingFriendlyHashMap with
+ * primitive long keys and values stored in the entries.
+ *
+ * As in the original, the bucket chains are immutable and updated by
+ * copying the entries preceding the modified one and swapping the head of
+ * the bucket, so that compute is a single CAS as well.
+ */
+public class NonBlockingFriendlyHashLongMap implements CompositionalLongMap,
+		MaintenanceAlg {
+
+	static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+	static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private long structMods = 0;
+
+	volatile boolean stop = false;
+	private MaintenanceThread mainThd;
+
+	private class MaintenanceThread extends Thread {
+		public void run() {
+			doMaintenance();
+		}
+	}
+
+	private static long rawIndex(final Object[] ary, final int idx) {
+		assert idx >= 0 && idx < ary.length;
+		return _Obase + idx * _Oscale;
+	}
+
+	public void doMaintenance() {
+		int size;
+		while (!stop) {
+			size = size();
+			if (size > threshold) {
+				rehash();
+			}
+		}
+	}
+
+	public boolean startMaintenance() {
+		this.stop = false;
+		mainThd = new MaintenanceThread();
+		mainThd.start();
+		return true;
+	}
+
+	public boolean stopMaintenance() {
+		this.stop = true;
+		try {
+			this.mainThd.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		return true;
+	}
+
+	// --- Bits to allow Unsafe access to arrays
+	private static Unsafe _unsafe = UtilUnsafe.getUnsafe();
+	private static final int _Obase = _unsafe.arrayBaseOffset(Object[].class);
+	private static final int _Oscale = _unsafe.arrayIndexScale(Object[].class);
+
+	private static final boolean CAS_val(Object[] kvs, int idx, Object old,
+			Object val) {
+		return _unsafe
+				.compareAndSwapObject(kvs, rawIndex(kvs, (idx)), old, val);
+	}
+
+	int threshold;
+	float loadFactor;
+	int cap;
+
+	static final class Table {
+		final transient HashEntry[] table;
+		final HashEntry dummy;
+
+		public Table(int size) {
+			this.table = new HashEntry[size];
+			this.dummy = new HashEntry(0, 0, null, NO_VALUE);
+		}
+	}
+
+	volatile transient Table table1, table2;
+
+	static final class HashEntry {
+		final long key;
+		final int hash;
+		final long value;
+		final HashEntry next;
+
+		HashEntry(long key, int hash, HashEntry next, long value) {
+			this.key = key;
+			this.hash = hash;
+			this.next = next;
+			this.value = value;
+		}
+	}
+
+	public NonBlockingFriendlyHashLongMap(int initialCapacity, float loadFactor) {
+		if (!(loadFactor > 0) || initialCapacity < 0)
+			throw new IllegalArgumentException();
+
+		cap = 1;
+		while (cap < initialCapacity)
+			cap <<= 1;
+		this.loadFactor = loadFactor;
+
+		this.table1 = new Table(cap);
+		this.threshold = (int) (table1.table.length * loadFactor);
+		this.startMaintenance();
+	}
+
+	public NonBlockingFriendlyHashLongMap(int initialCapacity) {
+		this(initialCapacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	public NonBlockingFriendlyHashLongMap() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	Table getTable(Table oldTable) {
+		Table tab2 = table2;
+		if (oldTable == table1)
+			return tab2;
+		return table1;
+	}
+
+	HashEntry getFirst(int hash) {
+		Table table = table1;
+		HashEntry[] tab = table.table;
+		HashEntry node = tab[hash & (tab.length - 1)];
+		while (node == table.dummy) {
+			table = getTable(table);
+			tab = table.table;
+			node = tab[hash & (tab.length - 1)];
+		}
+		return node;
+	}
+
+	@Override
+	public long remove(final long key) {
+		return compute(key, null);
+	}
+
+	/**
+	 * Replaces the entry of key by its remapping, or removes it if
+	 * remapping is null, copying the entries preceding it in the bucket
+	 *
+	 * @return the new value of key, or the removed value if remapping is
+	 *         null
+	 */
+	@Override
+	public long compute(final long key, final LongBinaryOperator remapping) {
+		HashEntry[] tab;
+		int hash = Long.hashCode(key);
+		Table table;
+		long oldValue, newValue;
+		int index;
+		HashEntry first, e;
+
+		while (true) {
+			table = table1;
+			tab = table.table;
+			index = hash & (tab.length - 1);
+			first = tab[index];
+			while (first == table.dummy) {
+				table = getTable(table);
+				tab = table.table;
+				index = hash & (tab.length - 1);
+				first = tab[index];
+			}
+
+			e = first;
+			while (e != null && e.key != key)
+				e = e.next;
+
+			oldValue = e == null ? NO_VALUE : e.value;
+			newValue = remapping == null ? NO_VALUE : remapping
+					.applyAsLong(key, oldValue);
+			if (e == null) {
+				if (newValue == NO_VALUE
+						|| CAS_val(tab, index, first, new HashEntry(key,
+								hash, first, newValue)))
+					break;
+			} else {
+				if (newValue == oldValue)
+					break;
+				// All entries following the replaced node can stay
+				// in list, but all preceding ones need to be
+				// cloned.
+				HashEntry newFirst = newValue == NO_VALUE ? e.next
+						: new HashEntry(key, hash, e.next, newValue);
+				for (HashEntry p = first; p != e; p = p.next)
+					newFirst = new HashEntry(p.key, p.hash, newFirst, p.value);
+				if (CAS_val(tab, index, first, newFirst))
+					break;
+			}
+		}
+		return remapping == null ? oldValue : newValue;
+	}
+
+	private void rehash() {
+		int oldCapacity = table1.table.length;
+		table2 = new Table(oldCapacity << 1);
+		threshold = (int) (table2.table.length * loadFactor);
+		int sizeMask = table2.table.length - 1;
+		for (int i = 0; i < oldCapacity; i++) {
+			rehashLevel(i, sizeMask);
+		}
+		table1 = table2;
+		this.structMods += 1;
+	}
+
+	private void rehashLevel(int i, int sizeMask) {
+		HashEntry e, dummy = table1.dummy;
+		HashEntry[] oldTable = table1.table;
+		HashEntry[] newTable = table2.table;
+		while (true) {
+
+			newTable[i] = null;
+			newTable[i + table1.table.length] = null;
+
+			e = oldTable[i];
+
+			if (e != null) {
+				HashEntry next = e.next;
+				int idx = e.hash & sizeMask;
+
+				// Single node on list
+				if (next == null)
+					newTable[idx] = e;
+
+				else {
+					// Reuse trailing consecutive sequence at same slot
+					HashEntry lastRun = e;
+					int lastIdx = idx;
+					for (HashEntry last = next; last != null; last = last.next) {
+						int k = last.hash & sizeMask;
+						if (k != lastIdx) {
+							lastIdx = k;
+							lastRun = last;
+						}
+					}
+					newTable[lastIdx] = lastRun;
+
+					// Clone all remaining nodes
+					for (HashEntry p = e; p != lastRun; p = p.next) {
+						int k = p.hash & sizeMask;
+						HashEntry n = newTable[k];
+						newTable[k] = new HashEntry(p.key, p.hash, n, p.value);
+					}
+				}
+			}
+			if (CAS_val(oldTable, i, e, dummy)) {
+				break;
+			}
+		}
+	}
+
+	@Override
+	public long putIfAbsent(long key, long value) {
+		if (value == NO_VALUE)
+			throw new IllegalArgumentException("NO_VALUE cannot be stored");
+
+		HashEntry[] tab;
+		int hash = Long.hashCode(key);
+		Table table;
+		long oldValue;
+		int index;
+		HashEntry first, e;
+
+		while (true) {
+			table = table1;
+			tab = table.table;
+			index = hash & (tab.length - 1);
+			first = tab[index];
+			while (first == table.dummy) {
+				table = getTable(table);
+				tab = table.table;
+				index = hash & (tab.length - 1);
+				first = tab[index];
+			}
+
+			e = first;
+			while (e != null && e.key != key)
+				e = e.next;
+
+			if (e != null) {
+				oldValue = e.value;
+				break;
+			} else {
+				oldValue = NO_VALUE;
+				HashEntry newEntry = new HashEntry(key, hash, first, value);
+				if (CAS_val(tab, index, first, newEntry)) {
+					break;
+				}
+			}
+		}
+		return oldValue;
+	}
+
+	@Override
+	public void clear() {
+		this.stopMaintenance();
+		this.structMods = 0;
+		HashEntry[] tab = table1.table;
+		for (int i = 0; i < tab.length; i++) {
+			tab[i] = null;
+		}
+		this.startMaintenance();
+	}
+
+	@Override
+	public int size() {
+		HashEntry[] tab = table1.table;
+		HashEntry next;
+		int count = 0;
+
+		for (int i = 0; i < tab.length; i++) {
+			next = tab[i];
+			while (next != null) {
+				count++;
+				next = next.next;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public long get(final long key) {
+		HashEntry e = getFirst(Long.hashCode(key));
+
+		while (e != null) {
+			if (e.key == key)
+				return e.value;
+			e = e.next;
+		}
+
+		return NO_VALUE;
+	}
+
+	@Override
+	public long getStructMods() {
+		return structMods;
+	}
+
+	@Override
+	public int numNodes() {
+		return size();
+	}
+
+}
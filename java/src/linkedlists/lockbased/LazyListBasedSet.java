@@ -7,6 +7,10 @@ import linkedlists.lockbased.lazyutils.Node;
 
 
 import contention.abstractions.AbstractCompositionalIntSet;
+import contention.abstractions.ApproximateSize;
+import contention.abstractions.ContentionCounters;
+import contention.abstractions.ContentionProfiled;
+import contention.abstractions.SizeCounter;
 
 /**
  * The code follows the lazy list-based set of Ch.9 of Herlihy and Shavit's book:
@@ -15,10 +19,15 @@ import contention.abstractions.AbstractCompositionalIntSet;
  * @author gramoli
  * 
  */
-public class LazyListBasedSet extends AbstractCompositionalIntSet {
+public class LazyListBasedSet extends AbstractCompositionalIntSet implements
+        ContentionProfiled, ApproximateSize {
 
     final public Node head;
     final public Node tail;
+    /** The contention counters, null unless profiled */
+    private ContentionCounters counters = null;
+    /** The number of elements, counted by the insertions and removals */
+    private final SizeCounter counter = new SizeCounter();
 
     public LazyListBasedSet() {
         head = new Node(Integer.MIN_VALUE);
@@ -35,8 +44,30 @@ public class LazyListBasedSet extends AbstractCompositionalIntSet {
                 i++;
     }
 
+    public void setContentionCounters(ContentionCounters counters) {
+        this.counters = counters;
+    }
+
     private boolean validate(Node pred, Node curr) {
-        return !pred.marked && pred.next == curr;
+        if (!pred.marked && pred.next == curr)
+            return true;
+        if (counters != null)
+            counters.add(ContentionCounters.RESTARTS);
+        return false;
+    }
+
+    private void lock(Node node) {
+        if (counters == null) {
+            node.lock();
+        } else if (!node.tryLock()) {
+            counters.add(ContentionCounters.LOCK_WAITS);
+            node.lock();
+        }
+    }
+
+    private void traversed(int nodes) {
+        if (counters != null)
+            counters.add(ContentionCounters.NODES_TRAVERSED, nodes);
     }
 
     @Override
@@ -44,12 +75,15 @@ public class LazyListBasedSet extends AbstractCompositionalIntSet {
         while (true) {
             Node pred = head;
             Node curr = head.next;
+            int traversed = 0;
             while (curr.value < v) {
                 pred = curr;
                 curr = curr.next;
+                traversed++;
             }
-            pred.lock();
-            curr.lock();
+            traversed(traversed);
+            lock(pred);
+            lock(curr);
             try {
                 if (validate(pred, curr)) {
                     if (curr.value == v) {
@@ -58,6 +92,7 @@ public class LazyListBasedSet extends AbstractCompositionalIntSet {
                         Node node = new Node(v);
                         node.next = curr;
                         pred.next = node;
+                        counter.increment();
                         return true;
                     }
                 }
@@ -73,13 +108,16 @@ public class LazyListBasedSet extends AbstractCompositionalIntSet {
         while (true) {
             Node pred = head;
             Node curr = head.next;
+            int traversed = 0;
             while (curr.value < v) {
                 pred = curr;
                 curr = curr.next;
+                traversed++;
             }
-            pred.lock();
+            traversed(traversed);
+            lock(pred);
             try {
-                curr.lock();
+                lock(curr);
                 try {
                     if (validate(pred, curr)) {
                         if (curr.value != v) {
@@ -87,6 +125,7 @@ public class LazyListBasedSet extends AbstractCompositionalIntSet {
                         } else {
                             curr.marked = true;
                             pred.next = curr.next;
+                            counter.decrement();
                             return true;
                         }
                     }
@@ -102,9 +141,12 @@ public class LazyListBasedSet extends AbstractCompositionalIntSet {
     @Override
     public boolean containsInt(int v) {
         Node curr = head;
+        int traversed = 0;
         while (curr.value < v) {
             curr = curr.next;
+            traversed++;
         }
+        traversed(traversed);
         return curr.value == v && !curr.marked;
     }
 
@@ -129,16 +171,23 @@ public class LazyListBasedSet extends AbstractCompositionalIntSet {
     @Override
     public int size() {
         int cpt = 0;
-        Node curr = head;
-        while (curr.value < Integer.MAX_VALUE)
+        Node curr = head.next;
+        while (curr.value < Integer.MAX_VALUE) {
+            if (!curr.marked)
+                cpt++;
             curr = curr.next;
-        if (!curr.marked)
-            cpt++;
+        }
         return cpt;
     }
 
+    @Override
+    public int approximateSize() {
+        return counter.size();
+    }
+
     @Override
     public void clear() {
         head.next = tail;
+        counter.clear();
     }
 }
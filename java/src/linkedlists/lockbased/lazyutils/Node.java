@@ -24,6 +24,10 @@ public class Node {
         this.lock.lock();
     }
 
+    public boolean tryLock() {
+        return this.lock.tryLock();
+    }
+
     public void unlock() {
         this.lock.unlock();
     }
@@ -4,6 +4,10 @@ import java.util.Collection;
 import java.util.concurrent.atomic.AtomicMarkableReference;
 
 import contention.abstractions.AbstractCompositionalIntSet;
+import contention.abstractions.ApproximateSize;
+import contention.abstractions.ContentionCounters;
+import contention.abstractions.ContentionProfiled;
+import contention.abstractions.SizeCounter;
 
 /**
  * This is a variant of the Harris-Michael algorithm in Java 
@@ -14,9 +18,14 @@ import contention.abstractions.AbstractCompositionalIntSet;
  *
  */
 
-public class NonBlockingLinkedListSet extends AbstractCompositionalIntSet {
+public class NonBlockingLinkedListSet extends AbstractCompositionalIntSet
+		implements ContentionProfiled, ApproximateSize {
 	private final Node tail;
 	private final Node head;
+	/** The contention counters, null unless profiled */
+	private ContentionCounters counters = null;
+	/** The number of elements, counted by the insertions and removals */
+	private final SizeCounter counter = new SizeCounter();
 
 	public NonBlockingLinkedListSet() {
 		tail = new Node(Integer.MAX_VALUE, null);
@@ -32,10 +41,15 @@ public class NonBlockingLinkedListSet extends AbstractCompositionalIntSet {
 		}
 	}
 
+	public void setContentionCounters(ContentionCounters counters) {
+		this.counters = counters;
+	}
+
 	public Window find(Node head, int value) {
 		Node pred = null, curr = null, succ = null;
 		boolean[] marked = { false };
 		boolean snip;
+		int traversed = 0;
 		retry: while (true) {
 			pred = head;
 			curr = pred.next.getReference();
@@ -44,16 +58,26 @@ public class NonBlockingLinkedListSet extends AbstractCompositionalIntSet {
 				while (marked[0]) {
 					snip = pred.next.compareAndSet(curr, succ, false, false);
 					if (!snip) {
+						if (counters != null) {
+							counters.add(ContentionCounters.CAS_FAILURES);
+							counters.add(ContentionCounters.RESTARTS);
+						}
 						continue retry;
 					}
+					if (counters != null)
+						counters.add(ContentionCounters.HELPS);
 					curr = succ;
 					succ = curr.next.get(marked);
 				}
 				if (curr.value >= value) {
+					if (counters != null)
+						counters.add(ContentionCounters.NODES_TRAVERSED,
+								traversed);
 					return new Window(pred, curr);
 				}
 				pred = curr;
 				curr = succ;
+				traversed++;
 			}
 		}
 	}
@@ -75,8 +99,13 @@ public class NonBlockingLinkedListSet extends AbstractCompositionalIntSet {
 			} else {
 				Node node = new Node(x, curr);
 				if (pred.next.compareAndSet(curr, node, false, false)) {
+					counter.increment();
 					return true;
 				}
+				if (counters != null) {
+					counters.add(ContentionCounters.CAS_FAILURES);
+					counters.add(ContentionCounters.RETRIES);
+				}
 			}
 		}
 	}
@@ -93,9 +122,17 @@ public class NonBlockingLinkedListSet extends AbstractCompositionalIntSet {
 				Node succ = curr.next.getReference();
 				snip = curr.next.attemptMark(succ, true);
 				if (!snip) {
+					if (counters != null) {
+						counters.add(ContentionCounters.CAS_FAILURES);
+						counters.add(ContentionCounters.RETRIES);
+					}
 					continue;
 				}
-				pred.next.compareAndSet(curr, succ, false, false);
+				counter.decrement();
+				if (!pred.next.compareAndSet(curr, succ, false, false)
+						&& counters != null)
+					// left to the next traversal
+					counters.add(ContentionCounters.CAS_FAILURES);
 				return true;
 			}
 		}
@@ -105,10 +142,14 @@ public class NonBlockingLinkedListSet extends AbstractCompositionalIntSet {
 	public boolean containsInt(int x) {
 		boolean[] marked = { false };
 		Node curr = head;
+		int traversed = 0;
 		while (curr.value < x) {
 			curr = curr.next.getReference();
 			curr.next.get(marked);
+			traversed++;
 		}
+		if (counters != null)
+			counters.add(ContentionCounters.NODES_TRAVERSED, traversed);
 		return (curr.value == x && !marked[0]);
 	}
 
@@ -143,8 +184,14 @@ public class NonBlockingLinkedListSet extends AbstractCompositionalIntSet {
 		return size;
 	}
 
+	@Override
+	public int approximateSize() {
+		return counter.size();
+	}
+
 	@Override
 	public void clear() {
 		head.next = new AtomicMarkableReference<Node>(tail, false);
+		counter.clear();
 	}
 }
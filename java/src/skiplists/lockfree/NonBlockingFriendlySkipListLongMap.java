@@ -0,0 +1,828 @@
+package skiplists.lockfree;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.LongBinaryOperator;
+
+import contention.abstractions.CompositionalLongMap;
+import contention.abstractions.MaintenanceAlg;
+
+/**
+ * The lock-free No Hot Spot Non-Blocking Skip List of
+ * NonBlockingFriendlySkipListMap with primitive long keys and values stored
+ * in the nodes, as presented in the paper from Crain, Gramoli and Raynal
+ * that appeared at ICDCS 2013.
+ *
+ * As in the original, the index levels are only modified by the
+ * maintenance thread, which raises the nodes, removes the bottom index level
+ * and physically removes the nodes marked deleted. A node is marked deleted
+ * with a NO_VALUE value and physically removed with a REMOVED value, so
+ * neither of these two values can be stored.
+ */
+public class NonBlockingFriendlySkipListLongMap implements
+		CompositionalLongMap, MaintenanceAlg {
+
+	/**
+	 * The value of the physically removed nodes and of the markers
+	 */
+	public static final long REMOVED = Long.MIN_VALUE + 1;
+
+	/**
+	 * List of all skip lists in the system that should be maintained by the
+	 * maintenance thread (there is only one maintenance thread in the system)
+	 */
+	private static final ConcurrentLinkedQueue<NonBlockingFriendlySkipListLongMap> skipLists = new ConcurrentLinkedQueue<NonBlockingFriendlySkipListLongMap>();
+
+	/**
+	 * Class used to keep track of the counts of the maintenance operations done
+	 */
+	private class MaintVars {
+		private long tallDeletedCount = 0, totalCount = 0, nonDeleted = 0;
+		private long removals = 0;
+	}
+
+	/**
+	 * Used to decide when to perform the maintenance
+	 */
+	private final MaintVars vars = new MaintVars();
+
+	/**
+	 * The maximum height the skip list can reach
+	 */
+	private static final int totalHeight = 40;
+
+	/**
+	 * The height of the skip list to start
+	 */
+	private static final int initialHeight = 6;
+
+	/**
+	 * Extension of thread class, the maintenance thread is an instance of this
+	 * class
+	 */
+	private static class MaintenanceThread extends Thread {
+
+		public void run() {
+			doMaintenance();
+		}
+	}
+
+	/**
+	 * Instances of this class make up the upper levels of the skip-list
+	 */
+	static final class Index {
+		/**
+		 * The node at the bottom list level that this Index corresponds to
+		 */
+		final Node node;
+		/**
+		 * The Index item one level below this one, or null if this is already
+		 * the bottom index level
+		 */
+		final Index down;
+		/**
+		 * The index item to the right, or null if this is the end of this level
+		 */
+		volatile Index right;
+
+		Index(Node node, Index down, Index right) {
+			this.node = node;
+			this.down = down;
+			this.right = right;
+		}
+	}
+
+	/**
+	 * Nodes make up the bottom level of the skip list
+	 */
+	static final class Node {
+		final long key;
+		/** True for the markers inserted during physical removals */
+		final boolean marker;
+		volatile long value;
+		volatile Node next, prev;
+		/** The index level of the node, only written by the maintenance */
+		volatile int topLevel = 0;
+
+		/**
+		 * Creates a new regular node.
+		 */
+		Node(long key, long value) {
+			this.key = key;
+			this.value = value;
+			this.marker = false;
+		}
+
+		/**
+		 * Constructor for marker node, used during physical removal
+		 */
+		private Node(Node prev, Node next) {
+			this.key = 0;
+			this.value = REMOVED;
+			this.marker = true;
+			this.prev = prev;
+			this.next = next;
+		}
+
+		static final Node newMarker(Node prev, Node next) {
+			return new Node(prev, next);
+		}
+
+		/** Updater for casNext */
+		static final AtomicReferenceFieldUpdater<Node, Node> nextUpdater = AtomicReferenceFieldUpdater
+				.newUpdater(Node.class, Node.class, "next");
+
+		/**
+		 * compareAndSet next field
+		 */
+		final boolean casNext(Node cmp, Node val) {
+			return nextUpdater.compareAndSet(this, cmp, val);
+		}
+
+		/** Updater for casValue */
+		static final AtomicLongFieldUpdater<Node> valueUpdater = AtomicLongFieldUpdater
+				.newUpdater(Node.class, "value");
+
+		/**
+		 * compareAndSet value field
+		 */
+		final boolean casValue(long cmp, long val) {
+			return valueUpdater.compareAndSet(this, cmp, val);
+		}
+	}
+
+	/**
+	 * Instances of this class are used to point to the beginning of the top and
+	 * bottom Index item lists
+	 */
+	static final class HeadPointer {
+		final Index node;
+		final int value;
+
+		HeadPointer(Index node, int value) {
+			this.node = node;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Always the first node in the Node list
+	 */
+	private final Node begin = new Node(Long.MIN_VALUE, NO_VALUE);
+
+	/**
+	 * Pointer for the start of the top Index list
+	 */
+	private volatile HeadPointer topStart;
+	/**
+	 * Pointer for the start of the bottom Index list
+	 */
+	private volatile HeadPointer bottomStart;
+
+	/** Updater for topStart */
+	static final AtomicReferenceFieldUpdater<NonBlockingFriendlySkipListLongMap, HeadPointer> topStartUpdater = AtomicReferenceFieldUpdater
+			.newUpdater(NonBlockingFriendlySkipListLongMap.class,
+					HeadPointer.class, "topStart");
+
+	final boolean casTopStart(HeadPointer cmp, HeadPointer val) {
+		return topStartUpdater.compareAndSet(this, cmp, val);
+	}
+
+	/** Updater for bottomStart */
+	static final AtomicReferenceFieldUpdater<NonBlockingFriendlySkipListLongMap, HeadPointer> bottomStartUpdater = AtomicReferenceFieldUpdater
+			.newUpdater(NonBlockingFriendlySkipListLongMap.class,
+					HeadPointer.class, "bottomStart");
+
+	final boolean casBottomStart(HeadPointer cmp, HeadPointer val) {
+		return bottomStartUpdater.compareAndSet(this, cmp, val);
+	}
+
+	/**
+	 * Used to stop the maintenance loop
+	 */
+	static volatile boolean stop = false;
+	/**
+	 * Instance of the maintenance thread This is static and atomic because we
+	 * have exactly one maintenance thread, even if we have multiple skip lists
+	 */
+	private static AtomicReference<MaintenanceThread> mainThd = new AtomicReference<MaintenanceThread>(
+			null);
+
+	/**
+	 * Array of Index pointers used by the maintenance thread, keeping track
+	 * of the first item of each level
+	 */
+	final private Index[] prevArray = new Index[totalHeight + 1];
+
+	public NonBlockingFriendlySkipListLongMap() {
+		initialize();
+		startMaintenance();
+	}
+
+	/**
+	 * Initializes an empty skip list
+	 */
+	private void initialize() {
+		begin.next = null;
+		begin.topLevel = totalHeight;
+
+		// The following lines create a new node of maximum initial height
+		// used as the "root" node in the list, and points the beginning
+		// pointers to this node and its index
+		Index nextBegin = null, prevBegin = new Index(begin, null, null);
+		bottomStart = new HeadPointer(prevBegin, 0);
+		for (int i = 1; i < initialHeight; i++) {
+			nextBegin = new Index(begin, prevBegin, null);
+			prevBegin = nextBegin;
+		}
+		topStart = new HeadPointer(nextBegin, initialHeight - 1);
+
+		// Add this skip list to the list of skip lists to be maintained by
+		// the maintenance thread
+		if (!skipLists.contains(this))
+			skipLists.add(this);
+	}
+
+	@Override
+	public long get(final long key) {
+		HeadPointer top = topStart, bottom = bottomStart;
+		// Get the suspected node previous to the one being searched for
+		Node prev = getPrevFast(key, top.node, top.value, bottom.value);
+		for (;;) {
+			Node next = prev.next;
+			// Didn't find the node
+			if (next == null)
+				return NO_VALUE;
+			int c = next.marker ? 1 : Long.compare(key, next.key);
+			if (c == 0) {
+				long val = next.value;
+				// check if it has been physically removed
+				return val == REMOVED ? NO_VALUE : val;
+			} else if (c < 0) {
+				return NO_VALUE;
+			}
+			// Not at the correct node so continue traversal
+			prev = getPrevNode(key, next, false);
+		}
+	}
+
+	@Override
+	public long putIfAbsent(long key, long value) {
+		checkValue(value);
+		return update(key, value, null);
+	}
+
+	@Override
+	public long remove(long key) {
+		return update(key, NO_VALUE, null);
+	}
+
+	@Override
+	public long compute(long key, LongBinaryOperator remapping) {
+		return update(key, NO_VALUE, remapping);
+	}
+
+	private static void checkValue(long value) {
+		if (value == NO_VALUE || value == REMOVED)
+			throw new IllegalArgumentException("Reserved value " + value);
+	}
+
+	/**
+	 * @return the value replacing val, or NO_VALUE to mark the node deleted
+	 */
+	private static long newValue(long key, long val, long value,
+			LongBinaryOperator remapping) {
+		if (remapping != null) {
+			long newValue = remapping.applyAsLong(key, val);
+			if (newValue != NO_VALUE)
+				checkValue(newValue);
+			return newValue;
+		}
+		if (value == NO_VALUE)
+			// a deletion
+			return NO_VALUE;
+		// a put-if-absent
+		return val != NO_VALUE ? val : value;
+	}
+
+	/**
+	 * Lock free update, a put-if-absent of value if remapping is null and
+	 * value is not NO_VALUE, a deletion if remapping is null and value is
+	 * NO_VALUE, and a compute otherwise
+	 *
+	 * @return the new value if remapping is not null, and the previous value
+	 *         or NO_VALUE otherwise
+	 */
+	private long update(long key, long value, LongBinaryOperator remapping) {
+		HeadPointer top = topStart, bottom = bottomStart;
+		Node prev = getPrevFast(key, top.node, top.value, bottom.value);
+		int c;
+
+		for (;;) {
+			Node next = prev.next;
+			if (next == null)
+				// end of the list
+				c = -1;
+			else
+				// a marker can't stop the traversal
+				c = next.marker ? 1 : Long.compare(key, next.key);
+			if (c == 0) {
+				// found the node
+				long val = next.value;
+				// loop trying to finish the operation, if the node has been
+				// physically removed, then exit loop and continue traversal
+				while (val != REMOVED) {
+					long newValue = newValue(key, val, value, remapping);
+					if (newValue == val || next.casValue(val, newValue)) {
+						if (newValue == NO_VALUE && val != NO_VALUE)
+							// removals are done also in maintenance, so
+							// just try to remove this node
+							removeMaintLockFree(prev, next, bottomStart.value);
+						return remapping == null ? val : newValue;
+					}
+					val = next.value;
+				}
+			} else if (c < 0) {
+				// didn't find the key, so insert a new node
+				// but only do it if we are not at a marker node
+				if (prev.value != REMOVED && !prev.marker) {
+					long newValue = newValue(key, NO_VALUE, value, remapping);
+					if (newValue == NO_VALUE)
+						return NO_VALUE;
+					Node newNode = new Node(key, newValue);
+					newNode.prev = prev;
+					newNode.next = next;
+					if (prev.casNext(next, newNode)) {
+						if (next != null)
+							next.prev = newNode;
+						return remapping == null ? NO_VALUE : newValue;
+					}
+				}
+			}
+			// We were not at the right prev node, so continue traversal!
+			// Will do helping in here
+			prev = getPrevNode(key, prev, true);
+		}
+	}
+
+	/**
+	 * Traverses the skip-list for the node with the given key starting from the
+	 * given Index item, without keeping track of the locations where the search
+	 * moved down
+	 *
+	 * @return the previous Node from the bottom level list of the key being
+	 *         searched for
+	 */
+	private Node getPrevFast(long key, Index prev, int top, int bottom) {
+		int c = 0;
+		Index next;
+		for (;;) {
+			// Inner for loop traverses a single Index list level
+			for (;;) {
+				next = prev.right;
+				if (next == null)
+					// Reached the end
+					break;
+				c = Long.compare(key, next.node.key);
+				if (c <= 0)
+					// Found a node with a bigger key
+					break;
+				prev = next;
+			}
+			if (next != null && c == 0)
+				// Immediately stop the Index traversal if a node with key was
+				// found, continue the traversal on the Node list level
+				return getPrevNode(key, next.node.prev, false);
+			if (top == bottom)
+				// Reached the bottom Index list level
+				break;
+			top--;
+			next = prev.down;
+			if (next == null)
+				// Reached the bottom Index list level
+				break;
+			prev = next;
+		}
+		// Continue the traversal on the Node list level
+		return getPrevNode(key, prev.node, false);
+	}
+
+	/**
+	 * Traverses the bottom list level looking for a node with key
+	 *
+	 * @param isInsert
+	 *            if this was called from within an insert operation
+	 * @return the node in the list previous to the one that has (or would have)
+	 *         key
+	 */
+	private Node getPrevNode(long key, Node prev, boolean isInsert) {
+		int c = 0;
+		for (;;) {
+			Node next = prev.next;
+			if (next != null)
+				c = next.marker ? 1 : Long.compare(key, next.key);
+			if (next == null || c <= 0) {
+				// The previous node must be physically in the list before
+				// adding a new node after it
+				if (isInsert && prev.value == REMOVED) {
+					// the node has been removed, travel backwards until
+					// back at a node not physically removed
+					while (prev.value == REMOVED)
+						prev = prev.prev;
+					// need to help remove the node, to ensure progress
+					helpRemoval(prev, prev.next);
+					continue;
+				}
+				helpRemoval(prev, prev.next);
+				return prev;
+			} else {
+				prev = next;
+			}
+		}
+	}
+
+	/**
+	 * Checks to see if the node has a 0 height so it can be removed
+	 */
+	private static final boolean checkHeightRemoval(Node node, int bottomLevel) {
+		return (node.topLevel - 1 < bottomLevel);
+	}
+
+	/**
+	 * Tries to physically remove node in a lock free manner
+	 *
+	 * @return true if the removal was successful, false otherwise
+	 */
+	private boolean removeMaintLockFree(Node prev, Node node, int bottomLevel) {
+		// Check to see if it is a valid node to remove
+		if (node.value != NO_VALUE || !checkHeightRemoval(node, bottomLevel)
+				|| prev.value == REMOVED || prev.next != node) {
+			return false;
+		}
+		// Mark the node for removal
+		node.casValue(NO_VALUE, REMOVED);
+
+		if (node.value != REMOVED) {
+			return false;
+		}
+
+		// Finish the removal
+		if (!helpRemoval(prev, node))
+			return false;
+
+		// Update the prev pointer, which just needs to point back to the
+		// list, not the exact prev node
+		Node prevNext = prev.next;
+		if (prevNext != null)
+			prevNext.prev = prev;
+		return true;
+	}
+
+	/**
+	 * Tries to finish the removal of a node who has been marked for removal in
+	 * a lock-free manner
+	 *
+	 * @return true if successful, false otherwise
+	 */
+	private boolean helpRemoval(Node prev, Node node) {
+		Node next;
+
+		// Ensure the previous node is not a marker
+		if (prev.marker || prev.next != node)
+			return false;
+		// Ensure the node is not a marker
+		if (node == null || node.marker || node.value != REMOVED)
+			return false;
+
+		next = node.next;
+		while (next == null || !next.marker) {
+			// Insert a marker after the node
+			node.casNext(next, Node.newMarker(node, next));
+			next = node.next;
+		}
+
+		// remove the node and the marker
+		return prev.casNext(node, next.next);
+	}
+
+	/**
+	 * Checks to see if the bottom level should be raised, happens based on some
+	 * function of the number of tall, marked deleted nodes and the total number
+	 * of nodes, this is called by the maintenance thread
+	 */
+	private final boolean checkShouldRaiseBottomLevelMaint(MaintVars vars) {
+		return vars.tallDeletedCount > vars.nonDeleted * 10;
+	}
+
+	/**
+	 * Does a full traversal of the skip list removing nodes, raising node
+	 * levels, and removing bottom Index level if conditions are met
+	 */
+	private void mixedTraversal() {
+		HeadPointer bottom = bottomStart, top = topStart;
+
+		// Check to see if the bottom Index level should be removed (i.e. there
+		// are too many tall, marked deleted nodes)
+		if (checkShouldRaiseBottomLevelMaint(vars)) {
+			increaseBottomStart(bottom);
+			bottom = bottomStart;
+		}
+
+		// Traverse the Node list
+		boolean status = nodeLevelTraversal(bottom);
+		// Get the first Index item in ever list
+		initializeIndexArray(top, bottom);
+		int currentLevel = bottom.value;
+
+		// Traverse each index level until nodes don't need to be made any
+		// higher
+		while (status) {
+			// First make sure we have an index level above
+			if (top.value <= currentLevel + 1) {
+				// if not, add another level
+				if (!increaseTopStart(top))
+					break;
+				top = topStart;
+				prevArray[top.value] = top.node;
+			}
+			// Traverse the index level, raising
+			status = indexLevelTraversal(prevArray[currentLevel + 1],
+					prevArray[currentLevel], currentLevel);
+			currentLevel++;
+		}
+	}
+
+	/**
+	 * Checks if a node should have it's level raised, only raise the height
+	 * if both its neighbors have height of 1
+	 */
+	private static final boolean checkShouldRaiseNode(Node node, int bottomLevel) {
+		Node prev = node.prev, next = node.next;
+		if (prev == null || next == null)
+			return false;
+		return prev.topLevel - 1 < bottomLevel
+				&& next.topLevel - 1 < bottomLevel
+				&& node.topLevel - 1 < bottomLevel;
+	}
+
+	/**
+	 * Checks if a node should have it's level raised, looking from an index
+	 * level
+	 */
+	private static final boolean checkShouldRaiseIndex(Index prevIndex,
+			Index nodeIndex, int bottomLevel) {
+		Index nextIndex = nodeIndex.right;
+		if (prevIndex == null || nextIndex == null)
+			return false;
+		Node prev = prevIndex.node, next = nextIndex.node;
+		return (prev.topLevel - 1 <= bottomLevel
+				&& next.topLevel - 1 <= bottomLevel && nodeIndex.node.topLevel - 1 <= bottomLevel);
+	}
+
+	/**
+	 * Traverses the given index leveling raising items up one level if needed
+	 *
+	 * @return true if the level should be raised again, false otherwise
+	 */
+	private boolean indexLevelTraversal(Index above, Index current,
+			int currentLevel) {
+		boolean raised = false;
+		Index prevAbove = above, prev = current, next = current.right;
+		Node nextNode;
+		// Traverse the level
+		while (next != null) {
+			nextNode = next.node;
+			// Ensure the node should be raised
+			if (nextNode.value != REMOVED
+					&& checkShouldRaiseIndex(prev, next, currentLevel)) {
+				// Raise the node
+				prevAbove = raiseSingleListLevel(nextNode.key, prevAbove,
+						next, nextNode);
+				nextNode.topLevel++;
+				raised = true;
+			}
+			prev = next;
+			next = next.right;
+		}
+		return raised;
+	}
+
+	/**
+	 * Traverses the bottom level of the skip list, removing nodes and raising
+	 * the level of nodes by one if necessary
+	 *
+	 * @return true if the levels should be raised again, false otherwise
+	 */
+	private boolean nodeLevelTraversal(HeadPointer bottom) {
+		Index prevIndex = bottom.node;
+		Node prev = begin, next = begin.next;
+		int bottomLevel = bottom.value;
+		boolean raised = false;
+		vars.tallDeletedCount = 0;
+		vars.totalCount = 0;
+		vars.nonDeleted = 0;
+
+		while (next != null) {
+			long value = next.value;
+			// check if marked deleted
+			if (value == NO_VALUE) {
+				// Check for removal
+				if (checkHeightRemoval(next, bottomLevel)) {
+					if (removeMaintLockFree(prev, next, bottomLevel))
+						vars.removals++;
+				} else {
+					// Number of marked deleted nodes
+					vars.tallDeletedCount++;
+				}
+			}
+			// if not marked deleted, check if it should be raised
+			else if (value != REMOVED
+					&& checkShouldRaiseNode(next, bottomLevel)) {
+				prevIndex = raiseSingleListLevel(next.key, prevIndex, null,
+						next);
+				next.topLevel = bottomLevel + 1;
+				raised = true;
+			}
+			if (value != REMOVED && value != NO_VALUE) {
+				// number of nodes not marked deleted
+				vars.nonDeleted++;
+			}
+			// total number of nodes
+			vars.totalCount++;
+			prev = next;
+			next = next.next;
+		}
+		return raised;
+	}
+
+	/**
+	 * Increases the value of top start by 1 if the head pointer prev has not
+	 * changed, this is to add a new Index to the top of the skip list
+	 */
+	private boolean increaseTopStart(HeadPointer prev) {
+		if (topStart == prev && prev.value + 1 < totalHeight) {
+			return casTopStart(prev, new HeadPointer(new Index(begin,
+					prev.node, null), prev.value + 1));
+		}
+		return false;
+	}
+
+	/**
+	 * Raises the level of the bottom level by one This is to remove the Index
+	 * level at the bottom
+	 */
+	private boolean increaseBottomStart(HeadPointer prev) {
+		HeadPointer top = topStart;
+		if (bottomStart == prev && top.value > prev.value) {
+			Index nextIndex, prevIndex;
+			nextIndex = top.node;
+			prevIndex = top.node;
+			// Find the Index level that is just above the one to get rid of
+			while (nextIndex != prev.node) {
+				prevIndex = nextIndex;
+				nextIndex = nextIndex.down;
+			}
+			return casBottomStart(prev, new HeadPointer(prevIndex,
+					prev.value + 1));
+		}
+		return false;
+	}
+
+	/**
+	 * Raises the level of the node up a single list level, only the
+	 * maintenance thread writing the index levels
+	 *
+	 * @param prev
+	 *            The expected previous item in the list
+	 * @param down
+	 *            The list item directly below this
+	 * @param node
+	 *            The node for the list items
+	 */
+	private Index raiseSingleListLevel(long key, Index prev, Index down,
+			Node node) {
+		// Allocate a new Item for this node
+		Index item = new Index(node, down, null);
+		// Loop until you find the previous Index item in the list
+		for (;;) {
+			Index next = prev.right;
+			if (next == null || key < next.node.key) {
+				// Insert the new Item
+				item.right = next;
+				prev.right = item;
+				return item;
+			}
+			prev = next;
+		}
+	}
+
+	/**
+	 * Initialize the maintenance thread's index array. Fills the array with the
+	 * index values from the beginning of the list
+	 */
+	private void initializeIndexArray(HeadPointer top, HeadPointer bottom) {
+		int topValue = top.value, bottomValue = bottom.value;
+		Index next = top.node;
+		for (;;) {
+			prevArray[topValue] = next;
+			if (topValue == bottomValue)
+				break;
+			topValue--;
+			next = next.down;
+		}
+	}
+
+	/**
+	 * Starts the maintenance thread
+	 *
+	 * @return true
+	 */
+	public boolean startMaintenance() {
+		stop = false;
+		if (!skipLists.contains(this))
+			skipLists.add(this);
+
+		// If no mainteance thread, start a new one
+		if (mainThd.get() == null) {
+			if (mainThd.compareAndSet(null, new MaintenanceThread())) {
+				mainThd.get().start();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the maintenance thread, does not return until the thread actually
+	 * stops
+	 *
+	 * @return true
+	 */
+	public boolean stopMaintenance() {
+		stop = true;
+		MaintenanceThread thd = mainThd.get();
+		if (thd != null) {
+			try {
+				// Wait for maintenance to stop
+				thd.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			// Get rid of the mainteance thread
+			mainThd.compareAndSet(thd, null);
+		}
+		// Remove this skip list from the ones that will be maintained
+		skipLists.remove(this);
+		return true;
+	}
+
+	/**
+	 * Loop performing maintenance on all the skip lists until stopped
+	 */
+	public static void doMaintenance() {
+		while (!stop) {
+			// Go through each skip list in the ones to be maintained,
+			// performing a mixed traversal
+			for (NonBlockingFriendlySkipListLongMap skipList : skipLists)
+				skipList.mixedTraversal();
+		}
+	}
+
+	@Override
+	public void clear() {
+		this.stopMaintenance();
+		this.initialize();
+		this.vars.removals = 0;
+		this.startMaintenance();
+	}
+
+	@Override
+	public int size() {
+		int count = 0;
+		Node current = begin.next;
+		while (current != null) {
+			long value = current.value;
+			if (value != NO_VALUE && value != REMOVED)
+				count++;
+			current = current.next;
+		}
+		return count;
+	}
+
+	@Override
+	public long getStructMods() {
+		return vars.removals;
+	}
+
+	/**
+	 * Counts the total number of nodes in the skip list
+	 */
+	@Override
+	public int numNodes() {
+		int count = 0;
+		for (Node current = begin.next; current != null; current = current.next)
+			count++;
+		return count;
+	}
+}
@@ -17,8 +17,10 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.ReentrantLock;
 
+import contention.abstractions.ApproximateSize;
 import contention.abstractions.CompositionalMap;
 import contention.abstractions.MaintenanceAlg;
+import contention.abstractions.SizeCounter;
 
 /**
  * The No Hot Spot Non-Blocking Skip List
@@ -34,7 +36,7 @@ import contention.abstractions.MaintenanceAlg;
  */
 public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 		implements CompositionalMap<K, V>, MaintenanceAlg,
-		ConcurrentNavigableMap<K, V> {
+		ConcurrentNavigableMap<K, V>, ApproximateSize {
 
 	/**
 	 * If set to true then a maintenance thread is used
@@ -305,6 +307,9 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 		}
 	}
 
+	/** The number of entries, counted by the insertions and removals */
+	private final SizeCounter counter = new SizeCounter();
+
 	/**
 	 * Always the first node in the Node list
 	 */
@@ -470,11 +475,16 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 
 	@Override
 	public V get(final Object kkey) {
+		return get(kkey, null);
+	}
+
+	private V get(final Object kkey, Finger<K, V> finger) {
 		HeadPointer<K, V> top = topStart, bottom = bottomStart;
 		int nodesTraversed = 0;
 		Comparable<? super K> key = comparable(kkey);
 		// Get the suspected node previous to the one being searched for
-		Node<K, V> prev = getPrevFast(key, top.node, top.value, bottom.value);
+		Node<K, V> prev = finger == null ? getPrevFast(key, top.node,
+				top.value, bottom.value) : getPrevFinger(key, finger, false);
 		for (;;) {
 			Node<K, V> next = prev.next;
 			if (TRAVERSAL_COUNT) {
@@ -527,18 +537,58 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 	@Override
 	public V putIfAbsent(K kkey, V value) {
 		if (!lockFree) {
-			return insertLocking(kkey, value, false);
+			return insertLocking(kkey, value, false, null);
 		}
-		return insertLockFree(kkey, value, false);
+		return insertLockFree(kkey, value, false, null);
 	}
 
 	@Override
 	public V put(K kkey, V value) {
 		// TODO This is currently just putifabsent!
 		if (!lockFree) {
-			return insertLocking(kkey, value, true);
+			return insertLocking(kkey, value, true, null);
 		}
-		return insertLockFree(kkey, value, true);
+		return insertLockFree(kkey, value, true, null);
+	}
+
+	/**
+	 * Inserts the keys of the sorted batch, the traversal of each key
+	 * resuming from the Index items preceding the previous one
+	 */
+	@Override
+	public int putIfAbsentBatch(K[] keys, V[] values) {
+		Finger<K, V> finger = new Finger<K, V>();
+		int count = 0;
+		for (int i = 0; i < keys.length; i++) {
+			V old = lockFree ? insertLockFree(keys[i], values[i], false, finger)
+					: insertLocking(keys[i], values[i], false, finger);
+			if (old == null)
+				count++;
+		}
+		return count;
+	}
+
+	@Override
+	public int removeBatch(K[] keys) {
+		Finger<K, V> finger = new Finger<K, V>();
+		int count = 0;
+		for (int i = 0; i < keys.length; i++) {
+			V old = lockFree ? removeLockFree(keys[i], finger) : removeLocking(
+					keys[i], finger);
+			if (old != null)
+				count++;
+		}
+		return count;
+	}
+
+	@Override
+	public int getBatch(K[] keys, V[] values) {
+		Finger<K, V> finger = new Finger<K, V>();
+		int count = 0;
+		for (int i = 0; i < keys.length; i++)
+			if ((values[i] = get(keys[i], finger)) != null)
+				count++;
+		return count;
 	}
 
 	/**
@@ -550,10 +600,13 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 	 *            value to insert
 	 * @param put
 	 *            if false performs a put-if-absent, otherwise just a put
+	 * @param finger
+	 *            the Index items preceding the previous key of a sorted
+	 *            batch, or null
 	 * @return null if no node with key existed, otherwise the value of the node
 	 *         with the key
 	 */
-	private V insertLockFree(K kkey, V value, boolean put) {
+	private V insertLockFree(K kkey, V value, boolean put, Finger<K, V> finger) {
 		HeadPointer<K, V> top = topStart, bottom = bottomStart;
 		Comparable<? super K> key = comparable(kkey);
 		Node<K, V> prev = null;
@@ -562,6 +615,8 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 			// if there is no maintenance then we have to raise the node within
 			// the insert
 			prev = getPrev(key, topStart.node, top.value, bottom.value);
+		} else if (finger != null) {
+			prev = getPrevFinger(key, finger, false);
 		} else {
 			prev = getPrevFast(key, topStart.node, top.value, bottom.value);
 		}
@@ -601,8 +656,10 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 						}
 					} else {
 						// node is marked deleted, undelete it!
-						if (next.casValue(val, value))
+						if (next.casValue(val, value)) {
+							counter.increment();
 							return null;
+						}
 					}
 					val = next.value;
 				}
@@ -617,6 +674,7 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 					newNode.prev = prev;
 					newNode.next = next;
 					if (prev.casNext(next, newNode)) {
+						counter.increment();
 						if (next != null) {
 							next.prev = newNode;
 						}
@@ -643,10 +701,13 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 	 *            value to insert
 	 * @param put
 	 *            if false performs a put-if-absent, otherwise just a put
+	 * @param finger
+	 *            the Index items preceding the previous key of a sorted
+	 *            batch, or null
 	 * @return null if no node with key existed, otherwise the value of the node
 	 *         with the key
 	 */
-	public V insertLocking(K kkey, V value, boolean put) {
+	public V insertLocking(K kkey, V value, boolean put, Finger<K, V> finger) {
 		HeadPointer<K, V> top = topStart, bottom = bottomStart;
 		Comparable<? super K> key = comparable(kkey);
 		Node<K, V> prev = null;
@@ -654,6 +715,8 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 			// if there is no maintenance then we have to raise the node within
 			// the insert
 			prev = getPrev(key, topStart.node, top.value, bottom.value);
+		} else if (finger != null) {
+			prev = getPrevFinger(key, finger, false);
 		} else {
 			prev = getPrevFast(key, topStart.node, top.value, bottom.value);
 		}
@@ -696,6 +759,7 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 						// mark it undeleted
 						next.value = value;
 						next.lock.unlock();
+						counter.increment();
 						return null;
 					}
 					next.lock.unlock();
@@ -729,6 +793,7 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 						}
 						prev.next = newNode;
 						prev.lock.unlock();
+						counter.increment();
 						if (!maintenance) {
 							// no maintenance, so must raise the node here
 							raiseLevels(key, newNode, top, bottom.value);
@@ -746,9 +811,9 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 	@Override
 	public V remove(final Object kkey) {
 		if (!lockFree) {
-			return removeLocking(kkey);
+			return removeLocking(kkey, null);
 		}
-		return removeLockFree(kkey);
+		return removeLockFree(kkey, null);
 	}
 
 	/**
@@ -756,14 +821,18 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 	 * 
 	 * @param kkey
 	 *            the key to delete
+	 * @param finger
+	 *            the Index items preceding the previous key of a sorted
+	 *            batch, or null
 	 * @return null if no node with key was found, otherwise the value of the
 	 *         node that was deleted
 	 */
-	private V removeLocking(final Object kkey) {
+	private V removeLocking(final Object kkey, Finger<K, V> finger) {
 		HeadPointer<K, V> top = topStart, bottom = bottomStart;
 		Comparable<? super K> key = comparable(kkey);
 		// Find the previous node in the bottom list
-		Node<K, V> prev = getPrevFast(key, top.node, top.value, bottom.value);
+		Node<K, V> prev = finger == null ? getPrevFast(key, top.node,
+				top.value, bottom.value) : getPrevFinger(key, finger, false);
 		for (;;) {
 			Node<K, V> next = prev.next;
 			// reached the end of the list
@@ -792,6 +861,7 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 				}
 				// Mark deleted
 				next.value = null;
+				counter.decrement();
 				if (removeInDelete) {
 					if (!removeInMainteance) {
 						// no removals are done in maintenance, since removals
@@ -823,14 +893,18 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 	 * 
 	 * @param kkey
 	 *            the key to delete
+	 * @param finger
+	 *            the Index items preceding the previous key of a sorted
+	 *            batch, or null
 	 * @return null if no node with key was found, otherwise the value of the
 	 *         node that was deleted
 	 */
-	private V removeLockFree(final Object kkey) {
+	private V removeLockFree(final Object kkey, Finger<K, V> finger) {
 		HeadPointer<K, V> top = topStart, bottom = bottomStart;
 		Comparable<? super K> key = comparable(kkey);
 		// find the previous node in the list
-		Node<K, V> prev = getPrevFast(key, top.node, top.value, bottom.value);
+		Node<K, V> prev = finger == null ? getPrevFast(key, top.node,
+				top.value, bottom.value) : getPrevFinger(key, finger, false);
 		for (;;) {
 			Node<K, V> next = prev.next;
 			if (next == null)
@@ -853,6 +927,7 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 						return null;
 					// Mark deleted
 					if (next.casValue(val, null)) {
+						counter.decrement();
 						if (removeInDelete) {
 							if (!removeInMainteance) {
 								// no removals are done in maintenance, since
@@ -952,6 +1027,77 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 		return getPrevNode(key, prev.node, false);
 	}
 
+	/**
+	 * The Index items preceding the last key searched by a sorted batch, one
+	 * per level, valid as long as the top and bottom Index lists do not change
+	 */
+	static final class Finger<K, V> {
+		HeadPointer<K, V> top, bottom;
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		final Index<K, V>[] index = (Index<K, V>[]) new Index[totalHeight + 1];
+	}
+
+	/**
+	 * Traverses the skip-list for the node with the given key of a sorted
+	 * batch, resuming from the lowest level at which the Index item preceding
+	 * the previous key still precedes key, and keeping track in finger of the
+	 * locations from each level where the search moved down
+	 * 
+	 * @param key
+	 *            the key to search for, greater than the keys previously
+	 *            searched with finger
+	 * @param finger
+	 *            the Index items preceding the previous key
+	 * @param isInsert
+	 *            if this was called from within an insert operation
+	 * @return the previous Node from the bottom level list of the key being
+	 *         searched for
+	 */
+	private Node<K, V> getPrevFinger(Comparable<? super K> key,
+			Finger<K, V> finger, boolean isInsert) {
+		HeadPointer<K, V> top = topStart, bottom = bottomStart;
+		Index<K, V> prev = top.node;
+		int level = top.value;
+		if (finger.top == top && finger.bottom == bottom) {
+			for (int l = bottom.value; l < top.value; l++) {
+				Index<K, V> f = finger.index[l];
+				if (f == null || f.node.value == f.node)
+					// physically removed, try the level above
+					continue;
+				Index<K, V> next = f.right;
+				if (next == null || next.node.key != null
+						&& key.compareTo(next.node.key) <= 0) {
+					prev = f;
+					level = l;
+					break;
+				}
+			}
+		} else {
+			finger.top = top;
+			finger.bottom = bottom;
+		}
+		for (;;) {
+			for (;;) {
+				Index<K, V> next = prev.right;
+				if (next == null)
+					break;
+				K nextKey = next.node.key;
+				if (nextKey != null && key.compareTo(nextKey) <= 0)
+					break;
+				prev = next;
+			}
+			finger.index[level] = prev;
+			if (level == bottom.value)
+				break;
+			Index<K, V> down = prev.down;
+			if (down == null)
+				break;
+			level--;
+			prev = down;
+		}
+		return getPrevNode(key, prev.node, isInsert);
+	}
+
 	/**
 	 * 
 	 * Traverses the skip-list for the node with the given key starting from the
@@ -1896,6 +2042,7 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 	 */
 	public void resetSkipList() {
 		initialize();
+		this.counter.clear();
 		this.bottomLevelRaiseCount.set(0);
 		this.vars.heightChanges = 0;
 		this.vars.removals = 0;
@@ -1938,6 +2085,42 @@ public class NonBlockingFriendlySkipListMap<K, V> extends AbstractMap<K, V>
 		return count;
 	}
 
+	/**
+	 * @see contention.abstractions.ApproximateSize#approximateSize()
+	 */
+	@Override
+	public int approximateSize() {
+		return counter.size();
+	}
+
+	/**
+	 * Traverses the index levels down to the node preceding fromKey, then
+	 * the bottom list level up to toKey
+	 * 
+	 * @see contention.abstractions.CompositionalMap#rangeScan(java.lang.Object,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public int rangeScan(K fromKey, K toKey) {
+		HeadPointer<K, V> top = topStart, bottom = bottomStart;
+		Comparable<? super K> key = comparable(fromKey);
+		Comparable<? super K> bound = comparable(toKey);
+		Node<K, V> current = getPrevFast(key, top.node, top.value, bottom.value);
+		int count = 0;
+		while ((current = current.next) != null) {
+			K currentKey = current.key;
+			if (currentKey == null)
+				// null key means marker, keep traversing
+				continue;
+			if (bound.compareTo(currentKey) <= 0)
+				break;
+			V val = current.value;
+			if (val != null && val != current && key.compareTo(currentKey) <= 0)
+				count++;
+		}
+		return count;
+	}
+
 	public long getStructMods() {
 		return vars.removals;
 	}
@@ -39,6 +39,7 @@ import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -55,8 +56,11 @@ import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+import contention.abstractions.ApproximateSize;
+import contention.abstractions.BulkLoadable;
 import contention.abstractions.CompositionalMap;
 import contention.abstractions.CompositionalMap.Vars;
+import contention.abstractions.SizeCounter;
 
 /**
  * A scalable concurrent {@link ConcurrentNavigableMap} implementation. The map
@@ -113,7 +117,7 @@ import contention.abstractions.CompositionalMap.Vars;
  */
 public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 		implements ConcurrentNavigableMap<K, V>, CompositionalMap<K, V>,
-		Cloneable, java.io.Serializable {
+		BulkLoadable, ApproximateSize, Cloneable, java.io.Serializable {
 	/*
 	 * This class implements a tree-like two-dimensionally linked skip list in
 	 * which the index levels are represented in separate nodes from the base
@@ -340,6 +344,8 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 	private transient Values values;
 	/** Lazily initialized descending key set */
 	private transient ConcurrentNavigableMap<K, V> descendingMap;
+	/** The number of mappings, counted by the insertions and removals */
+	private transient SizeCounter counter;
 
 	/**
 	 * Initializes or resets state. Needed by constructors, clone, clear,
@@ -351,6 +357,7 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 		entrySet = null;
 		values = null;
 		descendingMap = null;
+		counter = new SizeCounter();
 		randomSeed = seedGenerator.nextInt() | 0x0100; // ensure nonzero
 		head = new HeadIndex<K, V>(new Node<K, V>(null, BASE_HEADER, null),
 				null, null, 1);
@@ -724,6 +731,83 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 		}
 	}
 
+	/**
+	 * The index nodes preceding the last key searched by a sorted batch, one
+	 * per level, valid as long as the head they were found under
+	 */
+	static final class Finger<K, V> {
+		HeadIndex<K, V> head;
+		Index<K, V>[] index = (Index<K, V>[]) new Index[32];
+	}
+
+	/**
+	 * Variant of findPredecessor for the keys of a sorted batch, resuming the
+	 * search from the lowest level at which the predecessor of the previous
+	 * key still precedes key, and recording the new predecessors in finger.
+	 * Indexes of deleted nodes above that level are left for later traversals
+	 * to unlink.
+	 * 
+	 * @param key
+	 *            the key, greater than the keys previously searched with
+	 *            finger
+	 * @param finger
+	 *            the predecessors of the previous key, or null to search from
+	 *            the head
+	 * @return a predecessor of key
+	 */
+	private Node<K, V> findPredecessor(Comparable<? super K> key,
+			Finger<K, V> finger) {
+		if (finger == null)
+			return findPredecessor(key);
+		for (;;) {
+			HeadIndex<K, V> h = head;
+			Index<K, V> q = h;
+			int level = h.level;
+			if (finger.head == h) {
+				for (int l = 1; l < level; l++) {
+					Index<K, V> f = finger.index[l];
+					if (f == null || f.node.value == null)
+						continue;
+					Index<K, V> r = f.right;
+					if (r == null || key.compareTo(r.node.key) <= 0) {
+						q = f;
+						level = l;
+						break;
+					}
+				}
+			} else {
+				finger.head = h;
+				if (finger.index.length <= level)
+					finger.index = Arrays.copyOf(finger.index, 2 * level);
+			}
+			Index<K, V> r = q.right;
+			for (;;) {
+				if (r != null) {
+					Node<K, V> n = r.node;
+					K k = n.key;
+					if (n.value == null) {
+						if (!q.unlink(r))
+							break; // restart
+						r = q.right; // reread r
+						continue;
+					}
+					if (key.compareTo(k) > 0) {
+						q = r;
+						r = r.right;
+						continue;
+					}
+				}
+				finger.index[level--] = q;
+				Index<K, V> d = q.down;
+				if (d != null) {
+					q = d;
+					r = d.right;
+				} else
+					return q.node;
+			}
+		}
+	}
+
 	/**
 	 * Returns node holding key or null if no such, clearing out any deleted
 	 * nodes seen along the way. Repeatedly traverses at base-level looking for
@@ -764,8 +848,12 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 	 * @return node holding key, or null if no such
 	 */
 	private Node<K, V> findNode(Comparable<? super K> key) {
+		return findNode(key, null);
+	}
+
+	private Node<K, V> findNode(Comparable<? super K> key, Finger<K, V> finger) {
 		for (;;) {
-			Node<K, V> b = findPredecessor(key);
+			Node<K, V> b = findPredecessor(key, finger);
 			Node<K, V> n = b.next;
 			for (;;) {
 				if (n == null)
@@ -970,9 +1058,13 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 	 * @return the old value, or null if newly inserted
 	 */
 	private V doPut(K kkey, V value, boolean onlyIfAbsent) {
+		return doPut(kkey, value, onlyIfAbsent, null);
+	}
+
+	private V doPut(K kkey, V value, boolean onlyIfAbsent, Finger<K, V> finger) {
 		Comparable<? super K> key = comparable(kkey);
 		for (;;) {
-			Node<K, V> b = findPredecessor(key);
+			Node<K, V> b = findPredecessor(key, finger);
 			Node<K, V> n = b.next;
 			for (;;) {
 				if (n != null) {
@@ -1005,6 +1097,7 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 				Node<K, V> z = new Node<K, V>(kkey, value, n);
 				if (!b.casNext(n, z))
 					break; // restart if lost race to append to b
+				counter.increment();
 				int level = randomLevel();
 				if (level > 0) {
 					// if(STRUCT_MODS)
@@ -1180,9 +1273,13 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 	 * @return the node, or null if not found
 	 */
 	final V doRemove(Object okey, Object value) {
+		return doRemove(okey, value, null);
+	}
+
+	final V doRemove(Object okey, Object value, Finger<K, V> finger) {
 		Comparable<? super K> key = comparable(okey);
 		for (;;) {
-			Node<K, V> b = findPredecessor(key);
+			Node<K, V> b = findPredecessor(key, finger);
 			Node<K, V> n = b.next;
 			for (;;) {
 				if (n == null)
@@ -1209,14 +1306,15 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 					return null;
 				if (!n.casValue(v, null))
 					break;
+				counter.decrement();
 				if (STRUCT_MODS) {
 					Vars vars = counts.get();
 					vars.structMods++;
 				}
 				if (!n.appendMarker(f) || !b.casNext(n, f))
-					findNode(key); // Retry via findNode
+					findNode(key, finger); // Retry via findNode
 				else {
-					findPredecessor(key); // Clean index
+					findPredecessor(key, finger); // Clean index
 					if (head.right == null)
 						tryReduceLevel();
 				}
@@ -1295,6 +1393,7 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 			}
 			if (!n.casValue(v, null))
 				continue;
+			counter.decrement();
 			if (!n.appendMarker(f) || !b.casNext(n, f))
 				findFirst(); // retry
 			clearIndexToFirst();
@@ -1435,6 +1534,7 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 				}
 				if (!n.casValue(v, null))
 					break;
+				counter.decrement();
 				K key = n.key;
 				Comparable<? super K> ck = comparable(key);
 				if (!n.appendMarker(f) || !b.casNext(n, f))
@@ -1632,6 +1732,53 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 			Node<K, V> z = new Node<K, V>(k, v, null);
 			basepred.next = z;
 			basepred = z;
+			counter.increment();
+			if (j > 0) {
+				Index<K, V> idx = null;
+				for (int i = 1; i <= j; ++i) {
+					idx = new Index<K, V>(z, idx, null);
+					if (i > h.level)
+						h = new HeadIndex<K, V>(h.node, h, idx, i);
+
+					if (i < preds.size()) {
+						preds.get(i).right = idx;
+						preds.set(i, idx);
+					} else
+						preds.add(idx);
+				}
+			}
+		}
+		head = h;
+	}
+
+	/**
+	 * Streamlined bulk insertion of sorted integer keys, each mapped to
+	 * itself, as done by buildFromSorted. The map is cleared first.
+	 */
+	@SuppressWarnings("unchecked")
+	public void bulkLoad(int[] sortedKeys) {
+		initialize();
+		HeadIndex<K, V> h = head;
+		Node<K, V> basepred = h.node;
+
+		ArrayList<Index<K, V>> preds = new ArrayList<Index<K, V>>();
+		for (int i = 0; i <= h.level; ++i)
+			preds.add(null);
+		Index<K, V> q = h;
+		for (int i = h.level; i > 0; --i) {
+			preds.set(i, q);
+			q = q.down;
+		}
+
+		for (int key : sortedKeys) {
+			int j = randomLevel();
+			if (j > h.level)
+				j = h.level + 1;
+			Integer k = key;
+			Node<K, V> z = new Node<K, V>((K) k, k, null);
+			basepred.next = z;
+			basepred = z;
+			counter.increment();
 			if (j > 0) {
 				Index<K, V> idx = null;
 				for (int i = 1; i <= j; ++i) {
@@ -1721,6 +1868,7 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 			Node<K, V> z = new Node<K, V>(key, val, null);
 			basepred.next = z;
 			basepred = z;
+			counter.increment();
 			if (j > 0) {
 				Index<K, V> idx = null;
 				for (int i = 1; i <= j; ++i) {
@@ -1867,6 +2015,18 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 		return (count >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) count;
 	}
 
+	/**
+	 * Returns the number of key-value mappings counted by the insertions and
+	 * removals, in constant time, without traversing the map as
+	 * {@link #size} does. The result is exact unless the map is being
+	 * modified.
+	 * 
+	 * @return the number of elements in this map
+	 */
+	public int approximateSize() {
+		return counter.size();
+	}
+
 	/**
 	 * Returns <tt>true</tt> if this map contains no key-value mappings.
 	 * 
@@ -2044,6 +2204,49 @@ public class NonBlockingJavaSkipListMap<K, V> extends AbstractMap<K, V>
 		return doPut(key, value, true);
 	}
 
+	/**
+	 * Inserts the keys of the sorted batch, the search of each key resuming
+	 * from the index nodes preceding the previous one
+	 */
+	public int putIfAbsentBatch(K[] keys, V[] values) {
+		Finger<K, V> finger = new Finger<K, V>();
+		int count = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (values[i] == null)
+				throw new NullPointerException();
+			if (doPut(keys[i], values[i], true, finger) == null)
+				count++;
+		}
+		return count;
+	}
+
+	public int removeBatch(K[] keys) {
+		Finger<K, V> finger = new Finger<K, V>();
+		int count = 0;
+		for (int i = 0; i < keys.length; i++)
+			if (doRemove(keys[i], null, finger) != null)
+				count++;
+		return count;
+	}
+
+	public int getBatch(K[] keys, V[] values) {
+		Finger<K, V> finger = new Finger<K, V>();
+		int count = 0;
+		for (int i = 0; i < keys.length; i++) {
+			Comparable<? super K> key = comparable(keys[i]);
+			Node<K, V> n;
+			Object v;
+			do { // retry if the node found is being deleted
+				n = findNode(key, finger);
+				v = n == null ? null : n.value;
+			} while (n != null && v == null);
+			values[i] = (V) v;
+			if (v != null)
+				count++;
+		}
+		return count;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -0,0 +1,179 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The timestamped invocations and responses of the operations of a
+ * concurrent run on a set or a map.
+ *
+ * Each thread logs its operations into its own preallocated arrays, so that
+ * recording takes two clock reads and a few array writes per operation and
+ * no synchronization. The history is assembled once the threads are over.
+ *
+ * Sets and maps share one encoding: the state of a key is either ABSENT or
+ * its value, and the result of an operation is the state of the key it
+ * observed, e.g. add(k) returning true means it observed k as ABSENT. A set
+ * uses PRESENT as the value of its keys.
+ */
+public class History {
+    /** add for sets, putIfAbsent for maps */
+    public static final int ADD = 0;
+    /** remove for sets and maps */
+    public static final int REMOVE = 1;
+    /** contains for sets, get for maps */
+    public static final int GET = 2;
+    public static final String[] KINDS = {"add", "remove", "get"};
+
+    public static final long ABSENT = Long.MIN_VALUE;
+    public static final long PRESENT = 1;
+    /** The result of a pending operation, which may observe any state */
+    public static final long UNKNOWN = Long.MAX_VALUE;
+
+    /**
+     * An operation and its outcome
+     */
+    public static class Operation {
+        public final int thread, kind, key, value;
+        public final long result, invocation, response;
+
+        Operation(int thread, int kind, int key, int value, long result,
+                  long invocation, long response) {
+            this.thread = thread;
+            this.kind = kind;
+            this.key = key;
+            this.value = value;
+            this.result = result;
+            this.invocation = invocation;
+            this.response = response;
+        }
+
+        /**
+         * @return the operation as if it had not returned yet
+         */
+        public Operation pending() {
+            return new Operation(thread, kind, key, value, UNKNOWN,
+                    invocation, Long.MAX_VALUE);
+        }
+
+        public boolean isPending() {
+            return result == UNKNOWN;
+        }
+
+        /**
+         * @return true if the operation may have changed the state of its key
+         */
+        public boolean hasEffect() {
+            if (kind == GET)
+                return false;
+            if (isPending())
+                return true;
+            return kind == ADD ? result == ABSENT : result != ABSENT;
+        }
+
+        public String toString() {
+            return "T" + thread + " " + KINDS[kind] + "(" + key
+                    + (kind == ADD ? ", " + value : "") + ") -> "
+                    + (isPending() ? "pending" : state(result));
+        }
+    }
+
+    public static String state(long state) {
+        return state == ABSENT ? "absent" : Long.toString(state);
+    }
+
+    /**
+     * The operations of a thread, written by this thread only
+     */
+    public static class ThreadLog {
+        private final int thread;
+        private final int[] kinds, keys, values;
+        private final long[] results, invocations, responses;
+        private int size = 0;
+
+        ThreadLog(int thread, int capacity) {
+            this.thread = thread;
+            kinds = new int[capacity];
+            keys = new int[capacity];
+            values = new int[capacity];
+            results = new long[capacity];
+            invocations = new long[capacity];
+            responses = new long[capacity];
+        }
+
+        /**
+         * Log the invocation of an operation, right before calling it
+         */
+        public void invoke(int kind, int key, int value) {
+            kinds[size] = kind;
+            keys[size] = key;
+            values[size] = value;
+            invocations[size] = System.nanoTime();
+        }
+
+        /**
+         * Log the response of the last invoked operation
+         */
+        public void respond(long result) {
+            responses[size] = System.nanoTime();
+            results[size++] = result;
+        }
+    }
+
+    private final ThreadLog[] logs;
+    /** The state of each key before the run */
+    private final Map<Integer, Long> initial = new HashMap<>();
+
+    /**
+     * @param threads the number of threads
+     * @param capacity the maximum number of operations of each thread
+     */
+    public History(int threads, int capacity) {
+        logs = new ThreadLog[threads];
+        for (int thread = 0; thread < threads; thread++)
+            logs[thread] = new ThreadLog(thread, capacity);
+    }
+
+    public ThreadLog log(int thread) {
+        return logs[thread];
+    }
+
+    /**
+     * Set the state of a key before the run, ABSENT by default
+     */
+    public void setInitial(int key, long state) {
+        initial.put(key, state);
+    }
+
+    public long initial(int key) {
+        Long state = initial.get(key);
+        return state == null ? ABSENT : state;
+    }
+
+    /**
+     * @return the operations of the run, partitioned by key
+     */
+    public Map<Integer, List<Operation>> byKey() {
+        Map<Integer, List<Operation>> partitions = new HashMap<>();
+        for (ThreadLog log : logs) {
+            for (int i = 0; i < log.size; i++) {
+                List<Operation> partition = partitions.get(log.keys[i]);
+                if (partition == null)
+                    partitions.put(log.keys[i], partition = new ArrayList<>());
+                partition.add(new Operation(log.thread, log.kinds[i],
+                        log.keys[i], log.values[i], log.results[i],
+                        log.invocations[i], log.responses[i]));
+            }
+        }
+        return partitions;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ThreadLog log : logs)
+            size += log.size;
+        return size;
+    }
+}
@@ -0,0 +1,524 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import contention.abstractions.CompositionalIntSet;
+import contention.abstractions.MaintenanceAlg;
+
+/**
+ * Checks that a concurrent set or map is linearizable.
+ *
+ * Short runs of threads doing add, remove and contains (putIfAbsent, remove
+ * and get for maps) on a few keys are recorded as a History, then checked
+ * offline against the sequential specification. The state of each key only
+ * depends on the operations on this key, so each key is checked on its own
+ * (P-compositionality), with the Wing-Gong search and the memoization of
+ * the (linearized operations, state) pairs already explored proposed by
+ * Lowe. A non-linearizable history is shrunk to a small subset of its
+ * operations that is still not linearizable before being printed.
+ *
+ * Usage: java testing.LinearizabilityChecker class [threads] [ops-per-thread]
+ * [keys] [rounds]
+ */
+public class LinearizabilityChecker {
+
+    /**
+     * The operations of a set or a map, returning the state of the key they
+     * observed, as encoded by History
+     */
+    interface Target {
+        long add(int key, int value);
+
+        long remove(int key);
+
+        long get(int key);
+    }
+
+    /* ---------------- Sequential specification -------------- */
+
+    /**
+     * @return the state of a key after op, given its state before
+     */
+    static long apply(long state, History.Operation op) {
+        switch (op.kind) {
+            case History.ADD:
+                return state == History.ABSENT ? op.value : state;
+            case History.REMOVE:
+                return History.ABSENT;
+            default:
+                return state;
+        }
+    }
+
+    /**
+     * @return true if op is legal in a state, i.e. it observes this state
+     */
+    static boolean isLegal(long state, History.Operation op) {
+        return op.result == state || op.isPending();
+    }
+
+    /* ---------------- Search -------------- */
+
+    /**
+     * A call or a return of the history, in a doubly linked list ordered by
+     * time
+     */
+    private static class Entry {
+        final int id;
+        final boolean call;
+        final long time;
+        Entry match, prev, next;
+
+        Entry(int id, boolean call, long time) {
+            this.id = id;
+            this.call = call;
+            this.time = time;
+        }
+
+        /** Remove the call and its return from the list */
+        void lift() {
+            prev.next = next;
+            next.prev = prev;
+            match.prev.next = match.next;
+            if (match.next != null)
+                match.next.prev = match.prev;
+        }
+
+        /** Put the call and its return back in the list */
+        void unlift() {
+            match.prev.next = match;
+            if (match.next != null)
+                match.next.prev = match;
+            prev.next = this;
+            next.prev = this;
+        }
+    }
+
+    /**
+     * A configuration already explored
+     */
+    private static class Configuration {
+        final BitSet linearized;
+        final long state;
+
+        Configuration(BitSet linearized, long state) {
+            this.linearized = linearized;
+            this.state = state;
+        }
+
+        public boolean equals(Object o) {
+            Configuration other = (Configuration) o;
+            return state == other.state && linearized.equals(other.linearized);
+        }
+
+        public int hashCode() {
+            return linearized.hashCode() * 31 + Long.hashCode(state);
+        }
+    }
+
+    /**
+     * Search for a linearization of the operations on one key
+     *
+     * @param ops the operations on the key, pending ones returning at the
+     *            end of the history with any result
+     * @param initial the state of the key before the operations
+     * @return true if the operations are linearizable
+     */
+    public static boolean isLinearizable(List<History.Operation> ops,
+                                         long initial) {
+        List<Entry> entries = new ArrayList<>(2 * ops.size());
+        for (int id = 0; id < ops.size(); id++) {
+            Entry call = new Entry(id, true, ops.get(id).invocation);
+            Entry ret = new Entry(id, false, ops.get(id).response);
+            call.match = ret;
+            entries.add(call);
+            entries.add(ret);
+        }
+        // a call precedes a return at the same time, making them concurrent
+        Collections.sort(entries, (a, b) -> a.time != b.time ? Long.compare(
+                a.time, b.time) : Boolean.compare(b.call, a.call));
+        Entry head = new Entry(-1, false, Long.MIN_VALUE);
+        Entry last = head;
+        for (Entry entry : entries) {
+            last.next = entry;
+            entry.prev = last;
+            last = entry;
+        }
+
+        BitSet linearized = new BitSet(ops.size());
+        Set<Configuration> explored = new HashSet<>();
+        List<Entry> calls = new ArrayList<>();
+        List<Long> states = new ArrayList<>();
+        long state = initial;
+        Entry entry = head.next;
+        while (head.next != null) {
+            if (entry.call) {
+                History.Operation op = ops.get(entry.id);
+                boolean linearize = false;
+                long next = 0;
+                if (isLegal(state, op)) {
+                    next = apply(state, op);
+                    BitSet candidate = (BitSet) linearized.clone();
+                    candidate.set(entry.id);
+                    linearize = explored.add(new Configuration(candidate, next));
+                }
+                if (linearize) {
+                    calls.add(entry);
+                    states.add(state);
+                    state = next;
+                    linearized.set(entry.id);
+                    entry.lift();
+                    entry = head.next;
+                } else {
+                    entry = entry.next;
+                }
+            } else {
+                // an operation returned before any order of the pending ones
+                // could be found, undo the last linearized operation
+                if (calls.isEmpty())
+                    return false;
+                entry = calls.remove(calls.size() - 1);
+                state = states.remove(states.size() - 1);
+                linearized.clear(entry.id);
+                entry.unlift();
+                entry = entry.next;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A non-linearizable history of a key, which may start from any of a few
+     * states
+     */
+    public static class Failure {
+        public final List<History.Operation> ops;
+        public final Set<Long> initials;
+
+        Failure(List<History.Operation> ops, Set<Long> initials) {
+            this.ops = ops;
+            this.initials = initials;
+        }
+    }
+
+    /**
+     * @return true if ops are linearizable from one of the initial states
+     */
+    static boolean isLinearizable(List<History.Operation> ops,
+                                  Set<Long> initials) {
+        for (long initial : initials)
+            if (isLinearizable(ops, initial))
+                return true;
+        return false;
+    }
+
+    /**
+     * Shrink a non-linearizable history of a key, only keeping histories
+     * whose non-linearizability implies that of the original one:
+     *
+     * 1. the history is cut at the earliest invocation time at which what
+     * precedes is not linearizable, the operations still running at that
+     * time becoming pending;
+     * 2. the history is cut at the latest instant at which no operation is
+     * running and from which what follows is not linearizable from any state
+     * the preceding operations may have left (the initial state, absent or
+     * a value they put);
+     * 3. operations that do not change the state (gets, failed updates) are
+     * removed, by chunks of decreasing sizes, as long as what remains is not
+     * linearizable.
+     *
+     * @param ops the operations of the key, not linearizable
+     * @param initial the state of the key before the operations
+     */
+    public static Failure shrink(List<History.Operation> ops, long initial) {
+        List<History.Operation> sorted = new ArrayList<>(ops);
+        Collections.sort(sorted, (a, b) -> Long.compare(a.invocation,
+                b.invocation));
+
+        // 1. the shortest non-linearizable prefix
+        int lo = 1, hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (isLinearizable(prefix(sorted, mid), initial))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        List<History.Operation> current = prefix(sorted, lo);
+        // the operations running at the cut-off become pending, which may
+        // make even the longest prefix linearizable
+        if (isLinearizable(current, initial))
+            current = sorted;
+
+        // 2. the shortest non-linearizable suffix after a quiescent instant
+        Set<Long> initials = new HashSet<>();
+        initials.add(initial);
+        long lastResponse = Long.MIN_VALUE;
+        List<Integer> cuts = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            if (i > 0 && lastResponse < current.get(i).invocation)
+                cuts.add(i);
+            lastResponse = Math.max(lastResponse, current.get(i).response);
+        }
+        for (int c = cuts.size() - 1; c >= 0; c--) {
+            int cut = cuts.get(c);
+            Set<Long> states = new HashSet<>();
+            states.add(initial);
+            states.add(History.ABSENT);
+            for (History.Operation op : current.subList(0, cut))
+                if (op.kind == History.ADD)
+                    states.add((long) op.value);
+            List<History.Operation> suffix = current.subList(cut,
+                    current.size());
+            if (!isLinearizable(suffix, states)) {
+                current = new ArrayList<>(suffix);
+                initials = states;
+                break;
+            }
+        }
+
+        // 3. no operation without effect that can be spared
+        int chunk = Math.max(1, current.size() / 2);
+        while (true) {
+            boolean removed = false;
+            for (int start = 0; start < current.size(); ) {
+                int end = Math.min(current.size(), start + chunk);
+                List<History.Operation> candidate = new ArrayList<>(current
+                        .subList(0, start));
+                boolean effect = false;
+                for (History.Operation op : current.subList(start, end))
+                    effect |= op.hasEffect();
+                candidate.addAll(current.subList(end, current.size()));
+                if (!effect && !candidate.isEmpty()
+                        && !isLinearizable(candidate, initials)) {
+                    current = candidate;
+                    removed = true;
+                } else {
+                    start += chunk;
+                }
+            }
+            if (!removed) {
+                if (chunk == 1)
+                    return new Failure(current, initials);
+                chunk /= 2;
+            }
+        }
+    }
+
+    /**
+     * @return the first length operations invoked, those still running
+     *         after the last invocation being pending
+     */
+    private static List<History.Operation> prefix(
+            List<History.Operation> sorted, int length) {
+        long end = sorted.get(length - 1).invocation;
+        List<History.Operation> prefix = new ArrayList<>(length);
+        for (History.Operation op : sorted.subList(0, length))
+            prefix.add(op.response > end ? op.pending() : op);
+        return prefix;
+    }
+
+    /* ---------------- Driver -------------- */
+
+    /**
+     * @return the operations of instance as a Target
+     */
+    @SuppressWarnings("unchecked")
+    static Target target(final Object instance) {
+        if (instance instanceof CompositionalIntSet) {
+            final CompositionalIntSet set = (CompositionalIntSet) instance;
+            return new Target() {
+                public long add(int key, int value) {
+                    return set.addInt(key) ? History.ABSENT : History.PRESENT;
+                }
+
+                public long remove(int key) {
+                    return set.removeInt(key) ? History.PRESENT : History.ABSENT;
+                }
+
+                public long get(int key) {
+                    return set.containsInt(key) ? History.PRESENT : History.ABSENT;
+                }
+            };
+        }
+        if (instance instanceof Map) {
+            final Map<Integer, Integer> map = (Map<Integer, Integer>) instance;
+            return new Target() {
+                public long add(int key, int value) {
+                    return state(map.putIfAbsent(key, value));
+                }
+
+                public long remove(int key) {
+                    return state(map.remove(key));
+                }
+
+                public long get(int key) {
+                    return state(map.get(key));
+                }
+            };
+        }
+        if (instance instanceof Set) {
+            final Set<Integer> set = (Set<Integer>) instance;
+            return new Target() {
+                public long add(int key, int value) {
+                    return set.add(key) ? History.ABSENT : History.PRESENT;
+                }
+
+                public long remove(int key) {
+                    return set.remove(key) ? History.PRESENT : History.ABSENT;
+                }
+
+                public long get(int key) {
+                    return set.contains(key) ? History.PRESENT : History.ABSENT;
+                }
+            };
+        }
+        throw new IllegalArgumentException(instance.getClass().getName()
+                + " is neither a set nor a map");
+    }
+
+    private static long state(Integer value) {
+        return value == null ? History.ABSENT : value;
+    }
+
+    /**
+     * Run the threads on a fresh instance and record their history
+     */
+    static History record(Class<?> clazz, final int threads, final int ops,
+                          final int keys, long seed) throws Exception {
+        Object instance = clazz.getDeclaredConstructor().newInstance();
+        final Target target = target(instance);
+        final History history = new History(threads, ops);
+        Random rnd = new Random(seed);
+        // half of the keys are present at the start
+        final boolean set = instance instanceof CompositionalIntSet
+                || !(instance instanceof Map);
+        for (int key = 0; key < keys; key++) {
+            if (rnd.nextBoolean()) {
+                int value = -key - 1;
+                target.add(key, value);
+                history.setInitial(key, set ? History.PRESENT : value);
+            }
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int thread = 0; thread < threads; thread++) {
+            final int threadId = thread;
+            final long threadSeed = rnd.nextLong();
+            workers[thread] = new Thread(() -> {
+                Random random = new Random(threadSeed);
+                History.ThreadLog log = history.log(threadId);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < ops && error.get() == null; i++) {
+                    int key = random.nextInt(keys);
+                    int coin = random.nextInt(10);
+                    try {
+                        if (coin < 3) {
+                            // distinct values tell which put a get observes
+                            int value = set ? (int) History.PRESENT : threadId
+                                    * ops + i + 1;
+                            log.invoke(History.ADD, key, value);
+                            log.respond(target.add(key, value));
+                        } else if (coin < 6) {
+                            log.invoke(History.REMOVE, key, 0);
+                            log.respond(target.remove(key));
+                        } else {
+                            log.invoke(History.GET, key, 0);
+                            log.respond(target.get(key));
+                        }
+                    } catch (RuntimeException e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+            workers[thread].start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        if (error.get() != null)
+            throw new IllegalStateException("An operation failed", error.get());
+        if (instance instanceof MaintenanceAlg) {
+            try {
+                ((MaintenanceAlg) instance).stopMaintenance();
+            } catch (RuntimeException e) {
+                // some structures compute statistics when stopping
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Check a history, printing the shrunk history of each key whose
+     * operations are not linearizable
+     *
+     * @return true if the history is linearizable
+     */
+    public static boolean check(History history) {
+        boolean linearizable = true;
+        for (Map.Entry<Integer, List<History.Operation>> partition : history
+                .byKey().entrySet()) {
+            long initial = history.initial(partition.getKey());
+            if (isLinearizable(partition.getValue(), initial))
+                continue;
+            linearizable = false;
+            Failure shrunk = shrink(partition.getValue(), initial);
+            StringBuilder states = new StringBuilder();
+            for (long state : shrunk.initials)
+                states.append(states.length() > 0 ? ", " : "").append(
+                        History.state(state));
+            System.err.println("Key " + partition.getKey() + " is not linearizable ("
+                    + partition.getValue().size() + " operations, shrunk to "
+                    + shrunk.ops.size() + "), starting from "
+                    + (shrunk.initials.size() > 1 ? "any of " : "") + states
+                    + ":");
+            long origin = shrunk.ops.get(0).invocation;
+            for (History.Operation op : shrunk.ops)
+                System.err.println("  [" + (op.invocation - origin) + ", "
+                        + (op.isPending() ? "..." : Long.toString(op.response
+                        - origin)) + "] ns\t" + op);
+        }
+        return linearizable;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Class<?> clazz = Class.forName(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int ops = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int keys = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+        for (int round = 1; round <= rounds; round++) {
+            History history;
+            try {
+                history = record(clazz, threads, ops, keys, round);
+            } catch (IllegalStateException e) {
+                System.err.println("Round " + round + ": " + e.getMessage());
+                e.getCause().printStackTrace();
+                System.exit(1);
+                return;
+            }
+            if (!check(history)) {
+                System.err.println("Round " + round + " is not linearizable.");
+                System.exit(1);
+            }
+            System.err.println(round + "-th history of " + history.size()
+                    + " operations is linearizable.");
+        }
+        // some structures leave maintenance threads running
+        System.exit(0);
+    }
+}
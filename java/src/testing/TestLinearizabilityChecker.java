@@ -0,0 +1,107 @@
+package testing;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks that LinearizabilityChecker rejects non-linearizable histories,
+ * both written by hand and recorded on a map whose putIfAbsent is a racy
+ * get followed by a put, that it shrinks them to histories it rejects too,
+ * and that it accepts linearizable ones.
+ *
+ * Usage: java testing.TestLinearizabilityChecker [rounds]
+ */
+public class TestLinearizabilityChecker {
+
+    /**
+     * A map whose putIfAbsent lets another thread insert the key between its
+     * lookup and its insertion, so that two of them may both succeed
+     */
+    public static class RacyMap extends ConcurrentHashMap<Integer, Integer> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Integer putIfAbsent(Integer key, Integer value) {
+            Integer old = get(key);
+            Thread.yield();
+            if (old == null) {
+                put(key, value);
+            }
+            return old;
+        }
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("Failed: " + message);
+            System.exit(1);
+        }
+    }
+
+    // Checks that the shrunk operations of every rejected key are rejected too
+    private static void expectShrunk(History history, String name) {
+        for (Map.Entry<Integer, List<History.Operation>> partition : history
+                .byKey().entrySet()) {
+            long initial = history.initial(partition.getKey());
+            if (LinearizabilityChecker.isLinearizable(partition.getValue(), initial)) {
+                continue;
+            }
+            LinearizabilityChecker.Failure shrunk = LinearizabilityChecker
+                    .shrink(partition.getValue(), initial);
+            expect(!LinearizabilityChecker.isLinearizable(shrunk.ops, shrunk.initials),
+                    "the shrunk history of " + name + " is linearizable: " + shrunk.ops);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        // two adds of the same key, one after the other, cannot both succeed
+        History history = new History(2, 1);
+        history.log(0).invoke(History.ADD, 0, (int) History.PRESENT);
+        history.log(0).respond(History.ABSENT);
+        history.log(1).invoke(History.ADD, 0, (int) History.PRESENT);
+        history.log(1).respond(History.ABSENT);
+        expect(!LinearizabilityChecker.check(history), "two successful adds");
+        expectShrunk(history, "two successful adds");
+
+        // nor can two overlapping ones, whose prefixes are all linearizable
+        history = new History(2, 1);
+        history.log(0).invoke(History.ADD, 0, (int) History.PRESENT);
+        history.log(1).invoke(History.ADD, 0, (int) History.PRESENT);
+        history.log(0).respond(History.ABSENT);
+        history.log(1).respond(History.ABSENT);
+        expect(!LinearizabilityChecker.check(history), "two overlapping successful adds");
+        expectShrunk(history, "two overlapping successful adds");
+
+        // a get cannot observe a value that was never put
+        history = new History(2, 1);
+        history.setInitial(0, 1);
+        history.log(0).invoke(History.REMOVE, 0, 0);
+        history.log(0).respond(1);
+        history.log(1).invoke(History.GET, 0, 0);
+        history.log(1).respond(1);
+        expect(!LinearizabilityChecker.check(history), "a get after a remove");
+        expectShrunk(history, "a get after a remove");
+
+        history = new History(2, 2);
+        history.log(0).invoke(History.ADD, 0, (int) History.PRESENT);
+        history.log(0).respond(History.ABSENT);
+        history.log(1).invoke(History.REMOVE, 0, 0);
+        history.log(1).respond(History.PRESENT);
+        history.log(0).invoke(History.ADD, 0, (int) History.PRESENT);
+        history.log(0).respond(History.ABSENT);
+        expect(LinearizabilityChecker.check(history), "an add, a remove and an add");
+
+        for (int round = 1; round <= rounds; round++) {
+            history = LinearizabilityChecker.record(RacyMap.class, 4, 1000, 2, round);
+            if (!LinearizabilityChecker.check(history)) {
+                expectShrunk(history, "the racy map");
+                System.err.println("The racy map was rejected in round " + round + ".");
+                System.exit(0);
+            }
+        }
+        expect(false, "the racy map was accepted in " + rounds + " rounds");
+    }
+}
@@ -0,0 +1,169 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import contention.abstractions.CompositionalIntSet;
+import contention.abstractions.CompositionalMap;
+import contention.abstractions.CompositionalSnapshot;
+import contention.abstractions.MaintenanceAlg;
+
+/**
+ * Checks that a snapshot holds the keys present when it was taken: after a
+ * sequential history, its size, iteration and range scans must match the
+ * expected keys, and the updates that follow must not show in it. Then checks
+ * that a snapshot is stable: its keys are read again and again while threads
+ * keep adding and removing keys, and every read must return the same keys, in
+ * ascending order and once each.
+ *
+ * Usage: java testing.TestSnapshot class [threads] [rounds] [keys]
+ */
+public class TestSnapshot {
+
+    private static List<Integer> read(CompositionalSnapshot.View<Integer, Integer> view) {
+        List<Integer> keys = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : view) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("Failed: " + message);
+            System.exit(1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        Class<?> clazz = Class.forName(args[0]);
+        int t = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int n = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        for (int round = 1; round <= rounds; round++) {
+            Object bench = clazz.getDeclaredConstructor().newInstance();
+            CompositionalSnapshot<Integer, Integer> structure = (CompositionalSnapshot<Integer, Integer>) bench;
+            for (int i = 0; i < n; i += 2) {
+                update(bench, i, true);
+            }
+            checkKnown(structure, bench, round, n);
+
+            final int seed = round;
+            final AtomicBoolean stop = new AtomicBoolean();
+            Thread[] threads = new Thread[t];
+            for (int thread = 0; thread < t; thread++) {
+                final int threadId = thread;
+                threads[thread] = new Thread(() -> {
+                    Random rnd = new Random(seed * 31 + threadId);
+                    while (!stop.get()) {
+                        update(bench, rnd.nextInt(n), rnd.nextBoolean());
+                    }
+                });
+                threads[thread].start();
+            }
+
+            try (CompositionalSnapshot.View<Integer, Integer> view = structure.snapshot()) {
+                List<Integer> first = read(view);
+                for (int i = 1; i < first.size(); i++) {
+                    expect(first.get(i - 1) < first.get(i), "the keys " + first
+                            + " are not ascending in round " + round);
+                }
+                for (int i = 0; i < 10; i++) {
+                    Thread.yield();
+                    List<Integer> again = read(view);
+                    expect(first.equals(again), "the snapshot read " + first
+                            + " then " + again + " in round " + round);
+                }
+                expect(view.size() == first.size(), "the snapshot counted "
+                        + view.size() + " keys but read " + first.size() + " in round " + round);
+            }
+
+            stop.set(true);
+            for (int thread = 0; thread < t; thread++) {
+                threads[thread].join();
+            }
+            if (bench instanceof MaintenanceAlg) {
+                ((MaintenanceAlg) bench).stopMaintenance();
+            }
+        }
+        System.err.println("The snapshots were exact and stable in " + rounds + " rounds.");
+        System.exit(0);
+    }
+
+    // Takes a snapshot after a sequential history, checks it against the
+    // expected keys, then checks that later updates do not show in it
+    private static void checkKnown(CompositionalSnapshot<Integer, Integer> structure,
+            Object bench, int round, int n) {
+        Random rnd = new Random(round);
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < n; i += 2) {
+            expected.add(i);
+        }
+        for (int i = 0; i < n; i++) {
+            int key = rnd.nextInt(n);
+            boolean add = rnd.nextBoolean();
+            update(bench, key, add);
+            if (add) {
+                expected.add(key);
+            } else {
+                expected.remove(key);
+            }
+        }
+
+        try (CompositionalSnapshot.View<Integer, Integer> view = structure.snapshot()) {
+            compare(view, expected, rnd, round, "taken");
+            for (int i = 0; i < n; i++) {
+                update(bench, rnd.nextInt(n), rnd.nextBoolean());
+            }
+            compare(view, expected, rnd, round, "updated after it was taken");
+        }
+
+        // Brings the structure back to the keys the stress phase starts from
+        for (int i = 0; i < n; i++) {
+            update(bench, i, i % 2 == 0);
+        }
+    }
+
+    private static void compare(CompositionalSnapshot.View<Integer, Integer> view,
+            TreeSet<Integer> expected, Random rnd, int round, String when) {
+        List<Integer> keys = read(view);
+        expect(keys.equals(new ArrayList<>(expected)), "the snapshot read " + keys
+                + " instead of " + expected + " once " + when + " in round " + round);
+        expect(view.size() == expected.size(), "the snapshot counted " + view.size()
+                + " keys instead of " + expected.size() + " once " + when + " in round " + round);
+        int n = expected.isEmpty() ? 1 : expected.last() + 2;
+        for (int i = 0; i < 4; i++) {
+            int from = rnd.nextInt(n);
+            int to = from + rnd.nextInt(n - from + 1);
+            int count = expected.subSet(from, to).size();
+            expect(view.rangeScan(from, to) == count, "the snapshot scanned "
+                    + view.rangeScan(from, to) + " keys in [" + from + ", " + to + ") instead of "
+                    + count + " once " + when + " in round " + round);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void update(Object bench, int key, boolean add) {
+        if (bench instanceof CompositionalIntSet) {
+            CompositionalIntSet set = (CompositionalIntSet) bench;
+            if (add) {
+                set.addInt(key);
+            } else {
+                set.removeInt(key);
+            }
+        } else {
+            CompositionalMap<Integer, Integer> map = (CompositionalMap<Integer, Integer>) bench;
+            if (add) {
+                map.putIfAbsent(key, key);
+            } else {
+                map.remove(key);
+            }
+        }
+    }
+}
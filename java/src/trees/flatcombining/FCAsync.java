@@ -0,0 +1,243 @@
+package trees.flatcombining;
+
+import trees.flatcombining.sequential.JoinableTreeMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static trees.flatcombining.FCTreeMap.OperationType.*;
+
+/**
+ * The asynchronous operations of a flat-combining tree.
+ *
+ * An operation is pushed on a list of pending requests and returns its
+ * future at once. The pending requests are drained in batches by a combiner,
+ * the next caller by default or a dedicated thread if the fc.async.combiner
+ * property is set, which holds the combiner lock of the tree for the whole
+ * batch: it sorts the batch by key, reads each key once, answers the
+ * requests of the key in the order they were issued, and applies the net
+ * insertions and removals in a single pass of splits and joins. The dedicated
+ * combiner stops once stop() is called and the pending requests are drained.
+ */
+abstract class FCAsync<K, V> {
+    private final static int TRIES = 3;
+
+    final static boolean DEDICATED = Boolean.getBoolean("fc.async.combiner");
+
+    private final AtomicReference<Request> pending = new AtomicReference<>();
+    private final AtomicBoolean combining = new AtomicBoolean();
+    private volatile Thread combiner;
+    private volatile boolean stopped;
+
+    class Request extends CompletableFuture<V> {
+        final FCTreeMap.OperationType type;
+        final K key;
+        final V value;
+        V result;
+        Request next;
+
+        Request(FCTreeMap.OperationType type, K key, V value) {
+            this.type = type;
+            this.key = key;
+            this.value = value;
+        }
+
+        // The caller waiting for its request helps to drain it
+        private void help() {
+            while (!DEDICATED && !isDone()) {
+                combine();
+            }
+        }
+
+        @Override
+        public V join() {
+            help();
+            return super.join();
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            help();
+            return super.get();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!DEDICATED && !isDone() && System.nanoTime() < deadline) {
+                combine();
+            }
+            return super.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    abstract JoinableTreeMap<K, V> tree();
+
+    abstract Comparator<? super K> comparator();
+
+    // Takes the combiner lock of the tree, excluding its synchronous combiners
+    abstract void lock();
+
+    abstract void unlock();
+
+    public CompletableFuture<V> submit(FCTreeMap.OperationType type, K key, V value) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        Request request = new Request(type, key, value);
+        Request head;
+        do {
+            head = pending.get();
+            request.next = head;
+        } while (!pending.compareAndSet(head, request));
+        if (DEDICATED) {
+            if (head == null) { // The combiner may be parked on an empty list
+                LockSupport.unpark(combiner());
+            }
+        } else {
+            combine();
+        }
+        return request;
+    }
+
+    private Thread combiner() {
+        Thread thread = combiner;
+        if (thread == null) {
+            synchronized (this) {
+                if ((thread = combiner) == null) {
+                    thread = new Thread(() -> {
+                        while (true) {
+                            if (!drain()) {
+                                if (stopped) {
+                                    break;
+                                }
+                                LockSupport.park(this);
+                            }
+                        }
+                    }, "fc-async-combiner");
+                    thread.setDaemon(true);
+                    thread.start();
+                    combiner = thread;
+                }
+            }
+        }
+        return thread;
+    }
+
+    // Stops the dedicated combiner, which drains the pending requests first
+    void stop() {
+        stopped = true;
+        Thread thread = combiner;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // Drains a few batches unless another caller is combining. The requests
+    // still pending are drained by the next caller, or by their waiters
+    private void combine() {
+        if (pending.get() == null || !combining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int t = 0; t < TRIES && drain(); t++) {
+            }
+        } finally {
+            combining.set(false);
+        }
+    }
+
+    /**
+     * @return false if there was no pending request
+     */
+    @SuppressWarnings("unchecked")
+    private boolean drain() {
+        Request head = pending.getAndSet(null);
+        if (head == null) {
+            return false;
+        }
+        ArrayList<Request> batch = new ArrayList<>();
+        for (Request r = head; r != null; r = r.next) {
+            batch.add(r);
+        }
+        Collections.reverse(batch); // in the order of publication
+        Comparator<? super K> comparator = comparator();
+        try {
+            // stable, so that the requests of a key keep their order
+            batch.sort(comparator != null ? (a, b) -> comparator.compare(a.key, b.key)
+                    : (a, b) -> ((Comparable<? super K>) a.key).compareTo(b.key));
+            apply(batch);
+        } catch (Throwable e) {
+            // The batch is off the pending list: its waiters get the failure
+            for (Request r : batch) {
+                r.next = null;
+                r.completeExceptionally(e);
+            }
+            return true;
+        }
+        for (Request r : batch) {
+            r.next = null;
+            r.complete(r.result);
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void apply(ArrayList<Request> batch) {
+        Object[] inserted = new Object[batch.size()];
+        Object[] values = new Object[batch.size()];
+        Object[] removed = new Object[batch.size()];
+        int numInserted = 0;
+        int numRemoved = 0;
+        Comparator<? super K> comparator = comparator();
+        lock();
+        try {
+            JoinableTreeMap<K, V> tree = tree();
+            int i = 0;
+            while (i < batch.size()) {
+                K key = batch.get(i).key;
+                V first = tree.get(key);
+                V current = first;
+                for (; i < batch.size() && (comparator != null
+                        ? comparator.compare(key, batch.get(i).key)
+                        : ((Comparable<? super K>) key).compareTo(batch.get(i).key)) == 0; i++) {
+                    Request r = batch.get(i);
+                    r.result = current;
+                    if (r.type == INSERT && current == null) {
+                        current = r.value;
+                    } else if (r.type == DELETE) {
+                        current = null;
+                    }
+                }
+                if (current != first) {
+                    if (first != null) {
+                        removed[numRemoved++] = key;
+                    }
+                    if (current != null) {
+                        inserted[numInserted] = key;
+                        values[numInserted++] = current;
+                    }
+                }
+            }
+            if (numRemoved > 0) {
+                tree.removeAll((K[]) Arrays.copyOf(removed, numRemoved));
+            }
+            if (numInserted > 0) {
+                tree.insertAll((K[]) Arrays.copyOf(inserted, numInserted),
+                        (V[]) Arrays.copyOf(values, numInserted));
+            }
+        } finally {
+            unlock();
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package trees.flatcombining;
 
+import contention.abstractions.AsyncMap;
 import contention.abstractions.CompositionalMap;
 import contention.abstractions.MaintenanceAlg;
 import trees.flatcombining.sequential.JoinableTreeMap;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static trees.flatcombining.FCTreeMap.Status.*;
@@ -15,7 +17,7 @@ import static trees.flatcombining.FCTreeMap.OperationType.*;
  */
 @SuppressWarnings("ALL")
 public class FCTreeMap<K, V> extends AbstractMap<K, V>
-        implements CompositionalMap<K, V>, MaintenanceAlg {
+        implements CompositionalMap<K, V>, AsyncMap<K, V>, MaintenanceAlg {
     protected JoinableTreeMap<K, V> tree;
     private Comparator<? super K> comparator;
 
@@ -199,7 +201,7 @@ public class FCTreeMap<K, V> extends AbstractMap<K, V>
         fc.addRequest(request);
 
         while (request.leader || request.holdsRequest()) {
-            if (!leaderExists) { // If there is no leader
+            if (!leaderExists && batchWaiters.get() == 0) { // If there is no leader
                 if (fc.tryLock()) {
                     leaderExists = true;
                     request.leader = true;
@@ -219,6 +221,9 @@ public class FCTreeMap<K, V> extends AbstractMap<K, V>
 
                 // I'm the leader now and now perform operations TRIES times
                 for (int t = 0; t < TRIES; t++) {
+                    if (batchWaiters.get() > 0) { // Hand the lock over to the batch
+                        break;
+                    }
 //                    long start = System.currentTimeMillis();
                     FCRequest[] requests = fc.loadRequests();
 //                    System.err.println("Load requests " + (System.currentTimeMillis() - start));
@@ -483,12 +488,108 @@ public class FCTreeMap<K, V> extends AbstractMap<K, V>
         return get(key) != null;
     }
 
+    private final FCAsync<K, V> async = new FCAsync<K, V>() {
+        JoinableTreeMap<K, V> tree() {
+            return tree;
+        }
+
+        Comparator<? super K> comparator() {
+            return comparator;
+        }
+
+        void lock() {
+            lockBatch();
+        }
+
+        void unlock() {
+            unlockBatch();
+        }
+    };
+
+    /**
+     * Publishes the request and returns, the request being applied with the
+     * other pending ones in a batch under the combiner lock
+     */
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        return async.submit(FCTreeMap.OperationType.CONTAINS, key, null);
+    }
+
+    @Override
+    public CompletableFuture<V> putIfAbsentAsync(K key, V value) {
+        return async.submit(FCTreeMap.OperationType.INSERT, key, value);
+    }
+
+    @Override
+    public CompletableFuture<V> removeAsync(K key) {
+        return async.submit(FCTreeMap.OperationType.DELETE, key, null);
+    }
+
+    // The batches waiting for the combiner lock, to which the leaders hand it over
+    private final AtomicInteger batchWaiters = new AtomicInteger();
+
+    // Waits for the combiner lock to be free and keeps it for the whole batch
+    private void lockBatch() {
+        batchWaiters.incrementAndGet();
+        while (leaderExists || !fc.tryLock()) {
+            Thread.yield();
+        }
+        leaderExists = true;
+        batchWaiters.decrementAndGet();
+    }
+
+    private void unlockBatch() {
+        leaderExists = false;
+        fc.unlock();
+    }
+
+    /**
+     * Applies the sorted batch atomically, in a single pass of splits and
+     * joins over the tree instead of a combining round per key
+     */
+    @Override
+    public int putIfAbsentBatch(K[] keys, V[] values) {
+        lockBatch();
+        try {
+            return tree.insertAll(keys, values);
+        } finally {
+            unlockBatch();
+        }
+    }
+
+    @Override
+    public int removeBatch(K[] keys) {
+        lockBatch();
+        try {
+            return tree.removeAll(keys);
+        } finally {
+            unlockBatch();
+        }
+    }
+
+    @Override
+    public int getBatch(K[] keys, V[] values) {
+        int count = 0;
+        lockBatch();
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                if ((values[i] = tree.get(keys[i])) != null) {
+                    count++;
+                }
+            }
+        } finally {
+            unlockBatch();
+        }
+        return count;
+    }
+
     @Override
     public Set<java.util.Map.Entry<K, V>> entrySet() {
         throw new AssertionError("EntrySet is not supported");
     }
 
     public boolean stopMaintenance() {
+        async.stop();
         System.err.println("Depth: " + tree.depth());
         return true;
     }
@@ -143,6 +143,62 @@ public abstract class JoinableTreeMap<K, V> {
         root = join2(result.l, result.r);
     }
 
+    private int batchCount;
+
+    // keys are sorted, merges them into the tree by splitting it at the middle key of the batch
+    public int insertAll(K[] keys, V[] values) {
+        batchCount = 0;
+        root = insertAll(root, keys, values, 0, keys.length);
+        return batchCount;
+    }
+
+    private Node insertAll(Node t, K[] keys, V[] values, int from, int to) {
+        if (from == to) {
+            return t;
+        }
+        int mid = (from + to) >>> 1;
+        Comparable<? super K> key = comparable(keys[mid]);
+        // the duplicates of the middle key go with it
+        int lo = mid;
+        while (lo > from && key.compareTo(keys[lo - 1]) == 0) {
+            lo--;
+        }
+        int hi = mid + 1;
+        while (hi < to && key.compareTo(keys[hi]) == 0) {
+            hi++;
+        }
+        Result result = split(t, key);
+        Node m = result.m;
+        if (m == null) {
+            m = createNode(keys[mid], values[mid]);
+            batchCount++;
+        }
+        Node l = insertAll(result.l, keys, values, from, lo);
+        Node r = insertAll(result.r, keys, values, hi, to);
+        return join(l, m, r);
+    }
+
+    // keys are sorted, cuts them out of the tree by splitting it at the middle key of the batch
+    public int removeAll(K[] keys) {
+        batchCount = 0;
+        root = removeAll(root, keys, 0, keys.length);
+        return batchCount;
+    }
+
+    private Node removeAll(Node t, K[] keys, int from, int to) {
+        if (from == to || t == null) {
+            return t;
+        }
+        int mid = (from + to) >>> 1;
+        Result result = split(t, comparable(keys[mid]));
+        if (result.m != null) {
+            batchCount++;
+        }
+        Node l = removeAll(result.l, keys, from, mid);
+        Node r = removeAll(result.r, keys, mid + 1, to);
+        return join2(l, r);
+    }
+
     public void clear() {
         root = null;
     }
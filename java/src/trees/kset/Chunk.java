@@ -0,0 +1,37 @@
+package trees.kset;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A chunk of the k-ary trees, holding up to K keys no smaller than its
+ * minimum, the chunks being linked in ascending order of their minimum.
+ */
+interface Chunk {
+    int min();
+
+    boolean deleted();
+
+    AtomicIntegerArray values();
+
+    Chunk succ();
+
+    /**
+     * Counts the keys lying in [from, to) from the chunk covering from on
+     */
+    static int rangeScan(Chunk curr, int from, int to) {
+        int count = 0;
+        while (curr != null && curr.min() < to) {
+            if (!curr.deleted()) {
+                AtomicIntegerArray values = curr.values();
+                for (int i = 0; i < values.length(); i++) {
+                    int value = values.get(i);
+                    if (from <= value && value < to) {
+                        count++;
+                    }
+                }
+            }
+            curr = curr.succ();
+        }
+        return count;
+    }
+}
@@ -1,7 +1,9 @@
 package trees.kset;
 
 import contention.abstractions.AbstractCompositionalIntSet;
+import contention.abstractions.ApproximateSize;
 import contention.abstractions.MaintenanceAlg;
+import contention.abstractions.SizeCounter;
 
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicIntegerArray;
@@ -12,12 +14,12 @@ import java.util.concurrent.locks.ReentrantLock;
  * Date: 23.10.2018
  * Time: 12:38
  */
-public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg {
+public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg, ApproximateSize {
     public static final int K = 32;
 
     public static final int EMPTY = Integer.MIN_VALUE + 1;
 
-    public class Node {
+    public class Node implements Chunk {
         ReentrantLock treeLock = new ReentrantLock();
         volatile Node l;
         volatile Node r;
@@ -37,10 +39,39 @@ public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg
                 values.set(i, EMPTY);
             }
         }
+
+        public int min() {
+            return min;
+        }
+
+        public boolean deleted() {
+            return deleted;
+        }
+
+        public AtomicIntegerArray values() {
+            return values;
+        }
+
+        public Node succ() {
+            return succ;
+        }
+
+        // Sets a slot under the lock, counting the keys
+        void set(int slot, int value) {
+            int old = values.get(slot);
+            values.set(slot, value);
+            if (old == EMPTY) {
+                counter.increment();
+            } else if (value == EMPTY) {
+                counter.decrement();
+            }
+        }
     }
 
     Node root;
 
+    private final SizeCounter counter = new SizeCounter();
+
     public Node traverse(int v) {
         Node curr = root;
         Node last = null;
@@ -109,7 +140,7 @@ public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg
         }
 
         if (emptySlot != -1) {
-            curr.values.set(emptySlot, v);
+            curr.set(emptySlot, v);
             curr.lock.unlock();
 //            System.err.println(toString());
             return true;
@@ -142,7 +173,7 @@ public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg
         }
 
         if (copy[m] > v) {
-            newNode.values.set(m, v);
+            newNode.set(m, v);
         }
 
         newNode.min = copy[0];
@@ -162,7 +193,7 @@ public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg
         if (curr.min < v) {
             for (int i = 0; i < K; i++) {
                 if (curr.values.get(i) == EMPTY) {
-                    curr.values.set(i, v);
+                    curr.set(i, v);
                     break;
                 }
             }
@@ -223,7 +254,7 @@ public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg
         for (int i = 0; i < K; i++) {
             int value = curr.values.get(i);
             if (value == v) {
-                curr.values.set(i, EMPTY);
+                curr.set(i, EMPTY);
                 found = true;
             } else {
                 if (value != EMPTY) {
@@ -399,6 +430,10 @@ public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg
         }
     }
 
+    public int rangeScanInt(int from, int to) {
+        return Chunk.rangeScan(adjustToLeft(from, traverse(from)), from, to);
+    }
+
     public int size() {
         Node curr = root;
         int total = 0;
@@ -413,7 +448,12 @@ public class KSet extends AbstractCompositionalIntSet implements MaintenanceAlg
         return total - 1;
     }
 
+    public int approximateSize() {
+        return counter.size();
+    }
+
     public void clear() {
+        counter.clear();
         root = new Node();
         root.values.set(0, Integer.MIN_VALUE);
         root.min = Integer.MIN_VALUE;
@@ -1,7 +1,9 @@
 package trees.kset;
 
 import contention.abstractions.AbstractCompositionalIntSet;
+import contention.abstractions.ApproximateSize;
 import contention.abstractions.MaintenanceAlg;
+import contention.abstractions.SizeCounter;
 
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicIntegerArray;
@@ -12,12 +14,15 @@ import java.util.concurrent.locks.ReentrantLock;
  * Date: 23.10.2018
  * Time: 12:38
  */
-public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceAlg {
+public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceAlg, ApproximateSize {
     public static final int K = 32;
 
     public static final int EMPTY = Integer.MIN_VALUE + 1;
 
-    public class Node {
+    // How many chunks a sorted batch walks before traversing from the root again
+    public static final int BATCH_HOPS = 8;
+
+    public class Node implements Chunk {
         ReentrantLock treeLock = new ReentrantLock();
         volatile Node l;
         volatile Node r;
@@ -40,6 +45,32 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
             }
         }
 
+        public int min() {
+            return min;
+        }
+
+        public boolean deleted() {
+            return deleted;
+        }
+
+        public AtomicIntegerArray values() {
+            return values;
+        }
+
+        public Node succ() {
+            return succ;
+        }
+
+        // Sets a slot under the lock, counting the keys
+        void set(int slot, int value) {
+            int old = values.get(slot);
+            values.set(slot, value);
+            if (old == EMPTY) {
+                counter.increment();
+            } else if (value == EMPTY) {
+                counter.decrement();
+            }
+        }
         public int balance() {
             return rightHeight - leftHeight;
         }
@@ -47,6 +78,8 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
 
     Node root;
 
+    private final SizeCounter counter = new SizeCounter();
+
     public Node traverse(int v) {
         Node curr = root;
         Node last = null;
@@ -71,6 +104,21 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
         return curr;
     }
 
+    // The next key of a sorted batch usually lies in the chunk of the previous one or a close successor
+    public Node batchTraverse(int v, Node last) {
+        if (last == null) {
+            return traverse(v);
+        }
+        Node curr = last;
+        for (int hops = 0; curr.succ.min <= v; hops++) {
+            if (hops == BATCH_HOPS) {
+                return traverse(v);
+            }
+            curr = curr.succ;
+        }
+        return curr;
+    }
+
     public Node blockingAdjustment(int v, Node curr) {
         curr.lock.lock();
         while (curr.min > v || curr.deleted) {
@@ -310,7 +358,7 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
         }
 
         if (emptySlot != -1) {
-            curr.values.set(emptySlot, v);
+            curr.set(emptySlot, v);
             curr.lock.unlock();
 //            System.err.println(toString());
             return true;
@@ -345,7 +393,7 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
         }
 
         if (copy[m] > v) {
-            newNode.values.set(m, v);
+            newNode.set(m, v);
         }
 
         newNode.min = copy[0];
@@ -365,7 +413,7 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
         if (curr.min < v) {
             for (int i = 0; i < K; i++) {
                 if (curr.values.get(i) == EMPTY) {
-                    curr.values.set(i, v);
+                    curr.set(i, v);
                     break;
                 }
             }
@@ -434,7 +482,7 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
         for (int i = 0; i < K; i++) {
             int value = curr.values.get(i);
             if (value == v) {
-                curr.values.set(i, EMPTY);
+                curr.set(i, EMPTY);
                 found = true;
             } else {
                 if (value != EMPTY) {
@@ -607,9 +655,10 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
     }
 
     public boolean containsInt(int v) {
-        Node curr = traverse(v);
-        curr = adjustToLeft(v, curr);
+        return contains(v, adjustToLeft(v, traverse(v)));
+    }
 
+    private boolean contains(int v, Node curr) {
         while (true) {
             if (curr.min <= v) {
                 for (int i = 0; i < K; i++) {
@@ -625,6 +674,131 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
         }
     }
 
+    /**
+     * Adds the sorted keys chunk by chunk, locking each chunk once for all the
+     * keys it covers and splitting full chunks through addInt
+     */
+    public int addBatchInt(int[] xs) {
+        int count = 0;
+        Node last = null;
+        int i = 0;
+        while (i < xs.length) {
+            Node curr = batchTraverse(xs[i], last);
+            curr = adjustToLeft(xs[i], curr);
+            curr = blockingAdjustment(xs[i], curr);
+
+            // splitting or unlinking the successor locks curr, so the keys below its min stay in curr
+            int bound = curr.succ.min;
+            boolean full = false;
+            for (; i < xs.length && xs[i] < bound; i++) {
+                int v = xs[i];
+                int emptySlot = -1;
+                boolean found = false;
+                for (int j = 0; j < K; j++) {
+                    int value = curr.values.get(j);
+                    if (value == v) {
+                        found = true;
+                        break;
+                    }
+                    if (value == EMPTY) {
+                        emptySlot = j;
+                    }
+                }
+                if (found) {
+                    continue;
+                }
+                if (emptySlot == -1) {
+                    full = true;
+                    break;
+                }
+                curr.set(emptySlot, v);
+                count++;
+            }
+            curr.lock.unlock();
+
+            if (full) {
+                if (addInt(xs[i])) {
+                    count++;
+                }
+                i++;
+            }
+            last = curr;
+        }
+        return count;
+    }
+
+    /**
+     * Removes the sorted keys chunk by chunk, locking each chunk once for all
+     * the keys it covers and unlinking emptied chunks through removeInt
+     */
+    public int removeBatchInt(int[] xs) {
+        int count = 0;
+        Node last = null;
+        int i = 0;
+        while (i < xs.length) {
+            Node curr = batchTraverse(xs[i], last);
+            curr = adjustToLeft(xs[i], curr);
+            curr = blockingAdjustment(xs[i], curr);
+
+            int bound = curr.succ.min;
+            boolean emptied = false;
+            for (; i < xs.length && xs[i] < bound; i++) {
+                int v = xs[i];
+                int slot = -1;
+                int nonEmpty = 0;
+                int min = Integer.MAX_VALUE;
+                for (int j = 0; j < K; j++) {
+                    int value = curr.values.get(j);
+                    if (value == v) {
+                        slot = j;
+                    } else if (value != EMPTY) {
+                        min = Math.min(min, value);
+                        nonEmpty++;
+                    }
+                }
+                if (slot == -1) {
+                    continue;
+                }
+                if (nonEmpty == 0) {
+                    emptied = true;
+                    break;
+                }
+                curr.set(slot, EMPTY);
+                curr.min = min;
+                count++;
+            }
+            curr.lock.unlock();
+
+            if (emptied) {
+                if (removeInt(xs[i])) {
+                    count++;
+                }
+                i++;
+                last = null;
+            } else {
+                last = curr;
+            }
+        }
+        return count;
+    }
+
+    public int containsBatchInt(int[] xs) {
+        int count = 0;
+        Node last = null;
+        for (int i = 0; i < xs.length; i++) {
+            Node curr = adjustToLeft(xs[i], batchTraverse(xs[i], last));
+            if (contains(xs[i], curr)) {
+                count++;
+            }
+            last = curr.deleted ? null : curr;
+        }
+        return count;
+    }
+
+    public int rangeScanInt(int from, int to) {
+        return Chunk.rangeScan(adjustToLeft(from, traverse(from)), from, to);
+    }
+
     public int size() {
         Node curr = root;
         int total = 0;
@@ -639,7 +813,12 @@ public class KSetAVL extends AbstractCompositionalIntSet implements MaintenanceA
         return total - 1;
     }
 
+    public int approximateSize() {
+        return counter.size();
+    }
+
     public void clear() {
+        counter.clear();
         root = new Node();
         root.values.set(0, Integer.MIN_VALUE);
         root.min = Integer.MIN_VALUE;
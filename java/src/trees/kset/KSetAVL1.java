@@ -17,7 +17,7 @@ public class KSetAVL1 extends AbstractCompositionalIntSet implements Maintenance
 
     public static final int EMPTY = Integer.MIN_VALUE + 1;
 
-    public class Node {
+    public class Node implements Chunk {
         ReentrantLock treeLock = new ReentrantLock();
         volatile Node l;
         volatile Node r;
@@ -40,6 +40,22 @@ public class KSetAVL1 extends AbstractCompositionalIntSet implements Maintenance
             }
         }
 
+        public int min() {
+            return min;
+        }
+
+        public boolean deleted() {
+            return deleted;
+        }
+
+        public AtomicIntegerArray values() {
+            return values;
+        }
+
+        public Node succ() {
+            return succ;
+        }
+
         public int balance() {
             return rightHeight - leftHeight;
         }
@@ -623,6 +639,10 @@ public class KSetAVL1 extends AbstractCompositionalIntSet implements Maintenance
         }
     }
 
+    public int rangeScanInt(int from, int to) {
+        return Chunk.rangeScan(adjustToLeft(from, traverse(from)), from, to);
+    }
+
     public int size() {
         Node curr = root;
         int total = 0;
@@ -0,0 +1,1039 @@
+package trees.kset;
+
+import contention.abstractions.AbstractCompositionalIntSet;
+import contention.abstractions.ApproximateSize;
+import contention.abstractions.CompositionalSnapshot;
+import contention.abstractions.MaintenanceAlg;
+import contention.abstractions.SnapshotClock;
+import contention.abstractions.SnapshotClock.Version;
+import contention.abstractions.SizeCounter;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This variant of KSetAVL versions the slots and the links of its chunks, so as
+ * to take linearizable snapshots.
+ *
+ * User: Aksenov Vitaly
+ * Date: 23.10.2018
+ * Time: 12:38
+ */
+public class KSetAVLSnap extends AbstractCompositionalIntSet implements MaintenanceAlg,
+        CompositionalSnapshot<Integer, Integer>, ApproximateSize {
+    public static final int K = 32;
+
+    public static final int EMPTY = Integer.MIN_VALUE + 1;
+
+    // How many chunks a sorted batch walks before traversing from the root again
+    public static final int BATCH_HOPS = 8;
+
+    // A change of the values of a chunk, which the snapshots taken before it undo and only its update labels once applied
+    static final class Change {
+        final int slot;
+        final int old;
+        final int value;
+        // The values of the chunk before it was split, null for the change of a slot
+        final int[] split;
+
+        Change(int slot, int old, int value, int[] split) {
+            this.slot = slot;
+            this.old = old;
+            this.value = value;
+            this.split = split;
+        }
+
+        void undo(int[] values) {
+            if (split != null) {
+                System.arraycopy(split, 0, values, 0, K);
+            } else {
+                values[slot] = old;
+            }
+        }
+    }
+
+    public class Node implements Chunk {
+        ReentrantLock treeLock = new ReentrantLock();
+        volatile Node l;
+        volatile Node r;
+        volatile Node p;
+        volatile int leftHeight;
+        volatile int rightHeight;
+
+        ReentrantLock lock = new ReentrantLock();
+        volatile Node prev;
+        volatile Node succ;
+
+        volatile int min;
+        AtomicIntegerArray values = new AtomicIntegerArray(K);
+
+        volatile boolean deleted = false;
+
+        // The changes of the values and the versions of succ, for the snapshots
+        volatile Version<Change> version;
+        volatile Version<Node> link;
+        // The split creating the chunk, null for the sentinels, and the link unlinking it
+        volatile Version<Change> born;
+        volatile Version<Node> gone;
+
+        public Node() {
+            for (int i = 0; i < K; i++) {
+                values.set(i, EMPTY);
+            }
+        }
+
+        public int min() {
+            return min;
+        }
+
+        public boolean deleted() {
+            return deleted;
+        }
+
+        public AtomicIntegerArray values() {
+            return values;
+        }
+
+        public Node succ() {
+            return succ;
+        }
+
+        // Sets a slot under the lock, keeping the former value for the older snapshots and counting the keys
+        void set(int slot, int value) {
+            int old = values.get(slot);
+            Version<Change> change = new Version<Change>(new Change(slot, old, value, null), version, true);
+            version = change;
+            values.set(slot, value);
+            change.label(clock);
+            clock.trim(change);
+            if (old == EMPTY) {
+                counter.increment();
+            } else if (value == EMPTY) {
+                counter.decrement();
+            }
+        }
+
+        // Labels the last change of a slot once seen, so that the later snapshots see it too
+        void observe() {
+            Version<Change> last = version;
+            if (last != null && last.time() == SnapshotClock.PENDING && last.value.split == null
+                    && values.get(last.value.slot) == last.value.value) {
+                last.label(clock);
+            }
+        }
+
+        boolean linkedAt(long time) {
+            return (born == null || born.labeled(clock) <= time) && (gone == null || gone.labeled(clock) > time);
+        }
+
+        public int balance() {
+            return rightHeight - leftHeight;
+        }
+    }
+
+    Node root;
+
+    private final SnapshotClock clock = new SnapshotClock();
+
+    private final SizeCounter counter = new SizeCounter();
+
+    public Node traverse(int v) {
+        Node curr = root;
+        Node last = null;
+        while (curr != null) {
+            if (curr.min > v) {
+                curr = curr.l;
+            } else {
+                last = curr;
+                curr = curr.r;
+            }
+        }
+        return last;
+    }
+
+    public Node adjustToLeft(int v, Node curr) {
+        while (curr.min <= v || curr.deleted) {
+            curr = curr.succ;
+        }
+        while (curr != null && curr.min > v) {
+            curr = curr.prev;
+        }
+        return curr;
+    }
+
+    // The next key of a sorted batch usually lies in the chunk of the previous one or a close successor
+    public Node batchTraverse(int v, Node last) {
+        if (last == null) {
+            return traverse(v);
+        }
+        Node curr = last;
+        for (int hops = 0; curr.succ.min <= v; hops++) {
+            if (hops == BATCH_HOPS) {
+                return traverse(v);
+            }
+            curr = curr.succ;
+        }
+        return curr;
+    }
+
+    public Node blockingAdjustment(int v, Node curr) {
+        curr.lock.lock();
+        while (curr.min > v || curr.deleted) {
+            Node next = curr.prev;
+            next.lock.lock();
+            curr.lock.unlock();
+            curr = next;
+        }
+        assert !curr.deleted && curr.succ.min > v && curr.min <= v && !curr.succ.deleted;
+        return curr;
+    }
+
+    public void verify(Node node) {
+        assert !node.lock.isLocked();
+        if (node.l != null) {
+            assert node.l.p == node;
+            verify(node.l);
+        }
+        if (node.r != null) {
+            assert node.r.p == node;
+            verify(node.r);
+        }
+    }
+
+    private Node lockParent(Node node) {
+        while (!node.deleted) {
+            Node parent = node.p;
+            parent.treeLock.lock();
+            if (parent.deleted) {
+                parent.treeLock.unlock();
+                continue;
+            }
+            if (node.min < parent.min) {
+                if (parent.l != node) {
+                    parent.treeLock.unlock();
+                    continue;
+                }
+            } else {
+                if (parent.r != node) {
+                    parent.treeLock.unlock();
+                    continue;
+                }
+            }
+            return parent;
+        }
+        return null;
+    }
+
+    public void checkHeight(Node curr) {
+        assert curr.leftHeight == (curr.l == null ? 0 : Math.max(curr.l.leftHeight, curr.l.rightHeight) + 1);
+        assert curr.rightHeight == (curr.r == null ? 0 : Math.max(curr.r.leftHeight, curr.r.rightHeight) + 1);
+        assert curr.p == null || curr.p.l == curr || curr.p.r == curr;
+    }
+
+    public void allCheckHeight(Node curr) {
+        if (curr == null)
+            return;
+        checkHeight(curr);
+    }
+
+    public void recalcHeight(Node node, boolean isLeft) {
+        Node child = isLeft ? node.l : node.r;
+        if (isLeft) {
+            node.leftHeight = child == null ? 0 : Math.max(child.leftHeight, child.rightHeight) + 1;
+        } else {
+            node.rightHeight = child == null ? 0 : Math.max(child.leftHeight, child.rightHeight) + 1;
+        }
+    }
+
+    public void updateParent(Node parent, Node oldNode, Node newNode) {
+        if (oldNode.min < parent.min) {
+            parent.l = newNode;
+        } else {
+            parent.r = newNode;
+        }
+    }
+
+    public void rebalance(Node node) {
+        while (node != root) {
+            Node parent = lockParent(node);
+            if (parent == null) {
+                return;
+            }
+            node.treeLock.lock();
+            int balance = node.balance();
+            while (balance <= -2 || 2 <= balance) {
+                if (balance >= 2) {
+                    node.r.treeLock.lock();
+
+                    Node child = node.r;
+
+                    if (child.balance() >= 0) {
+                        if (child.l != null) {
+                            child.l.p = node;
+                        }
+                        node.r = child.l;
+                        node.p = child;
+                        child.l = node;
+                        child.p = parent;
+                        updateParent(parent, node, child);
+
+                        recalcHeight(node, false);
+                        recalcHeight(child, true);
+
+//                        checkHeight(node);
+//                        checkHeight(child);
+
+                        node.treeLock.unlock();
+                        node = child;
+                    } else {
+                        Node grandChild = child.l;
+                        grandChild.treeLock.lock();
+                        if (grandChild.l != null) {
+                            grandChild.l.p = node;
+                        }
+                        node.r = grandChild.l;
+                        if (grandChild.r != null) {
+                            grandChild.r.p = child;
+                        }
+                        child.l = grandChild.r;
+                        node.p = grandChild;
+                        grandChild.l = node;
+                        child.p = grandChild;
+                        grandChild.r = child;
+
+                        grandChild.p = parent;
+                        updateParent(parent, node, grandChild);
+
+                        recalcHeight(node, false);
+                        recalcHeight(child, true);
+                        recalcHeight(grandChild, true);
+                        recalcHeight(grandChild, false);
+//                        checkHeight(node);
+//                        checkHeight(child);
+//                        checkHeight(grandChild);
+
+                        child.treeLock.unlock();
+                        node.treeLock.unlock();
+                        node = grandChild;
+                    }
+                } else {
+                    node.l.treeLock.lock();
+
+                    Node child = node.l;
+
+                    if (child.balance() <= 0) {
+                        if (child.r != null) {
+                            child.r.p = node;
+                        }
+                        node.l = child.r;
+                        node.p = child;
+                        child.r = node;
+                        child.p = parent;
+                        updateParent(parent, node, child);
+
+                        recalcHeight(node, true);
+                        recalcHeight(child, false);
+
+//                        checkHeight(node);
+//                        checkHeight(child);
+
+                        node.treeLock.unlock();
+                        node = child;
+                    } else {
+                        Node grandChild = child.r;
+                        grandChild.treeLock.lock();
+                        if (grandChild.r != null) {
+                            grandChild.r.p = node;
+                        }
+                        node.l = grandChild.r;
+                        if (grandChild.l != null) {
+                            grandChild.l.p = child;
+                        }
+                        child.r = grandChild.l;
+                        node.p = grandChild;
+                        grandChild.r = node;
+                        child.p = grandChild;
+                        grandChild.l = child;
+
+                        grandChild.p = parent;
+                        updateParent(parent, node, grandChild);
+
+                        recalcHeight(node, true);
+                        recalcHeight(child, false);
+                        recalcHeight(grandChild, true);
+                        recalcHeight(grandChild, false);
+
+//                        checkHeight(node);
+//                        checkHeight(child);
+//                        checkHeight(grandChild);
+
+                        child.treeLock.unlock();
+                        node.treeLock.unlock();
+                        node = grandChild;
+                    }
+                }
+
+                balance = node.balance();
+            }
+
+            boolean left = node.min < parent.min;
+            int oldHeight = left ? parent.leftHeight : parent.rightHeight;
+            recalcHeight(parent, left);
+            int newHeight = left ? parent.leftHeight : parent.rightHeight;
+//            checkHeight(parent);
+
+            boolean stop = oldHeight == newHeight && Math.abs(parent.balance()) < 2;
+
+            Node oldNode = node;
+            node = parent;
+            oldNode.treeLock.unlock();
+            parent.treeLock.unlock();
+
+            if (stop) {
+                break;
+            }
+        }
+    }
+
+    public boolean addInt(int v) {
+//        System.err.println("Insert " + v);
+        Node curr = traverse(v);
+        curr = adjustToLeft(v, curr);
+        curr = blockingAdjustment(v, curr);
+
+        assert !curr.deleted;
+
+        int emptySlot = -1;
+        for (int i = 0; i < K; i++) {
+            if (curr.values.get(i) == v) {
+                curr.lock.unlock();
+                return false;
+            }
+            if (curr.values.get(i) == EMPTY) {
+                emptySlot = i;
+            }
+        }
+
+        if (emptySlot != -1) {
+            curr.set(emptySlot, v);
+            curr.lock.unlock();
+//            System.err.println(toString());
+            return true;
+        }
+
+//        System.err.println("Block insert");
+
+        counts.get().structMods++;
+
+        Node prev = curr.prev;
+        while (true) {
+            prev.lock.lock();
+            if (prev.deleted || prev.succ != curr) {
+                prev.lock.unlock();
+                prev = curr.prev;
+            } else {
+                break;
+            }
+        }
+        assert !prev.deleted;
+
+        int[] copy = new int[K];
+        for (int i = 0; i < K; i++) {
+            copy[i] = curr.values.get(i);
+        }
+        // The split moves the lower half of curr to newNode at once for the snapshots, v being added after
+        Version<Change> split = new Version<Change>(new Change(-1, 0, 0, copy.clone()), curr.version, true);
+        curr.version = split;
+        Arrays.sort(copy);
+        Node newNode = new Node();
+        newNode.lock.lock();
+        int m = copy.length / 2;
+        for (int i = 0; i < m; i++) {
+            newNode.values.set(i, copy[i]);
+        }
+
+        newNode.min = copy[0];
+        newNode.prev = prev;
+        newNode.succ = curr;
+        newNode.born = split;
+        newNode.link = new Version<Node>(curr, null, split);
+        prev.link = new Version<Node>(newNode, prev.link, split);
+
+        prev.succ = newNode;
+        curr.prev = newNode;
+
+        curr.min = copy[m];
+        for (int i = 0; i < K; i++) {
+            if (curr.values.get(i) < copy[m]) {
+                curr.values.set(i, EMPTY);
+            }
+        }
+        split.label(clock);
+        clock.trim(split);
+        clock.trim(prev.link);
+
+        if (copy[m] > v) {
+            newNode.set(m, v);
+        } else if (curr.min < v) {
+            for (int i = 0; i < K; i++) {
+                if (curr.values.get(i) == EMPTY) {
+                    curr.set(i, v);
+                    break;
+                }
+            }
+        }
+
+        Node parent = chooseParent(curr, prev);
+
+        if (parent.min > copy[0]) {
+            newNode.p = parent;
+            parent.l = newNode;
+            parent.leftHeight = 1;
+        } else {
+            assert parent.r == null;
+            newNode.p = parent;
+            parent.r = newNode;
+            parent.rightHeight = 1;
+        }
+
+//        checkHeight(parent);
+
+        parent.treeLock.unlock();
+
+        prev.lock.unlock();
+        newNode.lock.unlock();
+        curr.lock.unlock();
+
+        rebalance(parent);
+
+//        verify(root);
+//        System.err.println(toString());
+
+//        allCheckHeight(root);
+
+        return true;
+    }
+
+    public Node chooseParent(Node curr, Node prev) {
+        while (true) {
+            if (curr.l == null) {
+                curr.treeLock.lock();
+                if (curr.l != null) {
+                    curr.treeLock.unlock();
+                } else {
+                    return curr;
+                }
+            } else {
+                prev.treeLock.lock();
+                if (prev.r != null) {
+                    prev.treeLock.unlock();
+                } else {
+                    return prev;
+                }
+            }
+        }
+    }
+
+    public boolean removeInt(int v) {
+//        System.err.println("Remove " + v);
+        Node curr = traverse(v);
+        curr = adjustToLeft(v, curr);
+        curr = blockingAdjustment(v, curr);
+
+        int nonEmpty = 0;
+        boolean found = false;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < K; i++) {
+            int value = curr.values.get(i);
+            if (value == v) {
+                curr.set(i, EMPTY);
+                found = true;
+            } else {
+                if (value != EMPTY) {
+                    min = Math.min(min, value);
+                    nonEmpty++;
+                }
+            }
+        }
+        if (!found) {
+            curr.lock.unlock();
+            return false;
+        }
+
+        if (nonEmpty != 0) {
+            curr.min = min;
+            curr.lock.unlock();
+            return true;
+        }
+
+//        System.err.println("Block remove");
+
+        Node prev = curr.prev;
+        while (true) {
+            prev.lock.lock();
+            if (prev.deleted) {
+                prev.lock.unlock();
+                prev = curr.prev;
+            } else {
+                break;
+            }
+        }
+
+        Node parent = lockParent(curr);
+
+        assert curr.p == parent;
+
+        curr.treeLock.lock();
+
+//        if (curr.l != null) {
+//            curr.l.treeLock.lock();
+//        }
+        Node left = curr.l;
+        if (left != null) assert left.p == curr;
+//        if (curr.r != null) {
+//            curr.r.treeLock.lock();
+//        }
+        Node right = curr.r;
+        if (right != null) assert right.p == curr;
+
+        curr.deleted = true;
+
+        curr.gone = new Version<Node>(curr.succ, prev.link);
+        prev.link = curr.gone;
+        prev.succ = curr.succ;
+        curr.succ.prev = prev;
+        curr.gone.label(clock);
+        clock.trim(curr.gone);
+
+        Node toRebalance = null;
+
+        if (left == null || right == null) {
+            if (parent.l == curr) {
+                parent.l = left == null ? right : left;
+                recalcHeight(parent, true);
+            } else {
+                parent.r = left == null ? right : left;
+                recalcHeight(parent, false);
+            }
+            if (left != null) {
+                left.p = parent;
+            }
+            if (right != null) {
+                right.p = parent;
+            }
+//            if (left != null) {
+//                left.treeLock.unlock();
+//            }
+//            if (right != null) {
+//                right.treeLock.unlock();
+//            }
+
+            toRebalance = parent;
+//            checkHeight(parent);
+
+            curr.treeLock.unlock();
+            parent.treeLock.unlock();
+        } else {
+            Node sp = prev.p;
+//            while ((sp = prev.p) == null) {}
+            while (true) {
+                sp.treeLock.lock();
+                if ((sp.l != prev && sp.r != prev) || (sp.deleted && sp != curr)) {
+                    sp.treeLock.unlock();
+                    sp = prev.p;
+                } else {
+                    break;
+                }
+            }
+
+            prev.treeLock.lock();
+
+            Node sl = prev.l;
+//            if (sl != null && sl != curr) {
+//                sl.treeLock.lock();
+//            }
+            assert prev.r == null;
+
+            if (sp.l == prev) {
+                sp.l = sl;
+                recalcHeight(sp, true);
+            } else {
+                sp.r = sl;
+                recalcHeight(sp, false);
+            }
+            if (sl != null) {
+                sl.p = sp;
+            }
+
+            prev.l = curr.l;
+            prev.r = curr.r;
+            prev.p = curr.p;
+            prev.leftHeight = curr.leftHeight;
+            prev.rightHeight = curr.rightHeight;
+
+            if (parent.l == curr) {
+                parent.l = prev;
+            } else {
+                parent.r = prev;
+            }
+            if (curr.l != null) {
+                prev.l.p = prev;
+            }
+            if (curr.r != null) {
+                prev.r.p = prev;
+            }
+
+//            if (sl != null) {
+//                sl.treeLock.unlock();
+//            }
+            prev.treeLock.unlock();
+
+            toRebalance = sp;
+//            if (!sp.deleted) {
+//                checkHeight(sp);
+//            }
+//            checkHeight(parent);
+//            checkHeight(prev);
+
+            sp.treeLock.unlock();
+
+//            if (left != sp && left != sl) {
+//            left.treeLock.unlock();
+//            }
+//            if (right != sp) {
+//            right.treeLock.unlock();
+//            }
+//            if (curr != sp && curr != sl) {
+            curr.treeLock.unlock();
+//            }
+            parent.treeLock.unlock();
+        }
+
+        prev.lock.unlock();
+        curr.lock.unlock();
+
+//        verify(root);
+//        System.err.println(toString());
+
+        rebalance(toRebalance);
+
+//        allCheckHeight(root);
+
+        return true;
+    }
+
+    public boolean containsInt(int v) {
+        return contains(v, adjustToLeft(v, traverse(v)));
+    }
+
+    private boolean contains(int v, Node curr) {
+        while (true) {
+            if (curr.min <= v) {
+                for (int i = 0; i < K; i++) {
+                    if (curr.values.get(i) == v && !curr.deleted) {
+                        curr.observe();
+                        return true;
+                    }
+                }
+                if (curr.min <= v && !curr.deleted) {
+                    curr.observe();
+                    return false;
+                }
+            }
+            curr = curr.prev;
+        }
+    }
+
+    /**
+     * Adds the sorted keys chunk by chunk, locking each chunk once for all the
+     * keys it covers and splitting full chunks through addInt
+     */
+    public int addBatchInt(int[] xs) {
+        int count = 0;
+        Node last = null;
+        int i = 0;
+        while (i < xs.length) {
+            Node curr = batchTraverse(xs[i], last);
+            curr = adjustToLeft(xs[i], curr);
+            curr = blockingAdjustment(xs[i], curr);
+
+            // splitting or unlinking the successor locks curr, so the keys below its min stay in curr
+            int bound = curr.succ.min;
+            boolean full = false;
+            for (; i < xs.length && xs[i] < bound; i++) {
+                int v = xs[i];
+                int emptySlot = -1;
+                boolean found = false;
+                for (int j = 0; j < K; j++) {
+                    int value = curr.values.get(j);
+                    if (value == v) {
+                        found = true;
+                        break;
+                    }
+                    if (value == EMPTY) {
+                        emptySlot = j;
+                    }
+                }
+                if (found) {
+                    continue;
+                }
+                if (emptySlot == -1) {
+                    full = true;
+                    break;
+                }
+                curr.set(emptySlot, v);
+                count++;
+            }
+            curr.lock.unlock();
+
+            if (full) {
+                if (addInt(xs[i])) {
+                    count++;
+                }
+                i++;
+            }
+            last = curr;
+        }
+        return count;
+    }
+
+    /**
+     * Removes the sorted keys chunk by chunk, locking each chunk once for all
+     * the keys it covers and unlinking emptied chunks through removeInt
+     */
+    public int removeBatchInt(int[] xs) {
+        int count = 0;
+        Node last = null;
+        int i = 0;
+        while (i < xs.length) {
+            Node curr = batchTraverse(xs[i], last);
+            curr = adjustToLeft(xs[i], curr);
+            curr = blockingAdjustment(xs[i], curr);
+
+            int bound = curr.succ.min;
+            boolean emptied = false;
+            for (; i < xs.length && xs[i] < bound; i++) {
+                int v = xs[i];
+                int slot = -1;
+                int nonEmpty = 0;
+                int min = Integer.MAX_VALUE;
+                for (int j = 0; j < K; j++) {
+                    int value = curr.values.get(j);
+                    if (value == v) {
+                        slot = j;
+                    } else if (value != EMPTY) {
+                        min = Math.min(min, value);
+                        nonEmpty++;
+                    }
+                }
+                if (slot == -1) {
+                    continue;
+                }
+                if (nonEmpty == 0) {
+                    emptied = true;
+                    break;
+                }
+                curr.set(slot, EMPTY);
+                curr.min = min;
+                count++;
+            }
+            curr.lock.unlock();
+
+            if (emptied) {
+                if (removeInt(xs[i])) {
+                    count++;
+                }
+                i++;
+                last = null;
+            } else {
+                last = curr;
+            }
+        }
+        return count;
+    }
+
+    public int containsBatchInt(int[] xs) {
+        int count = 0;
+        Node last = null;
+        for (int i = 0; i < xs.length; i++) {
+            Node curr = adjustToLeft(xs[i], batchTraverse(xs[i], last));
+            if (contains(xs[i], curr)) {
+                count++;
+            }
+            last = curr.deleted ? null : curr;
+        }
+        return count;
+    }
+
+    /**
+     * Takes a snapshot reading the chunks linked at its time, each as its
+     * values less the changes made since.
+     */
+    @Override
+    public View<Integer, Integer> snapshot() {
+        return new SnapshotClock.View<Integer, Integer>(clock) {
+            @Override
+            protected Iterator<Map.Entry<Integer, Integer>> entries(Integer fromKey, Integer toKey) {
+                return new SnapshotIterator(fromKey == null ? EMPTY + 1 : fromKey,
+                        toKey == null ? Integer.MAX_VALUE : toKey, time);
+            }
+        };
+    }
+
+    // The values of a chunk at the time of a snapshot, read again if a change is pushed meanwhile
+    int[] valuesAt(Node node, long time, int[] values) {
+        Version<Change> version;
+        do {
+            version = node.version;
+            for (int i = 0; i < K; i++) {
+                values[i] = node.values.get(i);
+            }
+        } while (node.version != version);
+        for (; version != null && version.labeled(clock) > time; version = version.older()) {
+            version.value.undo(values);
+        }
+        return values;
+    }
+
+    // Iterates over the keys of a snapshot in [from, to) chunk by chunk, sorting the keys of each chunk
+    class SnapshotIterator implements Iterator<Map.Entry<Integer, Integer>> {
+        final int from;
+        final int to;
+        final long time;
+        final int[] values = new int[K];
+        final int[] keys = new int[K];
+        Node curr;
+        int count;
+        int next;
+        boolean last;
+
+        SnapshotIterator(int from, int to, long time) {
+            this.from = from;
+            this.to = to;
+            this.time = time;
+            curr = adjustToLeft(from, traverse(from));
+            while (!curr.linkedAt(time)) {
+                curr = curr.prev;
+            }
+            load();
+        }
+
+        void load() {
+            valuesAt(curr, time, values);
+            count = 0;
+            next = 0;
+            for (int i = 0; i < K; i++) {
+                int value = values[i];
+                if (value >= to) {
+                    // the keys of the next chunks are greater
+                    last = true;
+                } else if (value >= from && value > EMPTY) {
+                    keys[count++] = value;
+                }
+            }
+            Arrays.sort(keys, 0, count);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == count) {
+                Version<Node> link = curr.link == null ? null : curr.link.at(clock, time);
+                if (last || link == null) {
+                    return false;
+                }
+                curr = link.value;
+                load();
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<Integer, Integer> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int key = keys[next++];
+            return new AbstractMap.SimpleImmutableEntry<Integer, Integer>(key, key);
+        }
+    }
+
+    public int rangeScanInt(int from, int to) {
+        return Chunk.rangeScan(adjustToLeft(from, traverse(from)), from, to);
+    }
+
+    // Counts the keys of a snapshot, which unlike the traversal of the chunks is linearizable
+    public int size() {
+        try (View<Integer, Integer> view = snapshot()) {
+            return view.size();
+        }
+    }
+
+    public int approximateSize() {
+        return counter.size();
+    }
+
+    public void clear() {
+        counter.clear();
+        root = new Node();
+        root.values.set(0, Integer.MIN_VALUE);
+        root.min = Integer.MIN_VALUE;
+        root.rightHeight = 2;
+
+        Node mid = new Node();
+        mid.values.set(0, Integer.MIN_VALUE);
+        mid.min = Integer.MIN_VALUE;
+        mid.p = root;
+        root.r = mid;
+        root.succ = mid;
+        root.link = new Version<Node>(mid, 0L);
+        mid.prev = root;
+        mid.rightHeight = 1;
+
+        Node max = new Node();
+        max.values.set(0, Integer.MAX_VALUE);
+        max.min = Integer.MAX_VALUE;
+        max.p = mid;
+        mid.r = max;
+        mid.succ = max;
+        mid.link = new Version<Node>(max, 0L);
+        max.prev = mid;
+    }
+
+    public String toString() {
+        String res = "";
+        Node curr = root;
+        while (curr != null) {
+            res += (curr != root ? " -> " : "") + "(" + curr.min + "," + curr.values + "," + curr.lock.isLocked() + ")";
+            curr = curr.succ;
+        }
+        return res;
+    }
+
+    public KSetAVLSnap() {
+        clear();
+    }
+
+    public long getStructMods() {
+        return 0;
+    }
+
+    public int height(Node node) {
+        if (node == null)
+            return 0;
+        return Math.max(height(node.l), height(node.r)) + 1;
+    }
+
+    public boolean stopMaintenance() {
+        System.out.println("Height of the tree: " + height(root));
+        return true;
+    }
+
+    public int numNodes() {
+        return size();
+    }
+}
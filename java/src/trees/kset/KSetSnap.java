@@ -0,0 +1,671 @@
+package trees.kset;
+
+import contention.abstractions.AbstractCompositionalIntSet;
+import contention.abstractions.ApproximateSize;
+import contention.abstractions.CompositionalSnapshot;
+import contention.abstractions.MaintenanceAlg;
+import contention.abstractions.SnapshotClock;
+import contention.abstractions.SnapshotClock.Version;
+import contention.abstractions.SizeCounter;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This variant of KSet versions the slots and the links of its chunks, so as
+ * to take linearizable snapshots.
+ *
+ * User: Aksenov Vitaly
+ * Date: 23.10.2018
+ * Time: 12:38
+ */
+public class KSetSnap extends AbstractCompositionalIntSet implements MaintenanceAlg,
+        CompositionalSnapshot<Integer, Integer>, ApproximateSize {
+    public static final int K = 32;
+
+    public static final int EMPTY = Integer.MIN_VALUE + 1;
+
+    // A change of the values of a chunk, which the snapshots taken before it undo and only its update labels once applied
+    static final class Change {
+        final int slot;
+        final int old;
+        final int value;
+        // The values of the chunk before it was split, null for the change of a slot
+        final int[] split;
+
+        Change(int slot, int old, int value, int[] split) {
+            this.slot = slot;
+            this.old = old;
+            this.value = value;
+            this.split = split;
+        }
+
+        void undo(int[] values) {
+            if (split != null) {
+                System.arraycopy(split, 0, values, 0, K);
+            } else {
+                values[slot] = old;
+            }
+        }
+    }
+
+    public class Node implements Chunk {
+        ReentrantLock treeLock = new ReentrantLock();
+        volatile Node l;
+        volatile Node r;
+        volatile Node p;
+
+        ReentrantLock lock = new ReentrantLock();
+        volatile Node prev;
+        volatile Node succ;
+
+        volatile int min;
+        AtomicIntegerArray values = new AtomicIntegerArray(K);
+
+        volatile boolean deleted = false;
+
+        // The changes of the values and the versions of succ, for the snapshots
+        volatile Version<Change> version;
+        volatile Version<Node> link;
+        // The split creating the chunk, null for the sentinels, and the link unlinking it
+        volatile Version<Change> born;
+        volatile Version<Node> gone;
+
+        public Node() {
+            for (int i = 0; i < K; i++) {
+                values.set(i, EMPTY);
+            }
+        }
+
+        public int min() {
+            return min;
+        }
+
+        public boolean deleted() {
+            return deleted;
+        }
+
+        public AtomicIntegerArray values() {
+            return values;
+        }
+
+        public Node succ() {
+            return succ;
+        }
+
+        // Sets a slot under the lock, keeping the former value for the older snapshots and counting the keys
+        void set(int slot, int value) {
+            int old = values.get(slot);
+            Version<Change> change = new Version<Change>(new Change(slot, old, value, null), version, true);
+            version = change;
+            values.set(slot, value);
+            change.label(clock);
+            clock.trim(change);
+            if (old == EMPTY) {
+                counter.increment();
+            } else if (value == EMPTY) {
+                counter.decrement();
+            }
+        }
+
+        // Labels the last change of a slot once seen, so that the later snapshots see it too
+        void observe() {
+            Version<Change> last = version;
+            if (last != null && last.time() == SnapshotClock.PENDING && last.value.split == null
+                    && values.get(last.value.slot) == last.value.value) {
+                last.label(clock);
+            }
+        }
+
+        boolean linkedAt(long time) {
+            return (born == null || born.labeled(clock) <= time) && (gone == null || gone.labeled(clock) > time);
+        }
+    }
+
+    Node root;
+
+    private final SnapshotClock clock = new SnapshotClock();
+
+    private final SizeCounter counter = new SizeCounter();
+
+    public Node traverse(int v) {
+        Node curr = root;
+        Node last = null;
+        while (curr != null) {
+            if (curr.min > v) {
+                curr = curr.l;
+            } else {
+                last = curr;
+                curr = curr.r;
+            }
+        }
+        return last;
+    }
+
+    public Node adjustToLeft(int v, Node curr) {
+        while (curr.min <= v || curr.deleted) {
+            curr = curr.succ;
+        }
+        while (curr != null && curr.min > v) {
+            curr = curr.prev;
+        }
+        return curr;
+    }
+
+    public Node blockingAdjustment(int v, Node curr) {
+        curr.lock.lock();
+        while (curr.min > v || curr.deleted) {
+            Node next = curr.prev;
+            next.lock.lock();
+            curr.lock.unlock();
+            curr = next;
+        }
+        assert !curr.deleted && curr.succ.min > v && curr.min <= v && !curr.succ.deleted;
+        return curr;
+    }
+
+    public void verify(Node node) {
+        assert !node.lock.isLocked();
+        if (node.l != null) {
+            assert node.l.p == node;
+            verify(node.l);
+        }
+        if (node.r != null) {
+            assert node.r.p == node;
+            verify(node.r);
+        }
+    }
+
+    public boolean addInt(int v) {
+//        System.err.println("Insert " + v);
+        Node curr = traverse(v);
+        curr = adjustToLeft(v, curr);
+        curr = blockingAdjustment(v, curr);
+
+        assert !curr.deleted;
+
+        int emptySlot = -1;
+        for (int i = 0; i < K; i++) {
+            if (curr.values.get(i) == v) {
+                curr.lock.unlock();
+                return false;
+            }
+            if (curr.values.get(i) == EMPTY) {
+                emptySlot = i;
+            }
+        }
+
+        if (emptySlot != -1) {
+            curr.set(emptySlot, v);
+            curr.lock.unlock();
+//            System.err.println(toString());
+            return true;
+        }
+
+//        System.err.println("Block insert");
+
+        Node prev = curr.prev;
+        while (true) {
+            prev.lock.lock();
+            if (prev.deleted || prev.succ != curr) {
+                prev.lock.unlock();
+                prev = curr.prev;
+            } else {
+                break;
+            }
+        }
+        assert !prev.deleted;
+
+        int[] copy = new int[K];
+        for (int i = 0; i < K; i++){
+            copy[i] = curr.values.get(i);
+        }
+        // The split moves the lower half of curr to newNode at once for the snapshots, v being added after
+        Version<Change> split = new Version<Change>(new Change(-1, 0, 0, copy.clone()), curr.version, true);
+        curr.version = split;
+        Arrays.sort(copy);
+        Node newNode = new Node();
+        newNode.lock.lock();
+        int m = copy.length / 2;
+        for (int i = 0; i < m; i++) {
+            newNode.values.set(i, copy[i]);
+        }
+
+        newNode.min = copy[0];
+        newNode.prev = prev;
+        newNode.succ = curr;
+        newNode.born = split;
+        newNode.link = new Version<Node>(curr, null, split);
+        prev.link = new Version<Node>(newNode, prev.link, split);
+
+        prev.succ = newNode;
+        curr.prev = newNode;
+
+        curr.min = copy[m];
+        for (int i = 0; i < K; i++) {
+            if (curr.values.get(i) < copy[m]) {
+                curr.values.set(i, EMPTY);
+            }
+        }
+        split.label(clock);
+        clock.trim(split);
+        clock.trim(prev.link);
+
+        if (copy[m] > v) {
+            newNode.set(m, v);
+        } else if (curr.min < v) {
+            for (int i = 0; i < K; i++) {
+                if (curr.values.get(i) == EMPTY) {
+                    curr.set(i, v);
+                    break;
+                }
+            }
+        }
+
+        Node parent = chooseParent(curr, prev);
+
+        if (parent.min > copy[0]) {
+            newNode.p = parent;
+            parent.l = newNode;
+        } else {
+            assert parent.r == null;
+            newNode.p = parent;
+            parent.r = newNode;
+        }
+
+        parent.treeLock.unlock();
+
+        prev.lock.unlock();
+        newNode.lock.unlock();
+        curr.lock.unlock();
+
+//        verify(root);
+//        System.err.println(toString());
+
+        return true;
+    }
+
+    public Node chooseParent(Node curr, Node prev) {
+        while (true) {
+            if (curr.l == null) {
+                curr.treeLock.lock();
+                if (curr.l != null)  {
+                    curr.treeLock.unlock();
+                } else {
+                    return curr;
+                }
+            } else {
+                prev.treeLock.lock();
+                if (prev.r != null) {
+                    prev.treeLock.unlock();
+                } else {
+                    return prev;
+                }
+            }
+        }
+    }
+
+    public boolean removeInt(int v) {
+//        System.err.println("Remove " + v);
+        Node curr = traverse(v);
+        curr = adjustToLeft(v, curr);
+        curr = blockingAdjustment(v, curr);
+
+        int nonEmpty = 0;
+        boolean found = false;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < K; i++) {
+            int value = curr.values.get(i);
+            if (value == v) {
+                curr.set(i, EMPTY);
+                found = true;
+            } else {
+                if (value != EMPTY) {
+                    min = Math.min(min, value);
+                    nonEmpty++;
+                }
+            }
+        }
+        if (!found) {
+            curr.lock.unlock();
+            return false;
+        }
+
+        if (nonEmpty != 0) {
+            curr.min = min;
+            curr.lock.unlock();
+            return true;
+        }
+
+//        System.err.println("Block remove");
+
+        Node prev = curr.prev;
+        while (true) {
+            prev.lock.lock();
+            if (prev.deleted) {
+                prev.lock.unlock();
+                prev = curr.prev;
+            } else {
+                break;
+            }
+        }
+
+        Node parent = curr.p;
+        while (true) {
+            parent.treeLock.lock();
+            if ((parent.l != curr && parent.r != curr) || parent.deleted) {
+                parent.treeLock.unlock();
+                parent = curr.p;
+            } else {
+                break;
+            }
+        }
+
+        assert curr.p == parent;
+
+        curr.treeLock.lock();
+
+        if (curr.l != null) {
+            curr.l.treeLock.lock();
+        }
+        Node left = curr.l;
+        if (left != null) assert left.p == curr;
+        if (curr.r != null) {
+            curr.r.treeLock.lock();
+        }
+        Node right = curr.r;
+        if (right != null) assert right.p == curr;
+
+        curr.deleted = true;
+
+        curr.gone = new Version<Node>(curr.succ, prev.link);
+        prev.link = curr.gone;
+        prev.succ = curr.succ;
+        curr.succ.prev = prev;
+        curr.gone.label(clock);
+        clock.trim(curr.gone);
+
+        if (left == null || right == null) {
+            if (parent.l == curr) {
+                parent.l = left == null ? right : left;
+            } else {
+                parent.r = left == null ? right : left;
+            }
+            if (left != null) {
+                left.p = parent;
+            }
+            if (right != null) {
+                right.p = parent;
+            }
+            if (left != null) {
+                left.treeLock.unlock();
+            }
+            if (right != null) {
+                right.treeLock.unlock();
+            }
+            curr.treeLock.unlock();
+            parent.treeLock.unlock();
+        } else {
+            Node sp = prev.p;
+//            while ((sp = prev.p) == null) {}
+            while (true) {
+                sp.treeLock.lock();
+                if ((sp.l != prev && sp.r != prev) || (sp.deleted && sp != curr)) {
+                    sp.treeLock.unlock();
+                    sp = prev.p;
+                } else {
+                    break;
+                }
+            }
+
+            prev.treeLock.lock();
+
+            Node sl = prev.l;
+            if (sl != null && sl != curr) {
+                sl.treeLock.lock();
+            }
+            assert prev.r == null;
+
+            if (sp.l == prev) {
+                sp.l = sl;
+            } else {
+                sp.r = sl;
+            }
+            if (sl != null) {
+                sl.p = sp;
+            }
+
+            prev.l = curr.l;
+            prev.r = curr.r;
+            prev.p = curr.p;
+
+            if (parent.l == curr) {
+                parent.l = prev;
+            } else {
+                parent.r = prev;
+            }
+            if (curr.l != null) {
+                prev.l.p = prev;
+            }
+            if (curr.r != null) {
+                prev.r.p = prev;
+            }
+
+            if (sl != null) {
+                sl.treeLock.unlock();
+            }
+            prev.treeLock.unlock();
+            sp.treeLock.unlock();
+
+//            if (left != sp && left != sl) {
+                left.treeLock.unlock();
+//            }
+//            if (right != sp) {
+                right.treeLock.unlock();
+//            }
+//            if (curr != sp && curr != sl) {
+                curr.treeLock.unlock();
+//            }
+            parent.treeLock.unlock();
+        }
+
+        prev.lock.unlock();
+        curr.lock.unlock();
+
+//        verify(root);
+//        System.err.println(toString());
+
+        return true;
+    }
+
+    public boolean containsInt(int v) {
+        Node curr = traverse(v);
+        curr = adjustToLeft(v, curr);
+
+        while (true) {
+            if (curr.min <= v) {
+                for (int i = 0; i < K; i++) {
+                    if (curr.values.get(i) == v && !curr.deleted) {
+                        curr.observe();
+                        return true;
+                    }
+                }
+                if (curr.min <= v) {
+                    curr.observe();
+                    return false;
+                }
+            }
+            curr = curr.prev;
+        }
+    }
+
+    /**
+     * Takes a snapshot reading the chunks linked at its time, each as its
+     * values less the changes made since.
+     */
+    @Override
+    public View<Integer, Integer> snapshot() {
+        return new SnapshotClock.View<Integer, Integer>(clock) {
+            @Override
+            protected Iterator<Map.Entry<Integer, Integer>> entries(Integer fromKey, Integer toKey) {
+                return new SnapshotIterator(fromKey == null ? EMPTY + 1 : fromKey,
+                        toKey == null ? Integer.MAX_VALUE : toKey, time);
+            }
+        };
+    }
+
+    // The values of a chunk at the time of a snapshot, read again if a change is pushed meanwhile
+    int[] valuesAt(Node node, long time, int[] values) {
+        Version<Change> version;
+        do {
+            version = node.version;
+            for (int i = 0; i < K; i++) {
+                values[i] = node.values.get(i);
+            }
+        } while (node.version != version);
+        for (; version != null && version.labeled(clock) > time; version = version.older()) {
+            version.value.undo(values);
+        }
+        return values;
+    }
+
+    // Iterates over the keys of a snapshot in [from, to) chunk by chunk, sorting the keys of each chunk
+    class SnapshotIterator implements Iterator<Map.Entry<Integer, Integer>> {
+        final int from;
+        final int to;
+        final long time;
+        final int[] values = new int[K];
+        final int[] keys = new int[K];
+        Node curr;
+        int count;
+        int next;
+        boolean last;
+
+        SnapshotIterator(int from, int to, long time) {
+            this.from = from;
+            this.to = to;
+            this.time = time;
+            curr = adjustToLeft(from, traverse(from));
+            while (!curr.linkedAt(time)) {
+                curr = curr.prev;
+            }
+            load();
+        }
+
+        void load() {
+            valuesAt(curr, time, values);
+            count = 0;
+            next = 0;
+            for (int i = 0; i < K; i++) {
+                int value = values[i];
+                if (value >= to) {
+                    // the keys of the next chunks are greater
+                    last = true;
+                } else if (value >= from && value > EMPTY) {
+                    keys[count++] = value;
+                }
+            }
+            Arrays.sort(keys, 0, count);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == count) {
+                Version<Node> link = curr.link == null ? null : curr.link.at(clock, time);
+                if (last || link == null) {
+                    return false;
+                }
+                curr = link.value;
+                load();
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<Integer, Integer> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int key = keys[next++];
+            return new AbstractMap.SimpleImmutableEntry<Integer, Integer>(key, key);
+        }
+    }
+
+    public int rangeScanInt(int from, int to) {
+        return Chunk.rangeScan(adjustToLeft(from, traverse(from)), from, to);
+    }
+
+    // Counts the keys of a snapshot, which unlike the traversal of the chunks is linearizable
+    public int size() {
+        try (View<Integer, Integer> view = snapshot()) {
+            return view.size();
+        }
+    }
+
+    public int approximateSize() {
+        return counter.size();
+    }
+
+    public void clear() {
+        counter.clear();
+        root = new Node();
+        root.values.set(0, Integer.MIN_VALUE);
+        root.min = Integer.MIN_VALUE;
+
+        Node mid = new Node();
+        mid.values.set(0, Integer.MIN_VALUE);
+        mid.min = Integer.MIN_VALUE;
+        mid.p = root;
+        root.r = mid;
+        root.succ = mid;
+        root.link = new Version<Node>(mid, 0L);
+        mid.prev = root;
+
+        Node max = new Node();
+        max.values.set(0, Integer.MAX_VALUE);
+        max.min = Integer.MAX_VALUE;
+        max.p = mid;
+        mid.r = max;
+        mid.succ = max;
+        mid.link = new Version<Node>(max, 0L);
+        max.prev = mid;
+    }
+
+    public String toString() {
+        String res = "";
+        Node curr = root;
+        while (curr != null) {
+            res += (curr != root ? " -> " : "") + "(" + curr.min + "," + curr.values + "," + curr.lock.isLocked() + ")";
+            curr = curr.succ;
+        }
+        return res;
+    }
+
+    public KSetSnap() {
+        clear();
+    }
+
+    public long getStructMods() {
+        return 0;
+    }
+
+    public int height(Node node){
+        if (node == null)
+            return 0;
+        return Math.max(height(node.l), height(node.r)) + 1;
+    }
+
+    public boolean stopMaintenance() {
+        System.out.println("Height of the tree: " + height(root));
+        return true;
+    }
+
+    public int numNodes() {
+        return size();
+    }
+}
@@ -6,9 +6,13 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
+import contention.abstractions.ApproximateSize;
 import contention.abstractions.CompositionalMap;
 import contention.abstractions.CompositionalMap.Vars;
+import contention.abstractions.ContentionCounters;
+import contention.abstractions.ContentionProfiled;
 import contention.abstractions.MaintenanceAlg;
+import contention.abstractions.SizeCounter;
 
 /**
  * The contention-friendly tree implementation of map 
@@ -25,7 +29,8 @@ import contention.abstractions.MaintenanceAlg;
  */
 
 public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
-		CompositionalMap<K, V>, MaintenanceAlg {
+		CompositionalMap<K, V>, MaintenanceAlg, ContentionProfiled,
+		ApproximateSize {
 
 	static final boolean useFairLocks = false;
 	static final boolean allocateOutside = true;
@@ -133,6 +138,8 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 	private MaintenanceThread mainThd;
 	// used in the getSize function
 	int size;
+	// the number of entries, counted by the insertions and removals
+	private final SizeCounter counter = new SizeCounter();
 	private long structMods = 0;
 
 	// Constructors
@@ -180,6 +187,36 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 		return true;
 	}
 
+	/** The contention counters, null unless profiled */
+	private ContentionCounters counters = null;
+
+	public void setContentionCounters(ContentionCounters counters) {
+		this.counters = counters;
+	}
+
+	private void lock(Node<K, V> node) {
+		if (counters == null) {
+			node.lock.lock();
+		} else if (!node.lock.tryLock()) {
+			counters.add(ContentionCounters.LOCK_WAITS);
+			node.lock.lock();
+		}
+	}
+
+	/**
+	 * Unlock a node found removed once locked, before moving on
+	 */
+	private void unlockRemoved(Node<K, V> node) {
+		node.lock.unlock();
+		if (counters != null)
+			counters.add(ContentionCounters.RETRIES);
+	}
+
+	private void traversed(int nodesTraversed) {
+		if (counters != null)
+			counters.add(ContentionCounters.NODES_TRAVERSED, nodesTraversed);
+	}
+
 	void finishCount(int nodesTraversed) {
 		Vars vars = counts.get();
 		vars.getCount++;
@@ -204,6 +241,7 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 			}
 			if (rightCmp == 0) {
 				V value = current.value;
+				traversed(nodesTraversed);
 				if (value == DELETED) {
 					if (TRAVERSAL_COUNT) {
 						finishCount(nodesTraversed);
@@ -220,10 +258,9 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 			} else {
 				next = current.right;
 			}
-			if (TRAVERSAL_COUNT) {
-				nodesTraversed++;
-			}
+			nodesTraversed++;
 			if (next == null) {
+				traversed(nodesTraversed);
 				if (TRAVERSAL_COUNT) {
 					finishCount(nodesTraversed);
 				}
@@ -239,9 +276,11 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 		final Comparable<? super K> k = comparable(key);
 		int rightCmp;
 		V value;
+		int nodesTraversed = 0;
 
 		while (true) {
 			current = next;
+			nodesTraversed++;
 			if (current.key == null) {
 				rightCmp = -100;
 			} else {
@@ -249,13 +288,14 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 			}
 			if (rightCmp == 0) {
 				if (current.value == DELETED) {
+					traversed(nodesTraversed);
 					return null;
 				}
-				current.lock.lock();
+				lock(current);
 				if (!current.removed) {
 					break;
 				} else {
-					current.lock.unlock();
+					unlockRemoved(current);
 				}
 			}
 			if (rightCmp <= 0) {
@@ -265,6 +305,7 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 			}
 			if (next == null) {
 				if (rightCmp != 0) {
+					traversed(nodesTraversed);
 					return null;
 				}
 				// this only happens if node is removed, so you take the
@@ -274,6 +315,7 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 				next = current.right;
 			}
 		}
+		traversed(nodesTraversed);
 		value = current.value;
 		if (value == DELETED) {
 			current.lock.unlock();
@@ -281,6 +323,7 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 		} else {
 			current.value = DELETED;
 			current.lock.unlock();
+			counter.decrement();
 			// System.out.println("delete");
 			return value;
 		}
@@ -293,12 +336,12 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 		next = root;
 		final Comparable<? super K> k = comparable(key);
 		Node<K, V> n = null;
-		// int traversed = 0;
+		int nodesTraversed = 0;
 		V val;
 
 		while (true) {
 			current = next;
-			// traversed++;
+			nodesTraversed++;
 			if (current.key == null) {
 				rightCmp = -100;
 			} else {
@@ -307,14 +350,14 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 			if (rightCmp == 0) {
 				val = current.value;
 				if (val != DELETED) {
-					// System.out.println(traversed);
+					traversed(nodesTraversed);
 					return val;
 				}
-				current.lock.lock();
+				lock(current);
 				if (!current.removed) {
 					break;
 				} else {
-					current.lock.unlock();
+					unlockRemoved(current);
 				}
 			}
 			if (rightCmp <= 0) {
@@ -326,7 +369,7 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 				if (n == null && allocateOutside) {
 					n = new Node<K, V>(key, value);
 				}
-				current.lock.lock();
+				lock(current);
 				if (!current.removed) {
 					if (rightCmp <= 0) {
 						next = current.left;
@@ -339,7 +382,7 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 						current.lock.unlock();
 					}
 				} else {
-					current.lock.unlock();
+					unlockRemoved(current);
 					// maybe have to check if the other one is still null before
 					// going the opposite way?
 					// YES!! We do this!
@@ -358,11 +401,13 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 				}
 			}
 		}
+		traversed(nodesTraversed);
 		val = current.value;
 		if (rightCmp == 0) {
 			if (val == DELETED) {
 				current.value = value;
 				current.lock.unlock();
+				counter.increment();
 				// System.out.println("insert");
 				// System.out.println(traversed);
 				return null;
@@ -380,6 +425,7 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 				current.right = n;
 			}
 			current.lock.unlock();
+			counter.increment();
 			// System.out.println(traversed);
 			// System.out.println("insert");
 			return null;
@@ -805,6 +851,7 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 		this.vars.propogations = 0;
 		this.vars.rotations = 0;
 		root.left = null;
+		counter.clear();
 	}
 
 	@Override
@@ -812,6 +859,10 @@ public class LockBasedFriendlyTreeMap<K, V> extends AbstractMap<K, V> implements
 		return this.getSize();
 	}
 
+	public int approximateSize() {
+		return counter.size();
+	}
+
 	public long getStructMods() {
 		return structMods;
 	}
@@ -10,7 +10,9 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import contention.abstractions.ApproximateSize;
 import contention.abstractions.CompositionalMap;
+import contention.abstractions.SizeCounter;
 
 /**
  * Implementation of concurrent AVL tree based on the paper 
@@ -34,7 +36,7 @@ import contention.abstractions.CompositionalMap;
  * 
  * @author Dana Drachsler
  */
-public class LogicalOrderingAVL<K, V> extends AbstractMap<K,V> implements ConcurrentMap<K,V>, CompositionalMap<K, V> {
+public class LogicalOrderingAVL<K, V> extends AbstractMap<K,V> implements ConcurrentMap<K,V>, CompositionalMap<K, V>, ApproximateSize {
 
 	/** The tree's root */
 	private AVLMapNode<K,V> root;
@@ -45,6 +47,8 @@ public class LogicalOrderingAVL<K, V> extends AbstractMap<K,V> implements Concur
 	/** A constant object for the use of the {@code insert} method.  */
 	private final static Object EMPTY_ITEM = new Object();
 
+	/** The number of entries, counted by the insertions and removals */
+	private final SizeCounter counter = new SizeCounter();
 	
 	public LogicalOrderingAVL() {
 		AVLMapNode parent = new AVLMapNode(Integer.MIN_VALUE);
@@ -190,6 +194,47 @@ public class LogicalOrderingAVL<K, V> extends AbstractMap<K,V> implements Concur
 		} 
 		return (res == 0 && node.valid);
 	}
+
+	/**
+	 * Traverses the tree to the first node not smaller than {@code fromKey},
+	 * then follows the ordering layout through the successor links.
+	 * 
+	 * @see contention.abstractions.CompositionalMap#rangeScan(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	final public int rangeScan(final K fromKey, final K toKey) {
+		final Comparable<? super K> value = comparable(fromKey);
+		final Comparable<? super K> bound = comparable(toKey);
+
+		AVLMapNode<K,V> node = root;
+		AVLMapNode<K,V> child;
+		int res = -1;
+		while (true) {
+			if (res == 0) break;
+			if (res > 0) {
+				child = node.right;
+			} else {
+				child = node.left;
+			}
+			if (child == null) break;
+			node = child;
+			res = value.compareTo(node.key);
+		}
+		while (res < 0) {
+			node = node.pred;
+			res = value.compareTo(node.key);
+		}
+		while (res > 0) {
+			node = node.succ;
+			res = value.compareTo(node.key);
+		}
+		int count = 0;
+		while (node != root && bound.compareTo(node.key) > 0) {
+			if (node.valid) count++;
+			node = node.succ;
+		}
+		return count;
+	}
 	
 	/**
 	 * @see java.util.Map#put(java.lang.Object, java.lang.Object)
@@ -290,6 +335,7 @@ public class LogicalOrderingAVL<K, V> extends AbstractMap<K,V> implements Concur
 						succ.pred = newNode;
 						pred.succ = newNode;
 						pred.unlockSuccLock();
+						counter.increment();
 						insertToTree(parent, newNode, parent == pred);
 						return null;
 					}
@@ -451,6 +497,7 @@ public class LogicalOrderingAVL<K, V> extends AbstractMap<K,V> implements Concur
 						pred.succ = succSucc;
 						succ.unlockSuccLock();
 						pred.unlockSuccLock();
+						counter.decrement();
 						removeFromTree(succ, successor, succParent);
 						return succItem;
 					}
@@ -798,6 +845,7 @@ public class LogicalOrderingAVL<K, V> extends AbstractMap<K,V> implements Concur
 		root.leftHeight = 1;
 		root.parent.unlockSuccLock();
 		root.unlockTreeLock();
+		counter.clear();
 	}
 
 	/**
@@ -828,6 +876,14 @@ public class LogicalOrderingAVL<K, V> extends AbstractMap<K,V> implements Concur
 		return size(root.left);
 	}
 
+	/**
+	 * @see contention.abstractions.ApproximateSize#approximateSize()
+	 */
+	@Override
+	public int approximateSize() {
+		return counter.size();
+	}
+
 	/**
 	 * Returns the number of nodes in the sub-tree rooted at the given node.
 	 * 
@@ -55,18 +55,21 @@ package trees.lockfree;
  */
 
 import contention.abstractions.AbstractCompositionalIntSet;
+import contention.abstractions.ApproximateSize;
 import contention.abstractions.CompositionalIntSet;
+import contention.abstractions.SizeCounter;
 
 import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-public class LockFreeChromaticSet extends AbstractCompositionalIntSet {
+public class LockFreeChromaticSet extends AbstractCompositionalIntSet implements ApproximateSize {
     private int d; // this is the number of violations to allow on a search path before we fix everything on it. if d is zero, then each update fixes any violation it created before returning.
     private static final int DEFAULT_d = 6; // experimentally determined to yield good performance for both random workloads, and operations on sorted sequences
     private Node root;
     private Operation dummy;
     private AtomicReferenceFieldUpdater<LockFreeChromaticSet.Node, LockFreeChromaticSet.Operation> updateOp;
     private AtomicReferenceFieldUpdater<LockFreeChromaticSet.Node, LockFreeChromaticSet.Node> updateLeft, updateRight;
+    private final SizeCounter counter = new SizeCounter(); // counts the keys at the successful SCXs of the updates
 
     public LockFreeChromaticSet() {
         clear();
@@ -79,6 +82,7 @@ public class LockFreeChromaticSet extends AbstractCompositionalIntSet {
         updateOp = AtomicReferenceFieldUpdater.newUpdater(Node.class, Operation.class, "op");
         updateLeft = AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "left");
         updateRight = AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "right");
+        counter.clear();
     }
 
     /**
@@ -91,6 +95,14 @@ public class LockFreeChromaticSet extends AbstractCompositionalIntSet {
         return sequentialSize(root);
     }
 
+    /**
+     * approximateSize() is a constant time method, exact if no concurrent
+     * updates occur.
+     */
+    public final int approximateSize() {
+        return counter.size();
+    }
+
     private int sequentialSize(final Node node) {
         if (node == null) return 0;
         if (node.left == null && node.key != Integer.MAX_VALUE) return 1;
@@ -139,6 +151,7 @@ public class LockFreeChromaticSet extends AbstractCompositionalIntSet {
                 }
             }
             if (helpSCX(op, 0)) {
+                counter.increment();
                 // clean up violations if necessary
                 if (d == 0) {
                     if (!found && p.weight == 0 && l.weight == 1) fixToKey(key);
@@ -180,6 +193,7 @@ public class LockFreeChromaticSet extends AbstractCompositionalIntSet {
                 op = createDeleteOp(gp, p, l);
             }
             if (helpSCX(op, 0)) {
+                counter.decrement();
                 // clean up violations if necessary
                 if (d == 0) {
                     if (p.weight > 0 && l.weight > 0 && !isSentinel(p)) fixToKey(key);